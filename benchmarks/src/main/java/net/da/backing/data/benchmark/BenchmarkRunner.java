@@ -0,0 +1,57 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.da.backing.data.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the usual JMH command line options, adding the
+ * gc profiler so that allocation rates are reported alongside throughput.
+ * Pass <code>-nogc</code> to leave it out.
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+            boolean gc = true;
+            List<String> jmhArgs = new ArrayList<>();
+            for (String arg : args) {
+                    if ("-nogc".equals(arg)) {
+                            gc = false;
+                    } else {
+                            jmhArgs.add(arg);
+                    }
+            }
+
+            CommandLineOptions cmdOptions = new CommandLineOptions(jmhArgs.toArray(new String[jmhArgs.size()]));
+            if (cmdOptions.shouldHelp() || cmdOptions.shouldList() || cmdOptions.shouldListProfilers()
+                            || cmdOptions.shouldListResultFormats()) {
+                    Main.main(jmhArgs.toArray(new String[jmhArgs.size()]));
+                    return;
+            }
+
+            ChainedOptionsBuilder options = new OptionsBuilder().parent(cmdOptions);
+            if (gc && cmdOptions.getProfilers().stream().noneMatch(p -> p.getKlass().equals(GCProfiler.class.getName()))) {
+                    options.addProfiler(GCProfiler.class);
+            }
+            new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.da.backing.data.benchmark;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.da.backing.data.search.InternalUtil;
+
+/**
+ * Converting search values to the type of the property they are compared to
+ * with <code>InternalUtil.convertIfNeeded()</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConvertBenchmark {
+
+    /**
+     * The source and target of the conversion.
+     */
+    @Param({ "Long-Long", "Integer-Long", "String-Integer", "Double-String", "String-LocalDate" })
+    public String conversion;
+
+    private Object value;
+    private Class<?> type;
+
+    @Setup
+    public void setup() {
+            switch (conversion) {
+            case "Long-Long":
+                    value = 42L;
+                    type = Long.class;
+                    break;
+            case "Integer-Long":
+                    value = 42;
+                    type = Long.class;
+                    break;
+            case "String-Integer":
+                    value = "42";
+                    type = Integer.class;
+                    break;
+            case "Double-String":
+                    value = 4.2;
+                    type = String.class;
+                    break;
+            case "String-LocalDate":
+                    value = "2013-06-01";
+                    type = LocalDate.class;
+                    break;
+            default:
+                    throw new IllegalArgumentException(conversion);
+            }
+    }
+
+    @Benchmark
+    public Object convertIfNeeded() {
+            return InternalUtil.convertIfNeeded(value, type);
+    }
+}
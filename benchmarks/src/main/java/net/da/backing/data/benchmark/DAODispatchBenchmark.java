@@ -0,0 +1,154 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.da.backing.data.benchmark;
+
+import java.io.Serializable;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.da.backing.data.dao.DAOUtil;
+import net.da.backing.data.dao.hibernate.DAODispatcher;
+import net.da.backing.data.search.ISearch;
+import net.da.backing.data.search.Search;
+
+/**
+ * Calls to a specific DAO that does not implement <code>IGenericDAO</code>
+ * through <code>DAODispatcher</code>, compared with looking the DAO up by class
+ * name and calling it with <code>DAOUtil.callMethod()</code>, which is how the
+ * dispatchers used to call it. Also measures choosing an overload with
+ * <code>DAOUtil.getMethod()</code> on its own.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DAODispatchBenchmark {
+
+    public static class Customer {
+    }
+
+    /**
+     * A specific DAO with overloads, var-args and primitive parameters.
+     */
+    public static class CustomerDAO {
+            private final Customer customer = new Customer();
+
+            public Customer find(Serializable id) {
+                    return customer;
+            }
+
+            public Customer[] find(Serializable... ids) {
+                    return new Customer[ids.length];
+            }
+
+            public boolean remove(Customer entity) {
+                    return true;
+            }
+
+            public void remove(Customer... entities) {
+            }
+
+            public int count(ISearch search) {
+                    return 1;
+            }
+
+            public int count(ISearch search, int cap) {
+                    return cap;
+            }
+    }
+
+    private Map<String, Object> specificDAOs;
+    private DAODispatcher dispatcher;
+    private ISearch search;
+    private Customer[] customers;
+
+    @Setup
+    public void setup() {
+            specificDAOs = new HashMap<>();
+            specificDAOs.put(Customer.class.getName(), new CustomerDAO());
+            dispatcher = new DAODispatcher();
+            dispatcher.setSpecificDAOs(specificDAOs);
+            search = new Search(Customer.class);
+            customers = new Customer[10];
+            for (int i = 0; i < customers.length; i++) {
+                    customers[i] = new Customer();
+            }
+    }
+
+    @Benchmark
+    public Method getMethod() {
+            return DAOUtil.getMethod(CustomerDAO.class, "find", Long.class);
+    }
+
+    @Benchmark
+    public Method getMethodVarArgs() {
+            return DAOUtil.getMethod(CustomerDAO.class, "find", Long.class, Long.class, Long.class);
+    }
+
+    @Benchmark
+    public Object findReflective() throws Exception {
+            return DAOUtil.callMethod(specificDAOs.get(Customer.class.getName()), "find", 1L);
+    }
+
+    @Benchmark
+    public Object findDispatched() {
+            return dispatcher.find(Customer.class, 1L);
+    }
+
+    @Benchmark
+    public Object findManyReflective() throws Exception {
+            return DAOUtil.callMethod(specificDAOs.get(Customer.class.getName()), "find", 1L, 2L, 3L);
+    }
+
+    @Benchmark
+    public Object findManyDispatched() {
+            return dispatcher.find(Customer.class, 1L, 2L, 3L);
+    }
+
+    @Benchmark
+    public Object removeAllReflective() throws Exception {
+            return DAOUtil.callMethod(specificDAOs.get(Customer.class.getName()), "remove", (Object[]) customers);
+    }
+
+    @Benchmark
+    public void removeAllDispatched() {
+            dispatcher.remove((Object[]) customers);
+    }
+
+    @Benchmark
+    public Object countReflective() throws Exception {
+            return DAOUtil.callMethod(specificDAOs.get(Customer.class.getName()), "count",
+                            new Class<?>[] { ISearch.class, int.class }, search, 100);
+    }
+
+    @Benchmark
+    public int countDispatched() {
+            return dispatcher.count(search, 100);
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.da.backing.data.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.da.backing.data.benchmark.model.Address;
+import net.da.backing.data.benchmark.model.Company;
+import net.da.backing.data.benchmark.model.Person;
+import net.da.backing.data.search.Filter;
+import net.da.backing.data.search.ISearch;
+import net.da.backing.data.search.Search;
+
+/**
+ * The searches and examples shared by the benchmarks.
+ */
+public class Fixtures {
+
+    private Fixtures() {
+    }
+
+    /**
+     * The names of the searches returned by {@link #search(String)}, for use
+     * as a <code>@Param</code>.
+     */
+    public static final String SIMPLE = "simple", TYPICAL = "typical", COMPLEX = "complex", PROJECTION = "projection";
+
+    public static ISearch search(String name) {
+            switch (name) {
+            case SIMPLE:
+                    return simpleSearch();
+            case TYPICAL:
+                    return typicalSearch();
+            case COMPLEX:
+                    return complexSearch();
+            case PROJECTION:
+                    return projectionSearch();
+            default:
+                    throw new IllegalArgumentException("Unknown search: " + name);
+            }
+    }
+
+    /**
+     * One equality filter, a sort and a page.
+     */
+    public static Search simpleSearch() {
+            return new Search(Person.class)
+                            .addFilterEqual("lastName", "Smith")
+                            .addSortAsc("firstName")
+                            .setMaxResults(20);
+    }
+
+    /**
+     * A search screen: a few optional criteria, one of them on a joined
+     * entity, sorted and paged.
+     */
+    public static Search typicalSearch() {
+            return new Search(Person.class)
+                            .addFilterILike("lastName", "smi%")
+                            .addFilterGreaterOrEqual("age", 18)
+                            .addFilterLessThan("age", 65)
+                            .addFilterEqual("employer.name", "Acme")
+                            .addFilterEqual("active", true)
+                            .addSortAsc("lastName")
+                            .addSortAsc("firstName")
+                            .setFirstResult(40)
+                            .setMaxResults(20);
+    }
+
+    /**
+     * Nested conjunctions and disjunctions, an IN-list, a negation and
+     * collection filters, with a fetch and sorts on joined properties.
+     */
+    public static Search complexSearch() {
+            List<String> cities = new ArrayList<>();
+            for (int i = 0; i < 25; i++) {
+                    cities.add("City " + i);
+            }
+            return new Search(Person.class)
+                            .addFilterOr(
+                                            Filter.and(Filter.like("firstName", "Jo%"), Filter.ilike("lastName", "%son")),
+                                            Filter.and(Filter.equal("employer.country", "NZ"), Filter.greaterThan("salary", 50000.0)))
+                            .addFilterIn("address.city", cities)
+                            .addFilterNot(Filter.isNull("email"))
+                            .addFilterSome("friends", Filter.equal("employer.name", "Acme"))
+                            .addFilterNotEmpty("tags")
+                            .addFilterNotEqual("active", false)
+                            .addFetch("employer")
+                            .addSortDesc("employer.name")
+                            .addSortAsc("lastName", true)
+                            .setMaxResults(50);
+    }
+
+    /**
+     * Selected fields with keys, one of them on a joined entity.
+     */
+    public static Search projectionSearch() {
+            return new Search(Person.class)
+                            .addField("employer.name", "company")
+                            .addField("lastName", "name")
+                            .addField("salary", "salary")
+                            .addField("id", "id")
+                            .addFilterEqual("active", true)
+                            .addFilterGreaterThan("age", 21)
+                            .addSortAsc("employer.name")
+                            .setResultMode(ISearch.RESULT_MAP);
+    }
+
+    /**
+     * A list of <code>size</code> ids.
+     */
+    public static List<Long> ids(int size) {
+            List<Long> ids = new ArrayList<>(size);
+            for (long i = 0; i < size; i++) {
+                    ids.add(i * 7 + 1);
+            }
+            return ids;
+    }
+
+    /**
+     * A person without an id, with values in most properties, including an
+     * embeddable and a to-one entity.
+     */
+    public static Person examplePerson() {
+            Person person = new Person();
+            person.firstName = "John";
+            person.lastName = "Smith";
+            person.email = "john.smith@example.com";
+            person.age = 42;
+            person.active = true;
+            person.address = new Address("1 Main Street", "Springfield", "12345");
+            person.employer = new Company(null, "Acme", "NZ");
+            return person;
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.da.backing.data.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.da.backing.data.search.ISearch;
+import net.da.backing.data.search.SearchUtil;
+
+/**
+ * Copying, comparing and hashing searches, as done to key the query plan
+ * and search result caches.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchUtilBenchmark {
+
+    @Param({ Fixtures.SIMPLE, Fixtures.TYPICAL, Fixtures.COMPLEX, Fixtures.PROJECTION })
+    public String search;
+
+    private ISearch theSearch;
+    private ISearch equalSearch;
+
+    @Setup
+    public void setup() {
+            theSearch = Fixtures.search(search);
+            // built separately, so that equals() compares every part
+            equalSearch = Fixtures.search(search);
+    }
+
+    @Benchmark
+    public ISearch copySearch() {
+            return SearchUtil.copy(theSearch);
+    }
+
+    @Benchmark
+    public boolean equalSearches() {
+            return SearchUtil.equals(theSearch, equalSearch);
+    }
+
+    @Benchmark
+    public int hashSearch() {
+            return SearchUtil.hashCode(theSearch);
+    }
+}
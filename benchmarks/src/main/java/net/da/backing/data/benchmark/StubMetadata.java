@@ -0,0 +1,167 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.da.backing.data.benchmark;
+
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import net.da.backing.data.search.Metadata;
+
+/**
+ * Metadata for the benchmark model that is declared in code, so that the
+ * benchmarks need no persistence provider or database. Property values are
+ * read through the functions given when the property is added.
+ */
+public class StubMetadata implements Metadata {
+
+    private final Class<?> javaClass;
+    private final boolean entity;
+    private final boolean embeddable;
+    private final Class<?> collectionClass;
+    private final StubMetadata element;
+
+    private final Map<String, StubMetadata> propertyTypes = new LinkedHashMap<>();
+    private final Map<String, Function<Object, Object>> getters = new LinkedHashMap<>();
+    private String[] properties = new String[0];
+    private String idProperty;
+
+    private StubMetadata(Class<?> javaClass, boolean entity, boolean embeddable) {
+            this.javaClass = javaClass;
+            this.entity = entity;
+            this.embeddable = embeddable;
+            this.collectionClass = null;
+            this.element = this;
+    }
+
+    private StubMetadata(StubMetadata element, Class<?> collectionClass) {
+            this.javaClass = element.javaClass;
+            this.entity = element.entity;
+            this.embeddable = element.embeddable;
+            this.collectionClass = collectionClass;
+            this.element = element;
+    }
+
+    public static StubMetadata entity(Class<?> javaClass) {
+            return new StubMetadata(javaClass, true, false);
+    }
+
+    public static StubMetadata embeddable(Class<?> javaClass) {
+            return new StubMetadata(javaClass, false, true);
+    }
+
+    public static StubMetadata value(Class<?> javaClass) {
+            return new StubMetadata(javaClass, false, false);
+    }
+
+    /**
+     * Return the metadata of a collection of elements of this type.
+     */
+    public StubMetadata collectionOf(Class<?> collectionClass) {
+            return new StubMetadata(this, collectionClass);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> StubMetadata id(String property, StubMetadata type, Function<T, Object> getter) {
+            idProperty = property;
+            propertyTypes.put(property, type);
+            getters.put(property, (Function<Object, Object>) getter);
+            return this;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> StubMetadata property(String property, StubMetadata type, Function<T, Object> getter) {
+            propertyTypes.put(property, type);
+            getters.put(property, (Function<Object, Object>) getter);
+            properties = propertyTypes.keySet().stream().filter(p -> !p.equals(idProperty)).toArray(String[]::new);
+            return this;
+    }
+
+    @Override
+    public boolean isEntity() {
+            return entity;
+    }
+
+    @Override
+    public boolean isEmbeddable() {
+            return embeddable;
+    }
+
+    @Override
+    public boolean isCollection() {
+            return collectionClass != null;
+    }
+
+    @Override
+    public boolean isString() {
+            return String.class.equals(javaClass);
+    }
+
+    @Override
+    public boolean isNumeric() {
+            return Number.class.isAssignableFrom(javaClass);
+    }
+
+    @Override
+    public Class<?> getJavaClass() {
+            return javaClass;
+    }
+
+    @Override
+    public String getEntityName() {
+            return entity ? javaClass.getSimpleName() : null;
+    }
+
+    @Override
+    public String[] getProperties() {
+            return element.properties.clone();
+    }
+
+    @Override
+    public Object getPropertyValue(Object object, String property) {
+            Function<Object, Object> getter = element.getters.get(property);
+            if (getter == null)
+                    throw new IllegalArgumentException("No property " + property + " on " + javaClass.getName());
+            return object == null ? null : getter.apply(object);
+    }
+
+    @Override
+    public Metadata getPropertyType(String property) {
+            StubMetadata type = element.propertyTypes.get(property);
+            if (type == null)
+                    throw new IllegalArgumentException("No property " + property + " on " + javaClass.getName());
+            return type;
+    }
+
+    @Override
+    public String getIdProperty() {
+            return element.idProperty;
+    }
+
+    @Override
+    public Metadata getIdType() {
+            return element.idProperty == null ? null : element.propertyTypes.get(element.idProperty);
+    }
+
+    @Override
+    public Serializable getIdValue(Object object) {
+            return element.idProperty == null ? null : (Serializable) getPropertyValue(object, element.idProperty);
+    }
+
+    @Override
+    public Class<?> getCollectionClass() {
+            return collectionClass;
+    }
+}
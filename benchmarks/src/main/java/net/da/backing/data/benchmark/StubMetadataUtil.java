@@ -0,0 +1,118 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.da.backing.data.benchmark;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import net.da.backing.data.benchmark.model.Address;
+import net.da.backing.data.benchmark.model.Company;
+import net.da.backing.data.benchmark.model.Person;
+import net.da.backing.data.search.Metadata;
+import net.da.backing.data.search.MetadataUtil;
+
+/**
+ * A <code>MetadataUtil</code> for the benchmark model built from
+ * {@link StubMetadata}.
+ */
+public class StubMetadataUtil implements MetadataUtil {
+
+    private static final StubMetadataUtil INSTANCE = new StubMetadataUtil();
+
+    private final Map<Class<?>, StubMetadata> classes = new HashMap<>();
+
+    public static StubMetadataUtil getInstance() {
+            return INSTANCE;
+    }
+
+    private StubMetadataUtil() {
+            StubMetadata longType = StubMetadata.value(Long.class);
+            StubMetadata stringType = StubMetadata.value(String.class);
+
+            StubMetadata address = StubMetadata.embeddable(Address.class)
+                            .property("street", stringType, (Address a) -> a.street)
+                            .property("city", stringType, (Address a) -> a.city)
+                            .property("zip", stringType, (Address a) -> a.zip);
+
+            StubMetadata company = StubMetadata.entity(Company.class)
+                            .id("id", longType, (Company c) -> c.id)
+                            .property("name", stringType, (Company c) -> c.name)
+                            .property("country", stringType, (Company c) -> c.country);
+
+            StubMetadata person = StubMetadata.entity(Person.class);
+            person.id("id", longType, (Person p) -> p.id)
+                            .property("firstName", stringType, (Person p) -> p.firstName)
+                            .property("lastName", stringType, (Person p) -> p.lastName)
+                            .property("email", stringType, (Person p) -> p.email)
+                            .property("age", StubMetadata.value(Integer.class), (Person p) -> p.age)
+                            .property("salary", StubMetadata.value(Double.class), (Person p) -> p.salary)
+                            .property("active", StubMetadata.value(Boolean.class), (Person p) -> p.active)
+                            .property("address", address, (Person p) -> p.address)
+                            .property("employer", company, (Person p) -> p.employer)
+                            .property("tags", stringType.collectionOf(Set.class), (Person p) -> p.tags)
+                            .property("friends", person.collectionOf(Set.class), (Person p) -> p.friends);
+
+            classes.put(Address.class, address);
+            classes.put(Company.class, company);
+            classes.put(Person.class, person);
+    }
+
+    @Override
+    public Serializable getId(Object object) {
+            return object == null ? null : get(object.getClass()).getIdValue(object);
+    }
+
+    @Override
+    public boolean isId(Class<?> rootClass, String propertyPath) {
+            if (propertyPath == null || "".equals(propertyPath))
+                    return false;
+            int dot = propertyPath.lastIndexOf('.');
+            Metadata owner = dot == -1 ? get(rootClass) : get(rootClass, propertyPath.substring(0, dot));
+            return owner.isEntity() && propertyPath.substring(dot + 1).equals(owner.getIdProperty());
+    }
+
+    @Override
+    public Metadata get(Class<?> klass) throws IllegalArgumentException {
+            StubMetadata metadata = classes.get(klass);
+            return metadata == null ? StubMetadata.value(klass) : metadata;
+    }
+
+    @Override
+    public Metadata get(Class<?> rootEntityClass, String propertyPath) throws IllegalArgumentException {
+            Metadata metadata = get(rootEntityClass);
+            if (propertyPath == null || "".equals(propertyPath))
+                    return metadata;
+            int start = 0;
+            while (true) {
+                    int dot = propertyPath.indexOf('.', start);
+                    metadata = metadata.getPropertyType(dot == -1 ? propertyPath.substring(start) : propertyPath.substring(start, dot));
+                    if (dot == -1)
+                            return metadata;
+                    start = dot + 1;
+            }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> Class<T> getUnproxiedClass(Class<?> klass) {
+            return (Class<T>) klass;
+    }
+
+    @Override
+    public <T> Class<T> getUnproxiedClass(Object entity) {
+            return getUnproxiedClass(entity.getClass());
+    }
+}
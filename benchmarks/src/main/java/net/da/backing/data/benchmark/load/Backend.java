@@ -0,0 +1,170 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.da.backing.data.benchmark.load;
+
+import java.util.Properties;
+import java.util.function.Function;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.springframework.orm.hibernate5.HibernateTransactionManager;
+import org.springframework.orm.hibernate5.LocalSessionFactoryBuilder;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+import net.da.backing.data.benchmark.model.Company;
+import net.da.backing.data.benchmark.model.Person;
+import net.da.backing.data.dao.hibernate.GeneralDAO;
+import net.da.backing.data.dao.jpa.GeneralDAOImpl;
+import net.da.backing.data.dao.jpa.JPABaseDAO;
+import net.da.backing.data.search.jpa.JPAAnnotationMetadataUtil;
+import net.da.backing.data.search.jpa.JPASearchProcessor;
+
+/**
+ * One DAO stack under test, wired the way a Spring application would wire
+ * it, on its own in-memory H2 database and connection pool.
+ */
+public class Backend implements AutoCloseable {
+
+    /**
+     * The names of the DAO stacks that can be created.
+     */
+    public static final String HIBERNATE_GENERAL = "hibernate-general", HIBERNATE_GENERIC = "hibernate-generic",
+                    JPA_GENERAL = "jpa-general", JPA_GENERIC = "jpa-generic";
+
+    private final String name;
+    private final HikariDataSource dataSource;
+    private final SessionFactory sessionFactory;
+    private final TransactionTemplate transactionTemplate;
+    private final DAOAdapter dao;
+    private final LocalContainerEntityManagerFactoryBean emfBean;
+
+    /**
+     * @param name
+     *            one of the stack names
+     * @param poolSize
+     *            the maximum number of connections
+     * @param hibernateProperties
+     *            extra Hibernate settings, e.g.
+     *            <code>hibernate.jdbc.batch_size</code>
+     */
+    public Backend(String name, int poolSize, Properties hibernateProperties) {
+            this.name = name;
+
+            HikariConfig config = new HikariConfig();
+            config.setJdbcUrl("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+            config.setUsername("sa");
+            config.setMaximumPoolSize(poolSize);
+            dataSource = new HikariDataSource(config);
+
+            Properties properties = new Properties();
+            properties.setProperty("hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+            properties.setProperty("hibernate.hbm2ddl.auto", "create");
+            properties.setProperty("hibernate.generate_statistics", "true");
+            properties.putAll(hibernateProperties);
+
+            if (name.startsWith("hibernate-")) {
+                    emfBean = null;
+                    sessionFactory = new LocalSessionFactoryBuilder(dataSource)
+                                    .addAnnotatedClasses(Person.class, Company.class)
+                                    .addProperties(properties)
+                                    .buildSessionFactory();
+                    transactionTemplate = new TransactionTemplate(new HibernateTransactionManager(sessionFactory));
+
+                    if (HIBERNATE_GENERAL.equals(name)) {
+                            GeneralDAO generalDAO = new GeneralDAO();
+                            generalDAO.setSessionFactory(sessionFactory);
+                            generalDAO.afterPropertiesSet();
+                            dao = DAOAdapter.of(generalDAO);
+                    } else if (HIBERNATE_GENERIC.equals(name)) {
+                            DAOAdapter.HibernatePersonDAO personDAO = new DAOAdapter.HibernatePersonDAO();
+                            personDAO.setSessionFactory(sessionFactory);
+                            personDAO.afterPropertiesSet();
+                            DAOAdapter.HibernateCompanyDAO companyDAO = new DAOAdapter.HibernateCompanyDAO();
+                            companyDAO.setSessionFactory(sessionFactory);
+                            dao = DAOAdapter.of(personDAO, companyDAO);
+                    } else {
+                            throw new IllegalArgumentException("Unknown backend: " + name);
+                    }
+            } else {
+                    emfBean = new LocalContainerEntityManagerFactoryBean();
+                    emfBean.setDataSource(dataSource);
+                    emfBean.setPackagesToScan(Person.class.getPackage().getName());
+                    emfBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+                    emfBean.setJpaProperties(properties);
+                    emfBean.setPersistenceUnitName(name);
+                    emfBean.afterPropertiesSet();
+                    EntityManagerFactory emf = emfBean.getObject();
+                    sessionFactory = emf.unwrap(SessionFactory.class);
+                    transactionTemplate = new TransactionTemplate(new JpaTransactionManager(emf));
+
+                    EntityManager entityManager = SharedEntityManagerCreator.createSharedEntityManager(emf);
+                    JPASearchProcessor searchProcessor = new JPASearchProcessor(new JPAAnnotationMetadataUtil());
+                    if (JPA_GENERAL.equals(name)) {
+                            dao = DAOAdapter.of(init(new GeneralDAOImpl(), searchProcessor, entityManager));
+                    } else if (JPA_GENERIC.equals(name)) {
+                            dao = DAOAdapter.of(init(new DAOAdapter.JPAPersonDAO(), searchProcessor, entityManager),
+                                            init(new DAOAdapter.JPACompanyDAO(), searchProcessor, entityManager));
+                    } else {
+                            throw new IllegalArgumentException("Unknown backend: " + name);
+                    }
+            }
+    }
+
+    private static <D extends JPABaseDAO> D init(D dao, JPASearchProcessor searchProcessor, EntityManager entityManager) {
+            dao.setSearchProcessor(searchProcessor);
+            dao.setEntityManager(entityManager);
+            return dao;
+    }
+
+    public String getName() {
+            return name;
+    }
+
+    public SessionFactory getSessionFactory() {
+            return sessionFactory;
+    }
+
+    /**
+     * Run an operation on the DAO in a transaction.
+     */
+    public <T> T execute(Function<DAOAdapter, T> operation) {
+            return transactionTemplate.execute(status -> operation.apply(dao));
+    }
+
+    /**
+     * The number of JDBC statements prepared so far.
+     */
+    public long getStatementCount() {
+            return sessionFactory.getStatistics().getPrepareStatementCount();
+    }
+
+    @Override
+    public void close() {
+            if (emfBean != null) {
+                    emfBean.destroy();
+            } else {
+                    sessionFactory.close();
+            }
+            dataSource.close();
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.da.backing.data.benchmark.load;
+
+import java.util.List;
+
+import net.da.backing.data.benchmark.model.Company;
+import net.da.backing.data.benchmark.model.Person;
+import net.da.backing.data.dao.hibernate.GenericDAO;
+import net.da.backing.data.dao.hibernate.IGeneralDAO;
+import net.da.backing.data.dao.jpa.GeneralDAO;
+import net.da.backing.data.dao.jpa.GenericDAOImpl;
+import net.da.backing.data.search.ISearch;
+import net.da.backing.data.search.SearchResult;
+
+/**
+ * The operations of the load test, implemented by each kind of DAO. Every
+ * method is called inside a transaction.
+ */
+public interface DAOAdapter {
+
+    Person find(Long id);
+
+    List<?> search(ISearch search);
+
+    SearchResult<?> searchAndCount(ISearch search);
+
+    /**
+     * Save new people and return their ids.
+     */
+    Long[] save(Person[] people);
+
+    boolean removeById(Long id);
+
+    Company getCompanyReference(Long id);
+
+    public static class HibernatePersonDAO extends GenericDAO<Person, Long> {
+    }
+
+    public static class HibernateCompanyDAO extends GenericDAO<Company, Long> {
+    }
+
+    public static class JPAPersonDAO extends GenericDAOImpl<Person, Long> {
+    }
+
+    public static class JPACompanyDAO extends GenericDAOImpl<Company, Long> {
+    }
+
+    /**
+     * Calls a Hibernate <code>IGeneralDAO</code>.
+     */
+    public static DAOAdapter of(IGeneralDAO dao) {
+            return new DAOAdapter() {
+                    @Override
+                    public Person find(Long id) {
+                            return dao.find(Person.class, id);
+                    }
+
+                    @Override
+                    public List<?> search(ISearch search) {
+                            return dao.search(search);
+                    }
+
+                    @Override
+                    public SearchResult<?> searchAndCount(ISearch search) {
+                            return dao.searchAndCount(search);
+                    }
+
+                    @Override
+                    public Long[] save(Person[] people) {
+                            dao.saveOrUpdateIsNew((Object[]) people);
+                            return ids(people);
+                    }
+
+                    @Override
+                    public boolean removeById(Long id) {
+                            return dao.removeById(Person.class, id);
+                    }
+
+                    @Override
+                    public Company getCompanyReference(Long id) {
+                            return dao.getReference(Company.class, id);
+                    }
+            };
+    }
+
+    /**
+     * Calls Hibernate <code>IGenericDAO</code>s.
+     */
+    public static DAOAdapter of(HibernatePersonDAO personDAO, HibernateCompanyDAO companyDAO) {
+            return new DAOAdapter() {
+                    @Override
+                    public Person find(Long id) {
+                            return personDAO.find(id);
+                    }
+
+                    @Override
+                    public List<?> search(ISearch search) {
+                            return personDAO.search(search);
+                    }
+
+                    @Override
+                    public SearchResult<?> searchAndCount(ISearch search) {
+                            return personDAO.searchAndCount(search);
+                    }
+
+                    @Override
+                    public Long[] save(Person[] people) {
+                            personDAO.saveOrUpdateIsNew(people);
+                            return ids(people);
+                    }
+
+                    @Override
+                    public boolean removeById(Long id) {
+                            return personDAO.removeById(id);
+                    }
+
+                    @Override
+                    public Company getCompanyReference(Long id) {
+                            return companyDAO.getReference(id);
+                    }
+            };
+    }
+
+    /**
+     * Calls a JPA <code>GeneralDAO</code>.
+     */
+    public static DAOAdapter of(GeneralDAO dao) {
+            return new DAOAdapter() {
+                    @Override
+                    public Person find(Long id) {
+                            return dao.find(Person.class, id);
+                    }
+
+                    @Override
+                    public List<?> search(ISearch search) {
+                            return dao.search(search);
+                    }
+
+                    @Override
+                    public SearchResult<?> searchAndCount(ISearch search) {
+                            return dao.searchAndCount(search);
+                    }
+
+                    @Override
+                    public Long[] save(Person[] people) {
+                            Object[] saved = dao.save((Object[]) people);
+                            Long[] ids = new Long[saved.length];
+                            for (int i = 0; i < saved.length; i++) {
+                                    ids[i] = ((Person) saved[i]).id;
+                            }
+                            return ids;
+                    }
+
+                    @Override
+                    public boolean removeById(Long id) {
+                            return dao.removeById(Person.class, id);
+                    }
+
+                    @Override
+                    public Company getCompanyReference(Long id) {
+                            return dao.getReference(Company.class, id);
+                    }
+            };
+    }
+
+    /**
+     * Calls JPA <code>GenericDAO</code>s.
+     */
+    public static DAOAdapter of(JPAPersonDAO personDAO, JPACompanyDAO companyDAO) {
+            return new DAOAdapter() {
+                    @Override
+                    public Person find(Long id) {
+                            return personDAO.find(id);
+                    }
+
+                    @Override
+                    public List<?> search(ISearch search) {
+                            return personDAO.search(search);
+                    }
+
+                    @Override
+                    public SearchResult<?> searchAndCount(ISearch search) {
+                            return personDAO.searchAndCount(search);
+                    }
+
+                    @Override
+                    public Long[] save(Person[] people) {
+                            return ids(personDAO.save(people));
+                    }
+
+                    @Override
+                    public boolean removeById(Long id) {
+                            return personDAO.removeById(id);
+                    }
+
+                    @Override
+                    public Company getCompanyReference(Long id) {
+                            return companyDAO.getReference(id);
+                    }
+            };
+    }
+
+    static Long[] ids(Person[] people) {
+            Long[] ids = new Long[people.length];
+            for (int i = 0; i < people.length; i++) {
+                    ids[i] = people[i].id;
+            }
+            return ids;
+    }
+}
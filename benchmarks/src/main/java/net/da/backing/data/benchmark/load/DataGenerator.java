@@ -0,0 +1,607 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.da.backing.data.benchmark.load;
+
+import java.io.Serializable;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.hibernate.CacheMode;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+
+import net.da.backing.data.search.InternalUtil;
+import net.da.backing.data.search.Metadata;
+import net.da.backing.data.search.MetadataUtil;
+import net.da.backing.data.search.hibernate.HibernateMetadataUtil;
+
+/**
+ * Fills a database with generated rows, using the <code>Metadata</code> of
+ * each entity to find its properties, embeddables and associations. Entities
+ * are generated in association order, each class on several threads, and
+ * written in JDBC batches through one session per thread.
+ *
+ * <p>
+ * By default every value property gets a value suited to its type,
+ * collections are left empty and to-one associations point to a generated row
+ * of the target entity, if any are generated. These can be changed per
+ * property path, for example:
+ *
+ * <pre>
+ * new DataGenerator(sessionFactory)
+ *                 .setRows(Company.class, 1000)
+ *                 .setRows(Person.class, 10000000)
+ *                 .setValues(Person.class, &quot;age&quot;, DataGenerator.uniform(18, 67))
+ *                 .setValues(Person.class, &quot;address.city&quot;, DataGenerator.skewed(1.2, cities))
+ *                 .setFanOut(Person.class, &quot;friends&quot;, 0, 5)
+ *                 .setSkew(1)
+ *                 .generate();
+ * </pre>
+ *
+ * <p>
+ * Ids must be generated by Hibernate. A row can only refer to rows of its own
+ * class that were generated before it on the same thread.
+ */
+public class DataGenerator {
+
+    /**
+     * Generates the values of a property.
+     */
+    public interface ValueGenerator {
+            /**
+             * Return the next value. The value is converted to the type of the
+             * property if needed.
+             */
+            Object next(SplittableRandom random);
+    }
+
+    /**
+     * The number of distinct values of the default generator for string
+     * properties.
+     */
+    public static final int DEFAULT_CARDINALITY = 1000;
+
+    private static final long TEN_YEARS = TimeUnit.DAYS.toMillis(3652);
+
+    private final SessionFactory sessionFactory;
+    private final MetadataUtil metadataUtil;
+
+    private final Map<Class<?>, Integer> rows = new LinkedHashMap<>();
+    private final Map<String, ValueGenerator> values = new HashMap<>();
+    private final Map<String, int[]> fanOuts = new HashMap<>();
+    private double skew = 0;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int batchSize = 1000;
+    private long seed = 42;
+
+    private final Map<Class<?>, Serializable[]> ids = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Zipf> references = new ConcurrentHashMap<>();
+
+    public DataGenerator(SessionFactory sessionFactory) {
+            this(sessionFactory, HibernateMetadataUtil.getInstanceForSessionFactory(sessionFactory));
+    }
+
+    public DataGenerator(SessionFactory sessionFactory, MetadataUtil metadataUtil) {
+            this.sessionFactory = sessionFactory;
+            this.metadataUtil = metadataUtil;
+    }
+
+    /**
+     * Generate the given number of rows of the entity.
+     */
+    public DataGenerator setRows(Class<?> entityClass, int count) {
+            rows.put(entityClass, count);
+            return this;
+    }
+
+    /**
+     * Use the generator for a value property, or for the elements of a
+     * collection of values. The property may be a path through embeddables,
+     * like <code>address.city</code>.
+     */
+    public DataGenerator setValues(Class<?> entityClass, String property, ValueGenerator generator) {
+            values.put(key(entityClass, property), generator);
+            return this;
+    }
+
+    /**
+     * Fill the collection property with between <code>min</code> and
+     * <code>max</code> elements, chosen uniformly.
+     */
+    public DataGenerator setFanOut(Class<?> entityClass, String property, int min, int max) {
+            if (min < 0 || max < min) {
+                    throw new IllegalArgumentException("Invalid fan-out " + min + ".." + max + " for " + property);
+            }
+            fanOuts.put(key(entityClass, property), new int[] { min, max });
+            return this;
+    }
+
+    /**
+     * The Zipf exponent used to choose the rows that associations point to
+     * and the values of the default string generator. 0, the default, is
+     * uniform; around 1 a few rows and values are used by most rows.
+     */
+    public DataGenerator setSkew(double skew) {
+            this.skew = skew;
+            return this;
+    }
+
+    public DataGenerator setThreads(int threads) {
+            this.threads = threads;
+            return this;
+    }
+
+    /**
+     * The number of rows written per JDBC batch and per transaction.
+     */
+    public DataGenerator setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+            return this;
+    }
+
+    /**
+     * The random seed. The same settings and seed give the same data when run
+     * on the same number of threads.
+     */
+    public DataGenerator setSeed(long seed) {
+            this.seed = seed;
+            return this;
+    }
+
+    /**
+     * Return the ids of the generated rows of the entity, in the order they
+     * were generated.
+     */
+    public Serializable[] getIds(Class<?> entityClass) {
+            return ids.get(entityClass);
+    }
+
+    /**
+     * Generate all the rows.
+     */
+    public void generate() {
+            Map<Class<?>, Plan> plans = new LinkedHashMap<>();
+            for (Class<?> entityClass : rows.keySet()) {
+                    plans.put(entityClass, plan(metadataUtil.get(entityClass), entityClass, ""));
+            }
+            for (Class<?> entityClass : order(plans)) {
+                    long start = System.nanoTime();
+                    generate(entityClass, plans.get(entityClass));
+                    long elapsed = System.nanoTime() - start;
+                    System.out.printf("Generated %d rows of %s in %.1f s%n", rows.get(entityClass),
+                                    entityClass.getSimpleName(), elapsed / 1e9);
+            }
+    }
+
+    // ---- plans
+
+    private static String key(Class<?> entityClass, String property) {
+            return entityClass.getName() + "#" + property;
+    }
+
+    /**
+     * How to fill in one entity or embeddable.
+     */
+    private static final class Plan {
+            final MethodHandle constructor;
+            final List<PropertyPlan> properties = new ArrayList<>();
+            final List<Class<?>> targets = new ArrayList<>();
+
+            Plan(MethodHandle constructor) {
+                    this.constructor = constructor;
+            }
+    }
+
+    /**
+     * How to fill in one property.
+     */
+    private static final class PropertyPlan {
+            Accessor accessor;
+            Plan embedded;
+            Class<?> target;
+            ValueGenerator values;
+            int[] fanOut;
+    }
+
+    private Plan plan(Metadata metadata, Class<?> rootClass, String prefix) {
+            Class<?> type = metadata.getJavaClass();
+            Plan plan;
+            try {
+                    plan = new Plan(MethodHandles.lookup().unreflectConstructor(accessible(type.getDeclaredConstructor()))
+                                    .asType(MethodType.methodType(Object.class)));
+            } catch (ReflectiveOperationException e) {
+                    throw new IllegalArgumentException("Unable to create instances of " + type.getName(), e);
+            }
+
+            for (String property : metadata.getProperties()) {
+                    if (property.equals(metadata.getIdProperty())) {
+                            continue;
+                    }
+                    String path = prefix + property;
+                    Metadata propertyType = metadata.getPropertyType(property);
+                    PropertyPlan propertyPlan = new PropertyPlan();
+
+                    if (propertyType.isCollection()) {
+                            propertyPlan.fanOut = fanOuts.get(key(rootClass, path));
+                            if (propertyPlan.fanOut == null) {
+                                    continue;
+                            }
+                    }
+                    if (propertyType.isEntity()) {
+                            propertyPlan.target = propertyType.getJavaClass();
+                            if (rows.getOrDefault(propertyPlan.target, 0) == 0) {
+                                    continue;
+                            }
+                            plan.targets.add(propertyPlan.target);
+                    } else if (propertyType.isEmbeddable() && !propertyType.isCollection()) {
+                            propertyPlan.embedded = plan(propertyType, rootClass, path + ".");
+                            plan.targets.addAll(propertyPlan.embedded.targets);
+                    } else {
+                            propertyPlan.values = values.get(key(rootClass, path));
+                            if (propertyPlan.values == null) {
+                                    propertyPlan.values = defaultValues(path, propertyType.getJavaClass());
+                            }
+                            if (propertyPlan.values == null) {
+                                    continue;
+                            }
+                    }
+                    propertyPlan.accessor = new Accessor(type, property);
+                    plan.properties.add(propertyPlan);
+            }
+            return plan;
+    }
+
+    /**
+     * Order the entities so that the targets of associations are generated
+     * first.
+     */
+    private static List<Class<?>> order(Map<Class<?>, Plan> plans) {
+            List<Class<?>> ordered = new ArrayList<>();
+            for (Class<?> entityClass : plans.keySet()) {
+                    visit(entityClass, plans, ordered, new HashSet<>());
+            }
+            return ordered;
+    }
+
+    private static void visit(Class<?> entityClass, Map<Class<?>, Plan> plans, List<Class<?>> ordered,
+                    HashSet<Class<?>> path) {
+            if (ordered.contains(entityClass)) {
+                    return;
+            }
+            if (!path.add(entityClass)) {
+                    throw new IllegalArgumentException("Associations between " + path + " form a cycle.");
+            }
+            for (Class<?> target : plans.get(entityClass).targets) {
+                    if (target != entityClass) {
+                            visit(target, plans, ordered, path);
+                    }
+            }
+            path.remove(entityClass);
+            ordered.add(entityClass);
+    }
+
+    // ---- generating
+
+    private void generate(Class<?> entityClass, Plan plan) {
+            int count = rows.get(entityClass);
+            Serializable[] classIds = new Serializable[count];
+            ids.put(entityClass, classIds);
+
+            int threadCount = Math.max(1, Math.min(threads, count / batchSize));
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            Thread[] workers = new Thread[threadCount];
+            for (int t = 0; t < threadCount; t++) {
+                    int start = (int) ((long) count * t / threadCount);
+                    int end = (int) ((long) count * (t + 1) / threadCount);
+                    SplittableRandom random = new SplittableRandom(seed * 31 + entityClass.getName().hashCode() * 17 + t);
+                    workers[t] = new Thread(() -> {
+                            try {
+                                    generate(entityClass, plan, classIds, start, end, random);
+                            } catch (Throwable e) {
+                                    failure.compareAndSet(null, e);
+                            }
+                    }, "generate-" + entityClass.getSimpleName() + "-" + t);
+                    workers[t].start();
+            }
+            for (Thread worker : workers) {
+                    try {
+                            worker.join();
+                    } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new IllegalStateException(e);
+                    }
+            }
+            if (failure.get() != null) {
+                    throw new IllegalStateException("Failed to generate " + entityClass.getName(), failure.get());
+            }
+            references.put(entityClass, new Zipf(Math.max(count, 1), skew));
+    }
+
+    private void generate(Class<?> entityClass, Plan plan, Serializable[] classIds, int start, int end,
+                    SplittableRandom random) throws Throwable {
+            try (Session session = sessionFactory.openSession()) {
+                    session.setJdbcBatchSize(batchSize);
+                    session.setCacheMode(CacheMode.IGNORE);
+                    session.setHibernateFlushMode(FlushMode.MANUAL);
+                    Row row = new Row(session, entityClass, classIds, start, random);
+                    for (int i = start; i < end;) {
+                            Transaction tx = session.beginTransaction();
+                            try {
+                                    for (int stop = Math.min(end, i + batchSize); i < stop; i++) {
+                                            row.index = i;
+                                            Object entity = newInstance(plan, row);
+                                            session.persist(entity);
+                                            classIds[i] = session.getIdentifier(entity);
+                                    }
+                                    session.flush();
+                                    tx.commit();
+                            } catch (RuntimeException e) {
+                                    tx.rollback();
+                                    throw e;
+                            }
+                            session.clear();
+                    }
+            }
+    }
+
+    /**
+     * The state of the row being generated.
+     */
+    private static final class Row {
+            final Session session;
+            final Class<?> entityClass;
+            final Serializable[] classIds;
+            final int start;
+            final SplittableRandom random;
+            int index;
+
+            Row(Session session, Class<?> entityClass, Serializable[] classIds, int start, SplittableRandom random) {
+                    this.session = session;
+                    this.entityClass = entityClass;
+                    this.classIds = classIds;
+                    this.start = start;
+                    this.random = random;
+            }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object newInstance(Plan plan, Row row) throws Throwable {
+            Object object = plan.constructor.invokeExact();
+            for (PropertyPlan property : plan.properties) {
+                    if (property.fanOut != null) {
+                            Collection<Object> collection = (Collection<Object>) property.accessor.newCollection();
+                            int size = property.fanOut[0] + row.random.nextInt(property.fanOut[1] - property.fanOut[0] + 1);
+                            for (int i = 0; i < size; i++) {
+                                    Object element = property.target != null ? reference(property.target, row)
+                                                    : property.values.next(row.random);
+                                    if (element != null) {
+                                            collection.add(element);
+                                    }
+                            }
+                            property.accessor.set(object, collection);
+                    } else if (property.target != null) {
+                            property.accessor.set(object, reference(property.target, row));
+                    } else if (property.embedded != null) {
+                            property.accessor.set(object, newInstance(property.embedded, row));
+                    } else {
+                            property.accessor.set(object, property.values.next(row.random));
+                    }
+            }
+            return object;
+    }
+
+    /**
+     * Choose a generated row of the target entity. Rows of the class being
+     * generated are chosen from those already generated on this thread.
+     */
+    private Object reference(Class<?> target, Row row) {
+            Serializable id;
+            if (target == row.entityClass) {
+                    int generated = row.index - row.start;
+                    if (generated == 0) {
+                            return null;
+                    }
+                    id = row.classIds[row.start + new Zipf(generated, skew).next(row.random)];
+            } else {
+                    id = ids.get(target)[references.get(target).next(row.random)];
+            }
+            return row.session.load(target, id);
+    }
+
+    // ---- values
+
+    private ValueGenerator defaultValues(String path, Class<?> type) {
+            if (type == String.class) {
+                    Zipf zipf = new Zipf(DEFAULT_CARDINALITY, skew);
+                    String prefix = path.substring(path.lastIndexOf('.') + 1) + " ";
+                    return random -> prefix + zipf.next(random);
+            } else if (type == Character.class || type == char.class) {
+                    return random -> (char) ('A' + random.nextInt(26));
+            } else if (type == Boolean.class || type == boolean.class) {
+                    return SplittableRandom::nextBoolean;
+            } else if (type == Double.class || type == double.class || type == Float.class || type == float.class
+                            || type == java.math.BigDecimal.class) {
+                    return uniform(0.0, 100000.0);
+            } else if (Number.class.isAssignableFrom(type) || type.isPrimitive() && type != void.class) {
+                    return uniform(0, 1000);
+            } else if (type.isEnum()) {
+                    return oneOf((Object[]) type.getEnumConstants());
+            } else if (Date.class.isAssignableFrom(type)) {
+                    MethodHandle constructor;
+                    try {
+                            constructor = MethodHandles.publicLookup().findConstructor(type,
+                                            MethodType.methodType(void.class, long.class));
+                    } catch (ReflectiveOperationException e) {
+                            return null;
+                    }
+                    return random -> {
+                            try {
+                                    return constructor.invoke(pastMillis(random));
+                            } catch (Throwable e) {
+                                    throw new IllegalStateException(e);
+                            }
+                    };
+            } else if (type == Calendar.class) {
+                    return random -> {
+                            Calendar calendar = Calendar.getInstance();
+                            calendar.setTimeInMillis(pastMillis(random));
+                            return calendar;
+                    };
+            } else if (type == Instant.class) {
+                    return random -> Instant.ofEpochMilli(pastMillis(random));
+            } else if (type == LocalDate.class) {
+                    return random -> LocalDate.now().minusDays(random.nextInt(3652));
+            } else if (type == LocalDateTime.class) {
+                    return random -> LocalDateTime.now().minusSeconds(random.nextLong(TEN_YEARS / 1000));
+            }
+            return null;
+    }
+
+    private static long pastMillis(SplittableRandom random) {
+            return System.currentTimeMillis() - random.nextLong(TEN_YEARS);
+    }
+
+    /**
+     * Whole numbers from <code>min</code> to <code>max</code>, inclusive.
+     */
+    public static ValueGenerator uniform(long min, long max) {
+            return random -> min + random.nextLong(max - min + 1);
+    }
+
+    /**
+     * Decimal numbers from <code>min</code> to <code>max</code>.
+     */
+    public static ValueGenerator uniform(double min, double max) {
+            return random -> random.nextDouble(min, max);
+    }
+
+    /**
+     * One of the values, chosen uniformly.
+     */
+    public static ValueGenerator oneOf(Object... values) {
+            return skewed(0, values);
+    }
+
+    /**
+     * One of the values, the earlier ones more often, with the given Zipf
+     * exponent.
+     */
+    public static ValueGenerator skewed(double exponent, Object... values) {
+            Object[] copy = values.clone();
+            Zipf zipf = new Zipf(copy.length, exponent);
+            return random -> copy[zipf.next(random)];
+    }
+
+    /**
+     * Null for the given fraction of the rows, otherwise a value of the
+     * generator.
+     */
+    public static ValueGenerator withNulls(double fraction, ValueGenerator generator) {
+            return random -> random.nextDouble() < fraction ? null : generator.next(random);
+    }
+
+    // ---- property access
+
+    /**
+     * Sets a property through its field or its setter.
+     */
+    private static final class Accessor {
+            private static final MethodType SETTER = MethodType.methodType(void.class, Object.class, Object.class);
+
+            private final MethodHandle setter;
+            private final Class<?> type;
+
+            Accessor(Class<?> owner, String property) {
+                    try {
+                            Field field = findField(owner, property);
+                            if (field != null) {
+                                    type = field.getType();
+                                    setter = MethodHandles.lookup().unreflectSetter(accessible(field)).asType(SETTER);
+                            } else {
+                                    Method method = findSetter(owner, property);
+                                    type = method.getParameterTypes()[0];
+                                    setter = MethodHandles.lookup().unreflect(accessible(method)).asType(SETTER);
+                            }
+                    } catch (ReflectiveOperationException e) {
+                            throw new IllegalArgumentException("Unable to set property " + property + " of "
+                                            + owner.getName(), e);
+                    }
+            }
+
+            void set(Object object, Object value) throws Throwable {
+                    if (value == null && type.isPrimitive()) {
+                            return;
+                    }
+                    setter.invokeExact(object, InternalUtil.convertIfNeeded(value, type));
+            }
+
+            Collection<?> newCollection() {
+                    if (type.isAssignableFrom(HashSet.class)) {
+                            return new HashSet<>();
+                    } else if (type.isAssignableFrom(ArrayList.class)) {
+                            return new ArrayList<>();
+                    }
+                    throw new IllegalArgumentException("Unable to create a collection of type " + type.getName());
+            }
+
+            private static Field findField(Class<?> owner, String property) {
+                    for (Class<?> klass = owner; klass != null; klass = klass.getSuperclass()) {
+                            try {
+                                    return klass.getDeclaredField(property);
+                            } catch (NoSuchFieldException e) {
+                                    // try the superclass
+                            }
+                    }
+                    return null;
+            }
+
+            private static Method findSetter(Class<?> owner, String property) throws NoSuchMethodException {
+                    String name = "set" + Character.toUpperCase(property.charAt(0)) + property.substring(1);
+                    for (Class<?> klass = owner; klass != null; klass = klass.getSuperclass()) {
+                            for (Method method : klass.getDeclaredMethods()) {
+                                    if (method.getName().equals(name) && method.getParameterCount() == 1) {
+                                            return method;
+                                    }
+                            }
+                    }
+                    throw new NoSuchMethodException(owner.getName() + "." + name);
+            }
+    }
+
+    private static <T extends java.lang.reflect.AccessibleObject> T accessible(T object) {
+            object.setAccessible(true);
+            return object;
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.da.backing.data.benchmark.load;
+
+import java.util.Arrays;
+
+/**
+ * Collects the latencies of the operations of one thread. Not thread safe;
+ * recorders of several threads are combined with {@link #merge(LatencyRecorder...)}.
+ */
+public class LatencyRecorder {
+
+    private long[] nanos = new long[1024];
+    private int size;
+
+    public void record(long latencyNanos) {
+            if (size == nanos.length) {
+                    nanos = Arrays.copyOf(nanos, size * 2);
+            }
+            nanos[size++] = latencyNanos;
+    }
+
+    public int size() {
+            return size;
+    }
+
+    /**
+     * Combine the latencies of several recorders into one sorted recorder.
+     */
+    public static LatencyRecorder merge(LatencyRecorder... recorders) {
+            LatencyRecorder merged = new LatencyRecorder();
+            int total = 0;
+            for (LatencyRecorder recorder : recorders) {
+                    total += recorder.size;
+            }
+            merged.nanos = new long[Math.max(total, 1)];
+            for (LatencyRecorder recorder : recorders) {
+                    System.arraycopy(recorder.nanos, 0, merged.nanos, merged.size, recorder.size);
+                    merged.size += recorder.size;
+            }
+            Arrays.sort(merged.nanos, 0, merged.size);
+            return merged;
+    }
+
+    /**
+     * Return the latency in milliseconds below which the given percentage of
+     * the operations completed. The recorder must have been sorted by
+     * {@link #merge(LatencyRecorder...)}.
+     */
+    public double percentile(double percent) {
+            if (size == 0) {
+                    return 0;
+            }
+            int index = (int) Math.ceil(percent / 100 * size) - 1;
+            return nanos[Math.min(Math.max(index, 0), size - 1)] / 1e6;
+    }
+
+    /**
+     * Return the largest latency in milliseconds.
+     */
+    public double max() {
+            return percentile(100);
+    }
+}
@@ -0,0 +1,327 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.da.backing.data.benchmark.load;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+
+import net.da.backing.data.benchmark.model.Address;
+import net.da.backing.data.benchmark.model.Company;
+import net.da.backing.data.benchmark.model.Person;
+import net.da.backing.data.search.Search;
+
+/**
+ * Runs the DAO stacks end to end against an in-memory H2 database. For each
+ * backend and thread count, each operation is run for a warm-up and then a
+ * measured period, and the throughput, latency percentiles and JDBC
+ * statements per operation are reported.
+ *
+ * <p>
+ * Options are given as <code>--name=value</code>:
+ * <dl>
+ * <dt>backends</dt>
+ * <dd>the DAO stacks to run, default all of <code>hibernate-general</code>,
+ * <code>hibernate-generic</code>, <code>jpa-general</code> and
+ * <code>jpa-generic</code></dd>
+ * <dt>threads</dt>
+ * <dd>the thread counts to run with, default <code>1,2,4</code></dd>
+ * <dt>ops</dt>
+ * <dd>the operations to run, default all of <code>find</code>,
+ * <code>search</code>, <code>searchAndCount</code>, <code>save</code> and
+ * <code>remove</code>. <code>remove</code> removes the people added by
+ * <code>save</code>, so it should follow it.</dd>
+ * <dt>rows</dt>
+ * <dd>the number of people in the database, default 10000</dd>
+ * <dt>companies</dt>
+ * <dd>the number of companies in the database, default 100</dd>
+ * <dt>fanout</dt>
+ * <dd>the largest number of friends of a generated person, default 5</dd>
+ * <dt>skew</dt>
+ * <dd>the Zipf exponent of the generated data, applied to last names and to
+ * the companies and friends people point to, default 0 (uniform)</dd>
+ * <dt>batch</dt>
+ * <dd>the number of people saved by each <code>save</code> operation,
+ * default 20</dd>
+ * <dt>warmup, duration</dt>
+ * <dd>the seconds of warm-up and measurement, default 5 and 10</dd>
+ * <dt>csv</dt>
+ * <dd>a file to write the results to as well</dd>
+ * <dt>hibernate.*</dt>
+ * <dd>passed on to Hibernate, e.g.
+ * <code>--hibernate.jdbc.batch_size=20</code></dd>
+ * </dl>
+ */
+public class LoadHarness {
+
+    public static final String FIND = "find", SEARCH = "search", SEARCH_AND_COUNT = "searchAndCount", SAVE = "save",
+                    REMOVE = "remove";
+
+    private static final String[] LAST_NAMES = new String[200];
+    static {
+            String[] stems = { "Smith", "Jones", "Taylor", "Brown", "Williams", "Wilson", "Johnson", "Davies", "Robinson",
+                            "Wright" };
+            for (int i = 0; i < LAST_NAMES.length; i++) {
+                    LAST_NAMES[i] = stems[i % stems.length] + (i / stems.length == 0 ? "" : "-" + i / stems.length);
+            }
+    }
+
+    private final Map<String, String> options;
+    private final int rows, companies, fanOut, batch, warmup, duration;
+    private final double skew;
+    private final Properties hibernateProperties = new Properties();
+    private final List<String> results = new ArrayList<>();
+
+    private Long[] personIds;
+    private Long[] companyIds;
+    private final Queue<Long> savedIds = new ConcurrentLinkedQueue<>();
+
+    public LoadHarness(Map<String, String> options) {
+            this.options = options;
+            rows = Integer.parseInt(option("rows", "10000"));
+            companies = Integer.parseInt(option("companies", "100"));
+            fanOut = Integer.parseInt(option("fanout", "5"));
+            skew = Double.parseDouble(option("skew", "0"));
+            batch = Integer.parseInt(option("batch", "20"));
+            warmup = Integer.parseInt(option("warmup", "5"));
+            duration = Integer.parseInt(option("duration", "10"));
+            for (Map.Entry<String, String> entry : options.entrySet()) {
+                    if (entry.getKey().startsWith("hibernate.")) {
+                            hibernateProperties.setProperty(entry.getKey(), entry.getValue());
+                    }
+            }
+    }
+
+    public static void main(String[] args) throws Exception {
+            Map<String, String> options = new LinkedHashMap<>();
+            for (String arg : args) {
+                    if (!arg.startsWith("--") || arg.indexOf('=') < 0) {
+                            throw new IllegalArgumentException("Expected --name=value but was: " + arg);
+                    }
+                    options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+            new LoadHarness(options).run();
+    }
+
+    private String option(String name, String defaultValue) {
+            return options.getOrDefault(name, defaultValue);
+    }
+
+    private List<String> listOption(String name, String defaultValue) {
+            return Arrays.asList(option(name, defaultValue).split(","));
+    }
+
+    public void run() throws IOException {
+            List<String> backends = listOption("backends", String.join(",", Backend.HIBERNATE_GENERAL,
+                            Backend.HIBERNATE_GENERIC, Backend.JPA_GENERAL, Backend.JPA_GENERIC));
+            List<String> ops = listOption("ops", String.join(",", FIND, SEARCH, SEARCH_AND_COUNT, SAVE, REMOVE));
+            int[] threadCounts = listOption("threads", "1,2,4").stream().mapToInt(Integer::parseInt).toArray();
+            int poolSize = Math.max(Arrays.stream(threadCounts).max().orElse(1),
+                            Runtime.getRuntime().availableProcessors());
+
+            for (String name : backends) {
+                    try (Backend backend = new Backend(name, poolSize, hibernateProperties)) {
+                            seed(backend);
+                            System.out.printf("%-18s %7s %-15s %10s %8s %8s %8s %8s %8s %10s%n", "backend", "threads", "op",
+                                            "ops/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "stmts/op");
+                            for (int threads : threadCounts) {
+                                    for (String op : ops) {
+                                            runPhase(backend, threads, op);
+                                    }
+                            }
+                    }
+            }
+
+            String csv = options.get("csv");
+            if (csv != null) {
+                    try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(Paths.get(csv), StandardCharsets.UTF_8))) {
+                            out.println("backend,threads,op,ops,opsPerSecond,p50,p90,p99,p999,max,statementsPerOp");
+                            results.forEach(out::println);
+                    }
+            }
+    }
+
+    /**
+     * Fill the database with companies and people, bypassing the DAOs.
+     */
+    private void seed(Backend backend) {
+            savedIds.clear();
+            DataGenerator generator = new DataGenerator(backend.getSessionFactory())
+                            .setRows(Company.class, companies)
+                            .setRows(Person.class, rows)
+                            .setValues(Company.class, "country", DataGenerator.oneOf("NZ", "AU", "US"))
+                            .setValues(Person.class, "lastName", DataGenerator.skewed(skew, (Object[]) LAST_NAMES))
+                            .setValues(Person.class, "age", DataGenerator.uniform(18, 67))
+                            .setValues(Person.class, "salary", DataGenerator.uniform(30000.0, 130000.0))
+                            .setFanOut(Person.class, "tags", 0, 3)
+                            .setFanOut(Person.class, "friends", 0, fanOut)
+                            .setSkew(skew);
+            generator.generate();
+            companyIds = toLongs(generator.getIds(Company.class));
+            personIds = toLongs(generator.getIds(Person.class));
+    }
+
+    private static Long[] toLongs(Serializable[] ids) {
+            return Arrays.copyOf(ids, ids.length, Long[].class);
+    }
+
+    private static Person newPerson(ThreadLocalRandom random) {
+            Person person = new Person();
+            person.firstName = "First " + random.nextInt(1000);
+            person.lastName = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+            person.email = person.firstName.replace(' ', '.') + "@example.com";
+            person.age = 18 + random.nextInt(50);
+            person.salary = 30000.0 + random.nextInt(100000);
+            person.active = random.nextInt(10) != 0;
+            person.address = new Address(random.nextInt(500) + " Main Street", "City " + random.nextInt(50),
+                            String.valueOf(10000 + random.nextInt(90000)));
+            return person;
+    }
+
+    /**
+     * Run one operation once in its own transaction. Return false if there is
+     * nothing left to do.
+     */
+    private boolean execute(Backend backend, String op, ThreadLocalRandom random) {
+            switch (op) {
+            case FIND:
+                    Long id = personIds[random.nextInt(personIds.length)];
+                    return backend.execute(dao -> dao.find(id)) != null;
+            case SEARCH:
+                    Search search = new Search(Person.class)
+                                    .addFilterEqual("lastName", LAST_NAMES[random.nextInt(LAST_NAMES.length)])
+                                    .addSortAsc("firstName")
+                                    .setMaxResults(20);
+                    backend.execute(dao -> dao.search(search));
+                    return true;
+            case SEARCH_AND_COUNT:
+                    Search page = new Search(Person.class)
+                                    .addFilterEqual("lastName", LAST_NAMES[random.nextInt(LAST_NAMES.length)])
+                                    .addFilterGreaterOrEqual("age", 30)
+                                    .addFilterEqual("employer.country", "NZ")
+                                    .addSortAsc("firstName")
+                                    .setFirstResult(5)
+                                    .setMaxResults(10);
+                    backend.execute(dao -> dao.searchAndCount(page));
+                    return true;
+            case SAVE:
+                    Long companyId = companyIds[random.nextInt(companyIds.length)];
+                    Long[] ids = backend.execute(dao -> {
+                            Company employer = dao.getCompanyReference(companyId);
+                            Person[] people = new Person[batch];
+                            for (int i = 0; i < batch; i++) {
+                                    people[i] = newPerson(random);
+                                    people[i].employer = employer;
+                            }
+                            return dao.save(people);
+                    });
+                    savedIds.addAll(Arrays.asList(ids));
+                    return true;
+            case REMOVE:
+                    Long removeId = savedIds.poll();
+                    if (removeId == null) {
+                            return false;
+                    }
+                    backend.execute(dao -> dao.removeById(removeId));
+                    return true;
+            default:
+                    throw new IllegalArgumentException("Unknown operation: " + op);
+            }
+    }
+
+    private void runPhase(Backend backend, int threads, String op) {
+            run(backend, threads, op, warmup, null);
+
+            LatencyRecorder[] recorders = new LatencyRecorder[threads];
+            for (int i = 0; i < threads; i++) {
+                    recorders[i] = new LatencyRecorder();
+            }
+            long statements = backend.getStatementCount();
+            long elapsed = run(backend, threads, op, duration, recorders);
+            statements = backend.getStatementCount() - statements;
+
+            LatencyRecorder latencies = LatencyRecorder.merge(recorders);
+            int count = latencies.size();
+            double opsPerSecond = count / (elapsed / 1e9);
+            double statementsPerOp = count == 0 ? 0 : (double) statements / count;
+            System.out.printf(Locale.ROOT, "%-18s %7d %-15s %10.1f %8.3f %8.3f %8.3f %8.3f %8.3f %10.2f%n",
+                            backend.getName(), threads, op, opsPerSecond, latencies.percentile(50), latencies.percentile(90),
+                            latencies.percentile(99), latencies.percentile(99.9), latencies.max(), statementsPerOp);
+            results.add(String.format(Locale.ROOT, "%s,%d,%s,%d,%.1f,%.3f,%.3f,%.3f,%.3f,%.3f,%.2f", backend.getName(),
+                            threads, op, count, opsPerSecond, latencies.percentile(50), latencies.percentile(90),
+                            latencies.percentile(99), latencies.percentile(99.9), latencies.max(), statementsPerOp));
+    }
+
+    /**
+     * Run the operation on the given number of threads for the given number
+     * of seconds, or until there is nothing left to do. If recorders are
+     * given, record the latencies of the operations of each thread. Return
+     * the elapsed nanoseconds.
+     */
+    private long run(Backend backend, int threads, String op, int seconds, LatencyRecorder[] recorders) {
+            long start = System.nanoTime();
+            long end = start + seconds * 1000000000L;
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            Thread[] workers = new Thread[threads];
+            for (int i = 0; i < threads; i++) {
+                    LatencyRecorder recorder = recorders == null ? null : recorders[i];
+                    workers[i] = new Thread(() -> {
+                            ThreadLocalRandom random = ThreadLocalRandom.current();
+                            try {
+                                    long now = System.nanoTime();
+                                    while (now < end && failure.get() == null) {
+                                            if (!execute(backend, op, random)) {
+                                                    break;
+                                            }
+                                            long done = System.nanoTime();
+                                            if (recorder != null) {
+                                                    recorder.record(done - now);
+                                            }
+                                            now = done;
+                                    }
+                            } catch (Throwable e) {
+                                    failure.compareAndSet(null, e);
+                            }
+                    }, backend.getName() + "-" + op + "-" + i);
+                    workers[i].start();
+            }
+            for (Thread worker : workers) {
+                    try {
+                            worker.join();
+                    } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new IllegalStateException(e);
+                    }
+            }
+            long elapsed = System.nanoTime() - start;
+            if (failure.get() != null) {
+                    throw new IllegalStateException(op + " failed on " + backend.getName(), failure.get());
+            }
+            return elapsed;
+    }
+}
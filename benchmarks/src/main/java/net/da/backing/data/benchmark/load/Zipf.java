@@ -0,0 +1,104 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.da.backing.data.benchmark.load;
+
+import java.util.SplittableRandom;
+
+/**
+ * Draws indexes in <code>[0, n)</code> where index <code>k</code> has a
+ * probability proportional to <code>1 / (k + 1)^s</code>. An exponent of 0
+ * gives a uniform distribution; around 1 a few indexes take most of the
+ * draws.
+ *
+ * <p>
+ * Uses rejection-inversion sampling (Hörmann and Derflinger), which needs no
+ * tables, so it is cheap to create for large <code>n</code>. Instances are
+ * immutable and can be shared between threads.
+ */
+public final class Zipf {
+
+    private final int n;
+    private final double exponent;
+    private final double hIntegralX1;
+    private final double hIntegralN;
+    private final double s;
+
+    public Zipf(int n, double exponent) {
+            if (n <= 0) {
+                    throw new IllegalArgumentException("n must be positive: " + n);
+            }
+            if (exponent < 0) {
+                    throw new IllegalArgumentException("exponent must not be negative: " + exponent);
+            }
+            this.n = n;
+            this.exponent = exponent;
+            hIntegralX1 = hIntegral(1.5) - 1;
+            hIntegralN = hIntegral(n + 0.5);
+            s = 2 - hIntegralInverse(hIntegral(2.5) - h(2));
+    }
+
+    public int size() {
+            return n;
+    }
+
+    public int next(SplittableRandom random) {
+            if (exponent == 0 || n == 1) {
+                    return random.nextInt(n);
+            }
+            while (true) {
+                    double u = hIntegralN + random.nextDouble() * (hIntegralX1 - hIntegralN);
+                    double x = hIntegralInverse(u);
+                    int k = (int) (x + 0.5);
+                    if (k < 1) {
+                            k = 1;
+                    } else if (k > n) {
+                            k = n;
+                    }
+                    if (k - x <= s || u >= hIntegral(k + 0.5) - h(k)) {
+                            return k - 1;
+                    }
+            }
+    }
+
+    private double h(double x) {
+            return Math.exp(-exponent * Math.log(x));
+    }
+
+    private double hIntegral(double x) {
+            double logX = Math.log(x);
+            return helper2((1 - exponent) * logX) * logX;
+    }
+
+    private double hIntegralInverse(double x) {
+            double t = x * (1 - exponent);
+            if (t < -1) {
+                    t = -1;
+            }
+            return Math.exp(helper1(t) * x);
+    }
+
+    /**
+     * <code>log(1 + x) / x</code>, accurate near 0.
+     */
+    private static double helper1(double x) {
+            return Math.abs(x) > 1e-8 ? Math.log1p(x) / x : 1 - x * (0.5 - x * (1.0 / 3 - 0.25 * x));
+    }
+
+    /**
+     * <code>(exp(x) - 1) / x</code>, accurate near 0.
+     */
+    private static double helper2(double x) {
+            return Math.abs(x) > 1e-8 ? Math.expm1(x) / x : 1 + x * 0.5 * (1 + x * (1.0 / 3) * (1 + 0.25 * x));
+    }
+}
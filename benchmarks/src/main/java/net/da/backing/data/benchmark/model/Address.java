@@ -0,0 +1,36 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.da.backing.data.benchmark.model;
+
+import javax.persistence.Embeddable;
+
+/**
+ * An embeddable of the benchmark model.
+ */
+@Embeddable
+public class Address {
+
+    public String street;
+    public String city;
+    public String zip;
+
+    public Address() {
+    }
+
+    public Address(String street, String city, String zip) {
+            this.street = street;
+            this.city = city;
+            this.zip = zip;
+    }
+}
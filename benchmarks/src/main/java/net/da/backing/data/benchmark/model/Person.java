@@ -0,0 +1,56 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.da.backing.data.benchmark.model;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.persistence.ElementCollection;
+import javax.persistence.Embedded;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.ManyToMany;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+
+/**
+ * The root entity of the benchmark model, with value, embedded, to-one and
+ * collection properties.
+ */
+@Entity
+@Table(indexes = @Index(columnList = "lastName"))
+public class Person {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE)
+    public Long id;
+    public String firstName;
+    public String lastName;
+    public String email;
+    public Integer age;
+    public Double salary;
+    public Boolean active;
+    @Embedded
+    public Address address;
+    @ManyToOne(fetch = FetchType.LAZY)
+    public Company employer;
+    @ElementCollection
+    public Set<String> tags = new HashSet<>();
+    @ManyToMany
+    public Set<Person> friends = new HashSet<>();
+}
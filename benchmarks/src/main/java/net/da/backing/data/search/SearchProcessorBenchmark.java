@@ -0,0 +1,139 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.da.backing.data.search;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.da.backing.data.benchmark.Fixtures;
+import net.da.backing.data.benchmark.StubMetadataUtil;
+import net.da.backing.data.benchmark.model.Person;
+import net.da.backing.data.search.jpa.JPASearchProcessor;
+
+/**
+ * Query generation by <code>BaseSearchProcessor</code> over the stub metadata.
+ * It lives in the search package to reach <code>filterToQL()</code>.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchProcessorBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Generate {
+            @Param({ Fixtures.SIMPLE, Fixtures.TYPICAL, Fixtures.COMPLEX, Fixtures.PROJECTION })
+            public String search;
+
+            /**
+             * Whether generated queries are reused through the query plan
+             * cache.
+             */
+            @Param({ "true", "false" })
+            public boolean planCache;
+
+            BaseSearchProcessor processor;
+            ISearch theSearch;
+
+            @Setup
+            public void setup() {
+                    processor = new JPASearchProcessor(StubMetadataUtil.getInstance());
+                    if (!planCache) {
+                            processor.getPlanCache().setMaxSize(0);
+                    }
+                    theSearch = Fixtures.search(search);
+            }
+    }
+
+    @State(Scope.Benchmark)
+    public static class InList {
+            @Param({ "10", "100", "1000", "5000" })
+            public int size;
+
+            @Param({ "false", "true" })
+            public boolean padding;
+
+            BaseSearchProcessor processor;
+            Filter filter;
+
+            @Setup
+            public void setup() {
+                    processor = new JPASearchProcessor(StubMetadataUtil.getInstance());
+                    processor.setInListPadding(padding);
+                    // ids as ints, so each value is converted to the Long of the id
+                    ArrayList<Integer> values = new ArrayList<>(size);
+                    for (Long id : Fixtures.ids(size)) {
+                            values.add(id.intValue());
+                    }
+                    filter = Filter.in("id", values);
+            }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Example {
+            @Param({ "default", "like" })
+            public String options;
+
+            BaseSearchProcessor processor;
+            Person example;
+            ExampleOptions exampleOptions;
+
+            @Setup
+            public void setup() {
+                    processor = new JPASearchProcessor(StubMetadataUtil.getInstance());
+                    example = Fixtures.examplePerson();
+                    exampleOptions = new ExampleOptions();
+                    if ("like".equals(options)) {
+                            exampleOptions.setLikeMode(ExampleOptions.ANYWHERE);
+                            exampleOptions.setIgnoreCase(true);
+                            exampleOptions.setExcludeNulls(true);
+                    }
+            }
+    }
+
+    @Benchmark
+    public String generateQL(Generate state) {
+            return state.processor.generateQL(Person.class, state.theSearch, new ArrayList<>());
+    }
+
+    @Benchmark
+    public String generateRowCountQL(Generate state) {
+            return state.processor.generateRowCountQL(Person.class, state.theSearch, new ArrayList<>());
+    }
+
+    @Benchmark
+    public String filterToQL(InList state) {
+            BaseSearchProcessor.SearchContext ctx = new BaseSearchProcessor.SearchContext(Person.class,
+                            state.processor.rootAlias, new ArrayList<>());
+            return state.processor.filterToQL(ctx, state.filter);
+    }
+
+    @Benchmark
+    public Filter getFilterFromExample(Example state) {
+            return state.processor.getFilterFromExample(state.example, state.exampleOptions);
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.da.backing.data.search.hibernate;
+
+import java.util.concurrent.TimeUnit;
+
+import org.hibernate.transform.ResultTransformer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import net.da.backing.data.benchmark.Fixtures;
+import net.da.backing.data.search.ISearch;
+import net.da.backing.data.search.Search;
+
+/**
+ * Converting a page of rows to the result mode of a search with the
+ * transformers of <code>HibernateSearchProcessor</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HibernateResultTransformerBenchmark {
+
+    public static final int ROWS = 1000;
+
+    @Param({ "ARRAY", "LIST", "MAP" })
+    public String resultMode;
+
+    private ISearch search;
+    private Object[][] rows;
+
+    @Setup
+    public void setup() {
+            Search search = Fixtures.projectionSearch();
+            search.setResultMode("ARRAY".equals(resultMode) ? ISearch.RESULT_ARRAY
+                            : "LIST".equals(resultMode) ? ISearch.RESULT_LIST : ISearch.RESULT_MAP);
+            this.search = search;
+            rows = new Object[ROWS][];
+            for (int i = 0; i < ROWS; i++) {
+                    rows[i] = new Object[] { "Company " + i % 20, "Name " + i, 90000.0 + i, (long) i };
+            }
+    }
+
+    /**
+     * Choose the transformer and convert a page of rows.
+     */
+    @Benchmark
+    public void transformPage(Blackhole bh) {
+            ResultTransformer transformer = HibernateSearchProcessor.getResultTransformer(search);
+            for (Object[] row : rows) {
+                    bh.consume(transformer.transformTuple(row, null));
+            }
+    }
+}
@@ -16,6 +16,8 @@ package net.da.backing.data.dao;
 
 import java.lang.reflect.InvocationTargetException;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * This class has some helpful properties and methods for use in making
@@ -25,27 +27,82 @@ import java.util.Map;
  */
 public class BaseDAODispatcher {
 
+    private static final Object NO_DAO = new Object();
+
     protected Map<String, Object> specificDAOs;
 
+    protected boolean dispatchSubclasses = false;
+
+    // the specific DAO (or NO_DAO) found for each entity class
+    private final ConcurrentMap<Class<?>, Object> daosByClass = new ConcurrentHashMap<>();
+
     /**
      * In practice some DAOs could be put into this map using Spring. If a DAO
      * is in this map, it will be used instead of the general DAO. This provides
      * a way to override the default implementation for objects with special
      * considerations.
      * 
+     * <p>The DAO found for each entity class is remembered, so changes to the
+     * map after it is set are not seen. Set the map again to apply them.
+     * 
      * @param specificDAOs
      */
     public void setSpecificDAOs(Map<String, Object> specificDAOs) {
             this.specificDAOs = specificDAOs;
+            daosByClass.clear();
+    }
+
+    /**
+     * If true, a specific DAO is also used for the subclasses of its entity
+     * class that have no specific DAO of their own, such as proxy classes and
+     * subclasses in an entity hierarchy. The default is false, where only the
+     * exact class is looked up.
+     * 
+     * @param dispatchSubclasses
+     */
+    public void setDispatchSubclasses(boolean dispatchSubclasses) {
+            this.dispatchSubclasses = dispatchSubclasses;
+            daosByClass.clear();
+    }
+
+    public boolean isDispatchSubclasses() {
+            return dispatchSubclasses;
     }
 
     protected Object getSpecificDAO(String className) {
             return specificDAOs == null ? null : specificDAOs.get(className);
     }
 
+    /**
+     * Return the specific DAO for the entity class, or for its nearest
+     * superclass that has one if <code>dispatchSubclasses</code> is set.
+     * Returns null if the general DAO is to be used.
+     * 
+     * @param klass
+     * @return 
+     */
+    protected Object getSpecificDAO(Class<?> klass) {
+            if (specificDAOs == null || klass == null)
+                    return null;
+
+            Object dao = daosByClass.get(klass);
+            if (dao == null) {
+                    dao = NO_DAO;
+                    for (Class<?> c = klass; c != null && c != Object.class; c = dispatchSubclasses ? c.getSuperclass() : null) {
+                            Object specificDAO = getSpecificDAO(c.getName());
+                            if (specificDAO != null) {
+                                    dao = specificDAO;
+                                    break;
+                            }
+                    }
+                    daosByClass.putIfAbsent(klass, dao);
+            }
+            return dao == NO_DAO ? null : dao;
+    }
+
     protected Object callMethod(Object specificDAO, String methodName, Object... args) {
             try {
-                    return DAOUtil.callMethod(specificDAO, methodName, args);
+                    return DispatchTable.invoke(specificDAO, methodName, null, args);
             } catch (IllegalArgumentException | NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
                     throw new DAODispatcherException(e);
             }
@@ -53,7 +110,7 @@ public class BaseDAODispatcher {
 
     protected Object callMethod(Object specificDAO, String methodName, Class<?>[] paramTypes, Object... args) {
             try {
-                    return DAOUtil.callMethod(specificDAO, methodName, paramTypes, args);
+                    return DispatchTable.invoke(specificDAO, methodName, paramTypes, args);
             } catch (IllegalArgumentException | NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
                     throw new DAODispatcherException(e);
             }
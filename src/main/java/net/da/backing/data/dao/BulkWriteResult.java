@@ -0,0 +1,150 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.da.backing.data.dao;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * This class is returned by the bulk write operations of the DAOs. It lists
+ * the batches that were written, each with its entity class, operation, size
+ * and the time taken to write and flush it.
+ */
+public class BulkWriteResult implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The operation applied to the entities of a batch.
+     */
+    public enum Operation {
+        SAVE, PERSIST, UPDATE
+    }
+
+    /**
+     * One flush of entities of a single class.
+     */
+    public static class Batch implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Class<?> entityClass;
+        private final Operation operation;
+        private final int size;
+        private final long nanos;
+
+        public Batch(Class<?> entityClass, Operation operation, int size, long nanos) {
+            this.entityClass = entityClass;
+            this.operation = operation;
+            this.size = size;
+            this.nanos = nanos;
+        }
+
+        public Class<?> getEntityClass() {
+            return entityClass;
+        }
+
+        public Operation getOperation() {
+            return operation;
+        }
+
+        /**
+         * The number of entities passed to the DAO in this batch. Entities
+         * written by cascades are not counted.
+         *
+         * @return
+         */
+        public int getSize() {
+            return size;
+        }
+
+        /**
+         * The time taken to hand the entities to the session and flush them,
+         * in nanoseconds.
+         *
+         * @return
+         */
+        public long getNanos() {
+            return nanos;
+        }
+
+        @Override
+        public String toString() {
+            return operation + " " + size + " " + entityClass.getSimpleName() + " in " + (nanos / 1000) + " us";
+        }
+    }
+
+    protected final List<Batch> batches = new ArrayList<>();
+
+    public void addBatch(Batch batch) {
+        batches.add(batch);
+    }
+
+    /**
+     * The batches in the order they were written.
+     *
+     * @return
+     */
+    public List<Batch> getBatches() {
+        return Collections.unmodifiableList(batches);
+    }
+
+    /**
+     * The total number of entities written.
+     *
+     * @return
+     */
+    public int getCount() {
+        int count = 0;
+        for (Batch batch : batches) {
+            count += batch.size;
+        }
+        return count;
+    }
+
+    /**
+     * The number of entities written with the given operation.
+     *
+     * @param operation
+     * @return
+     */
+    public int getCount(Operation operation) {
+        int count = 0;
+        for (Batch batch : batches) {
+            if (batch.operation == operation)
+                count += batch.size;
+        }
+        return count;
+    }
+
+    /**
+     * The total time taken by all the batches, in nanoseconds.
+     *
+     * @return
+     */
+    public long getNanos() {
+        long nanos = 0;
+        for (Batch batch : batches) {
+            nanos += batch.nanos;
+        }
+        return nanos;
+    }
+
+    @Override
+    public String toString() {
+        return getCount() + " entities in " + batches.size() + " batches, " + (getNanos() / 1000000) + " ms";
+    }
+}
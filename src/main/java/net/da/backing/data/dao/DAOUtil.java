@@ -14,6 +14,7 @@
  */
 package net.da.backing.data.dao;
 
+import java.io.Serializable;
 import java.lang.reflect.Array;
 import java.lang.reflect.GenericArrayType;
 import java.lang.reflect.InvocationTargetException;
@@ -23,9 +24,18 @@ import java.lang.reflect.Type;
 import java.lang.reflect.TypeVariable;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+
+import net.da.backing.data.search.Filter;
+import net.da.backing.data.search.ISearch;
+import net.da.backing.data.search.Metadata;
+import net.da.backing.data.search.MetadataUtil;
+import net.da.backing.data.search.Search;
 
 /**
  * Utility methods for Hibernate Genereic DAO.
@@ -367,4 +377,99 @@ public class DAOUtil {
                             return dist;
             }
     }
+
+    /**
+     * Return a search for the ids, among the given ones, of the entities that
+     * match the filters of the given search. Its only field is the id. This
+     * is used to find which entities already in the session a bulk statement
+     * with that search is going to touch.
+     * 
+     * @param searchClass
+     * @param search
+     * @param idProperty
+     * @param ids
+     *            at most as many as fit in one query
+     * @param inList
+     *            if <code>false</code>, the ids are matched with a chain of
+     *            "or" instead of an IN list, as for compound ids on databases
+     *            without row values in IN lists
+     * @return 
+     */
+    public static Search getIdSearch(Class<?> searchClass, ISearch search, String idProperty, List<Serializable> ids, boolean inList) {
+            Search idSearch = new Search(searchClass);
+            List<Filter> filters = search.getFilters();
+            if (filters != null && !filters.isEmpty()) {
+                    Filter[] array = filters.toArray(new Filter[filters.size()]);
+                    idSearch.addFilter(search.isDisjunction() ? Filter.or(array) : Filter.and(array));
+            }
+            if (inList) {
+                    idSearch.addFilterIn(idProperty, ids);
+            } else {
+                    Filter[] equals = new Filter[ids.size()];
+                    for (int i = 0; i < equals.length; i++) {
+                            equals[i] = Filter.equal(idProperty, ids.get(i));
+                    }
+                    idSearch.addFilterOr(equals);
+            }
+            idSearch.addField(idProperty);
+            return idSearch;
+    }
+
+    /**
+     * Group entities by their (unproxied) class for writing in batches. The
+     * classes are ordered so that a class comes after the classes it refers to
+     * with to-one associations, where those are also in the list, so that new
+     * entities are inserted before the entities that reference them. Otherwise
+     * the classes are in the order in which they first appear. Null entities
+     * are skipped.
+     * 
+     * @param metadataUtil
+     * @param entities
+     * @return the entities of each class, in their original order
+     */
+    public static Map<Class<?>, List<Object>> groupByClass(MetadataUtil metadataUtil, Object... entities) {
+            Map<Class<?>, List<Object>> groups = new LinkedHashMap<>();
+            for (Object entity : entities) {
+                    if (entity != null) {
+                            Class<?> klass = metadataUtil.getUnproxiedClass(entity);
+                            List<Object> group = groups.get(klass);
+                            if (group == null) {
+                                    group = new ArrayList<>();
+                                    groups.put(klass, group);
+                            }
+                            group.add(entity);
+                    }
+            }
+            if (groups.size() < 2)
+                    return groups;
+
+            Map<Class<?>, List<Object>> ordered = new LinkedHashMap<>();
+            Set<Class<?>> visiting = new HashSet<>();
+            for (Class<?> klass : groups.keySet()) {
+                    addReferencedFirst(metadataUtil, klass, groups, ordered, visiting);
+            }
+            return ordered;
+    }
+
+    private static void addReferencedFirst(MetadataUtil metadataUtil, Class<?> klass,
+                    Map<Class<?>, List<Object>> groups, Map<Class<?>, List<Object>> ordered, Set<Class<?>> visiting) {
+            if (ordered.containsKey(klass) || !visiting.add(klass))
+                    return; // done, or a cycle of references
+            Metadata md = metadataUtil.get(klass);
+            for (String property : md.getProperties()) {
+                    if (property == null || property.equals(md.getIdProperty()))
+                            continue;
+                    Metadata pmd = md.getPropertyType(property);
+                    if (pmd != null && pmd.isEntity() && !pmd.isCollection()) {
+                            // the instances referred to may be of any subclass of the
+                            // property type
+                            Class<?> target = pmd.getJavaClass();
+                            for (Class<?> groupClass : groups.keySet()) {
+                                    if (groupClass != klass && target.isAssignableFrom(groupClass))
+                                            addReferencedFirst(metadataUtil, groupClass, groups, ordered, visiting);
+                            }
+                    }
+            }
+            ordered.put(klass, groups.get(klass));
+    }
 }
@@ -0,0 +1,235 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.da.backing.data.dao;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The methods called on specific DAOs by the DAO dispatchers. The method to
+ * call is chosen by {@link DAOUtil#getMethod(Class, String, Class...)} the
+ * first time a DAO class is called with a method name and argument types, and
+ * is then kept as a <code>MethodHandle</code>, so later calls cost one lookup
+ * and a direct call.
+ *
+ * <p>
+ * Arguments beyond the largest number of parameters of any method with the
+ * name can only be var-args, so for those only the distinct types are part of
+ * the key. Calls with var-args arrays of different lengths share one entry.
+ */
+final class DispatchTable {
+
+    private static final Target NOT_FOUND = new Target(null, null);
+
+    // kept on each DAO class itself, so that a table does not keep the
+    // class loader of a redeployed application from being collected
+    private static final ClassValue<DAOMethods> byClass = new ClassValue<DAOMethods>() {
+            @Override
+            protected DAOMethods computeValue(Class<?> klass) {
+                    return new DAOMethods(klass);
+            }
+    };
+
+    private DispatchTable() {
+    }
+
+    /**
+     * Call the method on the object that best matches the types of the
+     * arguments. If <code>paramTypes</code> is null, the types are those of
+     * the arguments, none of which may be null.
+     *
+     * @see DAOUtil#callMethod(Object, String, Class[], Object...)
+     */
+    static Object invoke(Object object, String methodName, Class<?>[] paramTypes, Object... args)
+                    throws NoSuchMethodException, IllegalAccessException, InvocationTargetException {
+            boolean checkArgs = paramTypes != null;
+            if (paramTypes == null) {
+                    paramTypes = new Class<?>[args.length];
+                    for (int i = 0; i < args.length; i++) {
+                            if (args[i] == null)
+                                    throw new NullPointerException(
+                                                    "No arguments may be null when the parameter types are not specified because every argument is needed in order to determine the parameter types.");
+                            paramTypes[i] = args[i].getClass();
+                    }
+            }
+
+            Class<?> klass = object.getClass();
+            Target target = byClass.get(klass).get(methodName, paramTypes);
+            if (target == NOT_FOUND)
+                    throw new NoSuchMethodException("Method: " + methodName + " not found on Class: " + klass);
+            return target.invoke(object, args, checkArgs);
+    }
+
+    /**
+     * The resolved methods of one DAO class.
+     */
+    private static final class DAOMethods {
+            private final Class<?> klass;
+            // the largest number of parameters of the methods with each name
+            private final Map<String, Integer> maxParams = new HashMap<>();
+            private final ConcurrentMap<Signature, Target> targets = new ConcurrentHashMap<>();
+
+            DAOMethods(Class<?> klass) {
+                    this.klass = klass;
+                    for (Method method : klass.getMethods()) {
+                            maxParams.merge(method.getName(), method.getParameterTypes().length, Math::max);
+                    }
+            }
+
+            Target get(String methodName, Class<?>[] paramTypes) {
+                    Integer max = maxParams.get(methodName);
+                    if (max == null)
+                            return NOT_FOUND;
+
+                    Signature signature = new Signature(methodName, keyTypes(paramTypes, max));
+                    Target target = targets.get(signature);
+                    if (target == null) {
+                            Method method = DAOUtil.getMethod(klass, methodName, paramTypes);
+                            target = method == null ? NOT_FOUND : new Target(method, unreflect(method));
+                            targets.putIfAbsent(signature, target);
+                    }
+                    return target;
+            }
+
+            /**
+             * Past the largest number of parameters only var-args methods can
+             * match, and whether they do depends only on which types the extra
+             * arguments have, not on how many there are.
+             */
+            private static Class<?>[] keyTypes(Class<?>[] paramTypes, int max) {
+                    if (paramTypes.length <= max)
+                            return paramTypes;
+
+                    Class<?>[] types = Arrays.copyOf(paramTypes, paramTypes.length);
+                    int size = max;
+                    outer: for (int i = max; i < paramTypes.length; i++) {
+                            for (int j = max; j < size; j++) {
+                                    if (types[j] == paramTypes[i])
+                                            continue outer;
+                            }
+                            types[size++] = paramTypes[i];
+                    }
+                    return Arrays.copyOf(types, size);
+            }
+
+            private static MethodHandle unreflect(Method method) {
+                    try {
+                            MethodHandle handle = MethodHandles.publicLookup().unreflect(method).asFixedArity();
+                            return handle.asType(handle.type().generic())
+                                            .asSpreader(Object[].class, method.getParameterTypes().length);
+                    } catch (IllegalAccessException e) {
+                            // leave it to Method.invoke() to report
+                            return null;
+                    }
+            }
+    }
+
+    private static final class Signature {
+            final String methodName;
+            final Class<?>[] types;
+            final int hash;
+
+            Signature(String methodName, Class<?>[] types) {
+                    this.methodName = methodName;
+                    this.types = types;
+                    this.hash = methodName.hashCode() * 31 + Arrays.hashCode(types);
+            }
+
+            @Override
+            public int hashCode() {
+                    return hash;
+            }
+
+            @Override
+            public boolean equals(Object obj) {
+                    if (this == obj)
+                            return true;
+                    if (!(obj instanceof Signature))
+                            return false;
+                    Signature s = (Signature) obj;
+                    return hash == s.hash && methodName.equals(s.methodName) && Arrays.equals(types, s.types);
+            }
+    }
+
+    private static final class Target {
+            final Method method;
+            // (Object, Object[])Object, or null if the method is not accessible
+            final MethodHandle handle;
+            final Class<?>[] params;
+
+            Target(Method method, MethodHandle handle) {
+                    this.method = method;
+                    this.handle = handle;
+                    this.params = method == null ? null : method.getParameterTypes();
+            }
+
+            Object invoke(Object object, Object[] args, boolean checkArgs)
+                            throws IllegalAccessException, InvocationTargetException {
+                    if (method.isVarArgs()) {
+                            // put variable arguments into array as last parameter
+                            int fixed = params.length - 1;
+                            Object[] allargs = new Object[params.length];
+                            Object vargs = Array.newInstance(params[fixed].getComponentType(), args.length - fixed);
+                            System.arraycopy(args, 0, allargs, 0, fixed);
+                            if (vargs instanceof Object[]) {
+                                    System.arraycopy(args, fixed, vargs, 0, args.length - fixed);
+                            } else {
+                                    for (int i = fixed; i < args.length; i++) {
+                                            Array.set(vargs, i - fixed, args[i]);
+                                    }
+                            }
+                            allargs[fixed] = vargs;
+                            args = allargs;
+                    }
+
+                    if (handle == null || (checkArgs && !fits(args)))
+                            return method.invoke(object, args);
+                    try {
+                            return (Object) handle.invokeExact(object, args);
+                    } catch (Throwable e) {
+                            throw new InvocationTargetException(e);
+                    }
+            }
+
+            /**
+             * Whether the arguments can be passed to the handle as they are.
+             * Arguments that need widening or do not fit are left to
+             * <code>Method.invoke()</code>, so that any exception from the
+             * handle comes from the method itself.
+             */
+            private boolean fits(Object[] args) {
+                    if (args.length != params.length)
+                            return false;
+                    for (int i = 0; i < params.length; i++) {
+                            Class<?> type = params[i];
+                            if (type.isPrimitive()) {
+                                    if (args[i] == null || !MethodType.methodType(type).wrap().returnType().isInstance(args[i]))
+                                            return false;
+                            } else if (args[i] != null && !type.isInstance(args[i])) {
+                                    return false;
+                            }
+                    }
+                    return true;
+            }
+    }
+}
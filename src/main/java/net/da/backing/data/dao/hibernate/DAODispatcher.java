@@ -16,8 +16,11 @@ package net.da.backing.data.dao.hibernate;
 
 import java.io.Serializable;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 import net.da.backing.data.dao.BaseDAODispatcher;
+import net.da.backing.data.dao.BulkWriteResult;
 import net.da.backing.data.dao.DAODispatcherException;
 import net.da.backing.data.search.ExampleOptions;
 import net.da.backing.data.search.Filter;
@@ -63,7 +66,7 @@ public class DAODispatcher extends BaseDAODispatcher implements IGeneralDAO {
 
     @Override
     public int count(ISearch search) {
-        Object specificDAO = getSpecificDAO(search.getSearchClass().getName());
+        Object specificDAO = getSpecificDAO(search.getSearchClass());
         if (specificDAO != null) {
             if (specificDAO instanceof IGenericDAO) {
                 return ((IGenericDAO) specificDAO).count(search);
@@ -75,9 +78,37 @@ public class DAODispatcher extends BaseDAODispatcher implements IGeneralDAO {
         }
     }
 
+    @Override
+    public int count(ISearch search, int cap) {
+        Object specificDAO = getSpecificDAO(search.getSearchClass());
+        if (specificDAO != null) {
+            if (specificDAO instanceof IGenericDAO) {
+                return ((IGenericDAO) specificDAO).count(search, cap);
+            } else {
+                return (Integer) callMethod(specificDAO, "count", new Class<?>[] { ISearch.class, int.class }, search, cap);
+            }
+        } else {
+            return generalDAO.count(search, cap);
+        }
+    }
+
+    @Override
+    public boolean exists(ISearch search) {
+        Object specificDAO = getSpecificDAO(search.getSearchClass());
+        if (specificDAO != null) {
+            if (specificDAO instanceof IGenericDAO) {
+                return ((IGenericDAO) specificDAO).exists(search);
+            } else {
+                return (Boolean) callMethod(specificDAO, "exists", search);
+            }
+        } else {
+            return generalDAO.exists(search);
+        }
+    }
+
     @Override
     public <T> T find(Class<T> type, Serializable id) {
-        Object specificDAO = getSpecificDAO(type.getName());
+        Object specificDAO = getSpecificDAO(type);
         if (specificDAO != null) {
             if (specificDAO instanceof IGenericDAO) {
                 return (T) ((IGenericDAO) specificDAO).find(id);
@@ -91,7 +122,7 @@ public class DAODispatcher extends BaseDAODispatcher implements IGeneralDAO {
 
     @Override
     public <T> T[] find(Class<T> type, Serializable... ids) {
-        Object specificDAO = getSpecificDAO(type.getName());
+        Object specificDAO = getSpecificDAO(type);
         if (specificDAO != null) {
             if (specificDAO instanceof IGenericDAO) {
                 return (T[]) ((IGenericDAO) specificDAO).find(ids);
@@ -105,7 +136,7 @@ public class DAODispatcher extends BaseDAODispatcher implements IGeneralDAO {
 
     @Override
     public <T> List<T> findAll(Class<T> type) {
-        Object specificDAO = getSpecificDAO(type.getName());
+        Object specificDAO = getSpecificDAO(type);
         if (specificDAO != null) {
             if (specificDAO instanceof IGenericDAO) {
                 return ((IGenericDAO) specificDAO).findAll();
@@ -127,7 +158,7 @@ public class DAODispatcher extends BaseDAODispatcher implements IGeneralDAO {
     }
 
     public void flush(Class<?> klass) {
-        Object specificDAO = getSpecificDAO(klass.getName());
+        Object specificDAO = getSpecificDAO(klass);
         if (specificDAO != null) {
             if (specificDAO instanceof IGenericDAO) {
                 ((IGenericDAO) specificDAO).flush();
@@ -141,7 +172,7 @@ public class DAODispatcher extends BaseDAODispatcher implements IGeneralDAO {
 
     @Override
     public <T> T getReference(Class<T> type, Serializable id) {
-        Object specificDAO = getSpecificDAO(type.getName());
+        Object specificDAO = getSpecificDAO(type);
         if (specificDAO != null) {
             if (specificDAO instanceof IGenericDAO) {
                 return (T) ((IGenericDAO) specificDAO).getReference(id);
@@ -155,7 +186,7 @@ public class DAODispatcher extends BaseDAODispatcher implements IGeneralDAO {
 
     @Override
     public <T> T[] getReferences(Class<T> type, Serializable... ids) {
-        Object specificDAO = getSpecificDAO(type.getName());
+        Object specificDAO = getSpecificDAO(type);
         if (specificDAO != null) {
             if (specificDAO instanceof IGenericDAO) {
                 return (T[]) ((IGenericDAO) specificDAO).getReferences(ids);
@@ -169,7 +200,7 @@ public class DAODispatcher extends BaseDAODispatcher implements IGeneralDAO {
 
     @Override
     public boolean isAttached(Object entity) {
-        Object specificDAO = getSpecificDAO(entity.getClass().getName());
+        Object specificDAO = getSpecificDAO(entity.getClass());
         if (specificDAO != null) {
             if (specificDAO instanceof IGenericDAO) {
                 return ((IGenericDAO) specificDAO).isAttached(entity);
@@ -193,7 +224,7 @@ public class DAODispatcher extends BaseDAODispatcher implements IGeneralDAO {
             return;
         }		
 
-        Object specificDAO = getSpecificDAO(type.getName());
+        Object specificDAO = getSpecificDAO(type);
         if (specificDAO != null) {
             if (specificDAO instanceof IGenericDAO) {
                 ((IGenericDAO) specificDAO).refresh(entities);
@@ -207,7 +238,7 @@ public class DAODispatcher extends BaseDAODispatcher implements IGeneralDAO {
 
     @Override
     public boolean remove(Object entity) {
-        Object specificDAO = getSpecificDAO(entity.getClass().getName());
+        Object specificDAO = getSpecificDAO(entity.getClass());
         if (specificDAO != null) {
             if (specificDAO instanceof IGenericDAO) {
                 return ((IGenericDAO) specificDAO).remove(entity);
@@ -231,7 +262,7 @@ public class DAODispatcher extends BaseDAODispatcher implements IGeneralDAO {
             return;
         }
 
-        Object specificDAO = getSpecificDAO(type.getName());
+        Object specificDAO = getSpecificDAO(type);
         if (specificDAO != null) {
             if (specificDAO instanceof IGenericDAO) {
                 ((IGenericDAO) specificDAO).remove(entities);
@@ -245,7 +276,7 @@ public class DAODispatcher extends BaseDAODispatcher implements IGeneralDAO {
 
     @Override
     public boolean removeById(Class<?> type, Serializable id) {
-        Object specificDAO = getSpecificDAO(type.getName());
+        Object specificDAO = getSpecificDAO(type);
         if (specificDAO != null) {
             if (specificDAO instanceof IGenericDAO) {
                     return ((IGenericDAO) specificDAO).removeById(id);
@@ -259,7 +290,7 @@ public class DAODispatcher extends BaseDAODispatcher implements IGeneralDAO {
 
     @Override
     public void removeByIds(Class<?> type, Serializable... ids) {
-        Object specificDAO = getSpecificDAO(type.getName());
+        Object specificDAO = getSpecificDAO(type);
         if (specificDAO != null) {
             if (specificDAO instanceof IGenericDAO) {
                     ((IGenericDAO) specificDAO).removeByIds(ids);
@@ -271,9 +302,51 @@ public class DAODispatcher extends BaseDAODispatcher implements IGeneralDAO {
         }
     }
 
+    @Override
+    public int removeBySearch(ISearch search) {
+        Object specificDAO = getSpecificDAO(search.getSearchClass());
+        if (specificDAO != null) {
+            if (specificDAO instanceof IGenericDAO) {
+                return ((IGenericDAO) specificDAO).removeBySearch(search);
+            } else {
+                return (Integer) callMethod(specificDAO, "removeBySearch", search);
+            }
+        } else {
+            return generalDAO.removeBySearch(search);
+        }
+    }
+
+    @Override
+    public boolean updateFields(Class<?> type, Serializable id, Map<String, ?> values) {
+        Object specificDAO = getSpecificDAO(type);
+        if (specificDAO != null) {
+            if (specificDAO instanceof IGenericDAO) {
+                return ((IGenericDAO) specificDAO).updateFields(id, values);
+            } else {
+                return (Boolean) callMethod(specificDAO, "updateFields", id, values);
+            }
+        } else {
+            return generalDAO.updateFields(type, id, values);
+        }
+    }
+
+    @Override
+    public int updateFieldsBySearch(ISearch search, Map<String, ?> values) {
+        Object specificDAO = getSpecificDAO(search.getSearchClass());
+        if (specificDAO != null) {
+            if (specificDAO instanceof IGenericDAO) {
+                return ((IGenericDAO) specificDAO).updateFieldsBySearch(search, values);
+            } else {
+                return (Integer) callMethod(specificDAO, "updateFieldsBySearch", search, values);
+            }
+        } else {
+            return generalDAO.updateFieldsBySearch(search, values);
+        }
+    }
+
     @Override
     public boolean saveOrUpdateIsNew(Object entity) {
-        Object specificDAO = getSpecificDAO(entity.getClass().getName());
+        Object specificDAO = getSpecificDAO(entity.getClass());
         if (specificDAO != null) {
             if (specificDAO instanceof IGenericDAO) {
                 return ((IGenericDAO) specificDAO).saveOrUpdateIsNew(entity);
@@ -301,7 +374,7 @@ public class DAODispatcher extends BaseDAODispatcher implements IGeneralDAO {
             return isNew;
         }
 
-        Object specificDAO = getSpecificDAO(type.getName());
+        Object specificDAO = getSpecificDAO(type);
         if (specificDAO != null) {
             if (specificDAO instanceof IGenericDAO) {
                 return ((IGenericDAO) specificDAO).saveOrUpdateIsNew(entities);
@@ -315,7 +388,7 @@ public class DAODispatcher extends BaseDAODispatcher implements IGeneralDAO {
 
     @Override
     public void update(Object entity) {
-        Object specificDAO = getSpecificDAO(entity.getClass().getName());
+        Object specificDAO = getSpecificDAO(entity.getClass());
         if (specificDAO != null) {
             if (specificDAO instanceof IGenericDAO) {
                 ((IGenericDAO) specificDAO).update(entity);
@@ -326,10 +399,79 @@ public class DAODispatcher extends BaseDAODispatcher implements IGeneralDAO {
             generalDAO.update(entity);
         }
     }
+
+    @Override
+    public BulkWriteResult bulkSave(Object... entities) {
+        Class<?> type = getUniformArrayType(entities);
+        if (type == null)
+                return new BulkWriteResult();
+        if (type.equals(Object.class)) {
+            //There are several different types of entities; writing them
+            //together is what bulkSave is for, so they all go to the general DAO
+            return generalDAO.bulkSave(entities);
+        }
+
+        Object specificDAO = getSpecificDAO(type);
+        if (specificDAO != null) {
+            if (specificDAO instanceof IGenericDAO) {
+                return ((IGenericDAO) specificDAO).bulkSave(entities);
+            } else {
+                return (BulkWriteResult) callMethod(specificDAO, "bulkSave", entities);
+            }
+        } else {
+            return generalDAO.bulkSave(entities);
+        }
+    }
+
+    @Override
+    public BulkWriteResult bulkUpdate(Object... entities) {
+        Class<?> type = getUniformArrayType(entities);
+        if (type == null)
+                return new BulkWriteResult();
+        if (type.equals(Object.class)) {
+            //There are several different types of entities; writing them
+            //together is what bulkUpdate is for, so they all go to the general DAO
+            return generalDAO.bulkUpdate(entities);
+        }
+
+        Object specificDAO = getSpecificDAO(type);
+        if (specificDAO != null) {
+            if (specificDAO instanceof IGenericDAO) {
+                return ((IGenericDAO) specificDAO).bulkUpdate(entities);
+            } else {
+                return (BulkWriteResult) callMethod(specificDAO, "bulkUpdate", entities);
+            }
+        } else {
+            return generalDAO.bulkUpdate(entities);
+        }
+    }
+
+    @Override
+    public BulkWriteResult bulkSaveOrUpdate(Object... entities) {
+        Class<?> type = getUniformArrayType(entities);
+        if (type == null)
+                return new BulkWriteResult();
+        if (type.equals(Object.class)) {
+            //There are several different types of entities; writing them
+            //together is what bulkSaveOrUpdate is for, so they all go to the general DAO
+            return generalDAO.bulkSaveOrUpdate(entities);
+        }
+
+        Object specificDAO = getSpecificDAO(type);
+        if (specificDAO != null) {
+            if (specificDAO instanceof IGenericDAO) {
+                return ((IGenericDAO) specificDAO).bulkSaveOrUpdate(entities);
+            } else {
+                return (BulkWriteResult) callMethod(specificDAO, "bulkSaveOrUpdate", entities);
+            }
+        } else {
+            return generalDAO.bulkSaveOrUpdate(entities);
+        }
+    }
     
     @Override
     public List search(ISearch search) {
-        Object specificDAO = getSpecificDAO(search.getSearchClass().getName());
+        Object specificDAO = getSpecificDAO(search.getSearchClass());
         if (specificDAO != null) {
             if (specificDAO instanceof IGenericDAO) {
                 return ((IGenericDAO) specificDAO).search(search);
@@ -341,9 +483,23 @@ public class DAODispatcher extends BaseDAODispatcher implements IGeneralDAO {
         }
     }
 
+    @Override
+    public Stream searchStream(ISearch search) {
+        Object specificDAO = getSpecificDAO(search.getSearchClass());
+        if (specificDAO != null) {
+            if (specificDAO instanceof IGenericDAO) {
+                return ((IGenericDAO) specificDAO).searchStream(search);
+            } else {
+                return (Stream) callMethod(specificDAO, "searchStream", search);
+            }
+        } else {
+            return generalDAO.searchStream(search);
+        }
+    }
+
     @Override
     public SearchResult searchAndCount(ISearch search) {
-        Object specificDAO = getSpecificDAO(search.getSearchClass().getName());
+        Object specificDAO = getSpecificDAO(search.getSearchClass());
         if (specificDAO != null) {
             if (specificDAO instanceof IGenericDAO) {
                 return ((IGenericDAO) specificDAO).searchAndCount(search);
@@ -357,7 +513,7 @@ public class DAODispatcher extends BaseDAODispatcher implements IGeneralDAO {
 
     @Override
     public Object searchUnique(ISearch search) {
-        Object specificDAO = getSpecificDAO(search.getSearchClass().getName());
+        Object specificDAO = getSpecificDAO(search.getSearchClass());
         if (specificDAO != null) {
             if (specificDAO instanceof IGenericDAO) {
                 return ((IGenericDAO) specificDAO).searchUnique(search);
@@ -371,7 +527,7 @@ public class DAODispatcher extends BaseDAODispatcher implements IGeneralDAO {
 
     @Override
     public Filter getFilterFromExample(Object example) {
-        Object specificDAO = getSpecificDAO(example.getClass().getName());
+        Object specificDAO = getSpecificDAO(example.getClass());
         if (specificDAO != null) {
             if (specificDAO instanceof IGenericDAO) {
                     return ((IGenericDAO) specificDAO).getFilterFromExample(example);
@@ -385,7 +541,7 @@ public class DAODispatcher extends BaseDAODispatcher implements IGeneralDAO {
 
     @Override
     public Filter getFilterFromExample(Object example, ExampleOptions options) {
-        Object specificDAO = getSpecificDAO(example.getClass().getName());
+        Object specificDAO = getSpecificDAO(example.getClass());
         if (specificDAO != null) {
             if (specificDAO instanceof IGenericDAO) {
                 return ((IGenericDAO) specificDAO).getFilterFromExample(example, options);
@@ -17,7 +17,10 @@ package net.da.backing.data.dao.hibernate;
 import java.io.Serializable;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
+import net.da.backing.data.dao.BulkWriteResult;
 import net.da.backing.data.search.ExampleOptions;
 import net.da.backing.data.search.Filter;
 import net.da.backing.data.search.ISearch;
@@ -42,6 +45,18 @@ public class GeneralDAO extends HibernateBaseDAO implements IGeneralDAO {
         return _count(search);
     }
 
+    @Override
+    public int count(ISearch search, int cap) {
+        debug("Count type[{}] of search with cap[{}].", search.getSearchClass(), cap);
+        return _count(search, cap);
+    }
+
+    @Override
+    public boolean exists(ISearch search) {
+        debug("Exists type[{}] of search.", search.getSearchClass());
+        return _searchExists(search);
+    }
+
     @Override
     public <T> T find(Class<T> type, Serializable id) {
         debug("Find entity type[{}] with id[{}].", type, id);
@@ -114,6 +129,24 @@ public class GeneralDAO extends HibernateBaseDAO implements IGeneralDAO {
         _deleteById(type, ids);
     }
 
+    @Override
+    public int removeBySearch(ISearch search) {
+        debug("Remove by search type[{}].", search.getSearchClass());
+        return _removeBySearch(search);
+    }
+
+    @Override
+    public boolean updateFields(Class<?> type, Serializable id, Map<String, ?> values) {
+        debug("Update fields[{}] of entity type[{}] with id[{}].", values == null ? null : values.keySet(), type, id);
+        return _updateFields(type, id, values);
+    }
+
+    @Override
+    public int updateFieldsBySearch(ISearch search, Map<String, ?> values) {
+        debug("Update fields[{}] by search type[{}].", values == null ? null : values.keySet(), search.getSearchClass());
+        return _updateFieldsBySearch(search, values);
+    }
+
     @Override
     public boolean saveOrUpdateIsNew(Object entity) {
         debug("Save entity type[{}].", (entity != null ? entity.getClass() : "entity is null"));
@@ -131,6 +164,24 @@ public class GeneralDAO extends HibernateBaseDAO implements IGeneralDAO {
         debug("Save entity type {}.", (entity != null ? entity.getClass() : "entity is null"));
         _update(entity);
     }
+
+    @Override
+    public BulkWriteResult bulkSave(Object... entities) {
+        debug("Bulk save {} entities.", entities.length);
+        return _bulkSave(entities);
+    }
+
+    @Override
+    public BulkWriteResult bulkUpdate(Object... entities) {
+        debug("Bulk update {} entities.", entities.length);
+        return _bulkUpdate(entities);
+    }
+
+    @Override
+    public BulkWriteResult bulkSaveOrUpdate(Object... entities) {
+        debug("Bulk save or update {} entities.", entities.length);
+        return _bulkSaveOrUpdate(entities);
+    }
     
     @Override
     public List search(ISearch search) {
@@ -138,6 +189,12 @@ public class GeneralDAO extends HibernateBaseDAO implements IGeneralDAO {
         return _search(search);
     }
 
+    @Override
+    public Stream searchStream(ISearch search) {
+        debug("Search stream type[{}] with search parameter.", search.getSearchClass());
+        return _searchStream(search);
+    }
+
     @Override
     public SearchResult searchAndCount(ISearch search) {
         debug("Search and count type[{}].", search.getSearchClass());
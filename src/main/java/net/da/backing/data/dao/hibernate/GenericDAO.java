@@ -17,7 +17,10 @@ package net.da.backing.data.dao.hibernate;
 import java.io.Serializable;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
+import net.da.backing.data.dao.BulkWriteResult;
 import net.da.backing.data.dao.DAOUtil;
 import net.da.backing.data.search.ExampleOptions;
 import net.da.backing.data.search.Filter;
@@ -58,6 +61,22 @@ public class GenericDAO<T, ID extends Serializable> extends
             return _count(persistentClass, search);
 	}
 
+        @Override
+	public int count(ISearch search, int cap) {
+            debug("Count type[{}] of search with cap[{}].", persistentClass, cap);
+            if (search == null)
+                search = new Search();
+            return _count(persistentClass, search, cap);
+	}
+
+        @Override
+	public boolean exists(ISearch search) {
+            debug("Exists type[{}] of search.", persistentClass);
+            if (search == null)
+                search = new Search();
+            return _searchExists(persistentClass, search);
+	}
+
         @Override
 	public T find(ID id) {
             debug("Find entity type[{}] with id[{}].", persistentClass, id );
@@ -130,6 +149,28 @@ public class GenericDAO<T, ID extends Serializable> extends
             _deleteById(persistentClass, ids);
 	}
 
+        @Override
+	public int removeBySearch(ISearch search) {
+            debug("Remove by search type[{}].", persistentClass);
+            if (search == null)
+                search = new Search();
+            return _removeBySearch(persistentClass, search);
+	}
+
+        @Override
+	public boolean updateFields(ID id, Map<String, ?> values) {
+            debug("Update fields[{}] of entity type[{}] with id[{}].", values == null ? null : values.keySet(), persistentClass, id);
+            return _updateFields(persistentClass, id, values);
+	}
+
+        @Override
+	public int updateFieldsBySearch(ISearch search, Map<String, ?> values) {
+            debug("Update fields[{}] by search type[{}].", values == null ? null : values.keySet(), persistentClass);
+            if (search == null)
+                search = new Search();
+            return _updateFieldsBySearch(persistentClass, search, values);
+	}
+
         @Override
 	public boolean saveOrUpdateIsNew(T entity) {
             debug("Save entity type[{}].", persistentClass);
@@ -147,6 +188,24 @@ public class GenericDAO<T, ID extends Serializable> extends
             debug("Save entity type {}.", persistentClass);
             _update(entity);
         }
+
+        @Override
+        public BulkWriteResult bulkSave(T... entities) {
+            debug("Bulk save entities type[{}].", persistentClass);
+            return _bulkSave(entities);
+        }
+
+        @Override
+        public BulkWriteResult bulkUpdate(T... entities) {
+            debug("Bulk update entities type[{}].", persistentClass);
+            return _bulkUpdate(entities);
+        }
+
+        @Override
+        public BulkWriteResult bulkSaveOrUpdate(T... entities) {
+            debug("Bulk save or update entities type[{}].", persistentClass);
+            return _bulkSaveOrUpdate(entities);
+        }
         
         @Override
 	public <RT> List<RT> search(ISearch search) {
@@ -156,6 +215,14 @@ public class GenericDAO<T, ID extends Serializable> extends
             return _search(persistentClass, search);
 	}
 
+        @Override
+	public <RT> Stream<RT> searchStream(ISearch search) {
+            debug("Search stream type[{}].", persistentClass);
+            if (search == null)
+                search = new Search();
+            return _searchStream(persistentClass, search);
+	}
+
         @Override
 	public <RT> SearchResult<RT> searchAndCount(ISearch search) {
             debug("Search and count type[{}].", persistentClass);
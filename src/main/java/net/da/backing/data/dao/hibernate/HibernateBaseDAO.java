@@ -18,8 +18,12 @@ import java.io.Serializable;
 import java.lang.reflect.Array;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import org.hibernate.Criteria;
 import org.hibernate.NonUniqueResultException;
@@ -27,15 +31,25 @@ import org.hibernate.Query;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.criterion.Restrictions;
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.engine.spi.Status;
+import org.hibernate.persister.entity.EntityPersister;
 
+import net.da.backing.data.dao.BulkWriteResult;
+import net.da.backing.data.dao.DAOUtil;
 import net.da.backing.data.search.ExampleOptions;
 import net.da.backing.data.search.Filter;
 import net.da.backing.data.search.ISearch;
+import net.da.backing.data.search.Metadata;
+import net.da.backing.data.search.Search;
+import net.da.backing.data.search.SearchCache;
 import net.da.backing.data.search.SearchResult;
 import net.da.backing.data.search.hibernate.HibernateMetadataUtil;
 import net.da.backing.data.search.hibernate.HibernateSearchProcessor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 
 /**
@@ -45,7 +59,7 @@ import org.springframework.beans.factory.annotation.Autowired;
  * @author dwolverton
  * 
  */
-public class HibernateBaseDAO {
+public class HibernateBaseDAO implements InitializingBean {
 
     private HibernateSearchProcessor searchProcessor;
 
@@ -53,6 +67,27 @@ public class HibernateBaseDAO {
 
     private HibernateMetadataUtil metadataUtil;
 
+    private SearchCache searchCache;
+
+    /**
+     * The default maximum number of ids looked up by one query.
+     */
+    public static final int DEFAULT_ID_BATCH_SIZE = 500;
+
+    private int idBatchSize = DEFAULT_ID_BATCH_SIZE;
+
+    /**
+     * The default number of entities written between flushes by the bulk
+     * write methods.
+     */
+    public static final int DEFAULT_BULK_BATCH_SIZE = 50;
+
+    private int bulkBatchSize = DEFAULT_BULK_BATCH_SIZE;
+
+    private List<ISearch> warmUpSearches;
+
+    private boolean warmUp = true;
+
     @Autowired
     public void setSessionFactory(SessionFactory sessionFactory) {
         this.sessionFactory = sessionFactory;
@@ -60,10 +95,121 @@ public class HibernateBaseDAO {
         metadataUtil = HibernateMetadataUtil.getInstanceForSessionFactory(sessionFactory);
     }
 
+    /**
+     * Set the cache used by a {@link net.da.backing.data.search.CachingSearchFacade}
+     * so that cached searches are invalidated when this DAO writes entities
+     * they were read from.
+     * 
+     * @param searchCache
+     */
+    @Autowired(required = false)
+    public void setSearchCache(SearchCache searchCache) {
+        this.searchCache = searchCache;
+    }
+
+    protected SearchCache getSearchCache() {
+        return searchCache;
+    }
+
+    /**
+     * Invalidate the cached searches that read the given entity type, if a
+     * search cache is set.
+     * 
+     * @param type
+     */
+    protected void invalidateSearchCache(Class<?> type) {
+        if (searchCache != null && type != null) {
+            Class<?> entityClass = metadataUtil.getUnproxiedClass(type);
+            searchCache.invalidate(entityClass != null ? entityClass : type);
+        }
+    }
+
+    /**
+     * Invalidate the cached searches that read the type of the given entity,
+     * if a search cache is set.
+     * 
+     * @param entity
+     */
+    protected void invalidateSearchCacheFor(Object entity) {
+        if (searchCache != null && entity != null)
+            invalidateSearchCache(entity.getClass());
+    }
+
     protected SessionFactory getSessionFactory() {
         return sessionFactory;
     }
 
+    /**
+     * Searches to compile when the DAO starts, so that they are fast from the
+     * first request. Only the shape of each search matters, not its filter
+     * values. Each search must have its search class set.
+     * 
+     * @param warmUpSearches
+     */
+    public void setWarmUpSearches(List<ISearch> warmUpSearches) {
+        this.warmUpSearches = warmUpSearches;
+    }
+
+    public List<ISearch> getWarmUpSearches() {
+        return warmUpSearches;
+    }
+
+    public boolean isWarmUp() {
+        return warmUp;
+    }
+
+    /**
+     * If true (the default), the metadata of all mapped entities is resolved
+     * and the warm-up searches are compiled when the DAO starts.
+     * 
+     * @param warmUp
+     */
+    public void setWarmUp(boolean warmUp) {
+        this.warmUp = warmUp;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (warmUp && searchProcessor != null) {
+            searchProcessor.warmUp(warmUpSearches);
+        }
+    }
+
+    public int getIdBatchSize() {
+        return idBatchSize;
+    }
+
+    /**
+     * The maximum number of ids looked up by one query when checking for or
+     * loading many entities by id. Longer lists of ids are split into several
+     * queries. The default is 500.
+     * 
+     * @param idBatchSize
+     */
+    public void setIdBatchSize(int idBatchSize) {
+        if (idBatchSize < 1)
+            throw new IllegalArgumentException("The id batch size must be at least 1.");
+        this.idBatchSize = idBatchSize;
+    }
+
+    public int getBulkBatchSize() {
+        return bulkBatchSize;
+    }
+
+    /**
+     * The number of entities written between flushes by the bulk write
+     * methods. It is also used as the JDBC batch size of the session while
+     * they run, whatever <code>hibernate.jdbc.batch_size</code> is. The
+     * default is 50.
+     * 
+     * @param bulkBatchSize
+     */
+    public void setBulkBatchSize(int bulkBatchSize) {
+        if (bulkBatchSize < 1)
+            throw new IllegalArgumentException("The bulk batch size must be at least 1.");
+        this.bulkBatchSize = bulkBatchSize;
+    }
+
     /**
      * Get the current Hibernate session
      * 
@@ -112,6 +258,7 @@ public class HibernateBaseDAO {
      * @return The id of the newly saved entity.
      */
     protected Serializable _save(Object entity) {
+        invalidateSearchCacheFor(entity);
         return getSession().save(entity);
     }
 
@@ -154,6 +301,7 @@ public class HibernateBaseDAO {
      * @param entity
      */
     protected void _saveOrUpdate(Object entity) {
+        invalidateSearchCacheFor(entity);
         getSession().saveOrUpdate(entity);
     }
 
@@ -195,6 +343,24 @@ public class HibernateBaseDAO {
      *         <code>_update()</code>d.
      */
     protected boolean[] _saveOrUpdateIsNew(Object... entities) {
+        boolean[] isNew = isNew(entities);
+        // now that we know which ones exist, save or update each.
+        for (int i = 0; i < entities.length; i++) {
+            if (isNew[i]) {
+                    _save(entities[i]);
+            } else {
+                    _update(entities[i]);
+            }
+        }
+
+        return isNew;
+    }
+
+    /**
+     * Find out which of the entities do not yet exist in the datastore, with
+     * one query per class for those that have ids and are not in the session.
+     */
+    private boolean[] isNew(Object... entities) {
         Boolean[] exists = new Boolean[entities.length];
 
         // if an entity is contained in the session, it exists; if it has no id,
@@ -241,19 +407,9 @@ public class HibernateBaseDAO {
         }
 
         boolean[] isNew = new boolean[entities.length];
-        // now that we know which ones exist, save or update each.
         for (int i = 0; i < entities.length; i++) {
-            if (entities[i] != null) {
-                if (exists[i]) {
-                        _update(entities[i]);
-                        isNew[i] = false;
-                } else {
-                        _save(entities[i]);
-                        isNew[i] = true;
-                }
-            }
+            isNew[i] = !exists[i];
         }
-
         return isNew;
     }
 
@@ -274,10 +430,126 @@ public class HibernateBaseDAO {
      */
     protected void _persist(Object... entities) {
         for (Object entity : entities) {
+            invalidateSearchCacheFor(entity);
             getSession().persist(entity);
         }
     }
 
+    /**
+     * <p>
+     * Like <code>_save(Object...)</code>, but written in JDBC batches for large
+     * numbers of entities. The entities are grouped by class, classes that
+     * others refer to first, and the session is flushed and cleared after every
+     * <code>bulkBatchSize</code> entities and after the last entity of each
+     * class, so that each JDBC batch holds the inserts of one class.
+     * 
+     * <p>
+     * Because the session is cleared, <em>all</em> the entities attached to it
+     * are detached afterwards, including ones that were loaded before this
+     * call. Pending changes to them are flushed first; later changes are not
+     * tracked. Entities with ids generated by an identity column are inserted
+     * one at a time whatever the batch size.
+     * 
+     * @param entities
+     * @return the batches written, with their timings
+     */
+    protected BulkWriteResult _bulkSave(Object... entities) {
+        BulkWriteResult result = new BulkWriteResult();
+        bulkWrite(result, BulkWriteResult.Operation.SAVE, entities);
+        return result;
+    }
+
+    /**
+     * Like <code>_persist(Object...)</code>, but written in JDBC batches as
+     * described in <code>_bulkSave()</code>.
+     * 
+     * @param entities
+     * @return the batches written, with their timings
+     */
+    protected BulkWriteResult _bulkPersist(Object... entities) {
+        BulkWriteResult result = new BulkWriteResult();
+        bulkWrite(result, BulkWriteResult.Operation.PERSIST, entities);
+        return result;
+    }
+
+    /**
+     * Like <code>_update(Object...)</code>, but written in JDBC batches as
+     * described in <code>_bulkSave()</code>.
+     * 
+     * @param transientEntities
+     * @return the batches written, with their timings
+     */
+    protected BulkWriteResult _bulkUpdate(Object... transientEntities) {
+        BulkWriteResult result = new BulkWriteResult();
+        bulkWrite(result, BulkWriteResult.Operation.UPDATE, transientEntities);
+        return result;
+    }
+
+    /**
+     * Like <code>_saveOrUpdateIsNew(Object...)</code>, but written in JDBC
+     * batches as described in <code>_bulkSave()</code>. All the new entities
+     * are inserted before any of the existing ones are updated.
+     * 
+     * @param entities
+     * @return the batches written, with their timings
+     */
+    protected BulkWriteResult _bulkSaveOrUpdate(Object... entities) {
+        boolean[] isNew = isNew(entities);
+        List<Object> inserts = new ArrayList<>();
+        List<Object> updates = new ArrayList<>();
+        for (int i = 0; i < entities.length; i++) {
+            (isNew[i] ? inserts : updates).add(entities[i]);
+        }
+
+        BulkWriteResult result = new BulkWriteResult();
+        bulkWrite(result, BulkWriteResult.Operation.SAVE, inserts.toArray());
+        bulkWrite(result, BulkWriteResult.Operation.UPDATE, updates.toArray());
+        return result;
+    }
+
+    private void bulkWrite(BulkWriteResult result, BulkWriteResult.Operation operation, Object[] entities) {
+        if (entities.length == 0)
+            return;
+        Session session = getSession();
+        Integer jdbcBatchSize = session.getJdbcBatchSize();
+        session.setJdbcBatchSize(bulkBatchSize);
+        try {
+            // anything already pending goes out first, so that it is not
+            // counted in the first batch
+            session.flush();
+            for (Map.Entry<Class<?>, List<Object>> group : DAOUtil.groupByClass(metadataUtil, entities).entrySet()) {
+                invalidateSearchCache(group.getKey());
+                List<Object> list = group.getValue();
+                for (int start = 0; start < list.size(); start += bulkBatchSize) {
+                    int end = Math.min(list.size(), start + bulkBatchSize);
+                    long begin = System.nanoTime();
+                    for (int i = start; i < end; i++) {
+                        switch (operation) {
+                        case SAVE:
+                            session.save(list.get(i));
+                            break;
+                        case PERSIST:
+                            session.persist(list.get(i));
+                            break;
+                        case UPDATE:
+                            session.update(list.get(i));
+                            break;
+                        }
+                    }
+                    session.flush();
+                    session.clear();
+                    BulkWriteResult.Batch batch = new BulkWriteResult.Batch(group.getKey(), operation, end - start,
+                                    System.nanoTime() - begin);
+                    result.addBatch(batch);
+                    if (LOGGER.isDebugEnabled())
+                        debug(batch.toString());
+                }
+            }
+        } finally {
+            session.setJdbcBatchSize(jdbcBatchSize);
+        }
+    }
+
     /**
      * Remove the entity of the specified class with the specified id from the
      * datastore.
@@ -292,6 +564,7 @@ public class HibernateBaseDAO {
             type = metadataUtil.getUnproxiedClass(type); //Get the real entity class
             Object entity = getSession().get(type, id);
             if (entity != null) {
+                invalidateSearchCache(type);
                 getSession().delete(entity);
                 return true;
             }
@@ -300,20 +573,78 @@ public class HibernateBaseDAO {
     }
 
     /**
+     * <p>
      * Remove all the entities of the given type from the datastore that have
      * one of these ids.
+     * 
+     * <p>
+     * If deleting an entity of this type only deletes its row (see
+     * {@link HibernateMetadataUtil#isDeletableWithoutLoading(Class)}), they
+     * are removed with <code>delete</code> statements of
+     * <code>idBatchSize</code> ids each, without being loaded, and those that
+     * were in the session are evicted. Otherwise they are loaded and deleted
+     * one by one.
+     * 
      * @param type
      * @param ids
      */
     protected void _deleteById(Class<?> type, Serializable... ids) {
         type = metadataUtil.getUnproxiedClass(type); //Get the real entity class
+        if (metadataUtil.isDeletableWithoutLoading(type)) {
+            invalidateSearchCache(type);
+            bulkDeleteById(type, ids);
+            return;
+        }
+
         Criteria c = getSession().createCriteria(type);
         c.add(Restrictions.in("id", ids));
+        invalidateSearchCache(type);
         for (Object entity : c.list()) {
             getSession().delete(entity);
         }
     }
 
+    private void bulkDeleteById(Class<?> type, Serializable... ids) {
+        // entities of the session are evicted once their rows are deleted;
+        // deleting them through the session could violate foreign keys of
+        // collection rows that the bulk delete removes later.
+        Set<Serializable> pending = new LinkedHashSet<>();
+        List<Object> inSession = new ArrayList<>();
+        for (Serializable id : ids) {
+            if (id != null && pending.add(id) && isInSession(type, id))
+                inSession.add(getSession().get(type, id));
+        }
+        if (pending.isEmpty())
+            return;
+
+        Metadata md = getMetadataUtil().get(type);
+        boolean inList = isIdInListSupported(md);
+
+        List<Serializable> idList = new ArrayList<>(pending);
+        for (int start = 0; start < idList.size(); start += idBatchSize) {
+            List<Serializable> batch = idList.subList(start, Math.min(start + idBatchSize, idList.size()));
+            Query query;
+            if (inList) {
+                query = getSession().createQuery("delete from " + md.getEntityName() + " where id in (:ids)");
+                query.setParameterList("ids", batch);
+            } else {
+                StringBuilder sb = new StringBuilder("delete from " + md.getEntityName() + " where");
+                for (int i = 0; i < batch.size(); i++) {
+                    sb.append(i == 0 ? " id = :id" : " or id = :id").append(i);
+                }
+                query = getSession().createQuery(sb.toString());
+                for (int i = 0; i < batch.size(); i++) {
+                    query.setParameter("id" + i, batch.get(i));
+                }
+            }
+            query.executeUpdate();
+        }
+
+        for (Object entity : inSession) {
+            getSession().evict(entity);
+        }
+    }
+
     /**
      * Remove the specified entity from the datastore.
      * 
@@ -327,6 +658,7 @@ public class HibernateBaseDAO {
             if (id != null) {
                 entity = getSession().get(metadataUtil.getUnproxiedClass(entity), id);
                 if (entity != null) {
+                    invalidateSearchCacheFor(entity);
                     getSession().delete(entity);
                     return true;
                 }
@@ -342,9 +674,229 @@ public class HibernateBaseDAO {
      */
     protected void _deleteEntities(Object... entities) {
         for (Object entity : entities) {
-            if (entity != null)
+            if (entity != null) {
+                invalidateSearchCacheFor(entity);
                 getSession().delete(entity);
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * Remove all the entities that match the filters of the given search
+     * with a single <code>delete</code> statement, without loading them.
+     * Fields, sorts and fetches of the search are ignored; it must not have
+     * paging.
+     * 
+     * <p>
+     * Cascades, orphan removal and lifecycle callbacks are not applied, so
+     * rows that reference the removed ones must be removed first. Instances
+     * of removed entities that were in the session are evicted from it.
+     * 
+     * @param search
+     * @return The number of entities removed.
+     */
+    protected int _removeBySearch(ISearch search) {
+        if (search == null)
+            throw new NullPointerException("Search is null.");
+        if (search.getSearchClass() == null)
+            throw new NullPointerException("Search class is null.");
+
+        return _removeBySearch(search.getSearchClass(), search);
+    }
+
+    /**
+     * Same as <code>_removeBySearch(ISearch)</code> except that it uses the
+     * specified search class instead of getting it from the search object.
+     * Also, if the search object has a different search class than what is
+     * specified, an exception is thrown.
+     * 
+     * @param searchClass
+     * @param search
+     * @return 
+     */
+    protected int _removeBySearch(Class<?> searchClass, ISearch search) {
+        if (search == null)
+            throw new NullPointerException("Search is null.");
+        if (searchClass == null)
+            throw new NullPointerException("Search class is null.");
+        if (search.getSearchClass() != null && !search.getSearchClass().equals(searchClass))
+            throw new IllegalArgumentException("Search class does not match expected type: " + searchClass.getName());
+
+        invalidateSearchCache(searchClass);
+        List<Object> inSession = entitiesInSession(searchClass);
+        int count = getSearchProcessor().delete(getSession(), searchClass, search);
+        if (count > 0 && !inSession.isEmpty())
+            evictRemoved(searchClass, inSession);
+        return count;
+    }
+
+    /**
+     * The entities of the given type, or a subtype, managed by the current
+     * session.
+     */
+    private List<Object> entitiesInSession(Class<?> type) {
+        List<Object> entities = new ArrayList<>();
+        for (Map.Entry<Object, EntityEntry> entry : ((SessionImplementor) getSession()).getPersistenceContext().reentrantSafeEntityEntries()) {
+            Status status = entry.getValue().getStatus();
+            if ((status == Status.MANAGED || status == Status.READ_ONLY) && type.isInstance(entry.getKey()))
+                entities.add(entry.getKey());
+        }
+        return entities;
+    }
+
+    /**
+     * The entities of the given type, or a subtype, managed by the current
+     * session whose rows match the filters of the search.
+     */
+    private List<Object> matchingEntitiesInSession(Class<?> type, ISearch search) {
+        List<Object> entities = entitiesInSession(type);
+        if (entities.isEmpty())
+            return entities;
+
+        Metadata md = getMetadataUtil().get(type);
+        boolean inList = isIdInListSupported(md);
+
+        List<Serializable> ids = new ArrayList<>(entities.size());
+        for (Object entity : entities) {
+            ids.add(getSession().getIdentifier(entity));
+        }
+        Set<Object> found = new HashSet<>();
+        for (int start = 0; start < ids.size(); start += idBatchSize) {
+            List<Serializable> batch = ids.subList(start, Math.min(start + idBatchSize, ids.size()));
+            found.addAll(getSearchProcessor().search(getSession(), type, DAOUtil.getIdSearch(type, search, md.getIdProperty(), batch, inList)));
+        }
+
+        List<Object> matching = new ArrayList<>();
+        for (int i = 0; i < entities.size(); i++) {
+            if (found.contains(ids.get(i)))
+                matching.add(entities.get(i));
         }
+        return matching;
+    }
+
+    /**
+     * Evict the given entities whose rows no longer exist.
+     */
+    private void evictRemoved(Class<?> type, List<Object> entities) {
+        Metadata md = getMetadataUtil().get(type);
+        boolean inList = isIdInListSupported(md);
+
+        List<Serializable> ids = new ArrayList<>(entities.size());
+        for (Object entity : entities) {
+            ids.add(getSession().getIdentifier(entity));
+        }
+        Set<Serializable> found = new HashSet<>();
+        for (int start = 0; start < ids.size(); start += idBatchSize) {
+            found.addAll(_existingIds(md.getEntityName(), ids.subList(start, Math.min(start + idBatchSize, ids.size())), inList));
+        }
+
+        for (int i = 0; i < entities.size(); i++) {
+            // evicting one entity may have cascaded to another
+            if (!found.contains(ids.get(i)) && getSession().contains(entities.get(i)))
+                getSession().evict(entities.get(i));
+        }
+    }
+
+    /**
+     * <p>
+     * Set the given properties of the entity with the specified type and id
+     * with a single <code>update</code> statement, without loading it.
+     * Properties may be paths through embedded components; collections and
+     * the id cannot be set. Values are converted to the type of their
+     * property the same way search filter values are.
+     * 
+     * <p>
+     * The version of a versioned entity is incremented by the same statement.
+     * Lifecycle callbacks are not applied. The session is flushed first, and
+     * if the entity is in the session it is then refreshed so that it reflects
+     * the update.
+     * 
+     * @param type
+     * @param id
+     * @param values
+     *            property paths mapped to their new values
+     * @return <code>true</code> if the entity was found and updated.
+     */
+    protected boolean _updateFields(Class<?> type, Serializable id, Map<String, ?> values) {
+        if (type == null)
+            throw new NullPointerException("Type is null.");
+        if (id == null)
+            throw new NullPointerException("Id is null.");
+
+        type = metadataUtil.getUnproxiedClass(type);
+        invalidateSearchCache(type);
+        Search search = new Search(type).addFilterEqual(getMetadataUtil().get(type).getIdProperty(), id);
+        // refreshing would discard changes that are not flushed yet
+        getSession().flush();
+        if (getSearchProcessor().update(getSession(), type, search, values) == 0)
+            return false;
+        if (isInSession(type, id))
+            getSession().refresh(getSession().get(type, id));
+        return true;
+    }
+
+    /**
+     * <p>
+     * Set the given properties of all the entities that match the filters of
+     * the given search with a single <code>update</code> statement, without
+     * loading them. Fields, sorts and fetches of the search are ignored; it
+     * must not have paging. Properties and values are handled as in
+     * <code>_updateFields()</code>.
+     * 
+     * <p>
+     * The version of versioned entities is incremented by the same statement.
+     * Lifecycle callbacks are not applied. The session is flushed first, and
+     * the entities in the session that match the search are then refreshed.
+     * They are found before the update with one query for each
+     * <code>idBatchSize</code> entities of the search class in the session.
+     * 
+     * @param search
+     * @param values
+     *            property paths mapped to their new values
+     * @return The number of entities updated.
+     */
+    protected int _updateFieldsBySearch(ISearch search, Map<String, ?> values) {
+        if (search == null)
+            throw new NullPointerException("Search is null.");
+        if (search.getSearchClass() == null)
+            throw new NullPointerException("Search class is null.");
+
+        return _updateFieldsBySearch(search.getSearchClass(), search, values);
+    }
+
+    /**
+     * Same as <code>_updateFieldsBySearch(ISearch, Map)</code> except that it
+     * uses the specified search class instead of getting it from the search
+     * object. Also, if the search object has a different search class than
+     * what is specified, an exception is thrown.
+     * 
+     * @param searchClass
+     * @param search
+     * @param values
+     * @return 
+     */
+    protected int _updateFieldsBySearch(Class<?> searchClass, ISearch search, Map<String, ?> values) {
+        if (search == null)
+            throw new NullPointerException("Search is null.");
+        if (searchClass == null)
+            throw new NullPointerException("Search class is null.");
+        if (search.getSearchClass() != null && !search.getSearchClass().equals(searchClass))
+            throw new IllegalArgumentException("Search class does not match expected type: " + searchClass.getName());
+
+        invalidateSearchCache(searchClass);
+        // refreshing would discard changes that are not flushed yet
+        getSession().flush();
+        List<Object> matching = matchingEntitiesInSession(searchClass, search);
+        int count = getSearchProcessor().update(getSession(), searchClass, search, values);
+        if (count > 0) {
+            for (Object entity : matching) {
+                // refreshing one entity may have cascaded to another
+                if (getSession().contains(entity))
+                    getSession().refresh(entity);
+            }
+        }
+        return count;
     }
 
     /**
@@ -371,7 +923,8 @@ public class HibernateBaseDAO {
      * return array.
      * 
      * <p>
-     * <code>get()</code> always hits the database immediately.
+     * Entities already in the session are returned without a query; the rest
+     * are loaded in batches of <code>idBatchSize</code> ids.
      * 
      * @param <T>
      * @param type
@@ -379,22 +932,35 @@ public class HibernateBaseDAO {
      * @return 
      */
     protected <T> T[] _get(Class<T> type, Serializable... ids) {
-            type = metadataUtil.getUnproxiedClass(type); //Get the real entity class
-        Criteria c = getSession().createCriteria(type);
-        c.add(Restrictions.in("id", ids));
-        Object[] retVal = (Object[]) Array.newInstance(type, ids.length);
+        type = metadataUtil.getUnproxiedClass(type); //Get the real entity class
+        T[] retVal = (T[]) Array.newInstance(type, ids.length);
 
-        for (Object entity : c.list()) {
-            Serializable id = getMetadataUtil().getId(entity);
-            for (int i = 0; i < ids.length; i++) {
-                if (id.equals(ids[i])) {
-                        retVal[i] = entity;
-                        break;
-                }
-            }
+        // load each distinct id once
+        Set<Serializable> distinct = new LinkedHashSet<>();
+        for (Serializable id : ids) {
+            if (id != null)
+                distinct.add(id);
+        }
+        if (distinct.isEmpty())
+            return retVal;
+
+        List<Serializable> idList = new ArrayList<>(distinct);
+        List<T> loaded = getSession().byMultipleIds(type).enableSessionCheck(true).withBatchSize(idBatchSize)
+                .multiLoad(idList);
+
+        // the loaded list is in the order of the ids, with nulls for ids not found
+        Map<Serializable, T> byId = new HashMap<>();
+        for (int i = 0; i < idList.size(); i++) {
+            if (loaded.get(i) != null)
+                byId.put(idList.get(i), loaded.get(i));
+        }
+        for (int i = 0; i < ids.length; i++) {
+            // the same id could be in the list twice.
+            if (ids[i] != null)
+                retVal[i] = byId.get(ids[i]);
         }
 
-        return (T[]) retVal;
+        return retVal;
     }
 
     /**
@@ -489,6 +1055,7 @@ public class HibernateBaseDAO {
      */
     protected void _update(Object... transientEntities) {
         for (Object entity : transientEntities) {
+            invalidateSearchCacheFor(entity);
             getSession().update(entity);
         }
     }
@@ -516,6 +1083,7 @@ public class HibernateBaseDAO {
      * @return 
      */
     protected <T> T _merge(T entity) {
+        invalidateSearchCacheFor(entity);
         return (T) getSession().merge(entity);
     }
 
@@ -557,6 +1125,47 @@ public class HibernateBaseDAO {
         return getSearchProcessor().search(getSession(), searchClass, search);
     }
 
+    /**
+     * Search for objects based on the search parameters in the specified
+     * <code>ISearch</code> object and return them as a stream backed by a
+     * forward-only cursor. The stream must be consumed while the session is
+     * open and should be closed when done.
+     * 
+     * @param search
+     * @return 
+     * @see ISearch
+     * @see HibernateSearchProcessor#searchStream(org.hibernate.SharedSessionContract, ISearch)
+     */
+    protected Stream _searchStream(ISearch search) {
+        if (search == null)
+            throw new NullPointerException("Search is null.");
+        if (search.getSearchClass() == null)
+            throw new NullPointerException("Search class is null.");
+
+        return getSearchProcessor().searchStream(getSession(), search);
+    }
+
+    /**
+     * Same as <code>_searchStream(ISearch)</code> except that it uses the specified
+     * search class instead of getting it from the search object. Also, if the search
+     * object has a different search class than what is specified, an exception
+     * is thrown.
+     * 
+     * @param searchClass
+     * @param search
+     * @return 
+     */
+    protected Stream _searchStream(Class<?> searchClass, ISearch search) {
+        if (search == null)
+            throw new NullPointerException("Search is null.");
+        if (searchClass == null)
+            throw new NullPointerException("Search class is null.");
+        if (search.getSearchClass() != null && !search.getSearchClass().equals(searchClass))
+            throw new IllegalArgumentException("Search class does not match expected type: " + searchClass.getName());
+
+        return getSearchProcessor().searchStream(getSession(), searchClass, search);
+    }
+
     /**
      * Returns the total number of results that would be returned using the
      * given <code>ISearch</code> if there were no paging or maxResult limits.
@@ -595,6 +1204,84 @@ public class HibernateBaseDAO {
         return getSearchProcessor().count(getSession(), searchClass, search);
     }
 
+    /**
+     * Returns the total number of results that would be returned using the
+     * given <code>ISearch</code> if there were no paging or maxResult limits,
+     * but no more than <code>cap</code>. A cap of 0 or less means no cap.
+     * 
+     * @param search
+     * @param cap
+     * @return 
+     * @see ISearch
+     */
+    protected int _count(ISearch search, int cap) {
+        if (search == null)
+            throw new NullPointerException("Search is null.");
+        if (search.getSearchClass() == null)
+            throw new NullPointerException("Search class is null.");
+
+        return getSearchProcessor().count(getSession(), search, cap);
+    }
+
+    /**
+     * Same as <code>_count(ISearch, int)</code> except that it uses the
+     * specified search class instead of getting it from the search object.
+     * Also, if the search object has a different search class than what is
+     * specified, an exception is thrown.
+     * 
+     * @param searchClass
+     * @param search
+     * @param cap
+     * @return 
+     */
+    protected int _count(Class<?> searchClass, ISearch search, int cap) {
+        if (search == null)
+            throw new NullPointerException("Search is null.");
+        if (searchClass == null)
+            throw new NullPointerException("Search class is null.");
+        if (search.getSearchClass() != null && !search.getSearchClass().equals(searchClass))
+            throw new IllegalArgumentException("Search class does not match expected type: " + searchClass.getName());
+
+        return getSearchProcessor().count(getSession(), searchClass, search, cap);
+    }
+
+    /**
+     * Returns true if the given <code>ISearch</code> has any results.
+     * 
+     * @param search
+     * @return 
+     * @see ISearch
+     */
+    protected boolean _searchExists(ISearch search) {
+        if (search == null)
+            throw new NullPointerException("Search is null.");
+        if (search.getSearchClass() == null)
+            throw new NullPointerException("Search class is null.");
+
+        return getSearchProcessor().exists(getSession(), search);
+    }
+
+    /**
+     * Same as <code>_searchExists(ISearch)</code> except that it uses the
+     * specified search class instead of getting it from the search object.
+     * Also, if the search object has a different search class than what is
+     * specified, an exception is thrown.
+     * 
+     * @param searchClass
+     * @param search
+     * @return 
+     */
+    protected boolean _searchExists(Class<?> searchClass, ISearch search) {
+        if (search == null)
+            throw new NullPointerException("Search is null.");
+        if (searchClass == null)
+            throw new NullPointerException("Search class is null.");
+        if (search.getSearchClass() != null && !search.getSearchClass().equals(searchClass))
+            throw new IllegalArgumentException("Search class does not match expected type: " + searchClass.getName());
+
+        return getSearchProcessor().exists(getSession(), searchClass, search);
+    }
+
     /**
      * Returns the number of instances of this class in the datastore.
      * 
@@ -737,35 +1424,84 @@ public class HibernateBaseDAO {
 
         boolean[] ret = new boolean[ids.length];
 
-        // we can't use "id in (:ids)" because some databases do not support
-        // this for compound ids.
-        StringBuilder sb = new StringBuilder("select id from " + getMetadataUtil().get(type).getEntityName() + " where");
-        boolean first = true;
+        // ids of entities already in the session exist; only look up the
+        // others, each distinct id once.
+        Set<Serializable> toCheck = new LinkedHashSet<>();
         for (int i = 0; i < ids.length; i++) {
-            if (first) {
-                first = false;
-                sb.append(" id = :id");
+            if (ids[i] == null)
+                continue;
+            if (isInSession(type, ids[i])) {
+                ret[i] = true;
             } else {
-                sb.append(" or id = :id");
+                toCheck.add(ids[i]);
             }
-            sb.append(i);
+        }
+        if (toCheck.isEmpty())
+            return ret;
+
+        Metadata md = getMetadataUtil().get(type);
+        boolean inList = isIdInListSupported(md);
+
+        List<Serializable> pending = new ArrayList<>(toCheck);
+        Set<Serializable> found = new HashSet<>();
+        for (int start = 0; start < pending.size(); start += idBatchSize) {
+            List<Serializable> batch = pending.subList(start, Math.min(start + idBatchSize, pending.size()));
+            found.addAll(_existingIds(md.getEntityName(), batch, inList));
         }
 
-        Query query = getSession().createQuery(sb.toString());
         for (int i = 0; i < ids.length; i++) {
-            query.setParameter("id" + i, ids[i]);
+            // the same id could be in the list twice.
+            if (!ret[i] && ids[i] != null && found.contains(ids[i]))
+                ret[i] = true;
         }
 
-        for (Serializable id : (List<Serializable>) query.list()) {
-            for (int i = 0; i < ids.length; i++) {
-                if (id.equals(ids[i])) {
-                    ret[i] = true;
-                    // don't break. the same id could be in the list twice.
-                }
+        return ret;
+    }
+
+    /**
+     * Return true if ids of the given type can be matched with
+     * <code>id in (:ids)</code>. We can't use that for compound ids unless the
+     * database supports row values in IN lists.
+     */
+    private boolean isIdInListSupported(Metadata md) {
+        return !md.getIdType().isEmbeddable()
+                || ((SessionImplementor) getSession()).getJdbcServices().getDialect().supportsRowValueConstructorSyntaxInInList();
+    }
+
+    private List<Serializable> _existingIds(String entityName, List<Serializable> ids, boolean inList) {
+        Query query;
+        if (inList) {
+            query = getSession().createQuery("select id from " + entityName + " where id in (:ids)");
+            query.setParameterList("ids", ids);
+        } else {
+            StringBuilder sb = new StringBuilder("select id from " + entityName + " where");
+            for (int i = 0; i < ids.size(); i++) {
+                sb.append(i == 0 ? " id = :id" : " or id = :id").append(i);
+            }
+            query = getSession().createQuery(sb.toString());
+            for (int i = 0; i < ids.size(); i++) {
+                query.setParameter("id" + i, ids.get(i));
             }
         }
+        return query.list();
+    }
 
-        return ret;
+    /**
+     * Return true if an entity of the given type with the given id is managed
+     * by the current session and is not being deleted.
+     * 
+     * @param type
+     * @param id
+     * @return 
+     */
+    protected boolean isInSession(Class<?> type, Serializable id) {
+        SessionImplementor session = (SessionImplementor) getSession();
+        EntityPersister persister = session.getFactory().getMetamodel().entityPersister(type);
+        Object entity = session.getPersistenceContext().getEntity(session.generateEntityKey(id, persister));
+        if (entity == null)
+            return false;
+        EntityEntry entry = session.getPersistenceContext().getEntry(entity);
+        return entry != null && (entry.getStatus() == Status.MANAGED || entry.getStatus() == Status.READ_ONLY);
     }
 
     protected Filter _getFilterFromExample(Object example) {
@@ -16,7 +16,10 @@ package net.da.backing.data.dao.hibernate;
 
 import java.io.Serializable;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
+import net.da.backing.data.dao.BulkWriteResult;
 import net.da.backing.data.search.ExampleOptions;
 import net.da.backing.data.search.Filter;
 import net.da.backing.data.search.ISearch;
@@ -142,6 +145,43 @@ public interface IGenericDAO<T, ID extends Serializable> {
      * @param entity
      */
     public void update(T entity);
+
+    /**
+     * <p>
+     * Add the given new entities to the datastore in JDBC batches, assigning
+     * them ids. The entities are written grouped by class, and the session is
+     * flushed and cleared after every <code>bulkBatchSize</code> entities, so
+     * the session does not grow with the number of entities.
+     * 
+     * <p>
+     * Because the session is cleared, all the entities attached to it are
+     * detached afterwards, not only the given ones.
+     * 
+     * @param entities
+     * @return the size and time of each batch written
+     */
+    public BulkWriteResult bulkSave(T... entities);
+
+    /**
+     * Update the corresponding entities in the datastore with the properties
+     * of the given entities, in JDBC batches as described in
+     * <code>bulkSave()</code>.
+     * 
+     * @param entities
+     * @return the size and time of each batch written
+     */
+    public BulkWriteResult bulkUpdate(T... entities);
+
+    /**
+     * Add each entity that does not exist in the datastore and update each
+     * that does, like <code>saveOrUpdateIsNew()</code>, in JDBC batches as
+     * described in <code>bulkSave()</code>. All the inserts are written before
+     * the updates.
+     * 
+     * @param entities
+     * @return the size and time of each batch written
+     */
+    public BulkWriteResult bulkSaveOrUpdate(T... entities);
     
     
     /**
@@ -178,6 +218,45 @@ public interface IGenericDAO<T, ID extends Serializable> {
      */
     public void removeByIds(ID... ids);
 
+    /**
+     * Remove all the entities that match the filters of the given search with
+     * a single statement, without loading them. Cascades are not applied and
+     * the search must not have paging. Removed entities that were in the
+     * session are evicted.
+     * 
+     * @param search
+     * @return the number of entities removed
+     */
+    public int removeBySearch(ISearch search);
+
+    /**
+     * Set the given properties of the entity with the specified id with a
+     * single statement, without loading it. Properties may be paths through
+     * embedded components, and values are converted to the types of their
+     * properties as in search filters. If the entity is in the session it is
+     * refreshed.
+     * 
+     * @param id
+     * @param values
+     *            property paths mapped to their new values
+     * @return <code>true</code> if the entity is found in the datastore and
+     *         updated, <code>false</code> if it is not found.
+     */
+    public boolean updateFields(ID id, Map<String, ?> values);
+
+    /**
+     * Set the given properties of all the entities that match the filters of
+     * the given search with a single statement, without loading them. The
+     * search must not have paging. Entities of this type that are in the
+     * session are refreshed.
+     * 
+     * @param search
+     * @param values
+     *            property paths mapped to their new values
+     * @return the number of entities updated
+     */
+    public int updateFieldsBySearch(ISearch search, Map<String, ?> values);
+
     /**
      * Get a list of all the objects of the specified type.
      * 
@@ -195,6 +274,20 @@ public interface IGenericDAO<T, ID extends Serializable> {
      */
     public <RT> List<RT> search(ISearch search);
 
+    /**
+     * Search for entities given the search parameters in the specified
+     * <code>ISearch</code> object and return them as a stream that reads rows
+     * from the datastore as they are consumed. Entities are evicted from the
+     * session as the stream advances, so memory use stays constant regardless
+     * of the number of results. The stream must be consumed within the
+     * current session and should be closed when done.
+     * 
+     * @param <RT> RT The result type is automatically determined by the context in which the method is called.
+     * @param search
+     * @return 
+     */
+    public <RT> Stream<RT> searchStream(ISearch search);
+
     /**
      * Search for a single entity using the given parameters.
      * 
@@ -213,10 +306,34 @@ public interface IGenericDAO<T, ID extends Serializable> {
      */
     public int count(ISearch search);
 
+    /**
+     * Returns the number of results that would be returned using the given
+     * <code>ISearch</code> if there were no paging or maxResult limits, but no
+     * more than <code>cap</code>. Counting stops once the cap is reached, which
+     * is much cheaper than <code>count()</code> when there are many results. A
+     * cap of 0 or less means no cap.
+     * 
+     * @param search
+     * @param cap
+     * @return 
+     */
+    public int count(ISearch search, int cap);
+
+    /**
+     * Returns true if the given <code>ISearch</code> has any results. Only the
+     * first match is looked for.
+     * 
+     * @param search
+     * @return 
+     */
+    public boolean exists(ISearch search);
+
     /**
      * Returns a <code>SearchResult</code> object that includes both the list of
      * results like <code>search()</code> and the total length like
-     * <code>count()</code>.
+     * <code>count()</code>. If the count mode of the search is
+     * <code>ISearch.COUNT_HAS_MORE</code>, no count is run and only
+     * <code>SearchResult.isHasMore()</code> tells whether there is a next page.
      * 
      * @param <RT> RT The result type is automatically determined by the context in which the method is called.
      * @param search
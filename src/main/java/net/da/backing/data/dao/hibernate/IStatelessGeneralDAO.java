@@ -0,0 +1,153 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.da.backing.data.dao.hibernate;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.stream.Stream;
+
+import net.da.backing.data.search.ISearch;
+import net.da.backing.data.search.SearchResult;
+
+/**
+ * <p>
+ * Interface for a general Data Access Object that works on a Hibernate
+ * <code>StatelessSession</code>. It can be used for any type of domain object.
+ *
+ * <p>
+ * Unlike <code>IGeneralDAO</code>, nothing is kept between calls: there is no
+ * dirty checking, so changes must be written with <code>update()</code>;
+ * writes do not cascade to associated entities or collections; and entities
+ * that are returned are detached. All calls must be made within a
+ * transaction.
+ */
+public interface IStatelessGeneralDAO {
+
+    /**
+     * Get the entity with the specified type and id from the datastore. If
+     * none is found, return null.
+     *
+     * @param <T>
+     * @param type
+     * @param id
+     * @return
+     */
+    public <T> T get(Class<T> type, Serializable id);
+
+    /**
+     * Insert the given transient entity, first assigning a generated
+     * identifier.
+     *
+     * @param entity
+     * @return The id of the inserted entity.
+     */
+    public Serializable insert(Object entity);
+
+    /**
+     * Insert the given transient entities. Each is assigned its generated
+     * identifier.
+     *
+     * @param entities
+     */
+    public void insert(Object... entities);
+
+    /**
+     * Write all the properties of the given detached entities to their rows.
+     *
+     * @param entities
+     */
+    public void update(Object... entities);
+
+    /**
+     * Delete the rows of the given detached entities.
+     *
+     * @param entities
+     */
+    public void delete(Object... entities);
+
+    /**
+     * Delete the entity with the specified type and id, without loading it.
+     *
+     * @param type
+     * @param id
+     * @return <code>true</code> if the entity was found and deleted.
+     */
+    public boolean deleteById(Class<?> type, Serializable id);
+
+    /**
+     * Search for objects given the search parameters in the specified
+     * <code>ISearch</code> object.
+     *
+     * @param search
+     * @return
+     */
+    public List search(ISearch search);
+
+    /**
+     * Search for objects given the search parameters in the specified
+     * <code>ISearch</code> object and return them as a stream that reads rows
+     * from the datastore as they are consumed. The stream must be consumed
+     * within the transaction and should be closed when done.
+     *
+     * @param search
+     * @return
+     */
+    public Stream searchStream(ISearch search);
+
+    /**
+     * Search for a single result using the given parameters.
+     *
+     * @param search
+     * @return
+     */
+    public Object searchUnique(ISearch search);
+
+    /**
+     * Returns the total number of results that would be returned using the
+     * given <code>ISearch</code> if there were no paging or maxResults limits.
+     *
+     * @param search
+     * @return
+     */
+    public int count(ISearch search);
+
+    /**
+     * Returns the number of results that would be returned using the given
+     * <code>ISearch</code> if there were no paging or maxResult limits, but no
+     * more than <code>cap</code>. A cap of 0 or less means no cap.
+     *
+     * @param search
+     * @param cap
+     * @return
+     */
+    public int count(ISearch search, int cap);
+
+    /**
+     * Returns true if the given <code>ISearch</code> has any results.
+     *
+     * @param search
+     * @return
+     */
+    public boolean exists(ISearch search);
+
+    /**
+     * Returns a <code>SearchResult</code> object that includes both the list of
+     * results like <code>search()</code> and the total length like
+     * <code>count()</code>.
+     *
+     * @param search
+     * @return
+     */
+    public SearchResult searchAndCount(ISearch search);
+}
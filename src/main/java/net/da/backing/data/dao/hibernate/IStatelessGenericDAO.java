@@ -0,0 +1,155 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.da.backing.data.dao.hibernate;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.stream.Stream;
+
+import net.da.backing.data.search.ISearch;
+import net.da.backing.data.search.SearchResult;
+
+/**
+ * Interface for a Data Access Object that works on a Hibernate
+ * <code>StatelessSession</code> and can be used for a single specified type
+ * domain object. See <code>IStatelessGeneralDAO</code> for how it differs
+ * from <code>IGenericDAO</code>.
+ *
+ * @param <T>
+ *            The type of the domain object for which this instance is to be
+ *            used.
+ * @param <ID>
+ *            The type of the id of the domain object for which this instance is
+ *            to be used.
+ */
+public interface IStatelessGenericDAO<T, ID extends Serializable> {
+
+    /**
+     * Get the entity with the specified id from the datastore. If none is
+     * found, return null.
+     *
+     * @param id
+     * @return
+     */
+    public T get(ID id);
+
+    /**
+     * Insert the given transient entity, first assigning a generated
+     * identifier.
+     *
+     * @param entity
+     * @return The id of the inserted entity.
+     */
+    public ID insert(T entity);
+
+    /**
+     * Insert the given transient entities. Each is assigned its generated
+     * identifier.
+     *
+     * @param entities
+     */
+    public void insert(T... entities);
+
+    /**
+     * Write all the properties of the given detached entities to their rows.
+     *
+     * @param entities
+     */
+    public void update(T... entities);
+
+    /**
+     * Delete the rows of the given detached entities.
+     *
+     * @param entities
+     */
+    public void delete(T... entities);
+
+    /**
+     * Delete the entity with the specified id, without loading it.
+     *
+     * @param id
+     * @return <code>true</code> if the entity was found and deleted.
+     */
+    public boolean deleteById(ID id);
+
+    /**
+     * Search for entities given the search parameters in the specified
+     * <code>ISearch</code> object.
+     *
+     * @param <RT> RT The result type is automatically determined by the context in which the method is called.
+     * @param search
+     * @return
+     */
+    public <RT> List<RT> search(ISearch search);
+
+    /**
+     * Search for entities given the search parameters in the specified
+     * <code>ISearch</code> object and return them as a stream that reads rows
+     * from the datastore as they are consumed. The stream must be consumed
+     * within the transaction and should be closed when done.
+     *
+     * @param <RT> RT The result type is automatically determined by the context in which the method is called.
+     * @param search
+     * @return
+     */
+    public <RT> Stream<RT> searchStream(ISearch search);
+
+    /**
+     * Search for a single entity using the given parameters.
+     *
+     * @param <RT> RT The result type is automatically determined by the context in which the method is called.
+     * @param search
+     * @return
+     */
+    public <RT> RT searchUnique(ISearch search);
+
+    /**
+     * Returns the total number of results that would be returned using the
+     * given <code>ISearch</code> if there were no paging or maxResults limits.
+     *
+     * @param search
+     * @return
+     */
+    public int count(ISearch search);
+
+    /**
+     * Returns the number of results that would be returned using the given
+     * <code>ISearch</code> if there were no paging or maxResult limits, but no
+     * more than <code>cap</code>. A cap of 0 or less means no cap.
+     *
+     * @param search
+     * @param cap
+     * @return
+     */
+    public int count(ISearch search, int cap);
+
+    /**
+     * Returns true if the given <code>ISearch</code> has any results.
+     *
+     * @param search
+     * @return
+     */
+    public boolean exists(ISearch search);
+
+    /**
+     * Returns a <code>SearchResult</code> object that includes both the list of
+     * results like <code>search()</code> and the total length like
+     * <code>count()</code>.
+     *
+     * @param <RT> RT The result type is automatically determined by the context in which the method is called.
+     * @param search
+     * @return
+     */
+    public <RT> SearchResult<RT> searchAndCount(ISearch search);
+}
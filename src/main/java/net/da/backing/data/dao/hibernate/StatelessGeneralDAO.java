@@ -0,0 +1,111 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.da.backing.data.dao.hibernate;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.stream.Stream;
+
+import net.da.backing.data.search.ISearch;
+import net.da.backing.data.search.SearchResult;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.Scope;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Implementation of <code>IStatelessGeneralDAO</code> using a Hibernate
+ * <code>StatelessSession</code>. The SessionFactory property is annotated for
+ * automatic resource injection.
+ */
+@Repository
+@Scope( BeanDefinition.SCOPE_PROTOTYPE )
+public class StatelessGeneralDAO extends StatelessHibernateBaseDAO implements IStatelessGeneralDAO {
+
+    @Override
+    public <T> T get(Class<T> type, Serializable id) {
+        LOGGER.debug("Get entity type[{}] with id[{}].", type, id);
+        return _get(type, id);
+    }
+
+    @Override
+    public Serializable insert(Object entity) {
+        LOGGER.debug("Insert entity [{}].", entity);
+        return _insert(entity);
+    }
+
+    @Override
+    public void insert(Object... entities) {
+        LOGGER.debug("Insert [{}] entities.", entities.length);
+        _insert(entities);
+    }
+
+    @Override
+    public void update(Object... entities) {
+        LOGGER.debug("Update [{}] entities.", entities.length);
+        _update(entities);
+    }
+
+    @Override
+    public void delete(Object... entities) {
+        LOGGER.debug("Delete [{}] entities.", entities.length);
+        _delete(entities);
+    }
+
+    @Override
+    public boolean deleteById(Class<?> type, Serializable id) {
+        LOGGER.debug("Delete entity type[{}] with id[{}].", type, id);
+        return _deleteById(type, id);
+    }
+
+    @Override
+    public List search(ISearch search) {
+        return _search(searchClassOf(search), search);
+    }
+
+    @Override
+    public Stream searchStream(ISearch search) {
+        return _searchStream(searchClassOf(search), search);
+    }
+
+    @Override
+    public Object searchUnique(ISearch search) {
+        return _searchUnique(searchClassOf(search), search);
+    }
+
+    @Override
+    public int count(ISearch search) {
+        return _count(searchClassOf(search), search);
+    }
+
+    @Override
+    public int count(ISearch search, int cap) {
+        return _count(searchClassOf(search), search, cap);
+    }
+
+    @Override
+    public boolean exists(ISearch search) {
+        return _searchExists(searchClassOf(search), search);
+    }
+
+    @Override
+    public SearchResult searchAndCount(ISearch search) {
+        return _searchAndCount(searchClassOf(search), search);
+    }
+
+    private Class<?> searchClassOf(ISearch search) {
+        Class<?> searchClass = search == null ? null : search.getSearchClass();
+        LOGGER.debug("Search type[{}].", searchClass);
+        return searchClass;
+    }
+}
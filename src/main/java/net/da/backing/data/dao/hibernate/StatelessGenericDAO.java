@@ -0,0 +1,138 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.da.backing.data.dao.hibernate;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.stream.Stream;
+
+import net.da.backing.data.dao.DAOUtil;
+import net.da.backing.data.search.ISearch;
+import net.da.backing.data.search.Search;
+import net.da.backing.data.search.SearchResult;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.Scope;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Implementation of <code>IStatelessGenericDAO</code> using a Hibernate
+ * <code>StatelessSession</code>. The SessionFactory property is annotated for
+ * automatic resource injection.
+ *
+ * @param <T>
+ *            The type of the domain object for which this instance is to be
+ *            used.
+ * @param <ID>
+ *            The type of the id of the domain object for which this instance is
+ *            to be used.
+ */
+@Repository
+@Scope( BeanDefinition.SCOPE_PROTOTYPE )
+public class StatelessGenericDAO<T, ID extends Serializable> extends StatelessHibernateBaseDAO implements
+        IStatelessGenericDAO<T, ID> {
+
+    protected Class<T> persistentClass = (Class<T>) DAOUtil.getTypeArguments(StatelessGenericDAO.class, this.getClass()).get(0);
+
+    @Override
+    public T get(ID id) {
+        LOGGER.debug("Get entity type[{}] with id[{}].", persistentClass, id);
+        return _get(persistentClass, id);
+    }
+
+    @Override
+    public ID insert(T entity) {
+        LOGGER.debug("Insert entity type[{}].", persistentClass);
+        return (ID) _insert(entity);
+    }
+
+    @Override
+    public void insert(T... entities) {
+        LOGGER.debug("Insert [{}] entities type[{}].", entities.length, persistentClass);
+        _insert((Object[]) entities);
+    }
+
+    @Override
+    public void update(T... entities) {
+        LOGGER.debug("Update [{}] entities type[{}].", entities.length, persistentClass);
+        _update((Object[]) entities);
+    }
+
+    @Override
+    public void delete(T... entities) {
+        LOGGER.debug("Delete [{}] entities type[{}].", entities.length, persistentClass);
+        _delete((Object[]) entities);
+    }
+
+    @Override
+    public boolean deleteById(ID id) {
+        LOGGER.debug("Delete entity type[{}] with id[{}].", persistentClass, id);
+        return _deleteById(persistentClass, id);
+    }
+
+    @Override
+    public <RT> List<RT> search(ISearch search) {
+        LOGGER.debug("Search type[{}].", persistentClass);
+        if (search == null)
+            search = new Search();
+        return _search(persistentClass, search);
+    }
+
+    @Override
+    public <RT> Stream<RT> searchStream(ISearch search) {
+        LOGGER.debug("Search stream type[{}].", persistentClass);
+        if (search == null)
+            search = new Search();
+        return _searchStream(persistentClass, search);
+    }
+
+    @Override
+    public <RT> RT searchUnique(ISearch search) {
+        LOGGER.debug("Search unique type[{}].", persistentClass);
+        if (search == null)
+            search = new Search();
+        return (RT) _searchUnique(persistentClass, search);
+    }
+
+    @Override
+    public int count(ISearch search) {
+        LOGGER.debug("Count type[{}] of search.", persistentClass);
+        if (search == null)
+            search = new Search();
+        return _count(persistentClass, search);
+    }
+
+    @Override
+    public int count(ISearch search, int cap) {
+        LOGGER.debug("Count type[{}] of search with cap[{}].", persistentClass, cap);
+        if (search == null)
+            search = new Search();
+        return _count(persistentClass, search, cap);
+    }
+
+    @Override
+    public boolean exists(ISearch search) {
+        LOGGER.debug("Exists type[{}] of search.", persistentClass);
+        if (search == null)
+            search = new Search();
+        return _searchExists(persistentClass, search);
+    }
+
+    @Override
+    public <RT> SearchResult<RT> searchAndCount(ISearch search) {
+        LOGGER.debug("Search and count type[{}].", persistentClass);
+        if (search == null)
+            search = new Search();
+        return _searchAndCount(persistentClass, search);
+    }
+}
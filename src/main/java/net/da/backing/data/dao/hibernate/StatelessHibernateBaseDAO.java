@@ -0,0 +1,420 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.da.backing.data.dao.hibernate;
+
+import java.io.Serializable;
+import java.sql.Connection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+
+import org.hibernate.NonUniqueResultException;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+
+import net.da.backing.data.search.ISearch;
+import net.da.backing.data.search.Metadata;
+import net.da.backing.data.search.SearchCache;
+import net.da.backing.data.search.SearchResult;
+import net.da.backing.data.search.hibernate.HibernateMetadataUtil;
+import net.da.backing.data.search.hibernate.HibernateSearchProcessor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * <p>
+ * Base class for DAOs that work on a Hibernate <code>StatelessSession</code>
+ * instead of the current session. A stateless session has no first-level
+ * cache, does no dirty checking and ignores cascades and collections: every
+ * call is executed against the datastore right away and the entities it
+ * returns are detached. This suits jobs that read or write many rows once.
+ *
+ * <p>
+ * One stateless session is opened per Spring transaction and SessionFactory,
+ * on the JDBC connection of that transaction, so its writes commit or roll
+ * back with the rest of the transaction. It is closed when the transaction
+ * completes. Calling these DAOs outside of a transaction throws an
+ * <code>IllegalStateException</code>. Pending changes of the current session
+ * are not flushed first, so flush them before mixing both on the same rows.
+ */
+public class StatelessHibernateBaseDAO {
+
+    private HibernateSearchProcessor searchProcessor;
+
+    private SessionFactory sessionFactory;
+
+    private HibernateMetadataUtil metadataUtil;
+
+    private SearchCache searchCache;
+
+    private int jdbcBatchSize;
+
+    @Autowired
+    public void setSessionFactory(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+        searchProcessor = HibernateSearchProcessor.getInstanceForSessionFactory(sessionFactory);
+        metadataUtil = HibernateMetadataUtil.getInstanceForSessionFactory(sessionFactory);
+    }
+
+    /**
+     * Set the cache used by a {@link net.da.backing.data.search.CachingSearchFacade}
+     * so that cached searches are invalidated when this DAO writes entities
+     * they were read from.
+     *
+     * @param searchCache
+     */
+    @Autowired(required = false)
+    public void setSearchCache(SearchCache searchCache) {
+        this.searchCache = searchCache;
+    }
+
+    protected SearchCache getSearchCache() {
+        return searchCache;
+    }
+
+    protected SessionFactory getSessionFactory() {
+        return sessionFactory;
+    }
+
+    protected HibernateMetadataUtil getMetadataUtil() {
+        return metadataUtil;
+    }
+
+    protected HibernateSearchProcessor getSearchProcessor() {
+        return searchProcessor;
+    }
+
+    public int getJdbcBatchSize() {
+        return jdbcBatchSize;
+    }
+
+    /**
+     * The JDBC batch size of the stateless sessions opened by this DAO. Writes
+     * are sent in batches of this size, and any partial batch before each
+     * search and before the transaction commits. 0 (the default) uses
+     * <code>hibernate.jdbc.batch_size</code>.
+     *
+     * @param jdbcBatchSize
+     */
+    public void setJdbcBatchSize(int jdbcBatchSize) {
+        if (jdbcBatchSize < 0)
+            throw new IllegalArgumentException("The JDBC batch size must not be negative.");
+        this.jdbcBatchSize = jdbcBatchSize;
+    }
+
+    /**
+     * Get the stateless session of the current transaction, opening it on the
+     * connection of the transaction if this is the first call in it.
+     *
+     * @return
+     */
+    protected StatelessSession getStatelessSession() {
+        StatelessSessionKey key = new StatelessSessionKey(sessionFactory);
+        StatelessSession session = (StatelessSession) TransactionSynchronizationManager.getResource(key);
+        if (session != null)
+            return session;
+        if (!TransactionSynchronizationManager.isSynchronizationActive())
+            throw new IllegalStateException("A stateless session can only be used within a transaction.");
+
+        Connection connection = getTransactionSession().doReturningWork(c -> c);
+        session = sessionFactory.openStatelessSession(connection);
+        if (jdbcBatchSize > 0)
+            session.setJdbcBatchSize(jdbcBatchSize);
+        TransactionSynchronizationManager.bindResource(key, session);
+        TransactionSynchronizationManager.registerSynchronization(new StatelessSessionSynchronization(key, session));
+        return session;
+    }
+
+    /**
+     * The session of the current transaction: the current session, or the
+     * session of the transactional EntityManager when the transactions are
+     * managed through JPA.
+     */
+    private Session getTransactionSession() {
+        EntityManager em = EntityManagerFactoryUtils.getTransactionalEntityManager(sessionFactory);
+        if (em != null)
+            return em.unwrap(Session.class);
+        return sessionFactory.getCurrentSession();
+    }
+
+    /**
+     * Send the writes waiting in the JDBC batch of the stateless session of
+     * the current transaction, if there are any.
+     */
+    protected void _executeBatch() {
+        StatelessSession session = (StatelessSession) TransactionSynchronizationManager.getResource(new StatelessSessionKey(sessionFactory));
+        if (session != null)
+            executeBatch(session);
+    }
+
+    private static void executeBatch(StatelessSession session) {
+        ((SharedSessionContractImplementor) session).getJdbcCoordinator().executeBatch();
+    }
+
+    protected void invalidateSearchCache(Class<?> type) {
+        if (searchCache != null && type != null)
+            searchCache.invalidate(type);
+    }
+
+    /**
+     * Insert a row for the given transient entity, first assigning a generated
+     * identifier. Associated entities are not inserted.
+     *
+     * @param entity
+     * @return The id of the inserted entity.
+     */
+    protected Serializable _insert(Object entity) {
+        invalidateSearchCache(metadataUtil.getUnproxiedClass(entity));
+        return getStatelessSession().insert(entity);
+    }
+
+    /**
+     * Insert a row for each of the given transient entities.
+     *
+     * @param entities
+     */
+    protected void _insert(Object... entities) {
+        StatelessSession session = getStatelessSession();
+        Class<?> lastType = null;
+        for (Object entity : entities) {
+            if (entity != null) {
+                Class<?> type = metadataUtil.getUnproxiedClass(entity);
+                if (type != lastType) {
+                    invalidateSearchCache(type);
+                    lastType = type;
+                }
+                session.insert(entity);
+            }
+        }
+    }
+
+    /**
+     * Update the rows of the given detached entities with all of their
+     * properties. Associated entities are not updated.
+     *
+     * @param entities
+     */
+    protected void _update(Object... entities) {
+        StatelessSession session = getStatelessSession();
+        Class<?> lastType = null;
+        for (Object entity : entities) {
+            if (entity != null) {
+                Class<?> type = metadataUtil.getUnproxiedClass(entity);
+                if (type != lastType) {
+                    invalidateSearchCache(type);
+                    lastType = type;
+                }
+                session.update(entity);
+            }
+        }
+    }
+
+    /**
+     * Delete the rows of the given detached entities. Associated entities and
+     * collection tables are not deleted.
+     *
+     * @param entities
+     */
+    protected void _delete(Object... entities) {
+        StatelessSession session = getStatelessSession();
+        Class<?> lastType = null;
+        for (Object entity : entities) {
+            if (entity != null) {
+                Class<?> type = metadataUtil.getUnproxiedClass(entity);
+                if (type != lastType) {
+                    invalidateSearchCache(type);
+                    lastType = type;
+                }
+                session.delete(entity);
+            }
+        }
+    }
+
+    /**
+     * Delete the row of the entity of the given type with the given id,
+     * without loading it first.
+     *
+     * @param type
+     * @param id
+     * @return <code>true</code> if a row was deleted, <code>false</code> if
+     *         there is no entity with this id.
+     */
+    protected boolean _deleteById(Class<?> type, Serializable id) {
+        if (id == null)
+            return false;
+        type = metadataUtil.getUnproxiedClass(type); //Get the real entity class
+        Metadata md = metadataUtil.get(type);
+        invalidateSearchCache(type);
+        StatelessSession session = getStatelessSession();
+        executeBatch(session);
+        return session.createQuery("delete from " + md.getEntityName() + " where " + md.getIdProperty() + " = :id")
+                .setParameter("id", id)
+                .executeUpdate() > 0;
+    }
+
+    /**
+     * Return the entity of the given type with the given id, read from the
+     * datastore, or null if there is none. The entity is detached and its lazy
+     * associations cannot be initialized.
+     *
+     * @param <T>
+     * @param type
+     * @param id
+     * @return
+     */
+    protected <T> T _get(Class<T> type, Serializable id) {
+        type = metadataUtil.getUnproxiedClass(type); //Get the real entity class
+        StatelessSession session = getStatelessSession();
+        executeBatch(session);
+        return (T) session.get(type, id);
+    }
+
+    /**
+     * Search for objects based on the search parameters in the specified
+     * <code>ISearch</code> object.
+     *
+     * @param searchClass
+     * @param search
+     * @return
+     */
+    protected List _search(Class<?> searchClass, ISearch search) {
+        checkSearch(searchClass, search);
+        return searchProcessor.search(getStatelessSessionForRead(), searchClass, search);
+    }
+
+    /**
+     * Search for objects and return them as a stream backed by a forward-only
+     * cursor. The stream must be consumed within the transaction and should
+     * be closed when done.
+     *
+     * @param searchClass
+     * @param search
+     * @return
+     */
+    protected Stream _searchStream(Class<?> searchClass, ISearch search) {
+        checkSearch(searchClass, search);
+        return searchProcessor.searchStream(getStatelessSessionForRead(), searchClass, search);
+    }
+
+    protected Object _searchUnique(Class<?> searchClass, ISearch search) throws NonUniqueResultException {
+        checkSearch(searchClass, search);
+        return searchProcessor.searchUnique(getStatelessSessionForRead(), searchClass, search);
+    }
+
+    protected int _count(Class<?> searchClass, ISearch search) {
+        checkSearch(searchClass, search);
+        return searchProcessor.count(getStatelessSessionForRead(), searchClass, search);
+    }
+
+    protected int _count(Class<?> searchClass, ISearch search, int cap) {
+        checkSearch(searchClass, search);
+        return searchProcessor.count(getStatelessSessionForRead(), searchClass, search, cap);
+    }
+
+    protected boolean _searchExists(Class<?> searchClass, ISearch search) {
+        checkSearch(searchClass, search);
+        return searchProcessor.exists(getStatelessSessionForRead(), searchClass, search);
+    }
+
+    protected SearchResult _searchAndCount(Class<?> searchClass, ISearch search) {
+        checkSearch(searchClass, search);
+        return searchProcessor.searchAndCount(getStatelessSessionForRead(), searchClass, search);
+    }
+
+    /**
+     * The stateless session, with its pending writes sent so that queries see
+     * them.
+     */
+    private StatelessSession getStatelessSessionForRead() {
+        StatelessSession session = getStatelessSession();
+        executeBatch(session);
+        return session;
+    }
+
+    private static void checkSearch(Class<?> searchClass, ISearch search) {
+        if (search == null)
+            throw new NullPointerException("Search is null.");
+        if (searchClass == null)
+            throw new NullPointerException("Search class is null.");
+        if (search.getSearchClass() != null && !search.getSearchClass().equals(searchClass))
+            throw new IllegalArgumentException("Search class does not match expected type: " + searchClass.getName());
+    }
+
+    /**
+     * Key of the stateless session of a SessionFactory among the resources of
+     * the current transaction.
+     */
+    private static final class StatelessSessionKey {
+        private final SessionFactory sessionFactory;
+
+        StatelessSessionKey(SessionFactory sessionFactory) {
+            this.sessionFactory = sessionFactory;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof StatelessSessionKey && ((StatelessSessionKey) o).sessionFactory == sessionFactory;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(sessionFactory);
+        }
+    }
+
+    /**
+     * Sends the last batch before the transaction commits and closes the
+     * stateless session when it completes. The session is unbound while the
+     * transaction is suspended, so an inner transaction opens its own.
+     */
+    private static final class StatelessSessionSynchronization implements TransactionSynchronization {
+        private final StatelessSessionKey key;
+        private final StatelessSession session;
+
+        StatelessSessionSynchronization(StatelessSessionKey key, StatelessSession session) {
+            this.key = key;
+            this.session = session;
+        }
+
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResource(key);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(key, session);
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            executeBatch(session);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(key);
+            session.close();
+        }
+    }
+
+    protected final Logger LOGGER = LoggerFactory.getLogger( getClass() );
+}
@@ -16,8 +16,11 @@ package net.da.backing.data.dao.jpa;
 
 import java.io.Serializable;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 import net.da.backing.data.dao.BaseDAODispatcher;
+import net.da.backing.data.dao.BulkWriteResult;
 import net.da.backing.data.dao.DAODispatcherException;
 import net.da.backing.data.search.ExampleOptions;
 import net.da.backing.data.search.Filter;
@@ -67,7 +70,7 @@ public class DAODispatcher extends BaseDAODispatcher implements GeneralDAO {
 
     @Override
     public int count(ISearch search) {
-            Object specificDAO = getSpecificDAO(search.getSearchClass().getName());
+            Object specificDAO = getSpecificDAO(search.getSearchClass());
             if (specificDAO != null) {
                     if (specificDAO instanceof GenericDAO) {
                             return ((GenericDAO) specificDAO).count(search);
@@ -79,9 +82,37 @@ public class DAODispatcher extends BaseDAODispatcher implements GeneralDAO {
             }
     }
 
+    @Override
+    public int count(ISearch search, int cap) {
+            Object specificDAO = getSpecificDAO(search.getSearchClass());
+            if (specificDAO != null) {
+                    if (specificDAO instanceof GenericDAO) {
+                            return ((GenericDAO) specificDAO).count(search, cap);
+                    } else {
+                            return (Integer) callMethod(specificDAO, "count", new Class<?>[] { ISearch.class, int.class }, search, cap);
+                    }
+            } else {
+                    return generalDAO.count(search, cap);
+            }
+    }
+
+    @Override
+    public boolean exists(ISearch search) {
+            Object specificDAO = getSpecificDAO(search.getSearchClass());
+            if (specificDAO != null) {
+                    if (specificDAO instanceof GenericDAO) {
+                            return ((GenericDAO) specificDAO).exists(search);
+                    } else {
+                            return (Boolean) callMethod(specificDAO, "exists", search);
+                    }
+            } else {
+                    return generalDAO.exists(search);
+            }
+    }
+
     @Override
     public <T> T find(Class<T> type, Serializable id) {
-            Object specificDAO = getSpecificDAO(type.getName());
+            Object specificDAO = getSpecificDAO(type);
             if (specificDAO != null) {
                     if (specificDAO instanceof GenericDAO) {
                             return (T) ((GenericDAO) specificDAO).find(id);
@@ -95,7 +126,7 @@ public class DAODispatcher extends BaseDAODispatcher implements GeneralDAO {
 
     @Override
     public <T> T[] find(Class<T> type, Serializable... ids) {
-            Object specificDAO = getSpecificDAO(type.getName());
+            Object specificDAO = getSpecificDAO(type);
             if (specificDAO != null) {
                     if (specificDAO instanceof GenericDAO) {
                             return (T[]) ((GenericDAO) specificDAO).find(ids);
@@ -109,7 +140,7 @@ public class DAODispatcher extends BaseDAODispatcher implements GeneralDAO {
 
     @Override
     public <T> List<T> findAll(Class<T> type) {
-            Object specificDAO = getSpecificDAO(type.getName());
+            Object specificDAO = getSpecificDAO(type);
             if (specificDAO != null) {
                     if (specificDAO instanceof GenericDAO) {
                             return ((GenericDAO) specificDAO).findAll();
@@ -131,7 +162,7 @@ public class DAODispatcher extends BaseDAODispatcher implements GeneralDAO {
     }
 
     public void flush(Class<?> klass) {
-            Object specificDAO = getSpecificDAO(klass.getName());
+            Object specificDAO = getSpecificDAO(klass);
             if (specificDAO != null) {
                     if (specificDAO instanceof GenericDAO) {
                             ((GenericDAO) specificDAO).flush();
@@ -145,7 +176,7 @@ public class DAODispatcher extends BaseDAODispatcher implements GeneralDAO {
 
     @Override
     public <T> T getReference(Class<T> type, Serializable id) {
-            Object specificDAO = getSpecificDAO(type.getName());
+            Object specificDAO = getSpecificDAO(type);
             if (specificDAO != null) {
                     if (specificDAO instanceof GenericDAO) {
                             return (T) ((GenericDAO) specificDAO).getReference(id);
@@ -159,7 +190,7 @@ public class DAODispatcher extends BaseDAODispatcher implements GeneralDAO {
 
     @Override
     public <T> T[] getReferences(Class<T> type, Serializable... ids) {
-            Object specificDAO = getSpecificDAO(type.getName());
+            Object specificDAO = getSpecificDAO(type);
             if (specificDAO != null) {
                     if (specificDAO instanceof GenericDAO) {
                             return (T[]) ((GenericDAO) specificDAO).getReferences(ids);
@@ -173,7 +204,7 @@ public class DAODispatcher extends BaseDAODispatcher implements GeneralDAO {
 
     @Override
     public boolean isAttached(Object entity) {
-            Object specificDAO = getSpecificDAO(entity.getClass().getName());
+            Object specificDAO = getSpecificDAO(entity.getClass());
             if (specificDAO != null) {
                     if (specificDAO instanceof GenericDAO) {
                             return ((GenericDAO) specificDAO).isAttached(entity);
@@ -198,7 +229,7 @@ public class DAODispatcher extends BaseDAODispatcher implements GeneralDAO {
                     return;
             }
 
-            Object specificDAO = getSpecificDAO(type.getName());
+            Object specificDAO = getSpecificDAO(type);
             if (specificDAO != null) {
                     if (specificDAO instanceof GenericDAO) {
                             ((GenericDAO) specificDAO).refresh(entities);
@@ -212,7 +243,7 @@ public class DAODispatcher extends BaseDAODispatcher implements GeneralDAO {
 
     @Override
     public boolean remove(Object entity) {
-            Object specificDAO = getSpecificDAO(entity.getClass().getName());
+            Object specificDAO = getSpecificDAO(entity.getClass());
             if (specificDAO != null) {
                     if (specificDAO instanceof GenericDAO) {
                             return ((GenericDAO) specificDAO).remove(entity);
@@ -237,7 +268,7 @@ public class DAODispatcher extends BaseDAODispatcher implements GeneralDAO {
                     return;
             }
 
-            Object specificDAO = getSpecificDAO(type.getName());
+            Object specificDAO = getSpecificDAO(type);
             if (specificDAO != null) {
                     if (specificDAO instanceof GenericDAO) {
                             ((GenericDAO) specificDAO).remove(entities);
@@ -251,7 +282,7 @@ public class DAODispatcher extends BaseDAODispatcher implements GeneralDAO {
 
     @Override
     public boolean removeById(Class<?> type, Serializable id) {
-            Object specificDAO = getSpecificDAO(type.getName());
+            Object specificDAO = getSpecificDAO(type);
             if (specificDAO != null) {
                     if (specificDAO instanceof GenericDAO) {
                             return ((GenericDAO) specificDAO).removeById(id);
@@ -265,7 +296,7 @@ public class DAODispatcher extends BaseDAODispatcher implements GeneralDAO {
 
     @Override
     public void removeByIds(Class<?> type, Serializable... ids) {
-            Object specificDAO = getSpecificDAO(type.getName());
+            Object specificDAO = getSpecificDAO(type);
             if (specificDAO != null) {
                     if (specificDAO instanceof GenericDAO) {
                             ((GenericDAO) specificDAO).removeByIds(ids);
@@ -277,9 +308,51 @@ public class DAODispatcher extends BaseDAODispatcher implements GeneralDAO {
             }
     }
 
+    @Override
+    public int removeBySearch(ISearch search) {
+            Object specificDAO = getSpecificDAO(search.getSearchClass());
+            if (specificDAO != null) {
+                    if (specificDAO instanceof GenericDAO) {
+                            return ((GenericDAO) specificDAO).removeBySearch(search);
+                    } else {
+                            return (Integer) callMethod(specificDAO, "removeBySearch", search);
+                    }
+            } else {
+                    return generalDAO.removeBySearch(search);
+            }
+    }
+
+    @Override
+    public boolean updateFields(Class<?> type, Serializable id, Map<String, ?> values) {
+            Object specificDAO = getSpecificDAO(type);
+            if (specificDAO != null) {
+                    if (specificDAO instanceof GenericDAO) {
+                            return ((GenericDAO) specificDAO).updateFields(id, values);
+                    } else {
+                            return (Boolean) callMethod(specificDAO, "updateFields", id, values);
+                    }
+            } else {
+                    return generalDAO.updateFields(type, id, values);
+            }
+    }
+
+    @Override
+    public int updateFieldsBySearch(ISearch search, Map<String, ?> values) {
+            Object specificDAO = getSpecificDAO(search.getSearchClass());
+            if (specificDAO != null) {
+                    if (specificDAO instanceof GenericDAO) {
+                            return ((GenericDAO) specificDAO).updateFieldsBySearch(search, values);
+                    } else {
+                            return (Integer) callMethod(specificDAO, "updateFieldsBySearch", search, values);
+                    }
+            } else {
+                    return generalDAO.updateFieldsBySearch(search, values);
+            }
+    }
+
     @Override
     public <T> T save(T entity) {
-            Object specificDAO = getSpecificDAO(entity.getClass().getName());
+            Object specificDAO = getSpecificDAO(entity.getClass());
             if (specificDAO != null) {
                     if (specificDAO instanceof GenericDAO) {
                             return (T) ((GenericDAO) specificDAO).save(entity);
@@ -307,7 +380,7 @@ public class DAODispatcher extends BaseDAODispatcher implements GeneralDAO {
                     return retVal;
             }
 
-            Object specificDAO = getSpecificDAO(type.getName());
+            Object specificDAO = getSpecificDAO(type);
             if (specificDAO != null) {
                     if (specificDAO instanceof GenericDAO) {
                             return ((GenericDAO) specificDAO).save(entities);
@@ -321,7 +394,7 @@ public class DAODispatcher extends BaseDAODispatcher implements GeneralDAO {
 
     @Override
     public List search(ISearch search) {
-            Object specificDAO = getSpecificDAO(search.getSearchClass().getName());
+            Object specificDAO = getSpecificDAO(search.getSearchClass());
             if (specificDAO != null) {
                     if (specificDAO instanceof GenericDAO) {
                             return ((GenericDAO) specificDAO).search(search);
@@ -333,9 +406,23 @@ public class DAODispatcher extends BaseDAODispatcher implements GeneralDAO {
             }
     }
 
+    @Override
+    public Stream searchStream(ISearch search) {
+            Object specificDAO = getSpecificDAO(search.getSearchClass());
+            if (specificDAO != null) {
+                    if (specificDAO instanceof GenericDAO) {
+                            return ((GenericDAO) specificDAO).searchStream(search);
+                    } else {
+                            return (Stream) callMethod(specificDAO, "searchStream", search);
+                    }
+            } else {
+                    return generalDAO.searchStream(search);
+            }
+    }
+
     @Override
     public SearchResult searchAndCount(ISearch search) {
-            Object specificDAO = getSpecificDAO(search.getSearchClass().getName());
+            Object specificDAO = getSpecificDAO(search.getSearchClass());
             if (specificDAO != null) {
                     if (specificDAO instanceof GenericDAO) {
                             return ((GenericDAO) specificDAO).searchAndCount(search);
@@ -349,7 +436,7 @@ public class DAODispatcher extends BaseDAODispatcher implements GeneralDAO {
 
     @Override
     public Object searchUnique(ISearch search) {
-            Object specificDAO = getSpecificDAO(search.getSearchClass().getName());
+            Object specificDAO = getSpecificDAO(search.getSearchClass());
             if (specificDAO != null) {
                     if (specificDAO instanceof GenericDAO) {
                             return ((GenericDAO) specificDAO).searchUnique(search);
@@ -363,7 +450,7 @@ public class DAODispatcher extends BaseDAODispatcher implements GeneralDAO {
 
     @Override
     public Filter getFilterFromExample(Object example) {
-            Object specificDAO = getSpecificDAO(example.getClass().getName());
+            Object specificDAO = getSpecificDAO(example.getClass());
             if (specificDAO != null) {
                     if (specificDAO instanceof GenericDAO) {
                             return ((GenericDAO) specificDAO).getFilterFromExample(example);
@@ -377,7 +464,7 @@ public class DAODispatcher extends BaseDAODispatcher implements GeneralDAO {
 
     @Override
     public Filter getFilterFromExample(Object example, ExampleOptions options) {
-            Object specificDAO = getSpecificDAO(example.getClass().getName());
+            Object specificDAO = getSpecificDAO(example.getClass());
             if (specificDAO != null) {
                     if (specificDAO instanceof GenericDAO) {
                             return ((GenericDAO) specificDAO).getFilterFromExample(example, options);
@@ -391,7 +478,7 @@ public class DAODispatcher extends BaseDAODispatcher implements GeneralDAO {
 
     @Override
     public <T> T merge(T entity) {
-            Object specificDAO = getSpecificDAO(entity.getClass().getName());
+            Object specificDAO = getSpecificDAO(entity.getClass());
             if (specificDAO != null) {
                     if (specificDAO instanceof GenericDAO) {
                             return (T) ((GenericDAO) specificDAO).merge(entity);
@@ -419,7 +506,7 @@ public class DAODispatcher extends BaseDAODispatcher implements GeneralDAO {
                     return retVal;
             }
 
-            Object specificDAO = getSpecificDAO(type.getName());
+            Object specificDAO = getSpecificDAO(type);
             if (specificDAO != null) {
                     if (specificDAO instanceof GenericDAO) {
                             return ((GenericDAO) specificDAO).merge(entities);
@@ -444,7 +531,7 @@ public class DAODispatcher extends BaseDAODispatcher implements GeneralDAO {
                     return;
             }
 
-            Object specificDAO = getSpecificDAO(type.getName());
+            Object specificDAO = getSpecificDAO(type);
             if (specificDAO != null) {
                     if (specificDAO instanceof GenericDAO) {
                             ((GenericDAO) specificDAO).persist(entities);
@@ -456,4 +543,28 @@ public class DAODispatcher extends BaseDAODispatcher implements GeneralDAO {
             }
     }
 
+    @Override
+    public BulkWriteResult bulkPersist(Object... entities) {
+            Class<?> type = getUniformArrayType(entities);
+            if (type == null)
+                    return new BulkWriteResult();
+            if (type.equals(Object.class)) {
+                    // There are several different types of entities; writing them
+                    // together is what bulkPersist is for, so they all go to the
+                    // general DAO
+                    return generalDAO.bulkPersist(entities);
+            }
+
+            Object specificDAO = getSpecificDAO(type);
+            if (specificDAO != null) {
+                    if (specificDAO instanceof GenericDAO) {
+                            return ((GenericDAO) specificDAO).bulkPersist(entities);
+                    } else {
+                            return (BulkWriteResult) callMethod(specificDAO, "bulkPersist", entities);
+                    }
+            } else {
+                    return generalDAO.bulkPersist(entities);
+            }
+    }
+
 }
@@ -16,7 +16,10 @@ package net.da.backing.data.dao.jpa;
 
 import java.io.Serializable;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
+import net.da.backing.data.dao.BulkWriteResult;
 import net.da.backing.data.search.ExampleOptions;
 import net.da.backing.data.search.Filter;
 import net.da.backing.data.search.ISearch;
@@ -36,6 +39,16 @@ public class GeneralDAOImpl extends JPABaseDAO implements GeneralDAO {
 		return _count(search);
 	}
 
+        @Override
+	public int count(ISearch search, int cap) {
+		return _count(search, cap);
+	}
+
+        @Override
+	public boolean exists(ISearch search) {
+		return _searchExists(search);
+	}
+
         @Override
 	public <T> T find(Class<T> type, Serializable id) {
 		return (T) _find(type, id);
@@ -96,6 +109,21 @@ public class GeneralDAOImpl extends JPABaseDAO implements GeneralDAO {
 		_removeByIds(type, ids);
 	}
 
+        @Override
+	public int removeBySearch(ISearch search) {
+		return _removeBySearch(search);
+	}
+
+        @Override
+	public boolean updateFields(Class<?> type, Serializable id, Map<String, ?> values) {
+		return _updateFields(type, id, values);
+	}
+
+        @Override
+	public int updateFieldsBySearch(ISearch search, Map<String, ?> values) {
+		return _updateFieldsBySearch(search, values);
+	}
+
         @Override
 	public <T> T merge(T entity) {
 		return _merge(entity);
@@ -111,6 +139,11 @@ public class GeneralDAOImpl extends JPABaseDAO implements GeneralDAO {
 		_persist(entities);
 	}
 
+        @Override
+	public BulkWriteResult bulkPersist(Object... entities) {
+		return _bulkPersist(entities);
+	}
+
         @Override
 	public <T> T save(T entity) {
 		return _persistOrMerge(entity);
@@ -126,6 +159,11 @@ public class GeneralDAOImpl extends JPABaseDAO implements GeneralDAO {
 		return _search(search);
 	}
 
+        @Override
+	public Stream searchStream(ISearch search) {
+		return _searchStream(search);
+	}
+
         @Override
 	public SearchResult searchAndCount(ISearch search) {
 		return _searchAndCount(search);
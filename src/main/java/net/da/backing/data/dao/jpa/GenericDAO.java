@@ -16,7 +16,10 @@ package net.da.backing.data.dao.jpa;
 
 import java.io.Serializable;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
+import net.da.backing.data.dao.BulkWriteResult;
 import net.da.backing.data.search.ExampleOptions;
 import net.da.backing.data.search.Filter;
 import net.da.backing.data.search.ISearch;
@@ -115,6 +118,22 @@ public interface GenericDAO<T, ID extends Serializable> {
      */
     public void persist(T... entities);
 
+    /**
+     * <p>
+     * Make the given transient instances persistent in JDBC batches. The
+     * entities are written grouped by class, and the EntityManager is flushed
+     * and cleared after every <code>bulkBatchSize</code> entities, so it does
+     * not grow with the number of entities.
+     * 
+     * <p>
+     * Because the EntityManager is cleared, all the entities managed by it are
+     * detached afterwards, not only the given ones.
+     * 
+     * @param entities
+     * @return the size and time of each batch written
+     */
+    public BulkWriteResult bulkPersist(T... entities);
+
     /**
      * <p>
      * Copy the state of the given object onto the persistent object with the
@@ -202,6 +221,45 @@ public interface GenericDAO<T, ID extends Serializable> {
      */
     public void removeByIds(ID... ids);
 
+    /**
+     * Remove all the entities that match the filters of the given search with
+     * a single statement, without loading them. Cascades are not applied and
+     * the search must not have paging. Removed entities that were managed are
+     * detached.
+     * 
+     * @param search
+     * @return the number of entities removed
+     */
+    public int removeBySearch(ISearch search);
+
+    /**
+     * Set the given properties of the entity with the specified id with a
+     * single statement, without loading it. Properties may be paths through
+     * embedded components, and values are converted to the types of their
+     * properties as in search filters. If the entity is managed it is
+     * refreshed.
+     * 
+     * @param id
+     * @param values
+     *            property paths mapped to their new values
+     * @return <code>true</code> if the entity is found in the datastore and
+     *         updated, <code>false</code> if it is not found.
+     */
+    public boolean updateFields(ID id, Map<String, ?> values);
+
+    /**
+     * Set the given properties of all the entities that match the filters of
+     * the given search with a single statement, without loading them. The
+     * search must not have paging. Managed entities of this type are
+     * refreshed.
+     * 
+     * @param search
+     * @param values
+     *            property paths mapped to their new values
+     * @return the number of entities updated
+     */
+    public int updateFieldsBySearch(ISearch search, Map<String, ?> values);
+
     /**
      * Get a list of all the objects of the specified type.
      * @return 
@@ -219,6 +277,20 @@ public interface GenericDAO<T, ID extends Serializable> {
      */
     public <RT> List<RT> search(ISearch search);
 
+    /**
+     * Search for entities given the search parameters in the specified
+     * <code>ISearch</code> object and return them as a stream that reads rows
+     * as they are consumed, in constant memory. The EntityManager is cleared
+     * periodically while the stream is consumed. The stream should be closed
+     * when done.
+     * 
+     * @param <RT>
+     * @param search
+     * @param RT The result type is automatically determined by the context in which the method is called.
+     * @return 
+     */
+    public <RT> Stream<RT> searchStream(ISearch search);
+
     /**
      * Search for a single entity using the given parameters.
      * 
@@ -237,10 +309,34 @@ public interface GenericDAO<T, ID extends Serializable> {
      */
     public int count(ISearch search);
 
+    /**
+     * Returns the number of results that would be returned using the given
+     * <code>ISearch</code> if there were no paging or maxResult limits, but no
+     * more than <code>cap</code>. Counting stops once the cap is reached, which
+     * is much cheaper than <code>count()</code> when there are many results. A
+     * cap of 0 or less means no cap.
+     * 
+     * @param search
+     * @param cap
+     * @return 
+     */
+    public int count(ISearch search, int cap);
+
+    /**
+     * Returns true if the given <code>ISearch</code> has any results. Only the
+     * first match is looked for.
+     * 
+     * @param search
+     * @return 
+     */
+    public boolean exists(ISearch search);
+
     /**
      * Returns a <code>SearchResult</code> object that includes both the list of
      * results like <code>search()</code> and the total length like
-     * <code>count()</code>.
+     * <code>count()</code>. If the count mode of the search is
+     * <code>ISearch.COUNT_HAS_MORE</code>, no count is run and only
+     * <code>SearchResult.isHasMore()</code> tells whether there is a next page.
      * 
      * @param <RT>
      * @param search
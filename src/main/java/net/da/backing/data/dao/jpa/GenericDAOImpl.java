@@ -16,7 +16,10 @@ package net.da.backing.data.dao.jpa;
 
 import java.io.Serializable;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
+import net.da.backing.data.dao.BulkWriteResult;
 import net.da.backing.data.dao.DAOUtil;
 import net.da.backing.data.search.ExampleOptions;
 import net.da.backing.data.search.Filter;
@@ -50,6 +53,20 @@ public class GenericDAOImpl<T, ID extends Serializable> extends
 		return _count(persistentClass, search);
 	}
 
+        @Override
+	public int count(ISearch search, int cap) {
+		if (search == null)
+			search = new Search();
+		return _count(persistentClass, search, cap);
+	}
+
+        @Override
+	public boolean exists(ISearch search) {
+		if (search == null)
+			search = new Search();
+		return _searchExists(persistentClass, search);
+	}
+
         @Override
 	public T find(ID id) {
 		return _find(persistentClass, id);
@@ -110,6 +127,25 @@ public class GenericDAOImpl<T, ID extends Serializable> extends
 		_removeByIds(persistentClass, ids);
 	}
 
+        @Override
+	public int removeBySearch(ISearch search) {
+		if (search == null)
+			search = new Search();
+		return _removeBySearch(persistentClass, search);
+	}
+
+        @Override
+	public boolean updateFields(ID id, Map<String, ?> values) {
+		return _updateFields(persistentClass, id, values);
+	}
+
+        @Override
+	public int updateFieldsBySearch(ISearch search, Map<String, ?> values) {
+		if (search == null)
+			search = new Search();
+		return _updateFieldsBySearch(persistentClass, search, values);
+	}
+
         @Override
 	public T merge(T entity) {
 		return _merge(entity);
@@ -124,6 +160,11 @@ public class GenericDAOImpl<T, ID extends Serializable> extends
 	public void persist(T... entities) {
 		_persist(entities);
 	}
+
+        @Override
+	public BulkWriteResult bulkPersist(T... entities) {
+		return _bulkPersist(entities);
+	}
 	
         @Override
 	public T save(T entity) {
@@ -142,6 +183,13 @@ public class GenericDAOImpl<T, ID extends Serializable> extends
 		return _search(persistentClass, search);
 	}
 
+        @Override
+	public <RT> Stream<RT> searchStream(ISearch search) {
+		if (search == null)
+			search = new Search();
+		return _searchStream(persistentClass, search);
+	}
+
         @Override
 	public <RT> SearchResult<RT> searchAndCount(ISearch search) {
 		if (search == null) {
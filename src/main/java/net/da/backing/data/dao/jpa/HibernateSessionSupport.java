@@ -0,0 +1,133 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.da.backing.data.dao.jpa;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+
+import org.hibernate.Session;
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.engine.spi.Status;
+import org.hibernate.persister.entity.EntityPersister;
+
+import net.da.backing.data.search.hibernate.HibernateMetadataUtil;
+
+/**
+ * The fast paths of <code>JPABaseDAO</code> that only work with Hibernate as
+ * the persistence provider. This class links against Hibernate, so it must
+ * only be used once {@link #isAvailable()} has returned <code>true</code>,
+ * and its other methods only for an EntityManager for which
+ * {@link #isHibernate(EntityManager)} has.
+ */
+final class HibernateSessionSupport {
+
+    private static final boolean AVAILABLE = isOnClassPath("org.hibernate.Session");
+
+    private HibernateSessionSupport() {
+    }
+
+    /**
+     * Return true if Hibernate is on the class path. It may still not be the
+     * provider of a given EntityManager.
+     */
+    static boolean isAvailable() {
+        return AVAILABLE;
+    }
+
+    static boolean isHibernate(EntityManager em) {
+        try {
+            em.unwrap(Session.class);
+            return true;
+        } catch (PersistenceException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Set the JDBC batch size of the session and return the one it had.
+     */
+    static Integer setJdbcBatchSize(EntityManager em, Integer jdbcBatchSize) {
+        Session session = em.unwrap(Session.class);
+        Integer previous = session.getJdbcBatchSize();
+        session.setJdbcBatchSize(jdbcBatchSize);
+        return previous;
+    }
+
+    /**
+     * Load the entities with the given ids in batches, taking the ones already
+     * in the persistence context from there. The list is in the order of the
+     * ids, with nulls for ids not found.
+     */
+    static <T> List<T> multiLoad(EntityManager em, Class<T> type, List<Serializable> ids, int batchSize) {
+        return em.unwrap(Session.class).byMultipleIds(type).enableSessionCheck(true).withBatchSize(batchSize)
+                        .multiLoad(ids);
+    }
+
+    /**
+     * Return true if the database accepts row values in IN lists, so that
+     * compound ids can be matched with <code>id in (:ids)</code>.
+     */
+    static boolean supportsRowValueInList(EntityManager em) {
+        return em.unwrap(SessionImplementor.class).getJdbcServices().getDialect().supportsRowValueConstructorSyntaxInInList();
+    }
+
+    /**
+     * @see HibernateMetadataUtil#isDeletableWithoutLoading(Class)
+     */
+    static boolean isDeletableWithoutLoading(EntityManager em, Class<?> type) {
+        Session session = em.unwrap(Session.class);
+        return HibernateMetadataUtil.getInstanceForSessionFactory(session.getSessionFactory()).isDeletableWithoutLoading(type);
+    }
+
+    /**
+     * Return the entity of the given type with the given id if it is in the
+     * persistence context, without loading it.
+     */
+    static Object getManagedEntity(EntityManager em, Class<?> type, Serializable id) {
+        SessionImplementor session = em.unwrap(SessionImplementor.class);
+        EntityPersister persister = session.getFactory().getMetamodel().entityPersister(type);
+        Object entity = session.getPersistenceContext().getEntity(session.generateEntityKey(id, persister));
+        return entity != null && em.contains(entity) ? entity : null;
+    }
+
+    /**
+     * The entities of the given type, or a subtype, in the persistence
+     * context.
+     */
+    static List<Object> getManagedEntities(EntityManager em, Class<?> type) {
+        SessionImplementor session = em.unwrap(SessionImplementor.class);
+        List<Object> managed = new ArrayList<>();
+        for (Map.Entry<Object, EntityEntry> entry : session.getPersistenceContext().reentrantSafeEntityEntries()) {
+            Status status = entry.getValue().getStatus();
+            if ((status == Status.MANAGED || status == Status.READ_ONLY) && type.isInstance(entry.getKey()))
+                managed.add(entry.getKey());
+        }
+        return managed;
+    }
+
+    private static boolean isOnClassPath(String className) {
+        try {
+            Class.forName(className, false, HibernateSessionSupport.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+}
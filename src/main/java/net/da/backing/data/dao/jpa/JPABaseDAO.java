@@ -17,20 +17,30 @@ package net.da.backing.data.dao.jpa;
 import java.io.Serializable;
 import java.lang.reflect.Array;
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
 import javax.persistence.NonUniqueResultException;
 import javax.persistence.Query;
 
+import net.da.backing.data.dao.BulkWriteResult;
+import net.da.backing.data.dao.DAOUtil;
 import net.da.backing.data.search.ExampleOptions;
 import net.da.backing.data.search.Filter;
 import net.da.backing.data.search.ISearch;
 import net.da.backing.data.search.MetadataUtil;
+import net.da.backing.data.search.Search;
+import net.da.backing.data.search.SearchCache;
 import net.da.backing.data.search.SearchResult;
 import net.da.backing.data.search.jpa.JPASearchProcessor;
+import org.springframework.beans.factory.annotation.Autowired;
 
 /**
  * <p>
@@ -83,6 +93,98 @@ public class JPABaseDAO {
             return searchProcessor.getMetadataUtil();
     }
 
+    /**
+     * The default maximum number of ids looked up by one query.
+     */
+    public static final int DEFAULT_ID_BATCH_SIZE = 500;
+
+    private int idBatchSize = DEFAULT_ID_BATCH_SIZE;
+
+    public int getIdBatchSize() {
+            return idBatchSize;
+    }
+
+    /**
+     * The maximum number of ids looked up by one query when checking for or
+     * loading many entities by id. Longer lists of ids are split into several
+     * queries. The default is 500.
+     * 
+     * @param idBatchSize
+     */
+    public void setIdBatchSize(int idBatchSize) {
+            if (idBatchSize < 1)
+                    throw new IllegalArgumentException("The id batch size must be at least 1.");
+            this.idBatchSize = idBatchSize;
+    }
+
+    /**
+     * The default number of entities written between flushes by
+     * <code>_bulkPersist()</code>.
+     */
+    public static final int DEFAULT_BULK_BATCH_SIZE = 50;
+
+    private int bulkBatchSize = DEFAULT_BULK_BATCH_SIZE;
+
+    public int getBulkBatchSize() {
+            return bulkBatchSize;
+    }
+
+    /**
+     * The number of entities written between flushes by
+     * <code>_bulkPersist()</code>. With Hibernate as the provider it is also
+     * used as the JDBC batch size of the session while it runs. The default is
+     * 50.
+     * 
+     * @param bulkBatchSize
+     */
+    public void setBulkBatchSize(int bulkBatchSize) {
+            if (bulkBatchSize < 1)
+                    throw new IllegalArgumentException("The bulk batch size must be at least 1.");
+            this.bulkBatchSize = bulkBatchSize;
+    }
+
+    private SearchCache searchCache;
+
+    /**
+     * Set the cache used by a {@link net.da.backing.data.search.CachingSearchFacade}
+     * so that cached searches are invalidated when this DAO writes entities
+     * they were read from.
+     * 
+     * @param searchCache
+     */
+    @Autowired(required = false)
+    public void setSearchCache(SearchCache searchCache) {
+            this.searchCache = searchCache;
+    }
+
+    protected SearchCache getSearchCache() {
+            return searchCache;
+    }
+
+    /**
+     * Invalidate the cached searches that read the given entity type, if a
+     * search cache is set.
+     * 
+     * @param type
+     */
+    protected void invalidateSearchCache(Class<?> type) {
+            if (searchCache != null && type != null) {
+                    Class<?> entityClass = getMetadataUtil().getUnproxiedClass(type);
+                    searchCache.invalidate(entityClass != null ? entityClass : type);
+            }
+    }
+
+    /**
+     * Invalidate the cached searches that read the type of the given entity,
+     * if a search cache is set.
+     * 
+     * @param entity
+     */
+    protected void invalidateSearchCacheFor(Object entity) {
+            if (searchCache != null && entity != null)
+                    invalidateSearchCache(entity.getClass());
+    }
+
     /**
      * <p>
      * Make a transient instance persistent and add it to the datastore.This
@@ -97,9 +199,62 @@ public class JPABaseDAO {
      */
     protected void _persist(Object... entities) {
             for (Object entity : entities) {
-                    if (entity != null)
+                    if (entity != null) {
+                            invalidateSearchCacheFor(entity);
                             em().persist(entity);
+                    }
+            }
+    }
+
+    /**
+     * <p>
+     * Like <code>_persist(Object...)</code>, but written in JDBC batches for
+     * large numbers of entities. The entities are grouped by class, classes
+     * that others refer to first, and the EntityManager is flushed and cleared
+     * after every <code>bulkBatchSize</code> entities and after the last entity
+     * of each class, so that each JDBC batch holds the inserts of one class.
+     * 
+     * <p>
+     * Because the EntityManager is cleared, <em>all</em> the entities managed
+     * by it are detached afterwards, including ones that were loaded before
+     * this call. Pending changes to them are flushed first; later changes are
+     * not tracked. Entities with ids generated by an identity column are
+     * inserted one at a time whatever the batch size.
+     * 
+     * @param entities
+     * @return the batches written, with their timings
+     */
+    protected BulkWriteResult _bulkPersist(Object... entities) {
+            BulkWriteResult result = new BulkWriteResult();
+            if (entities.length == 0)
+                    return result;
+
+            boolean hibernate = isHibernateProvider();
+            Integer jdbcBatchSize = hibernate ? HibernateSessionSupport.setJdbcBatchSize(em(), bulkBatchSize) : null;
+            try {
+                    // anything already pending goes out first, so that it is not
+                    // counted in the first batch
+                    em().flush();
+                    for (Map.Entry<Class<?>, List<Object>> group : DAOUtil.groupByClass(getMetadataUtil(), entities).entrySet()) {
+                            invalidateSearchCache(group.getKey());
+                            List<Object> list = group.getValue();
+                            for (int start = 0; start < list.size(); start += bulkBatchSize) {
+                                    int end = Math.min(list.size(), start + bulkBatchSize);
+                                    long begin = System.nanoTime();
+                                    for (int i = start; i < end; i++) {
+                                            em().persist(list.get(i));
+                                    }
+                                    em().flush();
+                                    em().clear();
+                                    result.addBatch(new BulkWriteResult.Batch(group.getKey(), BulkWriteResult.Operation.PERSIST,
+                                                    end - start, System.nanoTime() - begin));
+                            }
+                    }
+            } finally {
+                    if (hibernate)
+                            HibernateSessionSupport.setJdbcBatchSize(em(), jdbcBatchSize);
             }
+            return result;
     }
 
     /**
@@ -115,6 +270,7 @@ public class JPABaseDAO {
             if (id != null) {
                     Query query = em().createQuery("select _it_.id from " + getMetadataUtil().get(type).getEntityName() + " _it_ where _it_.id = ?1").setParameter(1, id);
                     if (!query.getResultList().isEmpty()) {
+                            invalidateSearchCache(type);
                             em().remove(em().getReference(type, id));
                             return true;
                     }
@@ -123,17 +279,255 @@ public class JPABaseDAO {
     }
 
     /**
+     * <p>
      * Remove all the entities of the given type from the datastore that have
      * one of these ids.
+     * 
+     * <p>
+     * If the provider is Hibernate and deleting an entity of this type only
+     * deletes its row (see
+     * {@link net.da.backing.data.search.hibernate.HibernateMetadataUtil#isDeletableWithoutLoading(Class)}), they
+     * are removed with <code>delete</code> statements of
+     * <code>idBatchSize</code> ids each, without being loaded, and those that
+     * were managed are detached. Otherwise they are looked up and removed one
+     * by one.
      * @param type
      * @param ids
      */
     protected void _removeByIds(Class<?> type, Serializable... ids) {
-            for (Serializable id : (List<Serializable>) pullByIds("select _it_.id", type, ids)) {
+            invalidateSearchCache(type);
+            if (isHibernateProvider() && HibernateSessionSupport.isDeletableWithoutLoading(em(), type)) {
+                    bulkRemoveByIds(getMetadataUtil().getUnproxiedClass(type), distinctIds(ids));
+                    return;
+            }
+            for (Serializable id : (List<Serializable>) pullByIds("select _it_.id", type, distinctIds(ids))) {
                     em().remove(em().getReference(type, id));
             }
     }
 
+    /**
+     * <p>
+     * Remove all the entities that match the filters of the given search
+     * with a single <code>delete</code> statement, without loading them.
+     * Fields, sorts and fetches of the search are ignored; it must not have
+     * paging.
+     * 
+     * <p>
+     * Cascades, orphan removal and lifecycle callbacks are not applied, so
+     * rows that reference the removed ones must be removed first. Removed
+     * entities that were managed by the EntityManager are detached. With a
+     * provider other than Hibernate, whose managed entities cannot be listed,
+     * the EntityManager is flushed first and cleared afterwards instead.
+     * 
+     * @param search
+     * @return The number of entities removed.
+     */
+    protected int _removeBySearch(ISearch search) {
+            if (search == null)
+                    throw new NullPointerException("Search is null.");
+            if (search.getSearchClass() == null)
+                    throw new NullPointerException("Search class is null.");
+
+            return _removeBySearch(search.getSearchClass(), search);
+    }
+
+    /**
+     * Same as <code>_removeBySearch(ISearch)</code> except that it uses the
+     * specified search class instead of getting it from the search object.
+     * Also, if the search object has a different search class than what is
+     * specified, an exception is thrown.
+     * 
+     * @param searchClass
+     * @param search
+     * @return 
+     */
+    protected int _removeBySearch(Class<?> searchClass, ISearch search) {
+            if (search == null)
+                    throw new NullPointerException("Search is null.");
+            if (searchClass == null)
+                    throw new NullPointerException("Search class is null.");
+            if (search.getSearchClass() != null && !search.getSearchClass().equals(searchClass))
+                    throw new IllegalArgumentException("Search class does not match expected type: " + searchClass.getName());
+
+            invalidateSearchCache(searchClass);
+            if (!isHibernateProvider()) {
+                    em().flush();
+                    int count = getSearchProcessor().delete(em(), searchClass, search);
+                    if (count > 0)
+                            em().clear();
+                    return count;
+            }
+
+            List<Object> managed = HibernateSessionSupport.getManagedEntities(em(), searchClass);
+            int count = getSearchProcessor().delete(em(), searchClass, search);
+            if (count > 0 && !managed.isEmpty())
+                    detachRemoved(searchClass, managed);
+            return count;
+    }
+
+    /**
+     * The managed entities of the given type, or a subtype, whose rows match
+     * the filters of the search.
+     */
+    private List<Object> matchingManagedEntities(Class<?> type, ISearch search) {
+            List<Object> entities = HibernateSessionSupport.getManagedEntities(em(), type);
+            if (entities.isEmpty())
+                    return entities;
+
+            boolean inList = isIdInListSupported(type);
+            String idProperty = getMetadataUtil().get(type).getIdProperty();
+            List<Serializable> ids = new ArrayList<>(entities.size());
+            for (Object entity : entities) {
+                    ids.add(getMetadataUtil().getId(entity));
+            }
+            Set<Object> found = new HashSet<>();
+            for (int start = 0; start < ids.size(); start += idBatchSize) {
+                    List<Serializable> batch = ids.subList(start, Math.min(start + idBatchSize, ids.size()));
+                    found.addAll(getSearchProcessor().search(em(), type, DAOUtil.getIdSearch(type, search, idProperty, batch, inList)));
+            }
+
+            List<Object> matching = new ArrayList<>();
+            for (int i = 0; i < entities.size(); i++) {
+                    if (found.contains(ids.get(i)))
+                            matching.add(entities.get(i));
+            }
+            return matching;
+    }
+
+    /**
+     * Detach the given entities whose rows no longer exist.
+     */
+    private void detachRemoved(Class<?> type, List<Object> entities) {
+            List<Serializable> ids = new ArrayList<>(entities.size());
+            for (Object entity : entities) {
+                    ids.add(getMetadataUtil().getId(entity));
+            }
+            Set<Serializable> found = new HashSet<>((List<Serializable>) pullByIds("select _it_.id", type, ids));
+            for (int i = 0; i < entities.size(); i++) {
+                    // detaching one entity may have cascaded to another
+                    if (!found.contains(ids.get(i)) && em().contains(entities.get(i)))
+                            em().detach(entities.get(i));
+            }
+    }
+
+    /**
+     * <p>
+     * Set the given properties of the entity with the specified type and id
+     * with a single <code>update</code> statement, without loading it.
+     * Properties may be paths through embedded components; collections and
+     * the id cannot be set. Values are converted to the type of their
+     * property the same way search filter values are.
+     * 
+     * <p>
+     * The version of a versioned entity is incremented by the same statement.
+     * Lifecycle callbacks are not applied. The EntityManager is flushed first,
+     * and if the entity is managed by it, it is then refreshed so that it
+     * reflects the update. With a provider other than Hibernate the
+     * EntityManager is cleared instead.
+     * 
+     * @param type
+     * @param id
+     * @param values
+     *            property paths mapped to their new values
+     * @return <code>true</code> if the entity was found and updated.
+     */
+    protected boolean _updateFields(Class<?> type, Serializable id, Map<String, ?> values) {
+            if (type == null)
+                    throw new NullPointerException("Type is null.");
+            if (id == null)
+                    throw new NullPointerException("Id is null.");
+
+            type = getMetadataUtil().getUnproxiedClass(type);
+            invalidateSearchCache(type);
+            Search search = new Search(type).addFilterEqual(getMetadataUtil().get(type).getIdProperty(), id);
+            // refreshing would discard changes that are not flushed yet
+            em().flush();
+            if (!isHibernateProvider()) {
+                    int count = getSearchProcessor().update(em(), type, search, values);
+                    if (count > 0)
+                            em().clear();
+                    return count > 0;
+            }
+
+            if (getSearchProcessor().update(em(), type, search, values) == 0)
+                    return false;
+            Object entity = HibernateSessionSupport.getManagedEntity(em(), type, id);
+            if (entity != null)
+                    em().refresh(entity);
+            return true;
+    }
+
+    /**
+     * <p>
+     * Set the given properties of all the entities that match the filters of
+     * the given search with a single <code>update</code> statement, without
+     * loading them. Fields, sorts and fetches of the search are ignored; it
+     * must not have paging. Properties and values are handled as in
+     * <code>_updateFields()</code>.
+     * 
+     * <p>
+     * The version of versioned entities is incremented by the same statement.
+     * Lifecycle callbacks are not applied. The EntityManager is flushed first,
+     * and the managed entities that match the search are then refreshed. They
+     * are found before the update with one query for each
+     * <code>idBatchSize</code> managed entities of the search class. With a
+     * provider other than Hibernate the EntityManager is cleared instead.
+     * 
+     * @param search
+     * @param values
+     *            property paths mapped to their new values
+     * @return The number of entities updated.
+     */
+    protected int _updateFieldsBySearch(ISearch search, Map<String, ?> values) {
+            if (search == null)
+                    throw new NullPointerException("Search is null.");
+            if (search.getSearchClass() == null)
+                    throw new NullPointerException("Search class is null.");
+
+            return _updateFieldsBySearch(search.getSearchClass(), search, values);
+    }
+
+    /**
+     * Same as <code>_updateFieldsBySearch(ISearch, Map)</code> except that it
+     * uses the specified search class instead of getting it from the search
+     * object. Also, if the search object has a different search class than
+     * what is specified, an exception is thrown.
+     * 
+     * @param searchClass
+     * @param search
+     * @param values
+     * @return 
+     */
+    protected int _updateFieldsBySearch(Class<?> searchClass, ISearch search, Map<String, ?> values) {
+            if (search == null)
+                    throw new NullPointerException("Search is null.");
+            if (searchClass == null)
+                    throw new NullPointerException("Search class is null.");
+            if (search.getSearchClass() != null && !search.getSearchClass().equals(searchClass))
+                    throw new IllegalArgumentException("Search class does not match expected type: " + searchClass.getName());
+
+            invalidateSearchCache(searchClass);
+            // refreshing would discard changes that are not flushed yet
+            em().flush();
+            if (!isHibernateProvider()) {
+                    int count = getSearchProcessor().update(em(), searchClass, search, values);
+                    if (count > 0)
+                            em().clear();
+                    return count;
+            }
+
+            List<Object> matching = matchingManagedEntities(searchClass, search);
+            int count = getSearchProcessor().update(em(), searchClass, search, values);
+            if (count > 0) {
+                    for (Object entity : matching) {
+                            // refreshing one entity may have cascaded to another
+                            if (em().contains(entity))
+                                    em().refresh(entity);
+                    }
+            }
+            return count;
+    }
+
     /**
      * Remove the specified entity from the datastore.
      * 
@@ -144,6 +538,7 @@ public class JPABaseDAO {
     protected boolean _removeEntity(Object entity) {
             if (entity != null) {
                     if (em().contains(entity)) {
+                            invalidateSearchCacheFor(entity);
                             em().remove(entity);
                             return true;
                     } else {
@@ -182,25 +577,43 @@ public class JPABaseDAO {
      * same order of the ids listed in the call.For each entity that is not
      * found in the datastore, a null will be inserted in its place in the
      * return array.
+     * <p>
+     * Ids are loaded in batches of <code>idBatchSize</code>. If the
+     * EntityManager is backed by Hibernate, entities already in the
+     * persistence context are returned without a query.
      * @param <T>
      * @param type
      * @param ids
      * @return 
      */
     protected <T> T[] _find(Class<T> type, Serializable... ids) {
-            Object[] retList = (Object[]) Array.newInstance(type, ids.length);
-            for (Object entity : pullByIds("select _it_", type, ids)) {
-                    Serializable id = getMetadataUtil().getId(entity);
-
-                    for (int i = 0; i < ids.length; i++) {
-                            if (id.equals(ids[i])) {
-                                    retList[i] = entity;
-                                    // don't break. the same id could be in the list twice.
-                            }
+            T[] retList = (T[]) Array.newInstance(type, ids.length);
+            List<Serializable> idList = distinctIds(ids);
+            if (idList.isEmpty())
+                    return retList;
+
+            Map<Serializable, Object> byId = new HashMap<>();
+            if (isHibernateProvider()) {
+                    // the loaded list is in the order of the ids, with nulls for ids
+                    // not found
+                    List<T> loaded = HibernateSessionSupport.multiLoad(em(), type, idList, idBatchSize);
+                    for (int i = 0; i < idList.size(); i++) {
+                            if (loaded.get(i) != null)
+                                    byId.put(idList.get(i), loaded.get(i));
                     }
+            } else {
+                    for (Object entity : pullByIds("select _it_", type, idList)) {
+                            byId.put(getMetadataUtil().getId(entity), entity);
+                    }
+            }
+
+            for (int i = 0; i < ids.length; i++) {
+                    // the same id could be in the list twice.
+                    if (ids[i] != null)
+                            retList[i] = (T) byId.get(ids[i]);
             }
 
-            return (T[]) retList;
+            return retList;
     }
 
     protected <T> T _getReference(Class<T> type, Serializable id) {
@@ -240,6 +653,7 @@ public class JPABaseDAO {
      * @return 
      */
     protected <T> T _merge(T entity) {
+            invalidateSearchCacheFor(entity);
             return em().merge(entity);
     }
 
@@ -348,6 +762,47 @@ public class JPABaseDAO {
             return getSearchProcessor().search(em(), searchClass, search);
     }
 
+    /**
+     * Search for objects based on the search parameters in the specified
+     * <code>ISearch</code> object and return them as a stream that reads rows
+     * as they are consumed. The EntityManager is cleared periodically while
+     * the stream is consumed, so flush any pending changes first. The stream
+     * should be closed when done.
+     * 
+     * @param search
+     * @return 
+     * @see ISearch
+     * @see JPASearchProcessor#searchStream(EntityManager, ISearch)
+     */
+    protected Stream _searchStream(ISearch search) {
+            if (search == null)
+                    throw new NullPointerException("Search is null.");
+            if (search.getSearchClass() == null)
+                    throw new NullPointerException("Search class is null.");
+
+            return getSearchProcessor().searchStream(em(), search);
+    }
+
+    /**
+     * Same as <code>_searchStream(ISearch)</code> except that it uses the
+     * specified search class instead of getting it from the search object.
+     * Also, if the search object has a different search class than what is
+     * specified, an exception is thrown.
+     * @param searchClass
+     * @param search
+     * @return 
+     */
+    protected Stream _searchStream(Class<?> searchClass, ISearch search) {
+            if (search == null)
+                    throw new NullPointerException("Search is null.");
+            if (searchClass == null)
+                    throw new NullPointerException("Search class is null.");
+            if (search.getSearchClass() != null && !search.getSearchClass().equals(searchClass))
+                    throw new IllegalArgumentException("Search class does not match expected type: " + searchClass.getName());
+
+            return getSearchProcessor().searchStream(em(), searchClass, search);
+    }
+
     /**
      * Returns the total number of results that would be returned using the
      * given <code>ISearch</code> if there were no paging or maxResult limits.
@@ -386,6 +841,84 @@ public class JPABaseDAO {
             return getSearchProcessor().count(em(), searchClass, search);
     }
 
+    /**
+     * Returns the total number of results that would be returned using the
+     * given <code>ISearch</code> if there were no paging or maxResult limits,
+     * but no more than <code>cap</code>. A cap of 0 or less means no cap.
+     * 
+     * @param search
+     * @param cap
+     * @return 
+     * @see ISearch
+     */
+    protected int _count(ISearch search, int cap) {
+            if (search == null)
+                    throw new NullPointerException("Search is null.");
+            if (search.getSearchClass() == null)
+                    throw new NullPointerException("Search class is null.");
+
+            return getSearchProcessor().count(em(), search, cap);
+    }
+
+    /**
+     * Same as <code>_count(ISearch, int)</code> except that it uses the
+     * specified search class instead of getting it from the search object.
+     * Also, if the search object has a different search class than what is
+     * specified, an exception is thrown.
+     * 
+     * @param searchClass
+     * @param search
+     * @param cap
+     * @return 
+     */
+    protected int _count(Class<?> searchClass, ISearch search, int cap) {
+            if (search == null)
+                    throw new NullPointerException("Search is null.");
+            if (searchClass == null)
+                    throw new NullPointerException("Search class is null.");
+            if (search.getSearchClass() != null && !search.getSearchClass().equals(searchClass))
+                    throw new IllegalArgumentException("Search class does not match expected type: " + searchClass.getName());
+
+            return getSearchProcessor().count(em(), searchClass, search, cap);
+    }
+
+    /**
+     * Returns true if the given <code>ISearch</code> has any results.
+     * 
+     * @param search
+     * @return 
+     * @see ISearch
+     */
+    protected boolean _searchExists(ISearch search) {
+            if (search == null)
+                    throw new NullPointerException("Search is null.");
+            if (search.getSearchClass() == null)
+                    throw new NullPointerException("Search class is null.");
+
+            return getSearchProcessor().exists(em(), search);
+    }
+
+    /**
+     * Same as <code>_searchExists(ISearch)</code> except that it uses the
+     * specified search class instead of getting it from the search object.
+     * Also, if the search object has a different search class than what is
+     * specified, an exception is thrown.
+     * 
+     * @param searchClass
+     * @param search
+     * @return 
+     */
+    protected boolean _searchExists(Class<?> searchClass, ISearch search) {
+            if (search == null)
+                    throw new NullPointerException("Search is null.");
+            if (searchClass == null)
+                    throw new NullPointerException("Search class is null.");
+            if (search.getSearchClass() != null && !search.getSearchClass().equals(searchClass))
+                    throw new IllegalArgumentException("Search class does not match expected type: " + searchClass.getName());
+
+            return getSearchProcessor().exists(em(), searchClass, search);
+    }
+
     /**
      * Returns the number of instances of this entity in the datastore.
      * @param type
@@ -530,13 +1063,11 @@ public class JPABaseDAO {
 
             boolean[] ret = new boolean[ids.length];
 
-            for (Serializable id : (List<Serializable>) pullByIds("select _it_.id", type, ids)) {
-                    for (int i = 0; i < ids.length; i++) {
-                            if (id.equals(ids[i])) {
-                                    ret[i] = true;
-                                    // don't break. the same id could be in the list twice.
-                            }
-                    }
+            Set<Serializable> found = new HashSet<>((List<Serializable>) pullByIds("select _it_.id", type, distinctIds(ids)));
+            for (int i = 0; i < ids.length; i++) {
+                    // the same id could be in the list twice.
+                    if (ids[i] != null && found.contains(ids[i]))
+                            ret[i] = true;
             }
 
             return ret;
@@ -550,31 +1081,103 @@ public class JPABaseDAO {
             return searchProcessor.getFilterFromExample(example, options);
     }
 
-    private List<?> pullByIds(String select, Class<?> type, Serializable[] ids) {
-            List<Serializable> nonNulls = new LinkedList<>();
+    /**
+     * Select from the entities with the given ids, in batches of
+     * <code>idBatchSize</code>. <code>ids</code> must not contain nulls.
+     */
+    private List<?> pullByIds(String select, Class<?> type, List<Serializable> ids) {
+            List<Object> results = new ArrayList<>();
+            if (ids.isEmpty())
+                    return results;
+
+            boolean inList = isIdInListSupported(type);
+            String from = select + " from " + getMetadataUtil().get(type).getEntityName() + " _it_ where ";
+            for (int start = 0; start < ids.size(); start += idBatchSize) {
+                    List<Serializable> batch = ids.subList(start, Math.min(start + idBatchSize, ids.size()));
+                    results.addAll(createByIdsQuery(from, batch, inList).getResultList());
+            }
+            return results;
+    }
+
+    private void bulkRemoveByIds(Class<?> type, List<Serializable> ids) {
+            if (ids.isEmpty())
+                    return;
 
-            StringBuilder sb = new StringBuilder(select);
-            sb.append(" from ");
-            sb.append(getMetadataUtil().get(type).getEntityName());
-            sb.append(" _it_ where ");
+            // managed entities are detached once their rows are deleted;
+            // removing them through the EntityManager could violate foreign
+            // keys of collection rows that the bulk delete removes later.
+            List<Object> managed = new ArrayList<>();
             for (Serializable id : ids) {
-                    if (id != null) {
-                            if (nonNulls.isEmpty())
-                                    sb.append("_it_.id = ?1");
-                            else
-                                    sb.append(" or _it_.id = ?").append(nonNulls.size() + 1);
-                            nonNulls.add(id);
+                    Object entity = HibernateSessionSupport.getManagedEntity(em(), type, id);
+                    if (entity != null)
+                            managed.add(entity);
+            }
+
+            boolean inList = isIdInListSupported(type);
+            String delete = "delete from " + getMetadataUtil().get(type).getEntityName() + " _it_ where ";
+            for (int start = 0; start < ids.size(); start += idBatchSize) {
+                    List<Serializable> batch = ids.subList(start, Math.min(start + idBatchSize, ids.size()));
+                    createByIdsQuery(delete, batch, inList).executeUpdate();
+            }
+
+            for (Object entity : managed) {
+                    em().detach(entity);
+            }
+    }
+
+    /**
+     * Return true if ids of the given type can be matched with
+     * <code>id in :ids</code>. That is not portable for compound ids, so for
+     * them it is only used if Hibernate says the database supports row values
+     * in IN lists.
+     */
+    private boolean isIdInListSupported(Class<?> type) {
+            return !getMetadataUtil().get(type).getIdType().isEmbeddable()
+                            || (isHibernateProvider() && HibernateSessionSupport.supportsRowValueInList(em()));
+    }
+
+    /**
+     * Create the query made of the given QL, which must end with "where ",
+     * followed by a restriction to the ids of the batch: an IN list, or a
+     * chain of "or" if <code>inList</code> is false.
+     */
+    private Query createByIdsQuery(String ql, List<Serializable> batch, boolean inList) {
+            Query query;
+            if (inList) {
+                    query = em().createQuery(ql + "_it_.id in :ids");
+                    query.setParameter("ids", batch);
+            } else {
+                    StringBuilder sb = new StringBuilder(ql);
+                    for (int i = 1; i <= batch.size(); i++) {
+                            if (i > 1)
+                                    sb.append(" or ");
+                            sb.append("_it_.id = ?").append(i);
+                    }
+                    query = em().createQuery(sb.toString());
+                    int idx = 1;
+                    for (Serializable id : batch) {
+                            query.setParameter(idx++, id);
                     }
             }
-            if (nonNulls.isEmpty())
-                    return new ArrayList<>(0);
+            return query;
+    }
 
-            Query query = em().createQuery(sb.toString());
-            int idx = 1;
-            for (Serializable id : nonNulls) {
-                    query.setParameter(idx++, id);
+    private static List<Serializable> distinctIds(Serializable[] ids) {
+            Set<Serializable> distinct = new LinkedHashSet<>();
+            for (Serializable id : ids) {
+                    if (id != null)
+                            distinct.add(id);
             }
-            return query.getResultList();
+            return new ArrayList<>(distinct);
+    }
+
+    /**
+     * Return true if the provider behind the EntityManager is Hibernate. Only
+     * then may <code>HibernateSessionSupport</code> be used: with another
+     * provider Hibernate may not even be on the class path.
+     */
+    private boolean isHibernateProvider() {
+            return HibernateSessionSupport.isAvailable() && HibernateSessionSupport.isHibernate(em());
     }
 
     private boolean validId(Serializable id) {
@@ -14,14 +14,23 @@
  */
 package net.da.backing.data.search;
 
+import java.time.temporal.Temporal;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.ListIterator;
 import java.util.Map;
 import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -69,12 +78,30 @@ public abstract class BaseSearchProcessor {
 
     protected static final String ROOT_PATH = "";
 
+    protected final QueryPlanCache planCache = new QueryPlanCache();
+
+    /**
+     * The name of the window count function used for
+     * <code>ISearch.COUNT_WINDOW</code> unless changed with
+     * <code>setWindowCountFunction()</code>.
+     */
+    public static final String DEFAULT_WINDOW_COUNT_FUNCTION = "count_over";
+
+    protected int countMode = ISearch.COUNT_QUERY;
+
+    protected String windowCountFunction = DEFAULT_WINDOW_COUNT_FUNCTION;
+
+    protected boolean inListPadding = false;
+
+    protected int inListChunkSize = 0;
+
     protected BaseSearchProcessor(int qlType, MetadataUtil metadataUtil) {
             if (metadataUtil == null) {
                     throw new IllegalArgumentException("A SearchProcessor cannot be initialized with a null MetadataUtil.");
             }
             this.qlType = qlType;
             this.metadataUtil = metadataUtil;
+            planCache.setInListSize(this::getInListSize);
     }
 
     /**
@@ -97,6 +124,119 @@ public abstract class BaseSearchProcessor {
      */
     public void setRootAlias(String alias) {
             this.rootAlias = alias;
+            planCache.clear();
+    }
+
+    /**
+     * The cache of compiled query plans used by <code>generateQL()</code> and
+     * <code>generateRowCountQL()</code>. Query language for a search is only
+     * generated the first time a search of that shape is seen; after that the
+     * cached query string is reused and only the parameter values are taken
+     * from the search. Use <code>setMaxSize(0)</code> to turn caching off.
+     * 
+     * @return 
+     */
+    public QueryPlanCache getPlanCache() {
+            return planCache;
+    }
+
+    /**
+     * The count mode used by <code>searchAndCount()</code> for searches whose
+     * count mode is <code>ISearch.COUNT_AUTO</code>. The default is
+     * <code>ISearch.COUNT_QUERY</code>.
+     * 
+     * @return 
+     */
+    public int getCountMode() {
+            return countMode;
+    }
+
+    public void setCountMode(int countMode) {
+            if (countMode != ISearch.COUNT_QUERY && countMode != ISearch.COUNT_WINDOW && countMode != ISearch.COUNT_HAS_MORE)
+                    throw new IllegalArgumentException("Count Mode ( " + countMode + " ) is not a valid default.");
+            this.countMode = countMode;
+    }
+
+    /**
+     * The name of the HQL function that renders <code>count(*) over()</code>,
+     * used for <code>ISearch.COUNT_WINDOW</code>. The default is
+     * <code>"count_over"</code>. The function must be registered with
+     * Hibernate, for example using
+     * {@link net.da.backing.data.search.hibernate.WindowCountFunctionContributor}
+     * ; if it is not, the row count query is used instead.
+     * 
+     * @return 
+     */
+    public String getWindowCountFunction() {
+            return windowCountFunction;
+    }
+
+    public void setWindowCountFunction(String windowCountFunction) {
+            this.windowCountFunction = windowCountFunction;
+            planCache.clear();
+    }
+
+    /**
+     * If true, the values of IN and NOT IN filters are padded to the next
+     * power of two by repeating the last value, so that lists of 5 to 8 values
+     * (for example) all generate the same query string. This lets the query
+     * plan cache, the JPA provider and the database reuse one statement for
+     * lists of many different lengths. The default is <code>false</code>.
+     * 
+     * @return 
+     */
+    public boolean isInListPadding() {
+            return inListPadding;
+    }
+
+    public void setInListPadding(boolean inListPadding) {
+            this.inListPadding = inListPadding;
+            planCache.clear();
+    }
+
+    /**
+     * The maximum number of values in a single IN list. Longer lists are split
+     * into chunks of this size that are OR'd together (AND'd for NOT IN), for
+     * databases that limit the length of an IN list, such as Oracle's 1000. 0
+     * (the default) means lists are never split.
+     * 
+     * @return 
+     */
+    public int getInListChunkSize() {
+            return inListChunkSize;
+    }
+
+    public void setInListChunkSize(int inListChunkSize) {
+            if (inListChunkSize < 0)
+                    throw new IllegalArgumentException("The IN list chunk size cannot be negative.");
+            this.inListChunkSize = inListChunkSize;
+            planCache.clear();
+    }
+
+    /**
+     * Return the number of parameters generated for an IN list with the given
+     * number of values, taking padding and chunking into account. When a list
+     * is split into chunks, only the last chunk is padded.
+     * 
+     * @param size
+     * @return 
+     */
+    protected int getInListSize(int size) {
+            if (!inListPadding || size <= 1)
+                    return size;
+            int chunk = inListChunkSize;
+            int full = 0;
+            int rest = size;
+            if (chunk > 0 && size > chunk) {
+                    full = (size - 1) / chunk * chunk;
+                    rest = size - full;
+            }
+            int padded = Integer.highestOneBit(rest - 1) << 1;
+            if (padded < rest) // overflow
+                    padded = rest;
+            if (chunk > 0 && padded > chunk)
+                    padded = chunk;
+            return full + padded;
     }
 
     /**
@@ -114,7 +254,65 @@ public abstract class BaseSearchProcessor {
             if (entityClass == null)
                     throw new NullPointerException("The entity class for a search cannot be null");
 
+            if (search.isKeysetPaging())
+                    search = applyKeyset(entityClass, search);
+
+            return generateQL("ql", null, entityClass, search, paramList);
+    }
+
+    /**
+     * Generate the QL string for a given search like <code>generateQL()</code>
+     * but with an additional last column holding the total number of results
+     * (ignoring paging) in every row, computed by the window count function.
+     * This lets a page and its total be fetched in a single query.
+     * 
+     * <b>NOTE:</b> Returns null if the search cannot be counted this way: if
+     * it is distinct, uses column operators, uses keyset paging or fetches a
+     * collection. The row count query must be used for such a search.
+     * 
+     * @param entityClass
+     * @param search
+     * @param paramList
+     * @return 
+     * @see #getWindowCountFunction()
+     */
+    public String generateWindowedCountQL(Class<?> entityClass, ISearch search, List<Object> paramList) {
+            if (entityClass == null)
+                    throw new NullPointerException("The entity class for a search cannot be null");
+
+            if (search.isDistinct() || search.isKeysetPaging() || windowCountFunction == null)
+                    return null;
+            if (search.getFields() != null) {
+                    for (Field field : search.getFields()) {
+                            if (field != null && field.getOperator() != Field.OP_PROPERTY && field.getOperator() != Field.OP_CUSTOM)
+                                    return null;
+                    }
+            }
+            if (search.getFetches() != null) {
+                    // collection fetches are paged in memory, so the window would
+                    // count joined rows
+                    for (String fetch : search.getFetches()) {
+                            if (fetch != null && !"".equals(fetch) && metadataUtil.get(entityClass, fetch).isCollection())
+                                    return null;
+                    }
+            }
+
+            return generateQL("windowql", ", " + windowCountFunction + "()", entityClass, search, paramList);
+    }
+
+    private String generateQL(String kind, String extraColumn, Class<?> entityClass, ISearch search, List<Object> paramList) {
+            QueryPlanCache.Shape shape = planCache.shapeOf(kind, entityClass, search);
+            if (shape != null) {
+                    QueryPlan plan = planCache.get(shape);
+                    if (plan != null) {
+                            plan.bind(shape.nodes, paramList);
+                            return plan.getQL();
+                    }
+            }
+
             SearchContext ctx = new SearchContext(entityClass, rootAlias, paramList);
+            if (shape != null)
+                    ctx.plan = new QueryPlan.Builder(shape.nodes);
 
             List<Field> fields = checkAndCleanFields(search.getFields());
 
@@ -127,6 +325,8 @@ public abstract class BaseSearchProcessor {
 
             StringBuilder sb = new StringBuilder();
             sb.append(select);
+            if (extraColumn != null)
+                    sb.append(extraColumn);
             sb.append(from);
             sb.append(where);
             sb.append(orderBy);
@@ -134,6 +334,7 @@ public abstract class BaseSearchProcessor {
             String query = sb.toString();
             if (logger.isDebugEnabled())
                     logger.debug("generateQL:\n  " + query);
+            storePlan(shape, ctx, query);
             return query;
     }
 
@@ -156,33 +357,25 @@ public abstract class BaseSearchProcessor {
             if (entityClass == null)
                     throw new NullPointerException("The entity class for a search cannot be null");
 
+            QueryPlanCache.Shape shape = planCache.shapeOf("rowcount", entityClass, search);
+            if (shape != null) {
+                    QueryPlan plan = planCache.get(shape);
+                    if (plan != null) {
+                            plan.bind(shape.nodes, paramList);
+                            return plan.getQL();
+                    }
+            }
+
             SearchContext ctx = new SearchContext(entityClass, rootAlias, paramList);
+            if (shape != null)
+                    ctx.plan = new QueryPlan.Builder(shape.nodes);
 
             String where = generateWhereClause(ctx, checkAndCleanFilters(search.getFilters()), search.isDisjunction());
             String from = generateFromClause(ctx, false);
 
-            boolean useOperator = false, notUseOperator = false;
             List<Field> fields = search.getFields();
-            if (fields != null) {
-                    for (Field field : fields) {
-                            switch (field.getOperator()) {
-                            case Field.OP_AVG:
-                            case Field.OP_COUNT:
-                            case Field.OP_COUNT_DISTINCT:
-                            case Field.OP_MAX:
-                            case Field.OP_MIN:
-                            case Field.OP_SUM:
-                                    useOperator = true;
-                                    break;
-                            default:
-                                    notUseOperator = true;
-                                    break;
-                            }
-                    }
-            }
-            if (useOperator && notUseOperator) {
-                    throw new Error("A search can not have a mix of fields with operators and fields without operators.");
-            } else if (useOperator) {
+            if (usesColumnOperators(fields)) {
+                    storePlan(shape, ctx, null);
                     return null; // if we're using column operators, the query will
                                                     // always return 1 result.
             }
@@ -212,9 +405,395 @@ public abstract class BaseSearchProcessor {
             String query = sb.toString();
             if (logger.isDebugEnabled())
                     logger.debug("generateRowCountQL:\n  " + query);
+            storePlan(shape, ctx, query);
+            return query;
+    }
+
+    /**
+     * Generate the QL string that selects a constant for every result of a
+     * given search (paging, sorts and fetches are ignored). It is meant to be
+     * run with a maximum of one result, so that the database can stop at the
+     * first match, to find out whether the search has any results at all.
+     * Fill paramList with the values to be used for the query.
+     * 
+     * <b>NOTE:</b> Returns null if column operators are used in the search.
+     * Such a search will always return 1 row.
+     * 
+     * @param entityClass
+     * @param search
+     * @param paramList
+     * @return 
+     */
+    public String generateExistsQL(Class<?> entityClass, ISearch search, List<Object> paramList) {
+            return generateMatchQL("exists", entityClass, search, false, paramList);
+    }
+
+    /**
+     * Generate the QL string that returns one row for every result counted by
+     * <code>generateRowCountQL()</code>. Run with a maximum number of results,
+     * the number of rows is the count capped at that maximum, and the database
+     * can stop as soon as the cap is reached instead of counting every match.
+     * For distinct searches the distinct values are selected, otherwise a
+     * constant. Fill paramList with the values to be used for the query.
+     * 
+     * <b>NOTE:</b> Returns null if column operators are used in the search.
+     * Such a search will always return 1 row.
+     * 
+     * @param entityClass
+     * @param search
+     * @param paramList
+     * @return 
+     */
+    public String generateCappedCountQL(Class<?> entityClass, ISearch search, List<Object> paramList) {
+            if (search.isDistinct()) {
+                    return generateMatchQL("cappedcount", entityClass, search, true, paramList);
+            } else {
+                    return generateMatchQL("exists", entityClass, search, false, paramList);
+            }
+    }
+
+    /**
+     * Generate the QL string of a bulk delete of every result of a given
+     * search. Fill paramList with the values to be used for the query. Fields,
+     * sorts and fetches are ignored. A delete statement cannot have joins, so
+     * if the filters need any, the rows are selected by id with a subquery.
+     * 
+     * @param entityClass
+     * @param search
+     * @param paramList
+     * @return 
+     * @throws IllegalArgumentException if the search has paging, which a bulk
+     *             delete cannot honor.
+     */
+    public String generateDeleteQL(Class<?> entityClass, ISearch search, List<Object> paramList) {
+            if (entityClass == null)
+                    throw new NullPointerException("The entity class for a search cannot be null");
+            if (search.isKeysetPaging() || search.getMaxResults() > 0 || search.getFirstResult() > 0)
+                    throw new IllegalArgumentException("A search with paging cannot be used to delete entities.");
+
+            QueryPlanCache.Shape shape = planCache.shapeOf("delete", entityClass, search);
+            if (shape != null) {
+                    QueryPlan plan = planCache.get(shape);
+                    if (plan != null) {
+                            plan.bind(shape.nodes, paramList);
+                            return plan.getQL();
+                    }
+            }
+
+            SearchContext ctx = new SearchContext(entityClass, rootAlias, paramList);
+            if (shape != null)
+                    ctx.plan = new QueryPlan.Builder(shape.nodes);
+
+            String where = generateWhereClause(ctx, checkAndCleanFilters(search.getFilters()), search.isDisjunction());
+            Metadata md = metadataUtil.get(entityClass);
+
+            boolean byId = !ctx.aliases.get(ROOT_PATH).children.isEmpty();
+            String alias = byId ? ctx.getRootAlias() + "_d" : ctx.getRootAlias();
+
+            StringBuilder sb = new StringBuilder("delete from ");
+            sb.append(md.getEntityName()).append(" ").append(alias);
+            appendBulkRestriction(sb, ctx, md, alias, byId, where);
+
+            String query = sb.toString();
+            if (logger.isDebugEnabled())
+                    logger.debug("generateDeleteQL:\n  " + query);
+            storePlan(shape, ctx, query);
             return query;
     }
 
+    /**
+     * Generate the QL string of a bulk update that sets the given properties
+     * on every result of a given search. Fill paramList with the values to be
+     * used for the query. Fields, sorts and fetches are ignored. As with
+     * <code>generateDeleteQL()</code>, if the filters need joins the rows are
+     * selected by id with a subquery.
+     * 
+     * <p>
+     * Only basic properties of the entity itself or of its embedded
+     * components, and single valued associations, may be set. Values are
+     * converted to the type of their property the same way filter values are.
+     * 
+     * <p>
+     * If the entity is versioned (see <code>getVersionProperty()</code>) the
+     * same statement increments the version, by one for numeric versions and
+     * to <code>current_timestamp</code> for timestamps, so that optimistic
+     * locking still notices the update. The version itself cannot be set.
+     * 
+     * @param entityClass
+     * @param search
+     * @param values
+     *            property paths mapped to their new values
+     * @param paramList
+     * @return 
+     * @throws IllegalArgumentException if the search has paging, if no values
+     *             are given, if any property cannot be updated or if the
+     *             version is of a type that cannot be incremented.
+     */
+    public String generateUpdateQL(Class<?> entityClass, ISearch search, Map<String, ?> values, List<Object> paramList) {
+            if (entityClass == null)
+                    throw new NullPointerException("The entity class for a search cannot be null");
+            if (search.isKeysetPaging() || search.getMaxResults() > 0 || search.getFirstResult() > 0)
+                    throw new IllegalArgumentException("A search with paging cannot be used to update entities.");
+            if (values == null || values.isEmpty())
+                    throw new IllegalArgumentException("At least one property must be given to update.");
+
+            // The set values are not part of the search shape, so these are
+            // never cached as plans.
+            SearchContext ctx = new SearchContext(entityClass, rootAlias, paramList);
+
+            String where = generateWhereClause(ctx, checkAndCleanFilters(search.getFilters()), search.isDisjunction());
+            Metadata md = metadataUtil.get(entityClass);
+            String version = getVersionProperty(entityClass);
+
+            boolean byId = !ctx.aliases.get(ROOT_PATH).children.isEmpty();
+            String alias = byId ? ctx.getRootAlias() + "_u" : ctx.getRootAlias();
+
+            StringBuilder sb = new StringBuilder("update ");
+            sb.append(md.getEntityName()).append(" ").append(alias).append(" set ");
+            boolean first = true;
+            for (Map.Entry<String, ?> entry : values.entrySet()) {
+                    String property = entry.getKey();
+                    checkUpdatableProperty(entityClass, property);
+                    if (property.equals(version))
+                            throw new IllegalArgumentException("The version of an entity cannot be updated: " + property);
+
+                    if (first)
+                            first = false;
+                    else
+                            sb.append(", ");
+                    sb.append(alias).append(".").append(property).append(" = ");
+                    if (entry.getValue() == null) {
+                            sb.append("null");
+                    } else {
+                            sb.append(param(ctx, prepareValue(entityClass, property, entry.getValue(), false)));
+                    }
+            }
+            if (version != null) {
+                    sb.append(", ").append(alias).append(".").append(version).append(" = ");
+                    sb.append(generateVersionIncrement(entityClass, alias, version));
+            }
+            appendBulkRestriction(sb, ctx, md, alias, byId, where);
+
+            String query = sb.toString();
+            if (logger.isDebugEnabled())
+                    logger.debug("generateUpdateQL:\n  " + query);
+            return query;
+    }
+
+    /**
+     * Return the name of the version property of the given entity class, or
+     * <code>null</code> if it is not versioned. Bulk updates increment it. The
+     * default implementation returns <code>null</code>.
+     */
+    protected String getVersionProperty(Class<?> entityClass) {
+            return null;
+    }
+
+    private String generateVersionIncrement(Class<?> entityClass, String alias, String version) {
+            Class<?> type = metadataUtil.get(entityClass, version).getJavaClass();
+            if (type.isPrimitive() || Number.class.isAssignableFrom(type))
+                    return alias + "." + version + " + 1";
+            if (Date.class.isAssignableFrom(type) || Calendar.class.isAssignableFrom(type) || Temporal.class.isAssignableFrom(type))
+                    return "current_timestamp";
+            throw new IllegalArgumentException("The version of " + entityClass.getName() + " is a " + type.getName()
+                            + ", which cannot be incremented by a bulk update.");
+    }
+
+    /**
+     * Throw an IllegalArgumentException unless the given property can be
+     * set by a bulk update: it must exist, must not be an id or a
+     * collection, and may only be reached through embedded components.
+     */
+    protected void checkUpdatableProperty(Class<?> entityClass, String property) {
+            if (property == null || "".equals(property))
+                    throw new IllegalArgumentException("The property to update cannot be empty.");
+            securityCheckProperty(property);
+
+            int pos = -1;
+            do {
+                    pos = property.indexOf('.', pos + 1);
+                    String path = pos == -1 ? property : property.substring(0, pos);
+                    // throws IllegalArgumentException if there is no such property
+                    Metadata pmd = metadataUtil.get(entityClass, path);
+                    if (metadataUtil.isId(entityClass, path))
+                            throw new IllegalArgumentException("The id of an entity cannot be updated: " + property);
+                    if (pmd.isCollection())
+                            throw new IllegalArgumentException("A collection cannot be updated: " + property);
+                    if (pos != -1 && !pmd.isEmbeddable())
+                            throw new IllegalArgumentException(
+                                            "Only properties of the entity or of its components can be updated: " + property);
+            } while (pos != -1);
+    }
+
+    /**
+     * Append the where clause of a bulk delete or update. Bulk statements
+     * cannot have joins, so if the filters needed any, the rows are matched by
+     * id against a subquery that selects with the search alias.
+     */
+    private void appendBulkRestriction(StringBuilder sb, SearchContext ctx, Metadata md, String alias, boolean byId, String where) {
+            if (!byId) {
+                    sb.append(where);
+            } else {
+                    sb.append(" where ").append(alias).append(".").append(md.getIdProperty()).append(" in (select ");
+                    sb.append(ctx.getRootAlias()).append(".").append(md.getIdProperty());
+                    sb.append(generateFromClause(ctx, false));
+                    sb.append(where);
+                    sb.append(")");
+            }
+    }
+
+    private String generateMatchQL(String kind, Class<?> entityClass, ISearch search, boolean distinct, List<Object> paramList) {
+            if (entityClass == null)
+                    throw new NullPointerException("The entity class for a search cannot be null");
+
+            QueryPlanCache.Shape shape = planCache.shapeOf(kind, entityClass, search);
+            if (shape != null) {
+                    QueryPlan plan = planCache.get(shape);
+                    if (plan != null) {
+                            plan.bind(shape.nodes, paramList);
+                            return plan.getQL();
+                    }
+            }
+
+            SearchContext ctx = new SearchContext(entityClass, rootAlias, paramList);
+            if (shape != null)
+                    ctx.plan = new QueryPlan.Builder(shape.nodes);
+
+            List<Field> fields = search.getFields();
+            if (usesColumnOperators(fields)) {
+                    storePlan(shape, ctx, null);
+                    return null;
+            }
+
+            String where = generateWhereClause(ctx, checkAndCleanFilters(search.getFilters()), search.isDisjunction());
+
+            StringBuilder sb = new StringBuilder();
+            if (!distinct) {
+                    sb.append("select 1");
+            } else if (fields == null || fields.size() <= 1) {
+                    String prop = fields == null || fields.isEmpty() ? null : fields.get(0).getProperty();
+                    sb.append("select distinct ");
+                    if (prop == null || "".equals(prop)) {
+                            // select the id rather than the entity so nothing is loaded
+                            sb.append(ctx.getRootAlias()).append(".").append(metadataUtil.get(entityClass).getIdProperty());
+                    } else {
+                            String path = getPathRef(ctx, prop);
+                            sb.append(path);
+                            // count(distinct ...) does not count nulls
+                            if ("".equals(where)) {
+                                    where = " where " + path + " is not null";
+                            } else {
+                                    where = " where (" + where.substring(" where ".length()) + ") and " + path + " is not null";
+                            }
+                    }
+            } else {
+                    throw new IllegalArgumentException("Unfortunately, Hibernate Generic DAO does not currently support "
+                                    + "the count operation on a search that has distinct set with multiple fields.");
+            }
+            sb.append(generateFromClause(ctx, false));
+            sb.append(where);
+
+            String query = sb.toString();
+            if (logger.isDebugEnabled())
+                    logger.debug("generateMatchQL:\n  " + query);
+            storePlan(shape, ctx, query);
+            return query;
+    }
+
+    /**
+     * Return true if the fields use column operators, in which case the search
+     * always returns exactly one row.
+     */
+    private boolean usesColumnOperators(List<Field> fields) {
+            boolean useOperator = false, notUseOperator = false;
+            if (fields != null) {
+                    for (Field field : fields) {
+                            switch (field.getOperator()) {
+                            case Field.OP_AVG:
+                            case Field.OP_COUNT:
+                            case Field.OP_COUNT_DISTINCT:
+                            case Field.OP_MAX:
+                            case Field.OP_MIN:
+                            case Field.OP_SUM:
+                                    useOperator = true;
+                                    break;
+                            default:
+                                    notUseOperator = true;
+                                    break;
+                            }
+                    }
+            }
+            if (useOperator && notUseOperator) {
+                    throw new Error("A search can not have a mix of fields with operators and fields without operators.");
+            }
+            return useOperator;
+    }
+
+    /**
+     * Cache the plan recorded while generating the given query, if one could
+     * be recorded.
+     * 
+     * @param shape
+     * @param ctx
+     * @param query
+     */
+    protected void storePlan(QueryPlanCache.Shape shape, SearchContext ctx, String query) {
+            if (shape == null || ctx.plan == null)
+                    return;
+            QueryPlan plan = ctx.plan.build(query, ctx.paramList.size());
+            if (plan != null) {
+                    planCache.put(shape, plan);
+            }
+    }
+
+    /**
+     * Return true if <code>searchAndCount()</code> should try to fetch the
+     * page and the total in a single windowed query, based on the count mode
+     * of the search and of this processor.
+     * 
+     * @param search
+     * @return 
+     */
+    protected boolean isWindowedCount(ISearch search) {
+            return getCountMode(search) == ISearch.COUNT_WINDOW && search.getMaxResults() > 0;
+    }
+
+    /**
+     * Return true if <code>searchAndCount()</code> should skip counting and
+     * only check whether there is a next page by fetching one extra row.
+     * 
+     * @param search
+     * @return 
+     */
+    protected boolean isHasMoreCount(ISearch search) {
+            return getCountMode(search) == ISearch.COUNT_HAS_MORE && search.getMaxResults() > 0;
+    }
+
+    private int getCountMode(ISearch search) {
+            return search.getCountMode() == ISearch.COUNT_AUTO ? countMode : search.getCountMode();
+    }
+
+    /**
+     * Remove the count column added by <code>generateWindowedCountQL()</code>
+     * from each row of the results, leaving the remaining columns of each row
+     * as an <code>Object[]</code>. Returns the total number of results, or -1
+     * if there are no rows.
+     * 
+     * @param rows
+     * @return 
+     */
+    protected static int removeWindowCount(List<Object> rows) {
+            int total = -1;
+            for (ListIterator<Object> itr = rows.listIterator(); itr.hasNext();) {
+                    Object[] row = (Object[]) itr.next();
+                    total = ((Number) row[row.length - 1]).intValue();
+                    Object[] stripped = new Object[row.length - 1];
+                    System.arraycopy(row, 0, stripped, 0, stripped.length);
+                    itr.set(stripped);
+            }
+            return total;
+    }
+
     /**
      * Internal method for generating the select clause based on the fields of
      * the given search.
@@ -511,6 +1090,18 @@ public abstract class BaseSearchProcessor {
                     value = prepareValue(ctx.rootClass, property, value, false);
             }
 
+            if (ctx.plan != null) {
+                    // tell the plan where the parameters added for this filter come from
+                    if ((filter.isTakesListOfValues() || filter.isTakesSingleValue()) && filter.getValue() != null) {
+                            ctx.plan.valueSource(filter, getExpectedClass(ctx.rootClass, property),
+                                            filter.isTakesListOfValues(), operator == Filter.OP_LIKE || operator == Filter.OP_ILIKE);
+                    } else if (operator == Filter.OP_CUSTOM) {
+                            ctx.plan.customSource(filter, 0);
+                    } else {
+                            ctx.plan.clearSource();
+                    }
+            }
+
             Metadata metadata;
 
             switch (operator) {
@@ -519,9 +1110,9 @@ public abstract class BaseSearchProcessor {
             case Filter.OP_NOT_NULL:
                     return getPathRef(ctx, property) + " is not null";
             case Filter.OP_IN:
-                    return getPathRef(ctx, property) + " in (" + param(ctx, value) + ")";
+                    return inListToQL(ctx, getPathRef(ctx, property), value, false);
             case Filter.OP_NOT_IN:
-                    return getPathRef(ctx, property) + " not in (" + param(ctx, value) + ")";
+                    return inListToQL(ctx, getPathRef(ctx, property), value, true);
             case Filter.OP_EQUAL:
                     return getPathRef(ctx, property) + " = " + param(ctx, value);
             case Filter.OP_NOT_EQUAL:
@@ -667,6 +1258,7 @@ public abstract class BaseSearchProcessor {
             ctx2.paramList = ctx.paramList;
             ctx2.nextAliasNum = ctx.nextAliasNum;
             ctx2.nextSubqueryNum = ctx.nextSubqueryNum;
+            ctx2.plan = ctx.plan;
 
             List<Filter> filters = new ArrayList<>(1);
             filters.add(filter);
@@ -747,8 +1339,10 @@ public abstract class BaseSearchProcessor {
                     return null;
             }
 
-            Object value = InternalUtil.convertIfNeeded(filter.getValue(), metadataUtil.get(ctx.rootClass, property)
-                            .getJavaClass());
+            Class<?> elementClass = metadataUtil.get(ctx.rootClass, property).getJavaClass();
+            Object value = InternalUtil.convertIfNeeded(filter.getValue(), elementClass);
+            if (ctx.plan != null)
+                    ctx.plan.valueSource(filter, elementClass, false, false);
             return param(ctx, value) + op + operation + " elements(" + getPathRef(ctx, property) + ")";
     }
 
@@ -769,14 +1363,7 @@ public abstract class BaseSearchProcessor {
             if (value == null)
                     return null;
 
-            Class<?> expectedClass;
-            if (property != null && ("class".equals(property) || property.endsWith(".class"))) {
-                    expectedClass = Class.class;
-            } else if (property != null && ("size".equals(property) || property.endsWith(".size"))) {
-                    expectedClass = Integer.class;
-            } else {
-                    expectedClass = metadataUtil.get(rootClass, property).getJavaClass();
-            }
+            Class<?> expectedClass = getExpectedClass(rootClass, property);
 
             // convert numbers to the expected type if needed (ex: Integer to Long)
             if (isCollection) {
@@ -784,24 +1371,35 @@ public abstract class BaseSearchProcessor {
                     Object[] val2;
 
                     if (value instanceof Collection) {
-                            val2 = new Object[((Collection) value).size()];
-                            int i = 0;
-                            for (Object item : (Collection) value) {
-                                    val2[i++] = InternalUtil.convertIfNeeded(item, expectedClass);
-                            }
+                            val2 = ((Collection) value).toArray(new Object[((Collection) value).size()]);
                     } else {
-                            val2 = new Object[((Object[]) value).length];
-                            int i = 0;
-                            for (Object item : (Object[]) value) {
-                                    val2[i++] = InternalUtil.convertIfNeeded(item, expectedClass);
-                            }
+                            val2 = Arrays.copyOf((Object[]) value, ((Object[]) value).length, Object[].class);
                     }
+                    InternalUtil.convertEachIfNeeded(val2, expectedClass);
                     return val2;
             } else {
                     return InternalUtil.convertIfNeeded(value, expectedClass);
             }
     }
 
+    /**
+     * Return the type that values compared to the given property should be
+     * converted to.
+     * 
+     * @param rootClass
+     * @param property
+     * @return 
+     */
+    protected Class<?> getExpectedClass(Class<?> rootClass, String property) {
+            if (property != null && ("class".equals(property) || property.endsWith(".class"))) {
+                    return Class.class;
+            } else if (property != null && ("size".equals(property) || property.endsWith(".size"))) {
+                    return Integer.class;
+            } else {
+                    return metadataUtil.get(rootClass, property).getJavaClass();
+            }
+    }
+
     /**
      * Return a filter that negates the given filter.
      * 
@@ -882,6 +1480,8 @@ public abstract class BaseSearchProcessor {
                             if (valueIndex > values.size()) {
                                     throw new IllegalArgumentException("This custom filter expression (" + expression + ") calls for a value placeholder number " + valueIndex + ", but only " + values.size() + " values were specified.");
                             }
+                            if (ctx.plan != null)
+                                    ctx.plan.customValue(valueIndex - 1);
                             sb.append(param(ctx, values.get(valueIndex - 1)));
                     }
                     lastEnd = matcher.end();
@@ -889,6 +1489,50 @@ public abstract class BaseSearchProcessor {
             sb.append(expression.substring(lastEnd));
     }
 
+    /**
+     * Generate the QL fragment for an IN or NOT IN filter, padding and
+     * splitting the list of values according to <code>inListPadding</code>
+     * and <code>inListChunkSize</code>.
+     * 
+     * @param ctx
+     * @param pathRef
+     * @param value
+     * @param not
+     * @return 
+     */
+    protected String inListToQL(SearchContext ctx, String pathRef, Object value, boolean not) {
+            Object[] values;
+            if (value instanceof Object[]) {
+                    values = (Object[]) value;
+            } else if (value instanceof Collection) {
+                    values = ((Collection) value).toArray();
+            } else {
+                    return pathRef + (not ? " not in (" : " in (") + param(ctx, value) + ")";
+            }
+
+            int size = getInListSize(values.length);
+            int chunk = inListChunkSize > 0 ? inListChunkSize : size;
+
+            StringBuilder sb = new StringBuilder();
+            if (size > chunk)
+                    sb.append("(");
+            for (int start = 0; start < size; start += chunk) {
+                    if (start > 0)
+                            sb.append(not ? " and " : " or ");
+                    sb.append(pathRef).append(not ? " not in (" : " in (");
+                    int end = Math.min(start + chunk, size);
+                    for (int i = start; i < end; i++) {
+                            if (i > start)
+                                    sb.append(",");
+                            sb.append(elementParam(ctx, values[Math.min(i, values.length - 1)], i));
+                    }
+                    sb.append(")");
+            }
+            if (size > chunk)
+                    sb.append(")");
+            return sb.toString();
+    }
+
     /**
      * Add value to paramList and return the named parameter string ":pX".
      * 
@@ -898,9 +1542,12 @@ public abstract class BaseSearchProcessor {
      */
     protected String param(SearchContext ctx, Object value) {
             if (value instanceof Class) {
+                    if (ctx.plan != null)
+                            ctx.plan.literal(value);
                     return ((Class<?>) value).getName();
             }
 
+            int element = 0;
             if (value instanceof Collection) {
                     StringBuilder sb = new StringBuilder();
                     boolean first = true;
@@ -910,9 +1557,7 @@ public abstract class BaseSearchProcessor {
                             } else {
                                     sb.append(",");
                             }
-                            ctx.paramList.add(o);
-                            sb.append(":p");
-                            sb.append(Integer.toString(ctx.paramList.size()));
+                            sb.append(elementParam(ctx, o, element++));
                     }
                     return sb.toString();
             } else if (value instanceof Object[]) {
@@ -924,17 +1569,28 @@ public abstract class BaseSearchProcessor {
                             } else {
                                     sb.append(",");
                             }
-                            ctx.paramList.add(o);
-                            sb.append(":p");
-                            sb.append(Integer.toString(ctx.paramList.size()));
+                            sb.append(elementParam(ctx, o, element++));
                     }
                     return sb.toString();
             } else {
                     ctx.paramList.add(value);
+                    if (ctx.plan != null)
+                            ctx.plan.param(-1);
                     return ":p" + Integer.toString(ctx.paramList.size());
             }
     }
 
+    /**
+     * Add one element of a collection value as a parameter. <code>element</code>
+     * is its position within the collection.
+     */
+    private String elementParam(SearchContext ctx, Object value, int element) {
+            ctx.paramList.add(value);
+            if (ctx.plan != null)
+                    ctx.plan.param(element);
+            return ":p" + Integer.toString(ctx.paramList.size());
+    }
+
     /**
      * Given a full path to a property (ex. department.manager.salary), return
      * the reference to that property that uses the appropriate alias (ex.
@@ -1130,6 +1786,9 @@ public abstract class BaseSearchProcessor {
             int nextAliasNum = 1;
             int nextSubqueryNum = 1;
 
+            /** records the parameters of the query when it is to be cached */
+            QueryPlan.Builder plan;
+
             public SearchContext() {
             }
 
@@ -1148,6 +1807,241 @@ public abstract class BaseSearchProcessor {
             }
     }
 
+    // ---- KEYSET PAGING ---- //
+
+    /**
+     * Return a search equivalent to the given keyset paging search but using
+     * ordinary filters and sorts: the id is appended to the sorts as a tie
+     * breaker, and if keyset values are given, a filter is added that only
+     * matches rows after that position, e.g. for sorts (a, id)
+     * 
+     * <pre>
+     * (a &gt; :p1) or (a = :p2 and id &gt; :p3)
+     * </pre>
+     * 
+     * @param entityClass
+     * @param search
+     * @return 
+     */
+    protected ISearch applyKeyset(Class<?> entityClass, ISearch search) {
+            List<Sort> sorts = getKeysetSorts(entityClass, search);
+
+            Search keysetSearch = new Search();
+            SearchUtil.shallowCopy(search, keysetSearch);
+            keysetSearch.setKeysetPaging(false);
+            keysetSearch.setKeysetValues(null);
+            keysetSearch.setSorts(sorts);
+
+            List<Object> values = search.getKeysetValues();
+            if (values != null && !values.isEmpty()) {
+                    if (values.size() != sorts.size()) {
+                            throw new IllegalArgumentException("The search has " + values.size() + " keyset values, but "
+                                            + sorts.size() + " are required (one for each sort followed by the id).");
+                    }
+
+                    Filter[] alternatives = new Filter[sorts.size()];
+                    for (int i = 0; i < sorts.size(); i++) {
+                            Filter[] terms = new Filter[i + 1];
+                            for (int j = 0; j < i; j++) {
+                                    terms[j] = keysetComparison(entityClass, sorts.get(j), values.get(j), true);
+                            }
+                            terms[i] = keysetComparison(entityClass, sorts.get(i), values.get(i), false);
+                            alternatives[i] = Filter.and(terms);
+                    }
+
+                    List<Filter> filters = new ArrayList<>();
+                    if (search.getFilters() != null && !search.getFilters().isEmpty()) {
+                            if (search.isDisjunction()) {
+                                    filters.add(new Filter(null, search.getFilters(), Filter.OP_OR));
+                            } else {
+                                    filters.addAll(search.getFilters());
+                            }
+                    }
+                    filters.add(Filter.or(alternatives));
+                    keysetSearch.setFilters(filters);
+                    keysetSearch.setDisjunction(false);
+            }
+
+            return keysetSearch;
+    }
+
+    /**
+     * The sorts used for a keyset paging search: the sorts of the search up to
+     * and including the id, with the id added at the end if it is not already
+     * there.
+     * 
+     * @param entityClass
+     * @param search
+     * @return 
+     */
+    protected List<Sort> getKeysetSorts(Class<?> entityClass, ISearch search) {
+            Metadata metadata = metadataUtil.get(entityClass);
+            if (!metadata.isEntity() || metadata.getIdType().isEmbeddable()) {
+                    throw new IllegalArgumentException("Keyset paging can only be used on an entity with a simple id: "
+                                    + entityClass.getName());
+            }
+            String idProperty = metadata.getIdProperty();
+
+            List<Sort> sorts = new ArrayList<>();
+            if (search.getSorts() != null) {
+                    for (Sort sort : search.getSorts()) {
+                            if (sort == null)
+                                    continue;
+                            if (sort.isCustomExpression()) {
+                                    throw new IllegalArgumentException("Keyset paging cannot be used with custom expression sorts.");
+                            }
+                            sorts.add(sort);
+                            if (idProperty.equals(sort.getProperty())) {
+                                    // the order is already unique; anything after this is redundant
+                                    return sorts;
+                            }
+                    }
+            }
+            sorts.add(new Sort(idProperty));
+            return sorts;
+    }
+
+    private Filter keysetComparison(Class<?> entityClass, Sort sort, Object value, boolean equal) {
+            if (value == null) {
+                    throw new IllegalArgumentException("Keyset paging does not support null sort values (property: "
+                                    + sort.getProperty() + ").");
+            }
+            if (sort.isIgnoreCase() && metadataUtil.get(entityClass, sort.getProperty()).isString()) {
+                    String op = equal ? " = " : sort.isDesc() ? " < " : " > ";
+                    return Filter.custom("lower({" + sort.getProperty() + "})" + op + "lower(?1)", value);
+            } else if (equal) {
+                    return Filter.equal(sort.getProperty(), value);
+            } else if (sort.isDesc()) {
+                    return Filter.lessThan(sort.getProperty(), value);
+            } else {
+                    return Filter.greaterThan(sort.getProperty(), value);
+            }
+    }
+
+    /**
+     * Return the continuation token that identifies the given row of the
+     * results of a keyset paging search. The sort key values are read from the
+     * row, which may be the entity itself or, if the search has fields, a row
+     * that contains the sort properties (and id) as fields. Returns
+     * <code>null</code> if the values cannot be read from the row.
+     * 
+     * @param entityClass
+     * @param search
+     * @param lastRow
+     * @return 
+     * @see SearchResult#getContinuationToken()
+     */
+    public String getKeysetToken(Class<?> entityClass, ISearch search, Object lastRow) {
+            if (lastRow == null)
+                    return null;
+
+            List<Sort> sorts = getKeysetSorts(entityClass, search);
+            List<Object> values = new ArrayList<>(sorts.size());
+            for (Sort sort : sorts) {
+                    Object value = getKeysetValue(entityClass, search, lastRow, sort.getProperty());
+                    if (value == NO_KEYSET_VALUE)
+                            return null;
+                    values.add(value);
+            }
+            return SearchUtil.encodeKeysetToken(values);
+    }
+
+    /**
+     * Fill in <code>hasMore</code> on the result of
+     * <code>searchAndCount()</code>, unless it was already determined by
+     * fetching an extra row, and set the continuation token on the result of a
+     * keyset paging search if there may be more results.
+     * 
+     * @param result
+     * @param entityClass
+     * @param search
+     */
+    protected void addPagingInfo(SearchResult<?> result, Class<?> entityClass, ISearch search) {
+            List<?> rows = result.getResult();
+            int size = rows == null ? 0 : rows.size();
+
+            if (!isHasMoreCount(search)) {
+                    if (search.getMaxResults() <= 0) {
+                            result.setHasMore(false);
+                    } else if (search.isKeysetPaging()) {
+                            // the total ignores the keyset position, so a full page is
+                            // all we can go by
+                            result.setHasMore(size >= search.getMaxResults());
+                    } else {
+                            result.setHasMore(SearchUtil.calcFirstResult(search) + size < result.getTotalCount());
+                    }
+            }
+
+            if (search.isKeysetPaging() && result.isHasMore() && size > 0) {
+                    result.setContinuationToken(getKeysetToken(entityClass, search, rows.get(size - 1)));
+            }
+    }
+
+    private static final Object NO_KEYSET_VALUE = new Object();
+
+    @SuppressWarnings("unchecked")
+    private Object getKeysetValue(Class<?> entityClass, ISearch search, Object row, String property) {
+            List<Field> fields = search.getFields();
+            if (fields == null || fields.isEmpty()) {
+                    return getPathValue(entityClass, row, property);
+            }
+
+            int resultMode = search.getResultMode();
+            if (resultMode == ISearch.RESULT_AUTO) {
+                    resultMode = fields.size() > 1 ? ISearch.RESULT_ARRAY : ISearch.RESULT_SINGLE;
+                    for (Field field : fields) {
+                            if (field.getKey() != null && !field.getKey().equals("")) {
+                                    resultMode = ISearch.RESULT_MAP;
+                                    break;
+                            }
+                    }
+            }
+
+            // look for the property itself, then for the root entity
+            int rootIndex = -1;
+            for (int i = 0; i < fields.size(); i++) {
+                    Field field = fields.get(i);
+                    if (field.getOperator() != Field.OP_PROPERTY)
+                            continue;
+                    if (property.equals(field.getProperty())) {
+                            return getColumn(row, resultMode, i, field);
+                    } else if (rootIndex == -1 && (field.getProperty() == null || "".equals(field.getProperty()))) {
+                            rootIndex = i;
+                    }
+            }
+            if (rootIndex != -1) {
+                    return getPathValue(entityClass, getColumn(row, resultMode, rootIndex, fields.get(rootIndex)), property);
+            }
+            return NO_KEYSET_VALUE;
+    }
+
+    @SuppressWarnings("rawtypes")
+    private Object getColumn(Object row, int resultMode, int index, Field field) {
+            switch (resultMode) {
+            case ISearch.RESULT_ARRAY:
+                    return ((Object[]) row)[index];
+            case ISearch.RESULT_LIST:
+                    return ((List) row).get(index);
+            case ISearch.RESULT_MAP:
+                    String key = field.getKey() != null && !field.getKey().equals("") ? field.getKey() : field.getProperty();
+                    return ((Map) row).get(key);
+            default:
+                    return row;
+            }
+    }
+
+    private Object getPathValue(Class<?> entityClass, Object entity, String path) {
+            Metadata metadata = metadataUtil.get(entityClass);
+            Object value = entity;
+            for (String property : path.split("\\.")) {
+                    if (value == null)
+                            return null;
+                    value = metadata.getPropertyValue(value, property);
+                    metadata = metadata.getPropertyType(property);
+            }
+            return value;
+    }
+
     // ---- SECURITY CHECK ---- //
 
     /**
@@ -1337,6 +2231,17 @@ public abstract class BaseSearchProcessor {
 
     private static final ExampleOptions defaultExampleOptions = new ExampleOptions();
 
+    /**
+     * The most example plans kept by a processor. Plans are keyed by class and
+     * excluded properties, so this is only reached if excluded properties are
+     * chosen dynamically.
+     */
+    private static final int MAX_EXAMPLE_PLANS = 1000;
+
+    // compiled example plans, keyed by the example class alone when no
+    // properties are excluded and by the class and excluded properties otherwise
+    private final ConcurrentMap<Object, ExamplePlan> examplePlans = new ConcurrentHashMap<>();
+
     public Filter getFilterFromExample(Object example) {
             return getFilterFromExample(example, null);
     }
@@ -1348,9 +2253,7 @@ public abstract class BaseSearchProcessor {
                     options = defaultExampleOptions;
 
             List<Filter> filters = new ArrayList();
-            LinkedList<String> path = new LinkedList();
-            Metadata metadata = metadataUtil.get(example.getClass());
-            getFilterFromExampleRecursive(example, metadata, options, path, filters);
+            getExamplePlan(example.getClass(), options.getExcludeProps()).addFilters(example, options, filters);
 
             if (filters.isEmpty()) {
                     return null;
@@ -1361,68 +2264,18 @@ public abstract class BaseSearchProcessor {
             }
     }
 
-    private void getFilterFromExampleRecursive(Object example, Metadata metadata, ExampleOptions options,
-                    LinkedList<String> path, List<Filter> filters) {
-        if (metadata.isEntity() && !metadata.getIdType().isEmbeddable()) {
-                Object id = metadata.getIdValue(example);
-                if (id != null) {
-                        filters.add(Filter.equal(listToPath(path, "id"), id));
-                        return;
-                }
-        }
+    private ExamplePlan getExamplePlan(Class<?> exampleClass, Collection<String> excludeProps) {
+            Set<String> excludes = excludeProps == null || excludeProps.isEmpty() ? Collections.<String> emptySet()
+                            : new HashSet<>(excludeProps);
+            Object key = excludes.isEmpty() ? exampleClass : Arrays.asList(exampleClass, excludes);
 
-        for (String property : metadata.getProperties()) {
-                if (options.getExcludeProps() != null && !options.getExcludeProps().isEmpty()) {
-                        if (options.getExcludeProps().contains(listToPath(path, property)))
-                                continue;
-                }
-
-                Metadata pMetadata = metadata.getPropertyType(property);
-                if (pMetadata.isCollection()) {
-                        // ignore collections
-                } else {
-                        Object value = metadata.getPropertyValue(example, property);
-                        if (value == null) {
-                                if (!options.isExcludeNulls()) {
-                                        filters.add(Filter.isNull(listToPath(path, property)));
-                                }
-                        } else if (options.isExcludeZeros() && value instanceof Number && ((Number) value).longValue() == 0) {
-                                // ignore zeros
-                        } else {
-                                if (pMetadata.isEntity() || pMetadata.isEmbeddable()) {
-                                        path.add(property);
-                                        getFilterFromExampleRecursive(value, pMetadata, options, path, filters);
-                                        path.removeLast();
-                                } else if (pMetadata.isString()
-                                                && (options.getLikeMode() != ExampleOptions.EXACT || options.isIgnoreCase())) {
-                                        String val = value.toString();
-                                        switch (options.getLikeMode()) {
-                                        case ExampleOptions.START:
-                                                val = val + "%";
-                                                break;
-                                        case ExampleOptions.END:
-                                                val = "%" + val;
-                                                break;
-                                        case ExampleOptions.ANYWHERE:
-                                                val = "%" + val + "%";
-                                                break;
-                                        }
-                                        filters.add(new Filter(listToPath(path, property), val,
-                                                        options.isIgnoreCase() ? Filter.OP_ILIKE : Filter.OP_LIKE));
-                                } else {
-                                        filters.add(Filter.equal(listToPath(path, property), value));
-                                }
-                        }
-                }
-        }
-    }
-
-    private String listToPath(List<String> list, String lastProperty) {
-        StringBuilder sb = new StringBuilder();
-        for (String prop : list) {
-                sb.append(prop).append(".");
-        }
-        sb.append(lastProperty);
-        return sb.toString();
+            ExamplePlan plan = examplePlans.get(key);
+            if (plan == null) {
+                    plan = new ExamplePlan(metadataUtil.get(exampleClass), "", excludes);
+                    if (examplePlans.size() < MAX_EXAMPLE_PLANS) {
+                            examplePlans.putIfAbsent(key, plan);
+                    }
+            }
+            return plan;
     }
 }
@@ -0,0 +1,476 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.da.backing.data.search;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * <p>
+ * A <code>SearchFacade</code> decorator that caches the results of
+ * <code>search()</code>, <code>count()</code>, <code>exists()</code> and
+ * <code>searchAndCount()</code> in a {@link SearchCache}. Searches are
+ * matched by <code>equals()</code>, so the same search built by different
+ * threads shares one entry. Streams, unique results and examples are passed
+ * through to the underlying facade.
+ *
+ * <p>
+ * To invalidate entries when entities are written, set the same
+ * <code>SearchCache</code> on the DAOs (<code>setSearchCache()</code>). An
+ * entry is invalidated by writes to its search class or to any entity type
+ * joined by its filters, fields, sorts and fetches. Entries for searches with
+ * custom expressions are invalidated by every write, because the entity types
+ * they read cannot be known.
+ *
+ * <p>
+ * Entity instances belong to the session that loaded them, so they are never
+ * cached. When a search returns entities of its search class, only their ids
+ * are cached, and a hit loads them again by id, in the caller's session, with
+ * a single query by primary key. Results that hold entities in any other way
+ * (for example fields that select an association) are not cached. A search
+ * must not be modified while it is being executed; it is copied to form the
+ * cache key.
+ */
+public class CachingSearchFacade implements SearchFacade {
+
+    private final SearchFacade delegate;
+    private final SearchCache cache;
+    private final MetadataUtil metadataUtil;
+
+    /**
+     * @param delegate
+     *            the facade that runs the searches
+     * @param cache
+     *            the cache to store results in
+     * @param metadataUtil
+     *            used to find the entity types joined by a search
+     */
+    public CachingSearchFacade(SearchFacade delegate, SearchCache cache, MetadataUtil metadataUtil) {
+            if (delegate == null || cache == null || metadataUtil == null)
+                    throw new IllegalArgumentException("A CachingSearchFacade requires a delegate, a cache and a MetadataUtil.");
+            this.delegate = delegate;
+            this.cache = cache;
+            this.metadataUtil = metadataUtil;
+    }
+
+    public SearchFacade getDelegate() {
+            return delegate;
+    }
+
+    public SearchCache getCache() {
+            return cache;
+    }
+
+    @Override
+    public List search(ISearch search) {
+            return search(search == null ? null : search.getSearchClass(), search);
+    }
+
+    @Override
+    public List search(Class<?> searchClass, ISearch search) {
+            return (List) cached("search", searchClass, search, null, () -> delegate.search(searchClass, search));
+    }
+
+    @Override
+    public Stream searchStream(ISearch search) {
+            return delegate.searchStream(search);
+    }
+
+    @Override
+    public Stream searchStream(Class<?> searchClass, ISearch search) {
+            return delegate.searchStream(searchClass, search);
+    }
+
+    @Override
+    public int count(ISearch search) {
+            return count(search == null ? null : search.getSearchClass(), search);
+    }
+
+    @Override
+    public int count(Class<?> searchClass, ISearch search) {
+            return (Integer) cached("count", searchClass, search, null, () -> delegate.count(searchClass, search));
+    }
+
+    @Override
+    public int count(ISearch search, int cap) {
+            return count(search == null ? null : search.getSearchClass(), search, cap);
+    }
+
+    @Override
+    public int count(Class<?> searchClass, ISearch search, int cap) {
+            return (Integer) cached("count", searchClass, search, cap, () -> delegate.count(searchClass, search, cap));
+    }
+
+    @Override
+    public boolean exists(ISearch search) {
+            return exists(search == null ? null : search.getSearchClass(), search);
+    }
+
+    @Override
+    public boolean exists(Class<?> searchClass, ISearch search) {
+            return (Boolean) cached("exists", searchClass, search, null, () -> delegate.exists(searchClass, search));
+    }
+
+    @Override
+    public SearchResult searchAndCount(ISearch search) {
+            return searchAndCount(search == null ? null : search.getSearchClass(), search);
+    }
+
+    @Override
+    public SearchResult searchAndCount(Class<?> searchClass, ISearch search) {
+            return (SearchResult) cached("searchAndCount", searchClass, search, null,
+                            () -> delegate.searchAndCount(searchClass, search));
+    }
+
+    @Override
+    public Object searchUnique(ISearch search) {
+            return delegate.searchUnique(search);
+    }
+
+    @Override
+    public Object searchUnique(Class<?> searchClass, ISearch search) {
+            return delegate.searchUnique(searchClass, search);
+    }
+
+    @Override
+    public Filter getFilterFromExample(Object example) {
+            return delegate.getFilterFromExample(example);
+    }
+
+    @Override
+    public Filter getFilterFromExample(Object example, ExampleOptions options) {
+            return delegate.getFilterFromExample(example, options);
+    }
+
+    private Object cached(String kind, Class<?> searchClass, ISearch search, Object extra, Supplier<Object> loader) {
+            if (searchClass == null || search == null || !cache.isEnabled())
+                    return loader.get();
+
+            boolean pending = cache.hasPendingWrites();
+            Set<Class<?>> types = null;
+            if (pending) {
+                    // the transaction has written some types: entries for them
+                    // don't show its writes, and its own rows are not committed
+                    types = getEntityTypes(searchClass, search);
+                    if (cache.isWrittenInTransaction(types))
+                            return loader.get();
+            }
+
+            Key key = new Key(kind, searchClass, SearchUtil.copy(search), extra);
+            Object stored = cache.get(key);
+            if (stored != null) {
+                    Object value = restore(searchClass, search, stored);
+                    if (value != null)
+                            return value;
+            }
+
+            long generation = cache.getGeneration();
+            Object value = loader.get();
+            if (value != null) {
+                    stored = toStored(searchClass, search, value);
+                    if (stored != null)
+                            cache.put(key, stored, pending ? types : getEntityTypes(searchClass, search), generation);
+            }
+            return value;
+    }
+
+    /**
+     * Return what to cache for a result, or <code>null</code> if it can't be
+     * cached because it holds entities other than results of the search class.
+     */
+    private Object toStored(Class<?> searchClass, ISearch search, Object value) {
+            if (value instanceof List) {
+                    return toStoredRows(searchClass, search, (List<?>) value);
+            } else if (value instanceof SearchResult) {
+                    SearchResult source = (SearchResult) value;
+                    Object rows = source.getResult() == null ? null : toStoredRows(searchClass, search, source.getResult());
+                    if (source.getResult() != null && rows == null)
+                            return null;
+                    return new StoredSearchResult(rows, source);
+            }
+            return value;
+    }
+
+    private Object toStoredRows(Class<?> searchClass, ISearch search, List<?> rows) {
+            boolean entities = false;
+            boolean others = false;
+            for (Object row : rows) {
+                    if (isEntity(row)) {
+                            entities = true;
+                    } else if (row != null && holdsEntity(row)) {
+                            return null;
+                    } else {
+                            others = true;
+                    }
+            }
+            if (!entities)
+                    return new ArrayList<Object>(rows);
+            if (others || (search.getFields() != null && !search.getFields().isEmpty()))
+                    return null;
+
+            List<Serializable> ids = new ArrayList<>(rows.size());
+            for (Object row : rows) {
+                    if (!searchClass.isAssignableFrom(metadataUtil.getUnproxiedClass(row.getClass())))
+                            return null;
+                    ids.add(metadataUtil.getId(row));
+            }
+            return new EntityIds(ids);
+    }
+
+    /**
+     * Return the result for a cache entry, or <code>null</code> if it has to be
+     * loaded again because some of its entities no longer exist.
+     */
+    private Object restore(Class<?> searchClass, ISearch search, Object stored) {
+            if (stored instanceof StoredSearchResult) {
+                    StoredSearchResult source = (StoredSearchResult) stored;
+                    List rows = null;
+                    if (source.rows != null) {
+                            rows = restoreRows(searchClass, search, source.rows);
+                            if (rows == null)
+                                    return null;
+                    }
+                    SearchResult result = new SearchResult();
+                    result.setResult(rows);
+                    result.setTotalCount(source.totalCount);
+                    result.setHasMore(source.hasMore);
+                    result.setContinuationToken(source.continuationToken);
+                    return result;
+            } else if (stored instanceof List || stored instanceof EntityIds) {
+                    return restoreRows(searchClass, search, stored);
+            }
+            return stored;
+    }
+
+    private List restoreRows(Class<?> searchClass, ISearch search, Object rows) {
+            if (!(rows instanceof EntityIds))
+                    return new ArrayList((List) rows);
+
+            List<Serializable> ids = ((EntityIds) rows).ids;
+            if (ids.isEmpty())
+                    return new ArrayList();
+            Search byIds = new Search(searchClass);
+            byIds.addFilterIn(metadataUtil.get(searchClass).getIdProperty(), new LinkedHashSet<>(ids));
+            if (search.getFetches() != null) {
+                    for (String fetch : search.getFetches()) {
+                            byIds.addFetch(fetch);
+                    }
+            }
+            Map<Serializable, Object> loaded = new HashMap<>();
+            for (Object entity : delegate.search(searchClass, byIds)) {
+                    loaded.put(metadataUtil.getId(entity), entity);
+            }
+
+            List result = new ArrayList(ids.size());
+            for (Serializable id : ids) {
+                    Object entity = loaded.get(id);
+                    if (entity == null)
+                            return null;
+                    result.add(entity);
+            }
+            return result;
+    }
+
+    private boolean isEntity(Object o) {
+            return o != null && metadataUtil.getUnproxiedClass(o.getClass()) != null;
+    }
+
+    /**
+     * Return true if a row of fields holds an entity.
+     */
+    private boolean holdsEntity(Object row) {
+            if (row instanceof Object[]) {
+                    for (Object o : (Object[]) row) {
+                            if (isEntity(o))
+                                    return true;
+                    }
+            } else if (row instanceof Map) {
+                    for (Object o : ((Map<?, ?>) row).values()) {
+                            if (isEntity(o))
+                                    return true;
+                    }
+            } else if (row instanceof List) {
+                    for (Object o : (List<?>) row) {
+                            if (isEntity(o))
+                                    return true;
+                    }
+            }
+            return false;
+    }
+
+    /**
+     * The ids of a list of entities of the search class, in order.
+     */
+    private static final class EntityIds {
+            final List<Serializable> ids;
+
+            EntityIds(List<Serializable> ids) {
+                    this.ids = ids;
+            }
+    }
+
+    private static final class StoredSearchResult {
+            final Object rows;
+            final int totalCount;
+            final boolean hasMore;
+            final String continuationToken;
+
+            StoredSearchResult(Object rows, SearchResult source) {
+                    this.rows = rows;
+                    this.totalCount = source.getTotalCount();
+                    this.hasMore = source.isHasMore();
+                    this.continuationToken = source.getContinuationToken();
+            }
+    }
+
+    /**
+     * Return the entity types read by the search: the search class and every
+     * entity type along the property paths it uses. Returns <code>null</code>
+     * if they cannot be determined.
+     */
+    protected Set<Class<?>> getEntityTypes(Class<?> searchClass, ISearch search) {
+            Set<Class<?>> types = new HashSet<>();
+            types.add(searchClass);
+            try {
+                    if (search.getFields() != null) {
+                            for (Field field : search.getFields()) {
+                                    if (field == null)
+                                            continue;
+                                    if (field.getOperator() == Field.OP_CUSTOM)
+                                            return null;
+                                    addPath(types, searchClass, field.getProperty());
+                            }
+                    }
+                    if (search.getSorts() != null) {
+                            for (Sort sort : search.getSorts()) {
+                                    if (sort == null)
+                                            continue;
+                                    if (sort.isCustomExpression())
+                                            return null;
+                                    addPath(types, searchClass, sort.getProperty());
+                            }
+                    }
+                    if (search.getFetches() != null) {
+                            for (String fetch : search.getFetches()) {
+                                    addPath(types, searchClass, fetch);
+                            }
+                    }
+                    if (search.getFilters() != null) {
+                            for (Filter filter : search.getFilters()) {
+                                    if (!addFilter(types, searchClass, filter))
+                                            return null;
+                            }
+                    }
+            } catch (IllegalArgumentException ex) {
+                    return null;
+            }
+            return types;
+    }
+
+    private boolean addFilter(Set<Class<?>> types, Class<?> rootClass, Filter filter) {
+            if (filter == null)
+                    return true;
+            if (filter.getOperator() == Filter.OP_CUSTOM)
+                    return false;
+
+            Object value = filter.getValue();
+            if (filter.isTakesListOfSubFilters()) {
+                    if (value instanceof List) {
+                            for (Object o : (List<?>) value) {
+                                    if (o instanceof Filter && !addFilter(types, rootClass, (Filter) o))
+                                            return false;
+                            }
+                    }
+                    return true;
+            } else if (filter.isTakesSingleSubFilter()) {
+                    if (!(value instanceof Filter))
+                            return true;
+                    if (filter.getOperator() == Filter.OP_NOT)
+                            return addFilter(types, rootClass, (Filter) value);
+
+                    // the sub filter of some, all and none applies to the
+                    // elements of the collection
+                    Metadata md = addPath(types, rootClass, filter.getProperty());
+                    if (md == null || !md.isEntity())
+                            return true;
+                    return addFilter(types, md.getJavaClass(), (Filter) value);
+            } else {
+                    addPath(types, rootClass, filter.getProperty());
+                    return true;
+            }
+    }
+
+    /**
+     * Add the entity types along the property path and return the metadata of
+     * the full path.
+     */
+    private Metadata addPath(Set<Class<?>> types, Class<?> rootClass, String path) {
+            if (path == null || "".equals(path))
+                    return null;
+            Metadata md = null;
+            int dot = -1;
+            do {
+                    dot = path.indexOf('.', dot + 1);
+                    md = metadataUtil.get(rootClass, dot == -1 ? path : path.substring(0, dot));
+                    if (md.isEntity()) {
+                            types.add(md.getJavaClass());
+                    }
+            } while (dot != -1);
+            return md;
+    }
+
+    private static final class Key {
+            final String kind;
+            final Class<?> searchClass;
+            final ISearch search;
+            final Object extra;
+            final int hash;
+
+            Key(String kind, Class<?> searchClass, ISearch search, Object extra) {
+                    this.kind = kind;
+                    this.searchClass = searchClass;
+                    this.search = search;
+                    this.extra = extra;
+                    int h = kind.hashCode();
+                    h = h * 31 + searchClass.hashCode();
+                    h = h * 31 + search.hashCode();
+                    h = h * 31 + (extra == null ? 0 : extra.hashCode());
+                    this.hash = h;
+            }
+
+            @Override
+            public int hashCode() {
+                    return hash;
+            }
+
+            @Override
+            public boolean equals(Object obj) {
+                    if (this == obj)
+                            return true;
+                    if (!(obj instanceof Key))
+                            return false;
+                    Key k = (Key) obj;
+                    return kind.equals(k.kind) && searchClass.equals(k.searchClass) && search.equals(k.search)
+                                    && (extra == null ? k.extra == null : extra.equals(k.extra));
+            }
+    }
+}
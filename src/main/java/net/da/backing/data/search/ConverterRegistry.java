@@ -0,0 +1,298 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.da.backing.data.search;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>
+ * The converters used by {@link InternalUtil#convertIfNeeded(Object, Class)}
+ * to convert search values to the type of the property they are compared to.
+ * The converter for each pair of source and target type is worked out the
+ * first time it is needed and then cached, so converting many values of the
+ * same type costs one lookup and a direct call per value.
+ *
+ * <p>
+ * Built in are conversions between number types, to <code>String</code>,
+ * from the name of a class to <code>Class</code>, and from strings to
+ * numbers, enums, <code>UUID</code> and the <code>java.time</code> types that
+ * have a <code>parse(CharSequence)</code> method. Applications may register
+ * their own converters, which take precedence over the built in ones. A
+ * converter registered for a source type is also used for its subtypes.
+ * Converters should be registered at startup, before searches are run.
+ */
+public final class ConverterRegistry {
+
+    private static final ValueConverter IDENTITY = value -> value;
+
+    // converters registered by the application, by target type and then source type
+    private static final ConcurrentMap<Class<?>, Map<Class<?>, ValueConverter>> registered = new ConcurrentHashMap<>();
+
+    // resolved converters, by target type and then source type
+    private static final ConcurrentMap<Class<?>, ConcurrentMap<Class<?>, ValueConverter>> resolved = new ConcurrentHashMap<>();
+
+    private ConverterRegistry() {
+    }
+
+    /**
+     * Register a converter from values of <code>sourceType</code> (or a
+     * subtype) to <code>targetType</code>, replacing any registered before.
+     *
+     * @param sourceType
+     * @param targetType
+     * @param converter
+     */
+    public static void register(Class<?> sourceType, Class<?> targetType, ValueConverter converter) {
+            if (sourceType == null || targetType == null || converter == null)
+                    throw new IllegalArgumentException("A converter requires a source type, a target type and a converter.");
+            registered.computeIfAbsent(box(targetType), t -> new ConcurrentHashMap<>()).put(sourceType, converter);
+            resolved.clear();
+    }
+
+    /**
+     * Remove the converter registered from <code>sourceType</code> to
+     * <code>targetType</code>, if any.
+     *
+     * @param sourceType
+     * @param targetType
+     */
+    public static void unregister(Class<?> sourceType, Class<?> targetType) {
+            Map<Class<?>, ValueConverter> bySource = registered.get(box(targetType));
+            if (bySource != null && bySource.remove(sourceType) != null) {
+                    resolved.clear();
+            }
+    }
+
+    /**
+     * Return the converter for values of exactly <code>sourceType</code> to
+     * <code>targetType</code>. If no conversion is possible, the converter
+     * returned throws a <code>ClassCastException</code>.
+     *
+     * @param sourceType
+     * @param targetType
+     * @return
+     */
+    public static ValueConverter get(Class<?> sourceType, Class<?> targetType) {
+            ConcurrentMap<Class<?>, ValueConverter> bySource = resolved.get(targetType);
+            if (bySource == null) {
+                    bySource = resolved.computeIfAbsent(targetType, t -> new ConcurrentHashMap<>());
+            }
+            ValueConverter converter = bySource.get(sourceType);
+            if (converter == null) {
+                    converter = resolve(sourceType, box(targetType));
+                    bySource.putIfAbsent(sourceType, converter);
+            }
+            return converter;
+    }
+
+    private static ValueConverter resolve(Class<?> source, Class<?> target) {
+            if (target.isAssignableFrom(source))
+                    return IDENTITY;
+
+            ValueConverter converter = findRegistered(source, target);
+            if (converter != null)
+                    return converter;
+
+            if (String.class.equals(target)) {
+                    return Object::toString;
+            } else if (Number.class.isAssignableFrom(target)) {
+                    if (Number.class.isAssignableFrom(source)) {
+                            converter = numberConverter(target);
+                    } else if (String.class.equals(source)) {
+                            converter = numberParser(target);
+                    }
+            } else if (Class.class.equals(target)) {
+                    return value -> {
+                            try {
+                                    return Class.forName(value.toString());
+                            } catch (ClassNotFoundException e) {
+                                    throw new ClassCastException("Unable to convert value " + value.toString() + " to type Class");
+                            }
+                    };
+            } else if (String.class.equals(source)) {
+                    if (target.isEnum()) {
+                            converter = enumParser(target);
+                    } else if (UUID.class.equals(target)) {
+                            converter = value -> {
+                                    try {
+                                            return UUID.fromString((String) value);
+                                    } catch (IllegalArgumentException e) {
+                                            throw cannotConvert(value, target);
+                                    }
+                            };
+                    } else if (target.getName().startsWith("java.time.")) {
+                            converter = timeParser(target);
+                    }
+            }
+
+            if (converter == null) {
+                    return value -> {
+                            throw cannotConvert(value, target);
+                    };
+            }
+            return converter;
+    }
+
+    /**
+     * Find a converter registered for the source type or the nearest of its
+     * superclasses and interfaces.
+     */
+    private static ValueConverter findRegistered(Class<?> source, Class<?> target) {
+            Map<Class<?>, ValueConverter> bySource = registered.get(target);
+            if (bySource == null || bySource.isEmpty())
+                    return null;
+
+            List<Class<?>> types = new ArrayList<>();
+            types.add(source);
+            for (int i = 0; i < types.size(); i++) {
+                    Class<?> type = types.get(i);
+                    ValueConverter converter = bySource.get(type);
+                    if (converter != null)
+                            return converter;
+                    if (type.getSuperclass() != null)
+                            types.add(type.getSuperclass());
+                    for (Class<?> iface : type.getInterfaces()) {
+                            types.add(iface);
+                    }
+            }
+            return null;
+    }
+
+    private static ValueConverter numberConverter(Class<?> target) {
+            if (Double.class.equals(target)) {
+                    return value -> ((Number) value).doubleValue();
+            } else if (Float.class.equals(target)) {
+                    return value -> ((Number) value).floatValue();
+            } else if (Long.class.equals(target)) {
+                    return value -> ((Number) value).longValue();
+            } else if (Integer.class.equals(target)) {
+                    return value -> ((Number) value).intValue();
+            } else if (Short.class.equals(target)) {
+                    return value -> ((Number) value).shortValue();
+            }
+
+            // other number types are built from the string form of the value
+            MethodHandle constructor;
+            try {
+                    constructor = MethodHandles.publicLookup().unreflectConstructor(target.getConstructor(String.class))
+                                    .asType(MethodType.methodType(Object.class, String.class));
+            } catch (NoSuchMethodException | IllegalAccessException | SecurityException e) {
+                    return null;
+            }
+            return value -> {
+                    try {
+                            return (Object) constructor.invokeExact(value.toString());
+                    } catch (Throwable e) {
+                            throw cannotConvert(value, target);
+                    }
+            };
+    }
+
+    private static ValueConverter numberParser(Class<?> target) {
+            ValueConverter parser;
+            if (Double.class.equals(target)) {
+                    parser = value -> Double.parseDouble((String) value);
+            } else if (Float.class.equals(target)) {
+                    parser = value -> Float.parseFloat((String) value);
+            } else if (Long.class.equals(target)) {
+                    parser = value -> Long.parseLong((String) value);
+            } else if (Integer.class.equals(target)) {
+                    parser = value -> Integer.parseInt((String) value);
+            } else if (Short.class.equals(target)) {
+                    parser = value -> Short.parseShort((String) value);
+            } else if (Byte.class.equals(target)) {
+                    parser = value -> Byte.parseByte((String) value);
+            } else {
+                    return null;
+            }
+            return value -> {
+                    try {
+                            return parser.convert(value);
+                    } catch (NumberFormatException e) {
+                            throw cannotConvert(value, target);
+                    }
+            };
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static ValueConverter enumParser(Class<?> target) {
+            Class<? extends Enum> enumType = (Class<? extends Enum>) target;
+            return value -> {
+                    try {
+                            return Enum.valueOf(enumType, (String) value);
+                    } catch (IllegalArgumentException e) {
+                            throw cannotConvert(value, target);
+                    }
+            };
+    }
+
+    private static ValueConverter timeParser(Class<?> target) {
+            MethodHandle parse;
+            try {
+                    Method method = target.getMethod("parse", CharSequence.class);
+                    if (!Modifier.isStatic(method.getModifiers()) || !target.equals(method.getReturnType()))
+                            return null;
+                    parse = MethodHandles.publicLookup().unreflect(method)
+                                    .asType(MethodType.methodType(Object.class, CharSequence.class));
+            } catch (NoSuchMethodException | IllegalAccessException | SecurityException e) {
+                    return null;
+            }
+            return value -> {
+                    try {
+                            return (Object) parse.invokeExact((CharSequence) value);
+                    } catch (Throwable e) {
+                            throw cannotConvert(value, target);
+                    }
+            };
+    }
+
+    private static ClassCastException cannotConvert(Object value, Class<?> target) {
+            return new ClassCastException("Unable to convert value of type " + value.getClass().getName() + " to type "
+                            + target.getName());
+    }
+
+    private static Class<?> box(Class<?> type) {
+            if (!type.isPrimitive()) {
+                    return type;
+            } else if (boolean.class.equals(type)) {
+                    return Boolean.class;
+            } else if (char.class.equals(type)) {
+                    return Character.class;
+            } else if (byte.class.equals(type)) {
+                    return Byte.class;
+            } else if (short.class.equals(type)) {
+                    return Short.class;
+            } else if (int.class.equals(type)) {
+                    return Integer.class;
+            } else if (long.class.equals(type)) {
+                    return Long.class;
+            } else if (float.class.equals(type)) {
+                    return Float.class;
+            } else if (double.class.equals(type)) {
+                    return Double.class;
+            } else {
+                    return type;
+            }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.da.backing.data.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A compiled query-by-example for one class at one position in the object
+ * graph. The plan holds the properties of the class that take part in the
+ * example, each with its full property path, with collections and excluded
+ * properties already removed. Turning an example into filters is then a
+ * single pass over the properties that reads each value and adds a filter.
+ *
+ * <p>
+ * The plans for nested entities and embeddables are compiled the first time
+ * an example has a value for them, since an entity may refer to its own type.
+ * Plans may be shared between threads.
+ *
+ * @see BaseSearchProcessor#getFilterFromExample(Object, ExampleOptions)
+ */
+final class ExamplePlan {
+
+    private final Metadata metadata;
+    private final Set<String> excludeProps;
+    // the path of the id if examples are matched by id when they have one
+    private final String idPath;
+    private final Step[] steps;
+
+    /**
+     * @param metadata
+     * @param prefix
+     *            the path of the class in the example followed by a dot, or ""
+     *            for the root
+     * @param excludeProps
+     *            the full paths of the properties to leave out
+     */
+    ExamplePlan(Metadata metadata, String prefix, Set<String> excludeProps) {
+            this.metadata = metadata;
+            this.excludeProps = excludeProps;
+            this.idPath = metadata.isEntity() && !metadata.getIdType().isEmbeddable() ? prefix + "id" : null;
+
+            List<Step> list = new ArrayList<>();
+            for (String property : metadata.getProperties()) {
+                    String path = prefix + property;
+                    if (excludeProps.contains(path))
+                            continue;
+                    Metadata pMetadata = metadata.getPropertyType(property);
+                    if (pMetadata.isCollection())
+                            continue; // ignore collections
+                    list.add(new Step(property, path, pMetadata));
+            }
+            this.steps = list.toArray(new Step[list.size()]);
+    }
+
+    void addFilters(Object example, ExampleOptions options, List<Filter> filters) {
+            if (idPath != null) {
+                    Object id = metadata.getIdValue(example);
+                    if (id != null) {
+                            filters.add(Filter.equal(idPath, id));
+                            return;
+                    }
+            }
+
+            boolean like = options.getLikeMode() != ExampleOptions.EXACT || options.isIgnoreCase();
+            for (Step step : steps) {
+                    Object value = metadata.getPropertyValue(example, step.property);
+                    if (value == null) {
+                            if (!options.isExcludeNulls()) {
+                                    filters.add(Filter.isNull(step.path));
+                            }
+                    } else if (options.isExcludeZeros() && value instanceof Number && ((Number) value).longValue() == 0) {
+                            // ignore zeros
+                    } else if (step.nested) {
+                            step.nestedPlan(excludeProps).addFilters(value, options, filters);
+                    } else if (step.string && like) {
+                            String val = value.toString();
+                            switch (options.getLikeMode()) {
+                            case ExampleOptions.START:
+                                    val = val + "%";
+                                    break;
+                            case ExampleOptions.END:
+                                    val = "%" + val;
+                                    break;
+                            case ExampleOptions.ANYWHERE:
+                                    val = "%" + val + "%";
+                                    break;
+                            }
+                            filters.add(new Filter(step.path, val, options.isIgnoreCase() ? Filter.OP_ILIKE : Filter.OP_LIKE));
+                    } else {
+                            filters.add(Filter.equal(step.path, value));
+                    }
+            }
+    }
+
+    private static final class Step {
+            final String property;
+            final String path;
+            final Metadata metadata;
+            final boolean nested;
+            final boolean string;
+            private volatile ExamplePlan nestedPlan;
+
+            Step(String property, String path, Metadata metadata) {
+                    this.property = property;
+                    this.path = path;
+                    this.metadata = metadata;
+                    this.nested = metadata.isEntity() || metadata.isEmbeddable();
+                    this.string = !nested && metadata.isString();
+            }
+
+            ExamplePlan nestedPlan(Set<String> excludeProps) {
+                    ExamplePlan plan = nestedPlan;
+                    if (plan == null) {
+                            // compiling twice in a race is harmless
+                            plan = new ExamplePlan(metadata, path + ".", excludeProps);
+                            nestedPlan = plan;
+                    }
+                    return plan;
+            }
+    }
+}
@@ -31,6 +31,30 @@ public interface IMutableSearch extends ISearch {
 
 	public IMutableSearch setPage(int page);
 
+	/**
+	 * The default implementation only accepts <code>false</code>, for
+	 * implementations that predate keyset paging.
+	 * 
+	 * @throws UnsupportedOperationException if keyset paging is turned on
+	 */
+	public default IMutableSearch setKeysetPaging(boolean keysetPaging) {
+		if (keysetPaging)
+			throw new UnsupportedOperationException(getClass().getName() + " does not support keyset paging.");
+		return this;
+	}
+
+	/**
+	 * The default implementation only accepts <code>null</code> or an empty
+	 * list, for implementations that predate keyset paging.
+	 * 
+	 * @throws UnsupportedOperationException if keyset values are given
+	 */
+	public default IMutableSearch setKeysetValues(List<Object> keysetValues) {
+		if (keysetValues != null && !keysetValues.isEmpty())
+			throw new UnsupportedOperationException(getClass().getName() + " does not support keyset paging.");
+		return this;
+	}
+
 	public IMutableSearch setSearchClass(Class<?> searchClass);
 
 	public IMutableSearch setFilters(List<Filter> filters);
@@ -46,4 +70,16 @@ public interface IMutableSearch extends ISearch {
 	public IMutableSearch setFetches(List<String> fetches);
 
 	public IMutableSearch setResultMode(int resultMode);
+
+	/**
+	 * The default implementation only accepts <code>COUNT_AUTO</code>, for
+	 * implementations that predate count modes.
+	 * 
+	 * @throws UnsupportedOperationException for any other count mode
+	 */
+	public default IMutableSearch setCountMode(int countMode) {
+		if (countMode != COUNT_AUTO)
+			throw new UnsupportedOperationException(getClass().getName() + " does not support count modes.");
+		return this;
+	}
 }
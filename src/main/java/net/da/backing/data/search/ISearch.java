@@ -161,6 +161,50 @@ public interface ISearch {
      */
     public static final int RESULT_SINGLE = 4;
 
+    /**
+     * Value for count mode. <code>COUNT_AUTO</code> uses the count mode
+     * configured on the search processor, which is <code>COUNT_QUERY</code>
+     * unless changed.
+     * 
+     * @see #getCountMode()
+     */
+    public static final int COUNT_AUTO = 0;
+
+    /**
+     * Value for count mode. <code>COUNT_QUERY</code> runs a separate row count
+     * query to find the total number of results in <code>searchAndCount()</code>.
+     * 
+     * @see #getCountMode()
+     */
+    public static final int COUNT_QUERY = 1;
+
+    /**
+     * Value for count mode. <code>COUNT_WINDOW</code> adds a windowed
+     * <code>count(*) over()</code> column to the page query so that the results
+     * and the total are fetched in a single round-trip in
+     * <code>searchAndCount()</code>.
+     * 
+     * <p>
+     * The window function must be registered with Hibernate (see
+     * {@link net.da.backing.data.search.hibernate.WindowCountFunctionContributor}).
+     * When it is not, or when the search is distinct, uses column operators or
+     * keyset paging, the row count query is used instead.
+     * 
+     * @see #getCountMode()
+     */
+    public static final int COUNT_WINDOW = 2;
+
+    /**
+     * Value for count mode. <code>COUNT_HAS_MORE</code> does not count the
+     * results at all. Instead <code>searchAndCount()</code> fetches one row
+     * more than <code>maxResults</code>, drops it and reports whether there is
+     * a next page with {@link SearchResult#isHasMore()}. The total count of
+     * the result is left at -1. This is all an infinite scroll needs.
+     * 
+     * @see #getCountMode()
+     */
+    public static final int COUNT_HAS_MORE = 3;
+
     /**
      * Zero based index of first result record to return.
      * 
@@ -199,6 +243,48 @@ public interface ISearch {
      */
     public int getPage();
 
+    /**
+     * <p>
+     * If <code>true</code>, the search uses keyset (seek) paging instead of
+     * <code>firstResult</code>/<code>page</code> offsets. Results are ordered
+     * by the sorts of the search followed by the entity id as a tie breaker,
+     * and the next page is requested by passing the sort key values of the
+     * last row seen in <code>keysetValues</code>. With large tables this is
+     * much cheaper than an offset because rows before the page are never
+     * read.
+     * 
+     * <p>
+     * <code>firstResult</code> and <code>page</code> are ignored in this mode.
+     * Sort properties must not be null for any row, and custom expression
+     * sorts are not supported.
+     * 
+     * <p>
+     * The default implementation returns <code>false</code>, so
+     * implementations that predate keyset paging keep working unchanged.
+     * 
+     * @return 
+     * @see #getKeysetValues()
+     */
+    public default boolean isKeysetPaging() {
+        return false;
+    }
+
+    /**
+     * The sort key values of the last row of the previous page when using
+     * keyset paging: one value for each sort, in order, followed by the id.
+     * <code>null</code> or empty for the first page. Usually these are not set
+     * directly, but decoded from the continuation token of a
+     * {@link SearchResult}. The default implementation returns
+     * <code>null</code>.
+     * 
+     * @return 
+     * @see #isKeysetPaging()
+     * @see SearchUtil#decodeKeysetToken(String)
+     */
+    public default List<Object> getKeysetValues() {
+        return null;
+    }
+
     public Class<?> getSearchClass();
 
     public List<Filter> getFilters();
@@ -229,4 +315,21 @@ public interface ISearch {
      */
     public int getResultMode();
 
+    /**
+     * Count mode tells <code>searchAndCount()</code> how to find the total
+     * number of results. Options include <code>COUNT_AUTO</code>,
+     * <code>COUNT_QUERY</code>, <code>COUNT_WINDOW</code> and
+     * <code>COUNT_HAS_MORE</code>. The default implementation returns
+     * <code>COUNT_AUTO</code>.
+     * 
+     * @return 
+     * @see #COUNT_AUTO
+     * @see #COUNT_QUERY
+     * @see #COUNT_WINDOW
+     * @see #COUNT_HAS_MORE
+     */
+    public default int getCountMode() {
+        return COUNT_AUTO;
+    }
+
 }
@@ -14,7 +14,6 @@
  */
 package net.da.backing.data.search;
 
-import java.lang.reflect.InvocationTargetException;
 import java.util.Collection;
 
 /**
@@ -32,6 +31,8 @@ public class InternalUtil {
      * 
      * <p>
      * If the value is already of the correct type, it is simply returned.
+     * Otherwise the converter from {@link ConverterRegistry} for the type of
+     * the value and the given type is used.
      * 
      * @param value
      * @param type
@@ -40,91 +41,36 @@ public class InternalUtil {
      *             if the value cannot be converted to the given type.
      */
     public static Object convertIfNeeded(Object value, Class<?> type) throws ClassCastException {
-
-            // Since we're returning an object, we will never be able to return a primitive value.
-            // We will return the boxed type instead.
-            if (type.isPrimitive()) {
-                    if (boolean.class.equals(type)) {
-                            type = Boolean.class;
-                    } else if (char.class.equals(type)) {
-                            type = Character.class;
-                    } else if (byte.class.equals(type)) {
-                            type = Byte.class;
-                    } else if (short.class.equals(type)) {
-                            type = Short.class;
-                    } else if (int.class.equals(type)) {
-                            type = Integer.class;
-                    } else if (long.class.equals(type)) {
-                            type = Long.class;
-                    } else if (float.class.equals(type)) {
-                            type = Float.class;
-                    } else if (double.class.equals(type)) {
-                            type = Double.class;
-                    }
-            }
-
             if (value == null)
                     return null;
             if (type.isInstance(value))
                     return value;
+            return ConverterRegistry.get(value.getClass(), type).convert(value);
+    }
 
-
-
-            if (String.class.equals(type)) {
-                    return value.toString();
-            } else if (Number.class.isAssignableFrom(type)) {
-                    // the desired type is a number
-                    if (value instanceof Number) {
-                            // the value is also a number of some kind. do a conversion
-                            // to the correct number type.
-                            Number num = (Number) value;
-
-                            if (type.equals(Double.class)) {
-                                    return num.doubleValue();
-                            } else if (type.equals(Float.class)) {
-                                    return num.floatValue();
-                            } else if (type.equals(Long.class)) {
-                                    return num.longValue();
-                            } else if (type.equals(Integer.class)) {
-                                    return num.intValue();
-                            } else if (type.equals(Short.class)) {
-                                    return num.shortValue();
-                            } else {
-                                try {
-                                        return type.getConstructor(String.class).newInstance(value.toString());
-                                } catch (IllegalArgumentException | SecurityException | InstantiationException | IllegalAccessException | InvocationTargetException | NoSuchMethodException e) {
-                                }
-                            }
-                    } else if (value instanceof String) {
-                            //the value is a String. attempt to parse the string
-                            try {
-                                    if (type.equals(Double.class)) {
-                                            return Double.parseDouble((String) value);
-                                    } else if (type.equals(Float.class)) {
-                                            return Float.parseFloat((String) value);
-                                    } else if (type.equals(Long.class)) {
-                                            return Long.parseLong((String) value);
-                                    } else if (type.equals(Integer.class)) {
-                                            return Integer.parseInt((String) value);
-                                    } else if (type.equals(Short.class)) {
-                                            return Short.parseShort((String) value);
-                                    } else if (type.equals(Byte.class)) {
-                                            return Byte.parseByte((String) value);
-                                    }
-                            } catch (NumberFormatException ex) {
-                                    //fall through to the error thrown below
-                            }
-                    }
-            } else if (Class.class.equals(type)) {
-                    try {
-                            return Class.forName(value.toString());
-                    } catch (ClassNotFoundException e) {
-                            throw new ClassCastException("Unable to convert value " + value.toString() + " to type Class");
+    /**
+     * Convert each element of the array in place with
+     * <code>convertIfNeeded()</code>, looking up the converter only when the
+     * class of the element changes.
+     * 
+     * @param values
+     * @param type
+     * @throws ClassCastException
+     *             if a value cannot be converted to the given type.
+     */
+    public static void convertEachIfNeeded(Object[] values, Class<?> type) throws ClassCastException {
+            Class<?> lastClass = null;
+            ValueConverter converter = null;
+            for (int i = 0; i < values.length; i++) {
+                    Object value = values[i];
+                    if (value == null)
+                            continue;
+                    if (value.getClass() != lastClass) {
+                            lastClass = value.getClass();
+                            converter = ConverterRegistry.get(lastClass, type);
                     }
+                    values[i] = converter.convert(value);
             }
-
-            throw new ClassCastException("Unable to convert value of type " + value.getClass().getName() + " to type "
-                            + type.getName());
     }
 
     public static String paramDisplayString(Object val) {
@@ -0,0 +1,273 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.da.backing.data.search;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compiled query for one search "shape". A plan holds the final query
+ * language string generated by {@link BaseSearchProcessor} and a list of
+ * parameter slots. Each slot remembers which filter of the search a parameter
+ * value came from and how that value was converted, so the parameter list for
+ * any other search with the same shape can be filled by reading values
+ * straight out of its filters without generating the query again.
+ *
+ * <p>
+ * Plans are immutable and may be shared between threads.
+ *
+ * @see QueryPlanCache
+ */
+public final class QueryPlan {
+
+    private final String ql;
+    private final Slot[] slots;
+
+    QueryPlan(String ql, Slot[] slots) {
+            this.ql = ql;
+            this.slots = slots;
+    }
+
+    /**
+     * The generated query language string. May be <code>null</code> for a
+     * row count plan of a search that uses column operators.
+     *
+     * @return
+     */
+    public String getQL() {
+            return ql;
+    }
+
+    /**
+     * The number of named parameters in the query.
+     *
+     * @return
+     */
+    public int getParamCount() {
+            return slots.length;
+    }
+
+    /**
+     * Fill paramList with the values for this plan taken from the given
+     * filter nodes. <code>nodes</code> must be the pre-order enumeration of
+     * the filters of a search with the same shape as the one this plan was
+     * compiled from.
+     *
+     * @param nodes
+     * @param paramList
+     */
+    void bind(Filter[] nodes, List<Object> paramList) {
+            // the elements of an IN list are bound by consecutive slots, so only
+            // unpack each list once. Slots past the end of a list are padding and
+            // repeat its last element.
+            Filter listFilter = null;
+            Object[] list = null;
+
+            for (Slot slot : slots) {
+                    Filter filter = nodes[slot.node];
+                    if (slot.kind == Slot.ELEMENT) {
+                            if (filter != listFilter) {
+                                    listFilter = filter;
+                                    list = toArray(filter.getValue());
+                            }
+                            paramList.add(InternalUtil.convertIfNeeded(list[Math.min(slot.element, list.length - 1)], slot.type));
+                    } else {
+                            paramList.add(slot.valueFrom(filter));
+                    }
+            }
+    }
+
+    private static Object[] toArray(Object value) {
+            if (value instanceof Object[]) {
+                    return (Object[]) value;
+            } else {
+                    return ((Collection<?>) value).toArray();
+            }
+    }
+
+    /**
+     * Where a single parameter value comes from.
+     */
+    static final class Slot {
+            /** the value of the filter, converted to <code>type</code> */
+            static final int VALUE = 0;
+            /** an element of the value of the filter, converted to <code>type</code> */
+            static final int ELEMENT = 1;
+            /** a value of a custom filter, not converted */
+            static final int CUSTOM = 2;
+
+            final int node;
+            final int kind;
+            final Class<?> type;
+            final boolean asString;
+            final int index;
+            final int element;
+
+            Slot(int node, int kind, Class<?> type, boolean asString, int index, int element) {
+                    this.node = node;
+                    this.kind = kind;
+                    this.type = type;
+                    this.asString = asString;
+                    this.index = index;
+                    this.element = element;
+            }
+
+            Object valueFrom(Filter filter) {
+                    Object value;
+                    switch (kind) {
+                    case ELEMENT:
+                            Object list = filter.getValue();
+                            int size = list instanceof Object[] ? ((Object[]) list).length : ((Collection<?>) list).size();
+                            value = InternalUtil.convertIfNeeded(elementAt(list, Math.min(element, size - 1)), type);
+                            break;
+                    case CUSTOM:
+                            List<?> values = filter.getValuesAsList();
+                            if (values == null) {
+                                    values = Collections.singletonList(null);
+                            }
+                            value = values.get(index);
+                            if (element != -1) {
+                                    value = elementAt(value, element);
+                            }
+                            break;
+                    default:
+                            value = type == null ? filter.getValue() : InternalUtil.convertIfNeeded(filter.getValue(), type);
+                            break;
+                    }
+                    if (asString && value != null) {
+                            return value.toString();
+                    }
+                    return value;
+            }
+
+            private static Object elementAt(Object value, int element) {
+                    if (value instanceof List) {
+                            return ((List<?>) value).get(element);
+                    } else if (value instanceof Object[]) {
+                            return ((Object[]) value)[element];
+                    } else {
+                            Iterator<?> itr = ((Collection<?>) value).iterator();
+                            for (int i = 0; i < element; i++) {
+                                    itr.next();
+                            }
+                            return itr.next();
+                    }
+            }
+    }
+
+    /**
+     * Records parameter slots while <code>BaseSearchProcessor</code> generates
+     * the query for a search. The processor declares the source of the next
+     * parameter(s) before calling <code>param()</code>; each parameter added is
+     * then recorded against that source. If a parameter is added that cannot
+     * be traced back to a filter, the builder is invalidated and no plan will
+     * be cached for the search.
+     */
+    static final class Builder {
+            private final Filter[] nodes;
+            private final Map<Filter, Integer> index = new IdentityHashMap<>();
+            private final List<Slot> slots = new ArrayList<>();
+            private boolean valid = true;
+
+            private int node = -1;
+            private int kind;
+            private Class<?> type;
+            private boolean asString;
+            private int customIndex;
+
+            Builder(Filter[] nodes) {
+                    this.nodes = nodes;
+                    for (int i = 0; i < nodes.length; i++) {
+                            if (index.put(nodes[i], i) != null) {
+                                    // the same filter instance is used twice in the tree; we
+                                    // could not tell the two uses apart when binding.
+                                    valid = false;
+                            }
+                    }
+            }
+
+            void valueSource(Filter filter, Class<?> type, boolean elements, boolean asString) {
+                    source(filter, elements ? Slot.ELEMENT : Slot.VALUE, type, asString, 0);
+            }
+
+            void customSource(Filter filter, int valueIndex) {
+                    source(filter, Slot.CUSTOM, null, false, valueIndex);
+            }
+
+            /**
+             * Select which value of the current custom filter the next parameter
+             * comes from.
+             */
+            void customValue(int valueIndex) {
+                    this.customIndex = valueIndex;
+            }
+
+            void clearSource() {
+                    node = -1;
+            }
+
+            private void source(Filter filter, int kind, Class<?> type, boolean asString, int customIndex) {
+                    Integer i = index.get(filter);
+                    this.node = i == null ? -1 : i;
+                    this.kind = kind;
+                    this.type = type;
+                    this.asString = asString;
+                    this.customIndex = customIndex;
+            }
+
+            /**
+             * Record that a parameter has been added. <code>element</code> is the
+             * position of the parameter within an expanded collection value or -1
+             * if the value was added as a whole.
+             *
+             * @param element
+             */
+            void param(int element) {
+                    if (node == -1 || (kind == Slot.VALUE && element != -1)
+                                    || (kind == Slot.ELEMENT && element == -1)) {
+                            valid = false;
+                            return;
+                    }
+                    slots.add(new Slot(node, kind, type, asString, customIndex, kind == Slot.ELEMENT || kind == Slot.CUSTOM ? element : -1));
+            }
+
+            /**
+             * Record that a value was written into the query string instead of
+             * being added as a parameter. This is only repeatable if the value is
+             * part of the shape, i.e. it was the original value of the filter.
+             *
+             * @param value
+             */
+            void literal(Object value) {
+                    if (node == -1 || (kind == Slot.VALUE && nodes[node].getValue() != value)) {
+                            valid = false;
+                    }
+            }
+
+            void invalidate() {
+                    valid = false;
+            }
+
+            QueryPlan build(String ql, int paramCount) {
+                    if (!valid || slots.size() != paramCount)
+                            return null;
+                    return new QueryPlan(ql, slots.toArray(new Slot[slots.size()]));
+            }
+    }
+}
@@ -0,0 +1,301 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.da.backing.data.search;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * <p>
+ * A bounded, concurrent cache of {@link QueryPlan}s used by
+ * {@link BaseSearchProcessor}. Plans are keyed by the structural shape of a
+ * search: the search class, the filter tree (operators and properties, the
+ * number of parameters generated for each IN list and any <code>Class</code> values, which
+ * are written into the query literally), sorts, fields, fetches, distinct and
+ * disjunction. The filter values themselves are not part of the key, so every
+ * search of the same shape shares one plan.
+ *
+ * <p>
+ * Because the query string of a shape is generated exactly once, alias
+ * numbering and parameter names are identical for every execution of that
+ * shape, which also lets the query plan cache of the JPA provider hit.
+ *
+ * <p>
+ * When the cache is full, a portion of the entries is evicted to make room.
+ * Setting the maximum size to 0 disables caching.
+ */
+public class QueryPlanCache {
+
+    /**
+     * The default maximum number of plans held by a cache.
+     */
+    public static final int DEFAULT_MAX_SIZE = 1000;
+
+    private final ConcurrentMap<String, QueryPlan> plans = new ConcurrentHashMap<>();
+
+    private volatile int maxSize = DEFAULT_MAX_SIZE;
+
+    // maps the number of values in an IN list to the number of parameters the
+    // processor generates for it, so lists padded to the same size share a plan
+    private volatile IntUnaryOperator inListSize = IntUnaryOperator.identity();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public int getMaxSize() {
+            return maxSize;
+    }
+
+    /**
+     * The maximum number of plans to hold. Set to 0 to disable the cache.
+     *
+     * @param maxSize
+     */
+    public void setMaxSize(int maxSize) {
+            if (maxSize < 0)
+                    throw new IllegalArgumentException("The maximum size of a query plan cache cannot be negative.");
+            this.maxSize = maxSize;
+            if (maxSize == 0) {
+                    clear();
+            }
+    }
+
+    public boolean isEnabled() {
+            return maxSize > 0;
+    }
+
+    public int size() {
+            return plans.size();
+    }
+
+    public long getHitCount() {
+            return hits.get();
+    }
+
+    public long getMissCount() {
+            return misses.get();
+    }
+
+    public long getEvictionCount() {
+            return evictions.get();
+    }
+
+    /**
+     * Remove all plans from the cache. This must be called whenever something
+     * changes that affects query generation, for example the root alias.
+     */
+    public void clear() {
+            plans.clear();
+    }
+
+    void setInListSize(IntUnaryOperator inListSize) {
+            this.inListSize = inListSize;
+            clear();
+    }
+
+    QueryPlan get(Shape shape) {
+            QueryPlan plan = plans.get(shape.key);
+            if (plan == null) {
+                    misses.incrementAndGet();
+            } else {
+                    hits.incrementAndGet();
+            }
+            return plan;
+    }
+
+    void put(Shape shape, QueryPlan plan) {
+            int max = maxSize;
+            if (max <= 0)
+                    return;
+            if (plans.size() >= max) {
+                    // Drop about a tenth of the entries. Search shapes in an
+                    // application are few, so reaching this point at all means the
+                    // cache is undersized or shapes are being generated dynamically.
+                    int toEvict = Math.max(1, max / 10);
+                    Iterator<String> itr = plans.keySet().iterator();
+                    while (toEvict > 0 && itr.hasNext()) {
+                            itr.next();
+                            itr.remove();
+                            evictions.incrementAndGet();
+                            toEvict--;
+                    }
+            }
+            plans.put(shape.key, plan);
+    }
+
+    /**
+     * Compute the shape of the search for the given kind of query. Returns
+     * <code>null</code> if the cache is disabled.
+     *
+     * @param kind
+     *            distinguishes the different queries generated for a search,
+     *            for example the result query and the row count query.
+     * @param entityClass
+     * @param search
+     * @return
+     */
+    Shape shapeOf(String kind, Class<?> entityClass, ISearch search) {
+            if (!isEnabled())
+                    return null;
+
+            StringBuilder sb = new StringBuilder(128);
+            List<Filter> nodes = new ArrayList<>();
+
+            sb.append(kind).append('|').append(entityClass.getName());
+            sb.append(search.isDistinct() ? "|D" : "|d");
+            sb.append(search.isDisjunction() ? "|J" : "|j");
+
+            sb.append("|f");
+            if (search.getFields() == null) {
+                    sb.append('~');
+            } else {
+                    for (Field field : search.getFields()) {
+                            if (field == null) {
+                                    sb.append('~');
+                            } else {
+                                    sb.append(field.getOperator());
+                                    appendString(sb, field.getProperty());
+                            }
+                    }
+            }
+
+            sb.append("|x");
+            if (search.getFetches() == null) {
+                    sb.append('~');
+            } else {
+                    for (String fetch : search.getFetches()) {
+                            appendString(sb, fetch);
+                    }
+            }
+
+            sb.append("|s");
+            if (search.getSorts() == null) {
+                    sb.append('~');
+            } else {
+                    for (Sort sort : search.getSorts()) {
+                            if (sort == null) {
+                                    sb.append('~');
+                            } else {
+                                    sb.append(sort.isCustomExpression() ? 'C' : 'P');
+                                    sb.append(sort.isDesc() ? 'D' : 'A');
+                                    sb.append(sort.isIgnoreCase() ? 'I' : 'S');
+                                    appendString(sb, sort.getProperty());
+                            }
+                    }
+            }
+
+            sb.append("|w");
+            if (search.getFilters() == null) {
+                    sb.append('~');
+            } else {
+                    IntUnaryOperator inListSize = this.inListSize;
+                    for (Filter filter : search.getFilters()) {
+                            appendFilter(sb, filter, nodes, inListSize);
+                    }
+            }
+
+            return new Shape(sb.toString(), nodes.toArray(new Filter[nodes.size()]));
+    }
+
+    private static void appendFilter(StringBuilder sb, Filter filter, List<Filter> nodes, IntUnaryOperator inListSize) {
+            if (filter == null) {
+                    sb.append('~');
+                    return;
+            }
+            nodes.add(filter);
+
+            sb.append('(').append(filter.getOperator());
+            appendString(sb, filter.getProperty());
+
+            Object value = filter.getValue();
+            if (filter.isTakesListOfSubFilters() && value instanceof List) {
+                    for (Object o : (List<?>) value) {
+                            if (o == null || o instanceof Filter) {
+                                    appendFilter(sb, (Filter) o, nodes, inListSize);
+                            } else {
+                                    sb.append('!');
+                            }
+                    }
+            } else if (filter.isTakesSingleSubFilter() && value instanceof Filter) {
+                    appendFilter(sb, (Filter) value, nodes, inListSize);
+            } else if (filter.getOperator() == Filter.OP_CUSTOM) {
+                    List<?> values = filter.getValuesAsList();
+                    if (values == null) {
+                            sb.append('n');
+                    } else {
+                            sb.append('[');
+                            for (Object o : values) {
+                                    appendValue(sb, o);
+                            }
+                            sb.append(']');
+                    }
+            } else if (filter.isTakesListOfValues() && value instanceof Collection) {
+                    sb.append('#').append(inListSize.applyAsInt(((Collection<?>) value).size()));
+            } else if (filter.isTakesListOfValues() && value instanceof Object[]) {
+                    sb.append('#').append(inListSize.applyAsInt(((Object[]) value).length));
+            } else {
+                    appendValue(sb, value);
+            }
+            sb.append(')');
+    }
+
+    private static void appendValue(StringBuilder sb, Object value) {
+            if (value == null) {
+                    sb.append('n');
+            } else if (value instanceof Class) {
+                    // class values are written into the query string
+                    sb.append('C');
+                    appendString(sb, ((Class<?>) value).getName());
+            } else if (value instanceof Collection) {
+                    sb.append('#').append(((Collection<?>) value).size());
+            } else if (value instanceof Object[]) {
+                    sb.append('#').append(((Object[]) value).length);
+            } else {
+                    sb.append('v');
+            }
+    }
+
+    /**
+     * Strings are prefixed with their length so that no combination of
+     * property names or custom expressions can collide with another shape.
+     */
+    private static void appendString(StringBuilder sb, String s) {
+            if (s == null) {
+                    sb.append('-');
+            } else {
+                    sb.append(s.length()).append(':').append(s);
+            }
+    }
+
+    /**
+     * The structural key of a search along with its filters enumerated in
+     * pre-order. The filter enumeration is what parameter slots refer to.
+     */
+    static final class Shape {
+            final String key;
+            final Filter[] nodes;
+
+            Shape(String key, Filter[] nodes) {
+                    this.key = key;
+                    this.nodes = nodes;
+            }
+    }
+}
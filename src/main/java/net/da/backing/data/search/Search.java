@@ -35,6 +35,10 @@ public class Search implements IMutableSearch, Serializable {
 
     protected int page = -1;        // -1 stands for unspecified
 
+    protected boolean keysetPaging;
+
+    protected List<Object> keysetValues;
+
     protected Class<?> searchClass;
 
     protected List<Filter> filters = new ArrayList<>();
@@ -51,6 +55,8 @@ public class Search implements IMutableSearch, Serializable {
 
     protected int resultMode = RESULT_AUTO;
 
+    protected int countMode = COUNT_AUTO;
+
     public Search() {
 
     }
@@ -630,6 +636,19 @@ public class Search implements IMutableSearch, Serializable {
             return this;
     }
 
+    @Override
+    public int getCountMode() {
+            return countMode;
+    }
+
+    @Override
+    public Search setCountMode(int countMode) {
+            if (countMode < 0 || countMode > 3)
+                    throw new IllegalArgumentException("Count Mode ( " + countMode + " ) is not a valid option.");
+            this.countMode = countMode;
+            return this;
+    }
+
     // Fetches
     public Search addFetch(String property) {
             SearchUtil.addFetch(this, property);
@@ -687,6 +706,41 @@ public class Search implements IMutableSearch, Serializable {
             return this;
     }
 
+    @Override
+    public boolean isKeysetPaging() {
+            return keysetPaging;
+    }
+
+    @Override
+    public Search setKeysetPaging(boolean keysetPaging) {
+            this.keysetPaging = keysetPaging;
+            return this;
+    }
+
+    @Override
+    public List<Object> getKeysetValues() {
+            return keysetValues;
+    }
+
+    @Override
+    public Search setKeysetValues(List<Object> keysetValues) {
+            this.keysetValues = keysetValues;
+            return this;
+    }
+
+    /**
+     * Turn on keyset paging and continue after the row identified by the
+     * given continuation token (from {@link SearchResult#getContinuationToken()}
+     * ). A <code>null</code> token requests the first page.
+     * 
+     * @param token
+     * @return 
+     */
+    public Search setKeysetToken(String token) {
+            SearchUtil.setKeysetToken(this, token);
+            return this;
+    }
+
     public void clearPaging() {
             SearchUtil.clearPaging(this);
     }
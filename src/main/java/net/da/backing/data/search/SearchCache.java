@@ -0,0 +1,329 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.da.backing.data.search;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * <p>
+ * A bounded, concurrent cache of search results used by
+ * {@link CachingSearchFacade}. Each entry remembers the entity types it was
+ * read from: the search class and every entity type joined by the search.
+ * Writing an entity of one of those types (or a sub- or superclass) through a
+ * DAO that has this cache set invalidates the entry.
+ *
+ * <p>
+ * Within a Spring managed transaction, invalidation is deferred until the
+ * transaction completes, because until then other transactions still read
+ * the rows as they were. The transaction that wrote a type neither reads nor
+ * stores entries for it, so its uncommitted rows are never shared.
+ *
+ * <p>
+ * Entries also expire after the time to live, which bounds staleness from
+ * writes that do not go through the DAOs (bulk updates, other applications).
+ *
+ * <p>
+ * When the cache is full, expired entries are removed first and then a
+ * portion of the remaining entries. Setting the maximum size to 0 disables
+ * caching.
+ */
+public class SearchCache {
+
+    /**
+     * The default maximum number of entries held by a cache.
+     */
+    public static final int DEFAULT_MAX_SIZE = 1000;
+
+    /**
+     * The default time to live of an entry in milliseconds.
+     */
+    public static final long DEFAULT_TIME_TO_LIVE = 60000;
+
+    private final ConcurrentMap<Object, Entry> entries = new ConcurrentHashMap<>();
+
+    private volatile int maxSize = DEFAULT_MAX_SIZE;
+
+    private volatile long timeToLiveNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_TIME_TO_LIVE);
+
+    // incremented by every invalidation so that results loaded while a write
+    // happened are not stored
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public int getMaxSize() {
+            return maxSize;
+    }
+
+    /**
+     * The maximum number of entries to hold. Set to 0 to disable the cache.
+     *
+     * @param maxSize
+     */
+    public void setMaxSize(int maxSize) {
+            if (maxSize < 0)
+                    throw new IllegalArgumentException("The maximum size of a search cache cannot be negative.");
+            this.maxSize = maxSize;
+            if (maxSize == 0) {
+                    clear();
+            }
+    }
+
+    /**
+     * The time in milliseconds after which an entry expires.
+     *
+     * @return
+     */
+    public long getTimeToLive() {
+            return TimeUnit.NANOSECONDS.toMillis(timeToLiveNanos);
+    }
+
+    public void setTimeToLive(long timeToLive) {
+            if (timeToLive <= 0)
+                    throw new IllegalArgumentException("The time to live of a search cache must be positive.");
+            this.timeToLiveNanos = TimeUnit.MILLISECONDS.toNanos(timeToLive);
+    }
+
+    public boolean isEnabled() {
+            return maxSize > 0;
+    }
+
+    public int size() {
+            return entries.size();
+    }
+
+    public long getHitCount() {
+            return hits.get();
+    }
+
+    public long getMissCount() {
+            return misses.get();
+    }
+
+    /**
+     * The number of entries removed because they expired or to make room.
+     *
+     * @return
+     */
+    public long getEvictionCount() {
+            return evictions.get();
+    }
+
+    /**
+     * The number of entries removed because an entity type they were read
+     * from was written.
+     *
+     * @return
+     */
+    public long getInvalidationCount() {
+            return invalidations.get();
+    }
+
+    /**
+     * Remove all entries from the cache.
+     */
+    public void clear() {
+            generation.incrementAndGet();
+            entries.clear();
+    }
+
+    /**
+     * Remove all entries that were read from the given entity type, a subclass
+     * or a superclass of it, as well as all entries whose entity types are not
+     * known. If transaction synchronization is active, this happens when the
+     * current transaction completes.
+     *
+     * @param type
+     */
+    public void invalidate(Class<?> type) {
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                    PendingWrites pending = (PendingWrites) TransactionSynchronizationManager.getResource(this);
+                    if (pending == null) {
+                            pending = new PendingWrites();
+                            TransactionSynchronizationManager.bindResource(this, pending);
+                            TransactionSynchronizationManager.registerSynchronization(pending);
+                    }
+                    if (type != null)
+                            pending.types.add(type);
+                    return;
+            }
+            invalidateNow(type);
+    }
+
+    private void invalidateNow(Class<?> type) {
+            generation.incrementAndGet();
+            if (type == null)
+                    return;
+            for (Iterator<Entry> itr = entries.values().iterator(); itr.hasNext();) {
+                    if (itr.next().isReadFrom(type)) {
+                            itr.remove();
+                            invalidations.incrementAndGet();
+                    }
+            }
+    }
+
+    long getGeneration() {
+            return generation.get();
+    }
+
+    /**
+     * Return true if the current transaction has written entity types whose
+     * invalidation is still pending.
+     */
+    boolean hasPendingWrites() {
+            return TransactionSynchronizationManager.getResource(this) != null;
+    }
+
+    /**
+     * Return true if the current transaction has written any of the given
+     * entity types, or any type at all if <code>types</code> is
+     * <code>null</code>. Entries for such types must be neither read nor
+     * stored by the transaction: they do not show its own writes, and it
+     * would share rows that are not committed.
+     */
+    boolean isWrittenInTransaction(Set<Class<?>> types) {
+            PendingWrites pending = (PendingWrites) TransactionSynchronizationManager.getResource(this);
+            if (pending == null)
+                    return false;
+            if (types == null)
+                    return true;
+            for (Class<?> written : pending.types) {
+                    for (Class<?> type : types) {
+                            if (type.isAssignableFrom(written) || written.isAssignableFrom(type))
+                                    return true;
+                    }
+            }
+            return false;
+    }
+
+    Object get(Object key) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.expires - System.nanoTime() < 0) {
+                    if (entries.remove(key, entry)) {
+                            evictions.incrementAndGet();
+                    }
+                    entry = null;
+            }
+            if (entry == null) {
+                    misses.incrementAndGet();
+                    return null;
+            }
+            hits.incrementAndGet();
+            return entry.value;
+    }
+
+    /**
+     * Store a result, unless the cache was invalidated since
+     * <code>generation</code> was read, i.e. while the result was loaded.
+     * <code>types</code> of <code>null</code> means the entity types read are
+     * not known, so any write invalidates the entry.
+     */
+    void put(Object key, Object value, Set<Class<?>> types, long generation) {
+            int max = maxSize;
+            if (max <= 0)
+                    return;
+            if (entries.size() >= max) {
+                    makeRoom(max);
+            }
+            Entry entry = new Entry(value, types, System.nanoTime() + timeToLiveNanos);
+            entries.put(key, entry);
+            if (this.generation.get() != generation) {
+                    // a write happened while loading, the result may be stale
+                    entries.remove(key, entry);
+            }
+    }
+
+    private void makeRoom(int max) {
+            long now = System.nanoTime();
+            for (Iterator<Entry> itr = entries.values().iterator(); itr.hasNext();) {
+                    if (itr.next().expires - now < 0) {
+                            itr.remove();
+                            evictions.incrementAndGet();
+                    }
+            }
+            if (entries.size() >= max) {
+                    int toEvict = Math.max(1, max / 10);
+                    Iterator<Map.Entry<Object, Entry>> itr = entries.entrySet().iterator();
+                    while (toEvict > 0 && itr.hasNext()) {
+                            itr.next();
+                            itr.remove();
+                            evictions.incrementAndGet();
+                            toEvict--;
+                    }
+            }
+    }
+
+    /**
+     * The entity types written by a transaction, invalidated once it
+     * completes, whether it commits or rolls back.
+     */
+    private final class PendingWrites implements TransactionSynchronization {
+            final Set<Class<?>> types = new HashSet<>();
+
+            @Override
+            public void suspend() {
+                    TransactionSynchronizationManager.unbindResource(SearchCache.this);
+            }
+
+            @Override
+            public void resume() {
+                    TransactionSynchronizationManager.bindResource(SearchCache.this, this);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(SearchCache.this);
+                    // bump the generation even if nothing was written by type
+                    generation.incrementAndGet();
+                    for (Class<?> type : types) {
+                            invalidateNow(type);
+                    }
+            }
+    }
+
+    private static final class Entry {
+            final Object value;
+            final Class<?>[] types;
+            final long expires;
+
+            Entry(Object value, Set<Class<?>> types, long expires) {
+                    this.value = value;
+                    this.types = types == null ? null : types.toArray(new Class<?>[types.size()]);
+                    this.expires = expires;
+            }
+
+            boolean isReadFrom(Class<?> written) {
+                    if (types == null)
+                            return true;
+                    for (Class<?> type : types) {
+                            if (type.isAssignableFrom(written) || written.isAssignableFrom(type))
+                                    return true;
+                    }
+                    return false;
+            }
+    }
+}
@@ -15,6 +15,7 @@
 package net.da.backing.data.search;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * SearchFacade provides a clean interface to the Search APIs.
@@ -47,6 +48,29 @@ public interface SearchFacade {
     @SuppressWarnings("unchecked")
     public List search(Class<?> searchClass, ISearch search);
 
+    /**
+     * Search for objects based on the search parameters in the specified
+     * <code>ISearch</code> object and return them as a stream that reads the
+     * results as they are consumed, so that large results can be processed in
+     * constant memory. The stream should be closed when done.
+     * 
+     * @param search
+     * @return 
+     * @see ISearch
+     */
+    public Stream searchStream(ISearch search);
+
+    /**
+     * Same as <code>searchStream(ISearch)</code>, but uses the specified
+     * searchClass, ignoring the searchClass specified on the search itself.
+     * 
+     * @param searchClass
+     * @param search
+     * @return 
+     * @see ISearch
+     */
+    public Stream searchStream(Class<?> searchClass, ISearch search);
+
     /**
      * Returns the total number of results that would be returned using the
      * given <code>ISearch</code> if there were no paging or maxResult limits.
@@ -70,10 +94,59 @@ public interface SearchFacade {
      */
     public int count(Class<?> searchClass, ISearch search);
 
+    /**
+     * Returns the total number of results that would be returned using the
+     * given <code>ISearch</code> if there were no paging or maxResult limits,
+     * but no more than <code>cap</code>. Counting stops once the cap is
+     * reached, e.g. to show "1000+". A cap of 0 or less means no cap.
+     * 
+     * @param search
+     * @param cap
+     * @return 
+     * @see ISearch
+     */
+    public int count(ISearch search, int cap);
+
+    /**
+     * Same as <code>count(ISearch, int)</code> except that it uses the
+     * specified searchClass, ignoring the searchClass specified on the search
+     * itself.
+     * 
+     * @param searchClass
+     * @param search
+     * @param cap
+     * @return 
+     * @see ISearch
+     */
+    public int count(Class<?> searchClass, ISearch search, int cap);
+
+    /**
+     * Returns true if the given <code>ISearch</code> has any results. Only the
+     * first match is looked for.
+     * 
+     * @param search
+     * @return 
+     * @see ISearch
+     */
+    public boolean exists(ISearch search);
+
+    /**
+     * Same as <code>exists(ISearch)</code> except that it uses the specified
+     * searchClass, ignoring the searchClass specified on the search itself.
+     * 
+     * @param searchClass
+     * @param search
+     * @return 
+     * @see ISearch
+     */
+    public boolean exists(Class<?> searchClass, ISearch search);
+
     /**
      * Returns a <code>SearchResult</code> object that includes the list of
      * results like <code>search()</code> and the total length like
-     * <code>searchLength</code>.
+     * <code>searchLength</code>. If the count mode of the search is
+     * <code>ISearch.COUNT_HAS_MORE</code>, no count is run and only
+     * <code>SearchResult.isHasMore()</code> tells whether there is a next page.
      * 
      * @param search
      * @return 
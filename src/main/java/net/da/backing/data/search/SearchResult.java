@@ -31,6 +31,8 @@ public class SearchResult<T> implements Serializable {
 
     protected List<T> result;
     protected int totalCount = -1;
+    protected String continuationToken;
+    protected boolean hasMore;
 
     /**
      * The results of the search.
@@ -69,4 +71,47 @@ public class SearchResult<T> implements Serializable {
     public void setTotalCount(int totalCount) {
         this.totalCount = totalCount;
     }
+
+    /**
+     * When the search uses keyset paging, an opaque token that identifies the
+     * last row of this page. Pass it to the next search with
+     * <code>Search.setKeysetToken()</code> to fetch the following page.
+     * <code>null</code> if there are no more results or the search does not
+     * use keyset paging.
+     * 
+     * @return 
+     */
+    public String getContinuationToken() {
+        return continuationToken;
+    }
+
+    /**
+     * When the search uses keyset paging, an opaque token that identifies the
+     * last row of this page.
+     * 
+     * @param continuationToken
+     */
+    public void setContinuationToken(String continuationToken) {
+        this.continuationToken = continuationToken;
+    }
+
+    /**
+     * Whether there are more results after this page. With the count mode
+     * <code>ISearch.COUNT_HAS_MORE</code> this is the only indication of
+     * further results, as the total count is not computed.
+     * 
+     * @return 
+     */
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    /**
+     * Whether there are more results after this page.
+     * 
+     * @param hasMore
+     */
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
 }
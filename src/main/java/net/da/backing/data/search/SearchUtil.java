@@ -14,17 +14,35 @@
  */
 package net.da.backing.data.search;
 
+import static net.da.backing.data.search.ISearch.COUNT_AUTO;
 import static net.da.backing.data.search.ISearch.RESULT_ARRAY;
 import static net.da.backing.data.search.ISearch.RESULT_AUTO;
 import static net.da.backing.data.search.ISearch.RESULT_LIST;
 import static net.da.backing.data.search.ISearch.RESULT_MAP;
 import static net.da.backing.data.search.ISearch.RESULT_SINGLE;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.Collection;
+import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
+import java.util.UUID;
 
 /**
  * Utilities for working with searches {@link ISearch}, {@link IMutableSearch}.
@@ -605,6 +623,7 @@ public class SearchUtil {
             clearPaging(search);
             clearFetches(search);
             search.setResultMode(RESULT_AUTO);
+            search.setCountMode(COUNT_AUTO);
             search.setDisjunction(false);
     }
 
@@ -627,6 +646,8 @@ public class SearchUtil {
             search.setFirstResult(-1);
             search.setPage(-1);
             search.setMaxResults(-1);
+            search.setKeysetPaging(false);
+            search.setKeysetValues(null);
     }
 
     public static void clearSorts(IMutableSearch search) {
@@ -913,14 +934,228 @@ public class SearchUtil {
      * <li>Otherwise, just use 0.
      * </ul>
      * 
+     * With keyset paging there is no offset, so the result is always 0.
+     * 
      * @param search
      * @return 
      */
     public static int calcFirstResult(ISearch search) {
+            if (search.isKeysetPaging())
+                    return 0;
             return (search.getFirstResult() > 0) ? search.getFirstResult() : (search.getPage() > 0 && search
                             .getMaxResults() > 0) ? search.getPage() * search.getMaxResults() : 0;
     }
 
+    /**
+     * Turn on keyset paging for the search and continue after the row
+     * identified by the given continuation token. A <code>null</code> token
+     * requests the first page.
+     * 
+     * @param search
+     * @param token
+     */
+    public static void setKeysetToken(IMutableSearch search, String token) {
+            search.setKeysetPaging(true);
+            search.setKeysetValues(token == null ? null : decodeKeysetToken(token));
+    }
+
+    /**
+     * Encode the sort key values of a row as an opaque, URL safe continuation
+     * token for keyset paging. Supported values are <code>null</code>, strings,
+     * characters, booleans, numbers (primitive wrappers, BigDecimal and
+     * BigInteger), dates, <code>java.time</code> dates and times, UUIDs and
+     * enums.
+     * 
+     * @param values
+     * @return 
+     * @throws IllegalArgumentException
+     *             if a value is of an unsupported type.
+     */
+    public static String encodeKeysetToken(List<?> values) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                    out.writeByte(KEYSET_TOKEN_VERSION);
+                    out.writeShort(values.size());
+                    for (Object value : values) {
+                            writeKeysetValue(out, value);
+                    }
+            } catch (IOException ex) {
+                    // not possible when writing to memory
+                    throw new IllegalStateException(ex);
+            }
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+    }
+
+    /**
+     * Decode a continuation token created by
+     * {@link #encodeKeysetToken(List)}.
+     * 
+     * @param token
+     * @return 
+     * @throws IllegalArgumentException
+     *             if the token is not valid.
+     */
+    public static List<Object> decodeKeysetToken(String token) {
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(token)))) {
+                    if (in.readByte() != KEYSET_TOKEN_VERSION)
+                            throw new IOException("Unknown token version");
+                    int size = in.readShort();
+                    List<Object> values = new ArrayList<>(size);
+                    for (int i = 0; i < size; i++) {
+                            values.add(readKeysetValue(in));
+                    }
+                    if (in.read() != -1)
+                            throw new IOException("Unexpected data at the end of the token");
+                    return values;
+            } catch (IOException | RuntimeException ex) {
+                    // anything from a bad base64 string to an unknown enum constant
+                    throw new IllegalArgumentException("Invalid keyset token: " + token, ex);
+            }
+    }
+
+    private static final byte KEYSET_TOKEN_VERSION = 1;
+
+    private static void writeKeysetValue(DataOutputStream out, Object value) throws IOException {
+            if (value == null) {
+                    out.writeByte('N');
+            } else if (value instanceof String) {
+                    out.writeByte('S');
+                    out.writeUTF((String) value);
+            } else if (value instanceof Long) {
+                    out.writeByte('J');
+                    out.writeLong((Long) value);
+            } else if (value instanceof Integer) {
+                    out.writeByte('I');
+                    out.writeInt((Integer) value);
+            } else if (value instanceof Short) {
+                    out.writeByte('H');
+                    out.writeShort((Short) value);
+            } else if (value instanceof Byte) {
+                    out.writeByte('B');
+                    out.writeByte((Byte) value);
+            } else if (value instanceof Double) {
+                    out.writeByte('D');
+                    out.writeDouble((Double) value);
+            } else if (value instanceof Float) {
+                    out.writeByte('F');
+                    out.writeFloat((Float) value);
+            } else if (value instanceof Boolean) {
+                    out.writeByte('Z');
+                    out.writeBoolean((Boolean) value);
+            } else if (value instanceof Character) {
+                    out.writeByte('C');
+                    out.writeChar((Character) value);
+            } else if (value instanceof BigDecimal) {
+                    out.writeByte('M');
+                    out.writeUTF(value.toString());
+            } else if (value instanceof BigInteger) {
+                    out.writeByte('G');
+                    out.writeUTF(value.toString());
+            } else if (value instanceof Timestamp) {
+                    out.writeByte('P');
+                    out.writeLong(((Timestamp) value).getTime());
+                    out.writeInt(((Timestamp) value).getNanos());
+            } else if (value instanceof Date) {
+                    out.writeByte('T');
+                    out.writeLong(((Date) value).getTime());
+            } else if (value instanceof UUID) {
+                    out.writeByte('U');
+                    out.writeLong(((UUID) value).getMostSignificantBits());
+                    out.writeLong(((UUID) value).getLeastSignificantBits());
+            } else if (value instanceof Enum) {
+                    out.writeByte('E');
+                    out.writeUTF(((Enum<?>) value).getDeclaringClass().getName());
+                    out.writeUTF(((Enum<?>) value).name());
+            } else if (value instanceof LocalDate) {
+                    out.writeByte('a');
+                    out.writeUTF(value.toString());
+            } else if (value instanceof LocalDateTime) {
+                    out.writeByte('b');
+                    out.writeUTF(value.toString());
+            } else if (value instanceof LocalTime) {
+                    out.writeByte('c');
+                    out.writeUTF(value.toString());
+            } else if (value instanceof Instant) {
+                    out.writeByte('d');
+                    out.writeUTF(value.toString());
+            } else if (value instanceof OffsetDateTime) {
+                    out.writeByte('e');
+                    out.writeUTF(value.toString());
+            } else if (value instanceof ZonedDateTime) {
+                    out.writeByte('f');
+                    out.writeUTF(value.toString());
+            } else {
+                    throw new IllegalArgumentException("A value of type " + value.getClass().getName()
+                                    + " cannot be used in a keyset token.");
+            }
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static Object readKeysetValue(DataInputStream in) throws IOException {
+            int type = in.readByte();
+            switch (type) {
+            case 'N':
+                    return null;
+            case 'S':
+                    return in.readUTF();
+            case 'J':
+                    return in.readLong();
+            case 'I':
+                    return in.readInt();
+            case 'H':
+                    return in.readShort();
+            case 'B':
+                    return in.readByte();
+            case 'D':
+                    return in.readDouble();
+            case 'F':
+                    return in.readFloat();
+            case 'Z':
+                    return in.readBoolean();
+            case 'C':
+                    return in.readChar();
+            case 'M':
+                    return new BigDecimal(in.readUTF());
+            case 'G':
+                    return new BigInteger(in.readUTF());
+            case 'P':
+                    Timestamp timestamp = new Timestamp(in.readLong());
+                    timestamp.setNanos(in.readInt());
+                    return timestamp;
+            case 'T':
+                    return new Date(in.readLong());
+            case 'U':
+                    return new UUID(in.readLong(), in.readLong());
+            case 'E':
+                    String className = in.readUTF();
+                    String name = in.readUTF();
+                    Class<?> klass;
+                    try {
+                            // don't initialize anything the token names that isn't an enum
+                            klass = Class.forName(className, false, SearchUtil.class.getClassLoader());
+                    } catch (ClassNotFoundException ex) {
+                            throw new IOException("Unknown enum type " + className, ex);
+                    }
+                    if (!klass.isEnum())
+                            throw new IOException(className + " is not an enum");
+                    return Enum.valueOf((Class<Enum>) klass, name);
+            case 'a':
+                    return LocalDate.parse(in.readUTF());
+            case 'b':
+                    return LocalDateTime.parse(in.readUTF());
+            case 'c':
+                    return LocalTime.parse(in.readUTF());
+            case 'd':
+                    return Instant.parse(in.readUTF());
+            case 'e':
+                    return OffsetDateTime.parse(in.readUTF());
+            case 'f':
+                    return ZonedDateTime.parse(in.readUTF());
+            default:
+                    throw new IOException("Unknown value type " + type);
+            }
+    }
+
     /**
      * Copy the contents of the source search object to the destination search
      * object, overriding any contents previously found in the destination. All
@@ -936,9 +1171,12 @@ public class SearchUtil {
             destination.setDistinct(source.isDistinct());
             destination.setDisjunction(source.isDisjunction());
             destination.setResultMode(source.getResultMode());
+            destination.setCountMode(source.getCountMode());
             destination.setFirstResult(source.getFirstResult());
             destination.setPage(source.getPage());
             destination.setMaxResults(source.getMaxResults());
+            destination.setKeysetPaging(source.isKeysetPaging());
+            destination.setKeysetValues(source.getKeysetValues());
             destination.setFetches(source.getFetches());
             destination.setFields(source.getFields());
             destination.setFilters(source.getFilters());
@@ -990,6 +1228,10 @@ public class SearchUtil {
             sorts.addAll(source.getSorts());
             destination.setSorts(sorts);
 
+            if (source.getKeysetValues() != null) {
+                    destination.setKeysetValues(new ArrayList<>(source.getKeysetValues()));
+            }
+
             return destination;
     }
 
@@ -1023,8 +1265,12 @@ public class SearchUtil {
                             s.getSearchClass()))
                     return false;
             if (search.isDisjunction() != s.isDisjunction() || search.getResultMode() != s.getResultMode()
+                            || search.getCountMode() != s.getCountMode()
                             || search.getFirstResult() != s.getFirstResult() || search.getPage() != s.getPage()
-                            || search.getMaxResults() != s.getMaxResults())
+                            || search.getMaxResults() != s.getMaxResults() || search.isKeysetPaging() != s.isKeysetPaging())
+                    return false;
+
+            if (search.getKeysetValues() == null ? s.getKeysetValues() != null : !search.getKeysetValues().equals(s.getKeysetValues()))
                     return false;
 
             if (search.getFetches() == null ? s.getFetches() != null : !search.getFetches().equals(s.getFetches()))
@@ -1053,9 +1299,12 @@ public class SearchUtil {
             hash = hash * 31 + (search.getSorts() == null ? 0 : search.getSorts().hashCode());
             hash = hash * 31 + (search.isDisjunction() ? 1 : 0);
             hash = hash * 31 + (new Integer(search.getResultMode()).hashCode());
+            hash = hash * 31 + search.getCountMode();
             hash = hash * 31 + (new Integer(search.getFirstResult()).hashCode());
             hash = hash * 31 + (new Integer(search.getPage()).hashCode());
             hash = hash * 31 + (new Integer(search.getMaxResults()).hashCode());
+            hash = hash * 31 + (search.isKeysetPaging() ? 1 : 0);
+            hash = hash * 31 + (search.getKeysetValues() == null ? 0 : search.getKeysetValues().hashCode());
 
             return hash;
     }
@@ -1073,6 +1322,9 @@ public class SearchUtil {
             sb.append(")[first: ").append(search.getFirstResult());
             sb.append(", page: ").append(search.getPage());
             sb.append(", max: ").append(search.getMaxResults());
+            if (search.isKeysetPaging()) {
+                    sb.append(", keyset: ").append(search.getKeysetValues());
+            }
             sb.append("] {\n resultMode: ");
 
             switch (search.getResultMode()) {
@@ -1095,6 +1347,23 @@ public class SearchUtil {
                     sb.append("**INVALID RESULT MODE: (" + search.getResultMode() + ")**");
                     break;
             }
+            if (search.getCountMode() != COUNT_AUTO) {
+                    sb.append(",\n countMode: ");
+                    switch (search.getCountMode()) {
+                    case ISearch.COUNT_QUERY:
+                            sb.append("QUERY");
+                            break;
+                    case ISearch.COUNT_WINDOW:
+                            sb.append("WINDOW");
+                            break;
+                    case ISearch.COUNT_HAS_MORE:
+                            sb.append("HAS_MORE");
+                            break;
+                    default:
+                            sb.append("**INVALID COUNT MODE: (" + search.getCountMode() + ")**");
+                            break;
+                    }
+            }
 
             sb.append(",\n disjunction: ").append(search.isDisjunction());
             sb.append(",\n fields: { ");
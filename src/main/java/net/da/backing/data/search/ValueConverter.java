@@ -0,0 +1,32 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.da.backing.data.search;
+
+/**
+ * Converts a non-null search value to the type expected by a property.
+ * Converters are registered with {@link ConverterRegistry} for a source and
+ * target type.
+ */
+@FunctionalInterface
+public interface ValueConverter {
+
+    /**
+     * @param value
+     *            never <code>null</code>
+     * @return
+     * @throws ClassCastException
+     *             if the value cannot be converted
+     */
+    public Object convert(Object value) throws ClassCastException;
+}
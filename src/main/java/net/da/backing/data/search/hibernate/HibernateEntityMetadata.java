@@ -35,11 +35,19 @@ public class HibernateEntityMetadata implements Metadata {
     private final SessionFactory sessionFactory;
     private final ClassMetadata metadata;
     private final Class<?> collectionType;
+    private final Metadata idType;
+    private final String[] properties;
 
     public HibernateEntityMetadata(SessionFactory sessionFactory, ClassMetadata classMetadata, Class<?> collectionType) {
         this.sessionFactory = sessionFactory;
         this.metadata = classMetadata;
         this.collectionType = collectionType;
+        this.idType = new HibernateNonEntityMetadata(sessionFactory, metadata.getIdentifierType(), null);
+
+        String[] pn = metadata.getPropertyNames();
+        this.properties = new String[pn.length + 1];
+        this.properties[0] = metadata.getIdentifierPropertyName();
+        System.arraycopy(pn, 0, this.properties, 1, pn.length);
     }
 
     @Override
@@ -54,7 +62,7 @@ public class HibernateEntityMetadata implements Metadata {
 
     @Override
     public Metadata getIdType() {
-        return new HibernateNonEntityMetadata(sessionFactory, metadata.getIdentifierType(), null);
+        return idType;
     }
 
     @Override
@@ -69,13 +77,7 @@ public class HibernateEntityMetadata implements Metadata {
 
     @Override
     public String[] getProperties() {
-        String[] pn = metadata.getPropertyNames();
-        String[] result = new String[pn.length + 1];
-        result[0] = metadata.getIdentifierPropertyName();
-        for (int i = 0; i < pn.length; i++) {
-                result[i+1] = pn[i];
-        }
-        return result;
+        return properties.clone();
     }
 
     @Override
@@ -15,13 +15,35 @@
 package net.da.backing.data.search.hibernate;
 
 import java.io.Serializable;
-import java.util.HashMap;
-import java.util.Map;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.persistence.EntityListeners;
+import javax.persistence.PostRemove;
+import javax.persistence.PreRemove;
+import javax.persistence.metamodel.EntityType;
 
 import org.hibernate.HibernateException;
+import org.hibernate.MappingException;
 import org.hibernate.SessionFactory;
+import org.hibernate.cfg.beanvalidation.BeanValidationEventListener;
+import org.hibernate.classic.Lifecycle;
+import org.hibernate.engine.spi.CascadeStyle;
+import org.hibernate.engine.spi.CascadeStyles;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.internal.PostDeleteEventListenerStandardImpl;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
 import org.hibernate.metadata.ClassMetadata;
+import org.hibernate.persister.collection.CollectionPersister;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.persister.entity.EntityPersister;
 import org.hibernate.proxy.HibernateProxyHelper;
+import org.hibernate.type.CollectionType;
+import org.hibernate.type.Type;
 
 import net.da.backing.data.search.Metadata;
 import net.da.backing.data.search.MetadataUtil;
@@ -33,27 +55,79 @@ import net.da.backing.data.search.MetadataUtil;
  * This should be accessed using
  * {@link HibernateMetadataUtil#getInstanceForSessionFactory(SessionFactory)}.
  * 
+ * <p>
+ * Hibernate mappings do not change after the SessionFactory is built, so the
+ * metadata of each entity, each resolved property path and each unproxied
+ * class lookup is computed once and then shared by all threads. The
+ * <code>Metadata</code> instances returned are immutable.
+ * 
  * @author dwolverton
  */
 public class HibernateMetadataUtil implements MetadataUtil {
 
-    private static final Map<SessionFactory, HibernateMetadataUtil> map = new HashMap<SessionFactory, HibernateMetadataUtil>();
+    private static final ConcurrentMap<SessionFactory, HibernateMetadataUtil> map = new ConcurrentHashMap<SessionFactory, HibernateMetadataUtil>();
 
     public static HibernateMetadataUtil getInstanceForSessionFactory(SessionFactory sessionFactory) {
         HibernateMetadataUtil instance = map.get(sessionFactory);
         if (instance == null) {
-            instance = new HibernateMetadataUtil();
-            instance.sessionFactory = sessionFactory;
-            map.put(sessionFactory, instance);
+            instance = map.computeIfAbsent(sessionFactory, sf -> {
+                HibernateMetadataUtil mdu = new HibernateMetadataUtil();
+                mdu.sessionFactory = sf;
+                return mdu;
+            });
         }
         return instance;
     }
 
     private SessionFactory sessionFactory;
 
+    private final AtomicBoolean warmedUp = new AtomicBoolean();
+
+    // entity metadata by unproxied class
+    private final ConcurrentMap<Class<?>, Metadata> entities = new ConcurrentHashMap<>();
+
+    // resolved property paths by root class and path
+    private final ConcurrentMap<Class<?>, ConcurrentMap<String, Metadata>> paths = new ConcurrentHashMap<>();
+
+    // unproxied class by class; Object.class stands for classes that are not
+    // entities or entity proxies
+    private final ConcurrentMap<Class<?>, Class<?>> unproxied = new ConcurrentHashMap<>();
+
+    // whether a bulk delete has the same effect as session.delete(), by
+    // unproxied class
+    private final ConcurrentMap<Class<?>, Boolean> deletableWithoutLoading = new ConcurrentHashMap<>();
+
     protected HibernateMetadataUtil() {
     }
 
+    public SessionFactory getSessionFactory() {
+        return sessionFactory;
+    }
+
+    /**
+     * Resolve the metadata of every mapped entity and of each of its
+     * properties, so that the first searches after startup do not pay for it.
+     * Only the first call does anything.
+     */
+    public void warmUp() {
+        if (!warmedUp.compareAndSet(false, true))
+            return;
+        for (EntityType<?> entityType : sessionFactory.getMetamodel().getEntities()) {
+            Class<?> entityClass = entityType.getJavaType();
+            if (entityClass == null)
+                continue;
+            try {
+                Metadata md = get(entityClass);
+                for (String property : md.getProperties()) {
+                    if (property != null)
+                        get(entityClass, property);
+                }
+            } catch (IllegalArgumentException ex) {
+                // not a mapped POJO entity; it will fail the same way when used
+            }
+        }
+    }
+
     // --- Public Methods ---
 
     @Override
@@ -84,35 +158,67 @@ public class HibernateMetadataUtil implements MetadataUtil {
                 return false;
             return propertyPath.substring(pos + 1).equals(parentType.getIdProperty());
         } else {
-            return propertyPath.equals(sessionFactory.getClassMetadata(rootClass).getIdentifierPropertyName());
+            return propertyPath.equals(get(rootClass).getIdProperty());
         }
     }
 
     @Override
     public Metadata get(Class<?> entityClass) throws IllegalArgumentException {
-        entityClass = getUnproxiedClass(entityClass);
-        ClassMetadata cm = sessionFactory.getClassMetadata(entityClass);
+        Class<?> unproxiedClass = getUnproxiedClass(entityClass);
+        Metadata md = unproxiedClass == null ? null : entities.get(unproxiedClass);
+        if (md != null)
+            return md;
+
+        ClassMetadata cm = unproxiedClass == null ? null : getClassMetadata(unproxiedClass);
         if (cm == null) {
             throw new IllegalArgumentException("Unable to introspect " + entityClass.toString()
                             + ". The class is not a registered Hibernate entity.");
-        } else {
-            return new HibernateEntityMetadata(sessionFactory, cm, null);
         }
+        md = new HibernateEntityMetadata(sessionFactory, cm, null);
+        Metadata existing = entities.putIfAbsent(unproxiedClass, md);
+        return existing != null ? existing : md;
     }
 
     @Override
     public Metadata get(Class<?> rootEntityClass, String propertyPath) throws IllegalArgumentException {
-        try {
-            Metadata md = get(rootEntityClass);
-            if (propertyPath == null || "".equals(propertyPath))
-                return md;
+        if (propertyPath == null || "".equals(propertyPath))
+            return get(rootEntityClass);
 
-            String[] chain = propertyPath.split("\\.");
+        ConcurrentMap<String, Metadata> rootPaths = paths.get(rootEntityClass);
+        if (rootPaths == null) {
+            rootPaths = new ConcurrentHashMap<>();
+            ConcurrentMap<String, Metadata> existing = paths.putIfAbsent(rootEntityClass, rootPaths);
+            if (existing != null)
+                rootPaths = existing;
+        }
 
-            for (int i = 0; i < chain.length; i++) {
-                md = md.getPropertyType(chain[i]);
-            }
+        Metadata md = rootPaths.get(propertyPath);
+        if (md != null)
+            return md;
 
+        // walk the path, remembering each prefix along the way
+        try {
+            md = get(rootEntityClass);
+            int start = 0;
+            while (start <= propertyPath.length()) {
+                int dot = propertyPath.indexOf('.', start);
+                int end = dot == -1 ? propertyPath.length() : dot;
+                String prefix = propertyPath.substring(0, end);
+                Metadata known = rootPaths.get(prefix);
+                if (known != null) {
+                    md = known;
+                } else {
+                    md = md.getPropertyType(propertyPath.substring(start, end));
+                    if (md == null) {
+                        if (dot == -1)
+                            return null;
+                        throw new IllegalArgumentException("Could not find property '" + propertyPath + "' on class "
+                                        + rootEntityClass + ".");
+                    }
+                    rootPaths.putIfAbsent(prefix, md);
+                }
+                start = end + 1;
+            }
             return md;
 
         } catch (HibernateException ex) {
@@ -123,21 +229,164 @@ public class HibernateMetadataUtil implements MetadataUtil {
 
     @Override
     public <T> Class<T> getUnproxiedClass(Class<?> klass) {
+        Class<?> result = unproxied.get(klass);
+        if (result == null) {
+            result = findUnproxiedClass(klass);
+            unproxied.putIfAbsent(klass, result == null ? Object.class : result);
+            return (Class<T>) result;
+        }
+        return Object.class.equals(result) ? null : (Class<T>) result;
+    }
+
+    private Class<?> findUnproxiedClass(Class<?> klass) {
         //cm will be null if entityClass is not registered with Hibernate or when
         //it is a Hibernate proxy class (e.x. test.googlecode.genericdao.model.Person_$$_javassist_5).
         //So if a class is not recognized, we will look at superclasses to see if
         //it is a proxy.
-        while (sessionFactory.getClassMetadata(klass) == null) {
+        while (getClassMetadata(klass) == null) {
             klass = klass.getSuperclass();
-            if (Object.class.equals(klass))
+            if (klass == null || Object.class.equals(klass))
                 return null;
         }
 
-        return (Class<T>) klass;
+        return klass;
+    }
+
+    private ClassMetadata getClassMetadata(Class<?> klass) {
+        try {
+            return sessionFactory.getClassMetadata(klass);
+        } catch (MappingException ex) {
+            // newer versions of Hibernate throw instead of returning null for
+            // classes that are not mapped
+            return null;
+        }
     }
 
     @Override
     public <T> Class<T> getUnproxiedClass(Object entity) {
         return HibernateProxyHelper.getClassWithoutInitializingProxy(entity);
     }
+
+    /**
+     * <p>
+     * Return true if entities of the given class can be removed with a bulk
+     * <code>delete</code> statement instead of being loaded and deleted one by
+     * one, because nothing would happen on top of deleting their rows: no
+     * property of the class or of its subclasses cascades (which includes
+     * orphan removal), none owns a collection other than a many-to-many one,
+     * none is deleted with custom SQL (<code>@SQLDelete</code> or
+     * <code>&lt;sql-delete&gt;</code>, for example to only flag rows as
+     * deleted), none has JPA lifecycle callbacks or implements
+     * <code>Lifecycle</code>, and no delete event listeners are registered.
+     * 
+     * <p>
+     * Default entity listeners declared in <code>orm.xml</code> are not
+     * detected.
+     * 
+     * @param entityClass
+     * @return 
+     */
+    public boolean isDeletableWithoutLoading(Class<?> entityClass) {
+        Class<?> type = getUnproxiedClass(entityClass);
+        if (type == null)
+            throw new IllegalArgumentException("Unable to introspect " + entityClass.toString()
+                            + ". The class is not a registered Hibernate entity.");
+        return deletableWithoutLoading.computeIfAbsent(type, this::checkDeletableWithoutLoading);
+    }
+
+    /**
+     * Return the name of the version property (<code>@Version</code>,
+     * <code>&lt;version&gt;</code> or <code>&lt;timestamp&gt;</code>) of the
+     * given entity class, or <code>null</code> if it is not versioned.
+     * 
+     * @param entityClass
+     * @return 
+     */
+    public String getVersionProperty(Class<?> entityClass) {
+        Class<?> type = getUnproxiedClass(entityClass);
+        if (type == null)
+            throw new IllegalArgumentException("Unable to introspect " + entityClass.toString()
+                            + ". The class is not a registered Hibernate entity.");
+        EntityPersister persister = ((SessionFactoryImplementor) sessionFactory).getMetamodel().entityPersister(type);
+        return persister.isVersioned() ? persister.getPropertyNames()[persister.getVersionProperty()] : null;
+    }
+
+    private boolean checkDeletableWithoutLoading(Class<?> entityClass) {
+        SessionFactoryImplementor factory = (SessionFactoryImplementor) sessionFactory;
+        EventListenerRegistry listeners = factory.getServiceRegistry().getService(EventListenerRegistry.class);
+        for (EventType<?> eventType : new EventType<?>[] { EventType.PRE_DELETE, EventType.POST_DELETE, EventType.POST_COMMIT_DELETE }) {
+            for (Object listener : listeners.getEventListenerGroup(eventType).listeners()) {
+                // the standard one runs the JPA callbacks, which are checked
+                // below; bean validation only validates on delete if a group
+                // is set for pre-remove
+                if (!(listener instanceof PostDeleteEventListenerStandardImpl) && !(listener instanceof BeanValidationEventListener))
+                    return false;
+            }
+        }
+
+        EntityPersister persister = factory.getMetamodel().entityPersister(entityClass);
+        if (!isDeletableWithoutLoading(factory, persister))
+            return false;
+        for (Object subclass : persister.getEntityMetamodel().getSubclassEntityNames()) {
+            if (!isDeletableWithoutLoading(factory, factory.getMetamodel().entityPersister((String) subclass)))
+                return false;
+        }
+        return true;
+    }
+
+    private static boolean isDeletableWithoutLoading(SessionFactoryImplementor factory, EntityPersister persister) {
+        if (hasCustomDeleteSQL(persister))
+            return false;
+        for (CascadeStyle style : persister.getPropertyCascadeStyles()) {
+            if (style != CascadeStyles.NONE)
+                return false;
+        }
+        for (Type type : persister.getPropertyTypes()) {
+            if (type.isCollectionType()) {
+                // a bulk delete also deletes the rows of many-to-many join
+                // tables, but not those of other collections the entity owns
+                CollectionPersister collection = factory.getMetamodel().collectionPersister(((CollectionType) type).getRole());
+                if (!collection.isInverse() && !collection.isManyToMany())
+                    return false;
+            }
+        }
+        Class<?> mappedClass = persister.getMappedClass();
+        if (mappedClass == null)
+            return false;
+        if (Lifecycle.class.isAssignableFrom(mappedClass))
+            return false;
+        for (Class<?> klass = mappedClass; klass != null && !Object.class.equals(klass); klass = klass.getSuperclass()) {
+            if (klass.isAnnotationPresent(EntityListeners.class))
+                return false;
+            for (Method method : klass.getDeclaredMethods()) {
+                if (method.isAnnotationPresent(PreRemove.class) || method.isAnnotationPresent(PostRemove.class))
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Return true if the persister deletes rows with custom SQL. Only
+     * AbstractEntityPersister keeps it, in a protected field; if it can't be
+     * read, assume there is some so that it is not bypassed.
+     */
+    private static boolean hasCustomDeleteSQL(EntityPersister persister) {
+        if (!(persister instanceof AbstractEntityPersister))
+            return true;
+        try {
+            Field field = AbstractEntityPersister.class.getDeclaredField("customSQLDelete");
+            field.setAccessible(true);
+            String[] customSQLDelete = (String[]) field.get(persister);
+            if (customSQLDelete != null) {
+                for (String sql : customSQLDelete) {
+                    if (sql != null)
+                        return true;
+                }
+            }
+            return false;
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            return true;
+        }
+    }
 }
@@ -15,6 +15,7 @@
 package net.da.backing.data.search.hibernate;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
@@ -74,6 +75,16 @@ public class HibernateSearchFacade implements SearchFacade {
         return processor.search(getSession(), searchClass, search);
     }
 
+    @Override
+    public Stream searchStream(ISearch search) {
+        return processor.searchStream(getSession(), search);
+    }
+
+    @Override
+    public Stream searchStream(Class<?> searchClass, ISearch search) {
+        return processor.searchStream(getSession(), searchClass, search);
+    }
+
     @Override
     public int count(ISearch search) {
         return processor.count(getSession(), search);
@@ -84,6 +95,26 @@ public class HibernateSearchFacade implements SearchFacade {
         return processor.count(getSession(), searchClass, search);
     }
 
+    @Override
+    public int count(ISearch search, int cap) {
+        return processor.count(getSession(), search, cap);
+    }
+
+    @Override
+    public int count(Class<?> searchClass, ISearch search, int cap) {
+        return processor.count(getSession(), searchClass, search, cap);
+    }
+
+    @Override
+    public boolean exists(ISearch search) {
+        return processor.exists(getSession(), search);
+    }
+
+    @Override
+    public boolean exists(Class<?> searchClass, ISearch search) {
+        return processor.exists(getSession(), searchClass, search);
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     public SearchResult searchAndCount(ISearch search) {
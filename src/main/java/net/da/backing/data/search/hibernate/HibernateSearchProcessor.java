@@ -16,14 +16,30 @@ package net.da.backing.data.search.hibernate;
 
 import org.hibernate.NonUniqueResultException;
 import org.hibernate.Query;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.SharedSessionContract;
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.PersistenceContext;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.engine.spi.Status;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.proxy.HibernateProxy;
 import org.hibernate.transform.ResultTransformer;
 import org.hibernate.transform.Transformers;
+import org.hibernate.type.Type;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import net.da.backing.data.search.BaseSearchProcessor;
 import net.da.backing.data.search.Field;
 import net.da.backing.data.search.ISearch;
@@ -42,13 +58,13 @@ import net.da.backing.data.search.SearchUtil;
 public class HibernateSearchProcessor extends BaseSearchProcessor {
     private static Logger logger = LoggerFactory.getLogger(HibernateSearchProcessor.class);
 
-    private static Map<SessionFactory, HibernateSearchProcessor> map = new HashMap<SessionFactory, HibernateSearchProcessor>();
+    private static final ConcurrentMap<SessionFactory, HibernateSearchProcessor> map = new ConcurrentHashMap<SessionFactory, HibernateSearchProcessor>();
 
     public static HibernateSearchProcessor getInstanceForSessionFactory(SessionFactory sessionFactory) {
         HibernateSearchProcessor instance = map.get(sessionFactory);
         if (instance == null) {
-            instance = new HibernateSearchProcessor(HibernateMetadataUtil.getInstanceForSessionFactory(sessionFactory));
-            map.put(sessionFactory, instance);
+            instance = map.computeIfAbsent(sessionFactory,
+                            sf -> new HibernateSearchProcessor(HibernateMetadataUtil.getInstanceForSessionFactory(sf)));
         }
         return instance;
     }
@@ -57,6 +73,81 @@ public class HibernateSearchProcessor extends BaseSearchProcessor {
         super(QLTYPE_HQL, mdu);
     }
 
+    /**
+     * <p>
+     * Do the work that would otherwise slow down the first searches after
+     * startup. The metadata of every mapped entity is resolved, and the query
+     * and row count HQL for each of the given searches is generated and
+     * compiled by Hibernate. This fills both the query plan cache of this
+     * processor and Hibernate's own query plan cache.
+     * 
+     * <p>
+     * Only the shape of each search matters, not its filter values. Searches
+     * without a search class and searches that fail to compile are skipped
+     * with a warning. This may be called more than once, for example by each
+     * DAO as it starts.
+     * 
+     * @param searches
+     *            may be <code>null</code>
+     */
+    public void warmUp(Collection<? extends ISearch> searches) {
+        HibernateMetadataUtil mdu = (HibernateMetadataUtil) metadataUtil;
+        mdu.warmUp();
+        if (searches == null)
+            return;
+
+        SessionFactoryImplementor sessionFactory = (SessionFactoryImplementor) mdu.getSessionFactory();
+        for (ISearch search : searches) {
+            if (search == null || search.getSearchClass() == null) {
+                logger.warn("Skipping warm-up of a search without a search class: " + search);
+                continue;
+            }
+            try {
+                Class<?> entityClass = search.getSearchClass();
+                String hql = generateQL(entityClass, search, new ArrayList<Object>());
+                sessionFactory.getQueryPlanCache().getHQLQueryPlan(hql, false, Collections.emptyMap());
+                String countHql = generateRowCountQL(entityClass, search, new ArrayList<Object>());
+                if (countHql != null)
+                    sessionFactory.getQueryPlanCache().getHQLQueryPlan(countHql, false, Collections.emptyMap());
+            } catch (RuntimeException ex) {
+                logger.warn("Could not warm up search: " + search, ex);
+            }
+        }
+    }
+
+    private int streamFetchSize = 100;
+
+    private int streamEvictBatchSize = 100;
+
+    /**
+     * The JDBC fetch size used by <code>searchStream()</code> when none is
+     * specified. The default is 100.
+     * 
+     * @return 
+     */
+    public int getStreamFetchSize() {
+        return streamFetchSize;
+    }
+
+    public void setStreamFetchSize(int streamFetchSize) {
+        this.streamFetchSize = streamFetchSize;
+    }
+
+    /**
+     * The number of rows after which <code>searchStream()</code> evicts the
+     * entities it has read from the session, when none is specified. The
+     * default is 100. 0 means entities are never evicted.
+     * 
+     * @return 
+     */
+    public int getStreamEvictBatchSize() {
+        return streamEvictBatchSize;
+    }
+
+    public void setStreamEvictBatchSize(int streamEvictBatchSize) {
+        this.streamEvictBatchSize = streamEvictBatchSize;
+    }
+
     // --- Public Methods ---
 
     /**
@@ -69,7 +160,7 @@ public class HibernateSearchProcessor extends BaseSearchProcessor {
      * @see ISearch
      */
     @SuppressWarnings("unchecked")
-    public List search(Session session, ISearch search) {
+    public List search(SharedSessionContract session, ISearch search) {
         if (search == null)
             return null;
 
@@ -88,7 +179,7 @@ public class HibernateSearchProcessor extends BaseSearchProcessor {
      * @see ISearch
      */
     @SuppressWarnings("unchecked")
-    public List search(Session session, Class<?> searchClass, ISearch search) {
+    public List search(SharedSessionContract session, Class<?> searchClass, ISearch search) {
         if (searchClass == null || search == null)
             return null;
 
@@ -102,6 +193,107 @@ public class HibernateSearchProcessor extends BaseSearchProcessor {
         return query.list();
     }
 
+    /**
+     * <p>
+     * Search for objects based on the search parameters in the specified
+     * <code>ISearch</code> object and return them as a stream that reads the
+     * rows from a forward-only cursor as they are consumed, so searches of any
+     * size can be processed in constant memory. The result mode of the search
+     * is applied to each row.
+     * 
+     * <p>
+     * Every entity that enters the session while the stream is read is evicted
+     * from it in batches: the entities of the rows, the associations fetched
+     * with them, and whatever the consumer loads or initializes, along with
+     * their collections and the proxies they reference. Entities that were
+     * already in the session when the stream was opened are left alone. There
+     * are some limits:
+     * <ul>
+     * <li>Changes made to evicted entities are lost unless the session is
+     * flushed before the end of each batch.
+     * <li>Entities that are saved or deleted during the stream stay in the
+     * session until they are flushed.
+     * <li>Collections and proxies of entities that were already in the
+     * session stay in it once initialized, and so do proxies the consumer gets
+     * with <code>load()</code> and never initializes. An uninitialized proxy
+     * that was already in the session is evicted if a row references it.
+     * <li>Each batch looks through every entity in the session, so a session
+     * that already holds many entities makes the stream slower.
+     * <li>Only the session is cleaned up; the consumer must not keep the
+     * rows itself.
+     * </ul>
+     * 
+     * <p>
+     * The session must stay open until the stream is consumed, and the stream
+     * must be closed to release the cursor, e.g. with try-with-resources. With
+     * a <code>StatelessSession</code> nothing is kept, so nothing is evicted.
+     * 
+     * @param session
+     * @param search
+     * @return 
+     * @see ISearch
+     */
+    public Stream searchStream(SharedSessionContract session, ISearch search) {
+        if (search == null)
+            return null;
+
+        return searchStream(session, search.getSearchClass(), search);
+    }
+
+    /**
+     * Same as <code>searchStream(SharedSessionContract, ISearch)</code> except that it uses
+     * the specified searchClass, ignoring the searchClass specified on the
+     * search itself.
+     * 
+     * @param session
+     * @param searchClass
+     * @param search
+     * @return 
+     * @see ISearch
+     */
+    public Stream searchStream(SharedSessionContract session, Class<?> searchClass, ISearch search) {
+        return searchStream(session, searchClass, search, streamFetchSize, streamEvictBatchSize);
+    }
+
+    /**
+     * Same as <code>searchStream(SharedSessionContract, Class, ISearch)</code> with the
+     * given JDBC fetch size and eviction batch size. Entities that entered the
+     * session while the stream was read are evicted from it each time
+     * <code>evictBatchSize</code> rows have been read; use 0 to never evict.
+     * 
+     * @param session
+     * @param searchClass
+     * @param search
+     * @param fetchSize
+     * @param evictBatchSize
+     * @return 
+     * @see ISearch
+     */
+    public Stream searchStream(SharedSessionContract session, Class<?> searchClass, ISearch search, int fetchSize, int evictBatchSize) {
+        if (searchClass == null || search == null)
+            return null;
+
+        List<Object> paramList = new ArrayList<>();
+        String hql = generateQL(searchClass, search, paramList);
+        Query query = session.createQuery(hql);
+        addParams(query, paramList);
+        addPaging(query, search);
+        if (fetchSize > 0) {
+            query.setFetchSize(fetchSize);
+        }
+
+        Session statefulSession = null;
+        if (session instanceof Session) {
+            statefulSession = (Session) session;
+        } else {
+            evictBatchSize = 0;
+        }
+
+        ScrollableResults results = query.scroll(ScrollMode.FORWARD_ONLY);
+        ScrollSpliterator spliterator = new ScrollSpliterator(statefulSession, results, getResultTransformer(search), evictBatchSize);
+        return StreamSupport.stream(spliterator, false).onClose(results::close);
+    }
+
     /**
      * Returns the total number of results that would be returned using the
      * given <code>ISearch</code> if there were no paging or maxResult limits.
@@ -111,7 +303,7 @@ public class HibernateSearchProcessor extends BaseSearchProcessor {
      * @return 
      * @see ISearch
      */
-    public int count(Session session, ISearch search) {
+    public int count(SharedSessionContract session, ISearch search) {
             if (search == null)
                     return 0;
             return count(session, search.getSearchClass(), search);
@@ -129,7 +321,7 @@ public class HibernateSearchProcessor extends BaseSearchProcessor {
      * @return 
      * @see ISearch
      */
-    public int count(Session session, Class<?> searchClass, ISearch search) {
+    public int count(SharedSessionContract session, Class<?> searchClass, ISearch search) {
         if (searchClass == null || search == null)
                 return 0;
 
@@ -144,6 +336,97 @@ public class HibernateSearchProcessor extends BaseSearchProcessor {
         return ((Number) query.uniqueResult()).intValue();
     }
 
+    /**
+     * Returns the number of results that would be returned using the given
+     * <code>ISearch</code> if there were no paging or maxResult limits, but no
+     * more than <code>cap</code>. The database stops looking for matches once
+     * the cap is reached, so this is much cheaper than <code>count()</code>
+     * when there are many results. A cap of 0 or less means no cap.
+     * 
+     * @param session
+     * @param search
+     * @param cap
+     * @return 
+     * @see ISearch
+     */
+    public int count(SharedSessionContract session, ISearch search, int cap) {
+        if (search == null)
+            return 0;
+        return count(session, search.getSearchClass(), search, cap);
+    }
+
+    /**
+     * Same as <code>count(SharedSessionContract, ISearch, int)</code> except that it uses
+     * the specified searchClass, ignoring the searchClass specified on the
+     * search itself.
+     * 
+     * @param session
+     * @param searchClass
+     * @param search
+     * @param cap
+     * @return 
+     * @see ISearch
+     */
+    public int count(SharedSessionContract session, Class<?> searchClass, ISearch search, int cap) {
+        if (searchClass == null || search == null)
+            return 0;
+        if (cap <= 0)
+            return count(session, searchClass, search);
+
+        List<Object> paramList = new ArrayList<>();
+        String hql = generateCappedCountQL(searchClass, search, paramList);
+        if (hql == null) { // special case where the query uses column operators
+            return 1;
+        }
+        Query query = session.createQuery(hql);
+        addParams(query, paramList);
+        query.setMaxResults(cap);
+
+        return query.list().size();
+    }
+
+    /**
+     * Returns true if the given <code>ISearch</code> has any results. Only the
+     * first match is looked for, paging and sorts are ignored.
+     * 
+     * @param session
+     * @param search
+     * @return 
+     * @see ISearch
+     */
+    public boolean exists(SharedSessionContract session, ISearch search) {
+        if (search == null)
+            return false;
+        return exists(session, search.getSearchClass(), search);
+    }
+
+    /**
+     * Same as <code>exists(SharedSessionContract, ISearch)</code> except that it uses the
+     * specified searchClass, ignoring the searchClass specified on the search
+     * itself.
+     * 
+     * @param session
+     * @param searchClass
+     * @param search
+     * @return 
+     * @see ISearch
+     */
+    public boolean exists(SharedSessionContract session, Class<?> searchClass, ISearch search) {
+        if (searchClass == null || search == null)
+            return false;
+
+        List<Object> paramList = new ArrayList<>();
+        String hql = generateExistsQL(searchClass, search, paramList);
+        if (hql == null) { // special case where the query uses column operators
+            return true;
+        }
+        Query query = session.createQuery(hql);
+        addParams(query, paramList);
+        query.setMaxResults(1);
+
+        return !query.list().isEmpty();
+    }
+
     /**
      * Returns a <code>SearchResult</code> object that includes the list of
      * results like <code>search()</code> and the total length like
@@ -155,7 +438,7 @@ public class HibernateSearchProcessor extends BaseSearchProcessor {
      * @see ISearch
      */
     @SuppressWarnings("unchecked")
-    public SearchResult searchAndCount(Session session, ISearch search) {
+    public SearchResult searchAndCount(SharedSessionContract session, ISearch search) {
         if (search == null)
                 return null;
         return searchAndCount(session, search.getSearchClass(), search);
@@ -174,19 +457,100 @@ public class HibernateSearchProcessor extends BaseSearchProcessor {
      * @see ISearch
      */
     @SuppressWarnings("unchecked")
-    public SearchResult searchAndCount(Session session, Class<?> searchClass, ISearch search) {
+    public SearchResult searchAndCount(SharedSessionContract session, Class<?> searchClass, ISearch search) {
         if (searchClass == null || search == null)
                 return null;
 
+        SearchResult result = null;
+        if (isWindowedCount(search)) {
+            result = searchAndCountWindowed(session, searchClass, search);
+        } else if (isHasMoreCount(search)) {
+            result = searchAndCheckMore(session, searchClass, search);
+        }
+
+        if (result == null) {
+            result = new SearchResult();
+            result.setResult(search(session, searchClass, search));
+
+            if (search.getMaxResults() > 0) {
+                    result.setTotalCount(count(session, searchClass, search));
+            } else {
+                    result.setTotalCount(result.getResult().size() + SearchUtil.calcFirstResult(search));
+            }
+        }
+
+        addPagingInfo(result, searchClass, search);
+
+        return result;
+    }
+
+    /**
+     * Fetch the page and the total count in a single query using the window
+     * count function. Returns null if the search or the session factory does
+     * not support it, in which case the caller falls back to the row count
+     * query.
+     */
+    @SuppressWarnings("unchecked")
+    private SearchResult searchAndCountWindowed(SharedSessionContract session, Class<?> searchClass, ISearch search) {
+        SessionFactoryImplementor sessionFactory = ((SharedSessionContractImplementor) session).getFactory();
+        if (sessionFactory.getSqlFunctionRegistry().findSQLFunction(getWindowCountFunction()) == null)
+            return null;
+
+        List<Object> paramList = new ArrayList<>();
+        String hql = generateWindowedCountQL(searchClass, search, paramList);
+        if (hql == null)
+            return null;
+        Query query = session.createQuery(hql);
+        addParams(query, paramList);
+        addPaging(query, search);
+
+        List<Object> rows = query.list();
+        int total = removeWindowCount(rows);
+
+        ResultTransformer transformer = getResultTransformer(search);
+        for (ListIterator<Object> itr = rows.listIterator(); itr.hasNext();) {
+            Object[] row = (Object[]) itr.next();
+            if (transformer != null) {
+                itr.set(transformer.transformTuple(row, null));
+            } else if (row.length == 1) {
+                itr.set(row[0]);
+            }
+        }
+
+        if (total < 0) {
+            // an empty page only tells us the total if it is the first one
+            total = SearchUtil.calcFirstResult(search) > 0 ? count(session, searchClass, search) : 0;
+        }
+
         SearchResult result = new SearchResult();
-        result.setResult(search(session, searchClass, search));
+        result.setResult(rows);
+        result.setTotalCount(total);
+        return result;
+    }
 
-        if (search.getMaxResults() > 0) {
-                result.setTotalCount(count(session, searchClass, search));
-        } else {
-                result.setTotalCount(result.getResult().size() + SearchUtil.calcFirstResult(search));
+    /**
+     * Fetch one row more than <code>maxResults</code> to find out whether there
+     * is a next page, without counting the results.
+     */
+    @SuppressWarnings("unchecked")
+    private SearchResult searchAndCheckMore(SharedSessionContract session, Class<?> searchClass, ISearch search) {
+        List<Object> paramList = new ArrayList<>();
+        String hql = generateQL(searchClass, search, paramList);
+        Query query = session.createQuery(hql);
+        addParams(query, paramList);
+        addPaging(query, search);
+        query.setMaxResults(search.getMaxResults() + 1);
+        addResultMode(query, search);
+
+        List results = query.list();
+        boolean hasMore = results.size() > search.getMaxResults();
+        if (hasMore) {
+            results.remove(results.size() - 1);
         }
 
+        SearchResult result = new SearchResult();
+        result.setResult(results);
+        result.setHasMore(hasMore);
         return result;
     }
 
@@ -197,7 +561,7 @@ public class HibernateSearchProcessor extends BaseSearchProcessor {
      * @param search
      * @return 
      */
-    public Object searchUnique(Session session, ISearch search) throws NonUniqueResultException {
+    public Object searchUnique(SharedSessionContract session, ISearch search) throws NonUniqueResultException {
             if (search == null)
                     return null;
             return searchUnique(session, search.getSearchClass(), search);
@@ -212,7 +576,7 @@ public class HibernateSearchProcessor extends BaseSearchProcessor {
      * @param search
      * @return 
      */
-    public Object searchUnique(Session session, Class<?> entityClass, ISearch search) throws NonUniqueResultException {
+    public Object searchUnique(SharedSessionContract session, Class<?> entityClass, ISearch search) throws NonUniqueResultException {
         if (search == null)
             return null;
 
@@ -226,6 +590,171 @@ public class HibernateSearchProcessor extends BaseSearchProcessor {
         return query.uniqueResult();
     }
 
+    /**
+     * Delete every entity of the given class that matches the filters of the
+     * search with a single bulk statement. Nothing is loaded: cascades,
+     * orphan removal and lifecycle callbacks are not applied, and instances
+     * already in the session are left there.
+     * 
+     * @param session
+     * @param entityClass
+     * @param search
+     * @return The number of rows deleted.
+     * @see BaseSearchProcessor#generateDeleteQL(Class, ISearch, List)
+     */
+    public int delete(SharedSessionContract session, Class<?> entityClass, ISearch search) {
+        if (entityClass == null || search == null)
+            return 0;
+
+        List<Object> paramList = new ArrayList<>();
+        String hql = generateDeleteQL(entityClass, search, paramList);
+        Query query = session.createQuery(hql);
+        addParams(query, paramList);
+
+        return query.executeUpdate();
+    }
+
+    /**
+     * Set the given properties on every entity of the given class that matches
+     * the filters of the search with a single bulk statement. Nothing is
+     * loaded: the version of versioned entities is incremented by the
+     * statement, but lifecycle callbacks are not applied and instances already
+     * in the session keep their old state.
+     * 
+     * @param session
+     * @param entityClass
+     * @param search
+     * @param values
+     *            property paths mapped to their new values
+     * @return The number of rows updated.
+     * @see BaseSearchProcessor#generateUpdateQL(Class, ISearch, Map, List)
+     */
+    public int update(SharedSessionContract session, Class<?> entityClass, ISearch search, Map<String, ?> values) {
+        if (entityClass == null || search == null)
+            return 0;
+
+        List<Object> paramList = new ArrayList<>();
+        String hql = generateUpdateQL(entityClass, search, values, paramList);
+        Query query = session.createQuery(hql);
+        addParams(query, paramList);
+
+        return query.executeUpdate();
+    }
+
+    @Override
+    protected String getVersionProperty(Class<?> entityClass) {
+        return ((HibernateMetadataUtil) metadataUtil).getVersionProperty(entityClass);
+    }
+
+    // ---- SESSION OVERLOADS ---- //
+
+    // These took a Session before they were opened up to StatelessSession;
+    // they are kept so that code compiled against them still links.
+
+    /**
+     * Same as {@link #search(SharedSessionContract, ISearch)}.
+     */
+    public List search(Session session, ISearch search) {
+        return search((SharedSessionContract) session, search);
+    }
+
+    /**
+     * Same as {@link #search(SharedSessionContract, Class, ISearch)}.
+     */
+    public List search(Session session, Class<?> searchClass, ISearch search) {
+        return search((SharedSessionContract) session, searchClass, search);
+    }
+
+    /**
+     * Same as {@link #searchStream(SharedSessionContract, ISearch)}.
+     */
+    public Stream searchStream(Session session, ISearch search) {
+        return searchStream((SharedSessionContract) session, search);
+    }
+
+    /**
+     * Same as {@link #searchStream(SharedSessionContract, Class, ISearch)}.
+     */
+    public Stream searchStream(Session session, Class<?> searchClass, ISearch search) {
+        return searchStream((SharedSessionContract) session, searchClass, search);
+    }
+
+    /**
+     * Same as {@link #searchStream(SharedSessionContract, Class, ISearch, int, int)}.
+     */
+    public Stream searchStream(Session session, Class<?> searchClass, ISearch search, int fetchSize, int evictBatchSize) {
+        return searchStream((SharedSessionContract) session, searchClass, search, fetchSize, evictBatchSize);
+    }
+
+    /**
+     * Same as {@link #count(SharedSessionContract, ISearch)}.
+     */
+    public int count(Session session, ISearch search) {
+        return count((SharedSessionContract) session, search);
+    }
+
+    /**
+     * Same as {@link #count(SharedSessionContract, Class, ISearch)}.
+     */
+    public int count(Session session, Class<?> searchClass, ISearch search) {
+        return count((SharedSessionContract) session, searchClass, search);
+    }
+
+    /**
+     * Same as {@link #count(SharedSessionContract, ISearch, int)}.
+     */
+    public int count(Session session, ISearch search, int cap) {
+        return count((SharedSessionContract) session, search, cap);
+    }
+
+    /**
+     * Same as {@link #count(SharedSessionContract, Class, ISearch, int)}.
+     */
+    public int count(Session session, Class<?> searchClass, ISearch search, int cap) {
+        return count((SharedSessionContract) session, searchClass, search, cap);
+    }
+
+    /**
+     * Same as {@link #exists(SharedSessionContract, ISearch)}.
+     */
+    public boolean exists(Session session, ISearch search) {
+        return exists((SharedSessionContract) session, search);
+    }
+
+    /**
+     * Same as {@link #exists(SharedSessionContract, Class, ISearch)}.
+     */
+    public boolean exists(Session session, Class<?> searchClass, ISearch search) {
+        return exists((SharedSessionContract) session, searchClass, search);
+    }
+
+    /**
+     * Same as {@link #searchAndCount(SharedSessionContract, ISearch)}.
+     */
+    public SearchResult searchAndCount(Session session, ISearch search) {
+        return searchAndCount((SharedSessionContract) session, search);
+    }
+
+    /**
+     * Same as {@link #searchAndCount(SharedSessionContract, Class, ISearch)}.
+     */
+    public SearchResult searchAndCount(Session session, Class<?> searchClass, ISearch search) {
+        return searchAndCount((SharedSessionContract) session, searchClass, search);
+    }
+
+    /**
+     * Same as {@link #searchUnique(SharedSessionContract, ISearch)}.
+     */
+    public Object searchUnique(Session session, ISearch search) throws NonUniqueResultException {
+        return searchUnique((SharedSessionContract) session, search);
+    }
+
+    /**
+     * Same as {@link #searchUnique(SharedSessionContract, Class, ISearch)}.
+     */
+    public Object searchUnique(Session session, Class<?> entityClass, ISearch search) throws NonUniqueResultException {
+        return searchUnique((SharedSessionContract) session, entityClass, search);
+    }
     // ---- SEARCH HELPERS ---- //
 
     @SuppressWarnings("unchecked")
@@ -268,6 +797,17 @@ public class HibernateSearchProcessor extends BaseSearchProcessor {
     }
 
     private void addResultMode(Query query, ISearch search) {
+        ResultTransformer transformer = getResultTransformer(search);
+        if (transformer != null) {
+            query.setResultTransformer(transformer);
+        }
+    }
+
+    /**
+     * Return the transformer that converts a row to the result mode of the
+     * search, or <code>null</code> if the row is returned as is.
+     */
+    static ResultTransformer getResultTransformer(ISearch search) {
         int resultMode = search.getResultMode();
         if (resultMode == ISearch.RESULT_AUTO) {
             int count = 0;
@@ -290,11 +830,9 @@ public class HibernateSearchProcessor extends BaseSearchProcessor {
 
         switch (resultMode) {
         case ISearch.RESULT_ARRAY:
-            query.setResultTransformer(ARRAY_RESULT_TRANSFORMER);
-            break;
+            return ARRAY_RESULT_TRANSFORMER;
         case ISearch.RESULT_LIST:
-            query.setResultTransformer(Transformers.TO_LIST);
-            break;
+            return Transformers.TO_LIST;
         case ISearch.RESULT_MAP:
             List<String> keyList = new ArrayList<>();
             Iterator<Field> fieldItr = search.getFields().iterator();
@@ -306,10 +844,9 @@ public class HibernateSearchProcessor extends BaseSearchProcessor {
                             keyList.add(field.getProperty());
                     }
             }
-            query.setResultTransformer(new MapResultTransformer(keyList.toArray(new String[0])));
-            break;
+            return new MapResultTransformer(keyList.toArray(new String[0]));
         default: // ISearch.RESULT_SINGLE
-            break;
+            return null;
         }
     }
 
@@ -328,6 +865,98 @@ public class HibernateSearchProcessor extends BaseSearchProcessor {
         }
     };
 
+    /**
+     * Reads the rows of a forward-only cursor one at a time, evicting every
+     * entity that entered the session since the cursor was opened every
+     * <code>evictBatchSize</code> rows.
+     */
+    private static class ScrollSpliterator extends Spliterators.AbstractSpliterator<Object> {
+        private final Session session;
+        private final ScrollableResults results;
+        private final ResultTransformer transformer;
+        private final int evictBatchSize;
+
+        // the entities that were in the session before the stream was opened
+        private final Set<Object> kept;
+        private int rowsSinceEvict;
+
+        ScrollSpliterator(Session session, ScrollableResults results, ResultTransformer transformer, int evictBatchSize) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED);
+            this.session = session;
+            this.results = results;
+            this.transformer = transformer;
+            this.evictBatchSize = evictBatchSize;
+
+            if (evictBatchSize > 0) {
+                PersistenceContext persistenceContext = persistenceContext();
+                kept = Collections.newSetFromMap(new IdentityHashMap<>());
+                for (Map.Entry<Object, EntityEntry> entry : persistenceContext.reentrantSafeEntityEntries()) {
+                    kept.add(entry.getKey());
+                    Object proxy = persistenceContext.getProxy(entry.getValue().getEntityKey());
+                    if (proxy != null) {
+                        kept.add(proxy);
+                    }
+                }
+            } else {
+                kept = null;
+            }
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Object> action) {
+            if (evictBatchSize > 0 && rowsSinceEvict >= evictBatchSize) {
+                // the consumer is done with the rows of the last batch
+                evictBatch();
+                rowsSinceEvict = 0;
+            }
+
+            if (!results.next()) {
+                return false;
+            }
+
+            Object[] row = results.get();
+            if (evictBatchSize > 0) {
+                rowsSinceEvict++;
+            }
+
+            if (transformer != null) {
+                action.accept(transformer.transformTuple(row, null));
+            } else {
+                action.accept(row.length == 1 ? row[0] : row);
+            }
+            return true;
+        }
+
+        private PersistenceContext persistenceContext() {
+            return ((SharedSessionContractImplementor) session).getPersistenceContext();
+        }
+
+        private void evictBatch() {
+            for (Map.Entry<Object, EntityEntry> entry : persistenceContext().reentrantSafeEntityEntries()) {
+                Object entity = entry.getKey();
+                EntityEntry entityEntry = entry.getValue();
+                // entities waiting to be inserted or deleted are left for the flush
+                if (kept.contains(entity) || !entityEntry.isExistsInDatabase()
+                        || (entityEntry.getStatus() != Status.MANAGED && entityEntry.getStatus() != Status.READ_ONLY)) {
+                    continue;
+                }
+
+                // the proxies of lazy to-one associations are not entity
+                // entries, and evicting the entity they stand for does not
+                // remove them
+                EntityPersister persister = entityEntry.getPersister();
+                Type[] types = persister.getPropertyTypes();
+                Object[] values = persister.getPropertyValues(entity);
+                for (int i = 0; i < types.length; i++) {
+                    if (types[i].isEntityType() && values[i] instanceof HibernateProxy && !kept.contains(values[i])) {
+                        session.evict(values[i]);
+                    }
+                }
+                session.evict(entity);
+            }
+        }
+    }
+
     @SuppressWarnings("unchecked")
     private static class MapResultTransformer implements ResultTransformer {
         private static final long serialVersionUID = 1L;
@@ -0,0 +1,52 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.da.backing.data.search.hibernate;
+
+import org.hibernate.boot.MetadataBuilder;
+import org.hibernate.boot.spi.MetadataBuilderContributor;
+import org.hibernate.dialect.function.SQLFunction;
+import org.hibernate.dialect.function.SQLFunctionTemplate;
+import org.hibernate.type.StandardBasicTypes;
+
+import net.da.backing.data.search.BaseSearchProcessor;
+
+/**
+ * <p>
+ * Registers the <code>count_over()</code> HQL function, which renders as
+ * <code>count(*) over()</code>, so that searches with
+ * <code>ISearch.COUNT_WINDOW</code> can fetch a page and its total count in a
+ * single query. HQL has no syntax for window functions, so without this
+ * function the search processors always use a separate row count query.
+ * 
+ * <p>
+ * Only register it if the database supports window functions (e.g.
+ * PostgreSQL, Oracle, SQL Server, MySQL 8, H2 1.4.200). With JPA bootstrapping
+ * (including Spring Boot), set the property:
+ * 
+ * <pre>
+ * hibernate.metadata_builder_contributor=net.da.backing.data.search.hibernate.WindowCountFunctionContributor
+ * </pre>
+ * 
+ * With native bootstrapping use
+ * <code>configuration.addSqlFunction(BaseSearchProcessor.DEFAULT_WINDOW_COUNT_FUNCTION, WindowCountFunctionContributor.FUNCTION)</code>.
+ */
+public class WindowCountFunctionContributor implements MetadataBuilderContributor {
+
+    public static final SQLFunction FUNCTION = new SQLFunctionTemplate(StandardBasicTypes.LONG, "count(*) over()");
+
+    @Override
+    public void contribute(MetadataBuilder metadataBuilder) {
+        metadataBuilder.applySqlFunction(BaseSearchProcessor.DEFAULT_WINDOW_COUNT_FUNCTION, FUNCTION);
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.da.backing.data.search.jpa;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceException;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+/**
+ * The parts of <code>JPASearchProcessor</code> that only work with Hibernate
+ * as the persistence provider. This class links against Hibernate, so it must
+ * only be used once {@link #isAvailable()} has returned <code>true</code>.
+ */
+final class HibernateProviderSupport {
+
+    private static final boolean AVAILABLE = isOnClassPath("org.hibernate.engine.spi.SessionFactoryImplementor");
+
+    private HibernateProviderSupport() {
+    }
+
+    /**
+     * Return true if Hibernate is on the class path. It may still not be the
+     * provider of a given EntityManagerFactory.
+     */
+    static boolean isAvailable() {
+        return AVAILABLE;
+    }
+
+    /**
+     * Return true if the given EntityManagerFactory is Hibernate's and has the
+     * given SQL function registered.
+     */
+    static boolean isSQLFunctionRegistered(EntityManagerFactory entityManagerFactory, String function) {
+        try {
+            SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+            return sessionFactory.getSqlFunctionRegistry().findSQLFunction(function) != null;
+        } catch (PersistenceException ex) {
+            return false;
+        }
+    }
+
+    private static boolean isOnClassPath(String className) {
+        try {
+            Class.forName(className, false, HibernateProviderSupport.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+}
@@ -2,16 +2,21 @@ package net.da.backing.data.search.jpa;
 
 import java.io.Serializable;
 import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.persistence.Embeddable;
 import javax.persistence.EmbeddedId;
@@ -21,15 +26,41 @@ import javax.persistence.Transient;
 
 import net.da.backing.data.search.Metadata;
 
+/**
+ * Implementation of Metadata for a class, read from its JPA annotations.
+ * 
+ * Everything about a class is worked out once when its metadata is first
+ * requested: the properties, the id property and a <code>MethodHandle</code>
+ * for reading each property. Instances are immutable and cached, so they can
+ * be used by any number of threads without locking.
+ */
 public class JPAAnnotationMetadata implements Metadata {
 
-	Class<?> klass;
+	final Class<?> klass;
+	private final boolean entity;
+	private final boolean embeddable;
+	private final Map<String, Property> props;
+	private final String[] propertyNames;
+	private final Property idProp;
 
 	private JPAAnnotationMetadata(Class<?> klass) {
 		this.klass = klass;
+		this.entity = null != klass.getAnnotation(Entity.class);
+		this.embeddable = null != klass.getAnnotation(Embeddable.class);
+		this.props = Collections.unmodifiableMap(findProps(klass, entity || embeddable));
+		this.propertyNames = props.keySet().toArray(new String[props.size()]);
+
+		Property id = null;
+		for (Property prop : props.values()) {
+			if (prop.hasAnnotation(Id.class) || prop.hasAnnotation(EmbeddedId.class)) {
+				id = prop;
+				break;
+			}
+		}
+		this.idProp = id;
 	}
 
-	static Map<Class<?>, JPAAnnotationMetadata> metadataCache = new HashMap<Class<?>, JPAAnnotationMetadata>();
+	static final ConcurrentMap<Class<?>, JPAAnnotationMetadata> metadataCache = new ConcurrentHashMap<Class<?>, JPAAnnotationMetadata>();
 
 	public static <T> Metadata getMetadata(Type type) {
 		Class<?> klass = null;
@@ -57,8 +88,7 @@ public class JPAAnnotationMetadata implements Metadata {
 
 		JPAAnnotationMetadata md = metadataCache.get(klass);
 		if (md == null) {
-			md = new JPAAnnotationMetadata(klass);
-			metadataCache.put(klass, md);
+			md = metadataCache.computeIfAbsent(klass, JPAAnnotationMetadata::new);
 		}
 		return md;
 	}
@@ -84,28 +114,21 @@ public class JPAAnnotationMetadata implements Metadata {
 
         @Override
 	public String getIdProperty() {
-		for (Property prop : getProps().values()) {
-			if (prop.hasAnnotation(Id.class) || prop.hasAnnotation(EmbeddedId.class)) {
-				return prop.name;
-			}
-		}
-		return null;
+		return idProp == null ? null : idProp.name;
 	}
 
         @Override
 	public Metadata getIdType() {
-		String idProp = getIdProperty();
 		if (idProp != null) {
-			return getPropertyType(idProp);
+			return getMetadata(idProp.getType());
 		}
 		return null;
 	}
 
         @Override
 	public Serializable getIdValue(Object object) {
-		String idProp = getIdProperty();
 		if (idProp != null) {
-			return (Serializable) getPropertyValue(object, idProp);
+			return (Serializable) idProp.getValue(object);
 		}
 		return null;
 	}
@@ -117,17 +140,12 @@ public class JPAAnnotationMetadata implements Metadata {
 
         @Override
 	public String[] getProperties() {
-		String[] array = new String[getProps().size()];
-		int i = 0;
-		for (String prop : getProps().keySet()) {
-			array[i++] = prop;
-		}
-		return array;
+		return propertyNames.clone();
 	}
 
         @Override
 	public Metadata getPropertyType(String property) {
-		Property prop = getProps().get(property);
+		Property prop = props.get(property);
 		if (prop == null)
 			return null;
 		return getMetadata(prop.getType());
@@ -135,7 +153,7 @@ public class JPAAnnotationMetadata implements Metadata {
 
         @Override
 	public Object getPropertyValue(Object object, String property) {
-		Property prop = getProps().get(property);
+		Property prop = props.get(property);
 		if (prop == null)
 			return null;
 		return prop.getValue(object);
@@ -148,12 +166,12 @@ public class JPAAnnotationMetadata implements Metadata {
 
         @Override
 	public boolean isEmbeddable() {
-		return null != klass.getAnnotation(Embeddable.class);
+		return embeddable;
 	}
 
         @Override
 	public boolean isEntity() {
-		return null != klass.getAnnotation(Entity.class);
+		return entity;
 	}
 
         @Override
@@ -166,15 +184,14 @@ public class JPAAnnotationMetadata implements Metadata {
 		return String.class.equals(klass);
 	}
 
-	Map<String, Property> props;
-
-	public synchronized Map<String, Property> getProps() {
-		if (props != null)
-			return props;
+	public Map<String, Property> getProps() {
+		return props;
+	}
 
-		props = new TreeMap<>();
+	private static Map<String, Property> findProps(Class<?> klass, boolean persistable) {
+		Map<String, Property> props = new TreeMap<>();
 		
-		if (!isEntity() && !isEmbeddable())
+		if (!persistable)
 			return props; //Will have no persistable properties.
 
 		for (Field field : klass.getFields()) {
@@ -227,6 +244,10 @@ public class JPAAnnotationMetadata implements Metadata {
 			if (property.hasAnnotation(Transient.class))
 				iterator.remove();
 		}
+
+		for (Property property : props.values()) {
+			property.prepareAccessor();
+		}
 		
 		return props;
 	}
@@ -276,7 +297,34 @@ public class JPAAnnotationMetadata implements Metadata {
 			}
 		}
 
+		/**
+		 * Create the handle used to read the property. Reflection is kept as
+		 * a fallback for members that cannot be unreflected.
+		 */
+		void prepareAccessor() {
+			try {
+				MethodHandle handle = null;
+				if (getter != null) {
+					handle = MethodHandles.publicLookup().unreflect(getter);
+				} else if (field != null) {
+					handle = MethodHandles.publicLookup().unreflectGetter(field);
+				}
+				if (handle != null) {
+					accessor = handle.asType(MethodType.methodType(Object.class, Object.class));
+				}
+			} catch (IllegalAccessException e) {
+				accessor = null;
+			}
+		}
+
 		public Object getValue(Object o) {
+			if (accessor != null) {
+				try {
+					return (Object) accessor.invokeExact(o);
+				} catch (Throwable e) {
+					throw new RuntimeException("Unexpected error getting value of property", e);
+				}
+			}
 			try {
 				if (getter != null) {
 					return getter.invoke(o);
@@ -309,5 +357,6 @@ public class JPAAnnotationMetadata implements Metadata {
 		Field field;
 		Method getter;
 		Method setter;
+		MethodHandle accessor;
 	}
 }
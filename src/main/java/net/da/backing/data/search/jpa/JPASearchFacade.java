@@ -15,6 +15,7 @@
 package net.da.backing.data.search.jpa;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 import javax.persistence.EntityManager;
 
@@ -65,6 +66,16 @@ public class JPASearchFacade implements SearchFacade {
 		return processor.search(entityManager, searchClass, search);
 	}
 
+        @Override
+	public Stream searchStream(ISearch search) {
+		return processor.searchStream(entityManager, search);
+	}
+
+        @Override
+	public Stream searchStream(Class<?> searchClass, ISearch search) {
+		return processor.searchStream(entityManager, searchClass, search);
+	}
+
         @Override
 	public int count(ISearch search) {
 		return processor.count(entityManager, search);
@@ -75,6 +86,26 @@ public class JPASearchFacade implements SearchFacade {
 		return processor.count(entityManager, searchClass, search);
 	}
 
+        @Override
+	public int count(ISearch search, int cap) {
+		return processor.count(entityManager, search, cap);
+	}
+
+        @Override
+	public int count(Class<?> searchClass, ISearch search, int cap) {
+		return processor.count(entityManager, searchClass, search, cap);
+	}
+
+        @Override
+	public boolean exists(ISearch search) {
+		return processor.exists(entityManager, search);
+	}
+
+        @Override
+	public boolean exists(Class<?> searchClass, ISearch search) {
+		return processor.exists(entityManager, searchClass, search);
+	}
+
 	@SuppressWarnings("unchecked")
         @Override
 	public SearchResult searchAndCount(ISearch search) {
@@ -21,7 +21,14 @@ import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
 import javax.persistence.NonUniqueResultException;
 import javax.persistence.Query;
+import javax.persistence.Version;
+import java.beans.Introspector;
+import java.lang.reflect.Method;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import net.da.backing.data.search.BaseSearchProcessor;
 import net.da.backing.data.search.Field;
 import net.da.backing.data.search.ISearch;
@@ -50,6 +57,39 @@ public class JPASearchProcessor extends BaseSearchProcessor {
             super(QLTYPE_EQL, mdu);
     }
 
+    private int streamFetchSize = 100;
+
+    private int streamClearBatchSize = 100;
+
+    /**
+     * The JDBC fetch size hinted to the provider by <code>searchStream()</code>
+     * when none is specified. The default is 100.
+     * 
+     * @return 
+     */
+    public int getStreamFetchSize() {
+            return streamFetchSize;
+    }
+
+    public void setStreamFetchSize(int streamFetchSize) {
+            this.streamFetchSize = streamFetchSize;
+    }
+
+    /**
+     * The number of rows after which <code>searchStream()</code> clears the
+     * EntityManager, when none is specified. The default is 100. 0 means the
+     * EntityManager is never cleared.
+     * 
+     * @return 
+     */
+    public int getStreamClearBatchSize() {
+            return streamClearBatchSize;
+    }
+
+    public void setStreamClearBatchSize(int streamClearBatchSize) {
+            this.streamClearBatchSize = streamClearBatchSize;
+    }
+
     // --- Public Methods ---
 
     /**
@@ -94,6 +134,83 @@ public class JPASearchProcessor extends BaseSearchProcessor {
             return transformResults(query.getResultList(), search);
     }
 
+    /**
+     * <p>
+     * Search for objects based on the search parameters in the specified
+     * <code>ISearch</code> object and return them as a stream that reads rows
+     * as they are consumed (<code>Query.getResultStream()</code>), so searches
+     * of any size can be processed in constant memory. The result mode of the
+     * search is applied to each row as it is read.
+     * 
+     * <p>
+     * To keep the persistence context from growing, the EntityManager is
+     * cleared periodically while the stream is consumed. Any changes pending
+     * in the EntityManager should be flushed before streaming, and entities
+     * from earlier rows become detached. The stream must be closed when done,
+     * e.g. with try-with-resources.
+     * 
+     * @param entityManager
+     * @param search
+     * @return 
+     * @see ISearch
+     */
+    public Stream searchStream(EntityManager entityManager, ISearch search) {
+            if (search == null)
+                    return null;
+
+            return searchStream(entityManager, search.getSearchClass(), search);
+    }
+
+    /**
+     * Same as <code>searchStream(EntityManager, ISearch)</code> except that it
+     * uses the specified searchClass, ignoring the searchClass specified on the
+     * search itself.
+     * 
+     * @param entityManager
+     * @param searchClass
+     * @param search
+     * @return 
+     * @see ISearch
+     */
+    public Stream searchStream(EntityManager entityManager, Class<?> searchClass, ISearch search) {
+            return searchStream(entityManager, searchClass, search, streamFetchSize, streamClearBatchSize);
+    }
+
+    /**
+     * Same as <code>searchStream(EntityManager, Class, ISearch)</code> with the
+     * given JDBC fetch size and clear batch size. The EntityManager is cleared
+     * each time <code>clearBatchSize</code> rows have been read; use 0 to never
+     * clear it.
+     * 
+     * @param entityManager
+     * @param searchClass
+     * @param search
+     * @param fetchSize
+     * @param clearBatchSize
+     * @return 
+     * @see ISearch
+     */
+    @SuppressWarnings("unchecked")
+    public Stream searchStream(EntityManager entityManager, Class<?> searchClass, ISearch search, int fetchSize, int clearBatchSize) {
+            if (searchClass == null || search == null)
+                    return null;
+
+            List<Object> paramList = new ArrayList<>();
+            String ql = generateQL(searchClass, search, paramList);
+            Query query = entityManager.createQuery(ql);
+            addParams(query, paramList);
+            addPaging(query, search);
+            if (fetchSize > 0) {
+                    // there is no standard hint; providers ignore hints they don't know
+                    query.setHint("org.hibernate.fetchSize", fetchSize);
+                    query.setHint("eclipselink.jdbc.fetch-size", fetchSize);
+            }
+
+            Stream<Object> rows = query.getResultStream();
+            ClearingSpliterator spliterator = new ClearingSpliterator(entityManager, rows.spliterator(), getRowTransformer(search), clearBatchSize);
+            return StreamSupport.stream(spliterator, false).onClose(rows::close);
+    }
+
     /**
      * Returns the total number of results that would be returned using the
      * given <code>ISearch</code> if there were no paging or maxResult limits.
@@ -135,6 +252,97 @@ public class JPASearchProcessor extends BaseSearchProcessor {
             return ((Number) query.getSingleResult()).intValue();
     }
 
+    /**
+     * Returns the number of results that would be returned using the given
+     * <code>ISearch</code> if there were no paging or maxResult limits, but no
+     * more than <code>cap</code>. The database stops looking for matches once
+     * the cap is reached, so this is much cheaper than <code>count()</code>
+     * when there are many results. A cap of 0 or less means no cap.
+     * 
+     * @param entityManager
+     * @param search
+     * @param cap
+     * @return 
+     * @see ISearch
+     */
+    public int count(EntityManager entityManager, ISearch search, int cap) {
+            if (search == null)
+                    return 0;
+            return count(entityManager, search.getSearchClass(), search, cap);
+    }
+
+    /**
+     * Same as <code>count(EntityManager, ISearch, int)</code> except that it
+     * uses the specified searchClass, ignoring the searchClass specified on
+     * the search itself.
+     * 
+     * @param entityManager
+     * @param searchClass
+     * @param search
+     * @param cap
+     * @return 
+     * @see ISearch
+     */
+    public int count(EntityManager entityManager, Class<?> searchClass, ISearch search, int cap) {
+            if (searchClass == null || search == null)
+                    return 0;
+            if (cap <= 0)
+                    return count(entityManager, searchClass, search);
+
+            List<Object> paramList = new ArrayList<>();
+            String ql = generateCappedCountQL(searchClass, search, paramList);
+            if (ql == null) { // special case where the query uses column operators
+                    return 1;
+            }
+            Query query = entityManager.createQuery(ql);
+            addParams(query, paramList);
+            query.setMaxResults(cap);
+
+            return query.getResultList().size();
+    }
+
+    /**
+     * Returns true if the given <code>ISearch</code> has any results. Only the
+     * first match is looked for, paging and sorts are ignored.
+     * 
+     * @param entityManager
+     * @param search
+     * @return 
+     * @see ISearch
+     */
+    public boolean exists(EntityManager entityManager, ISearch search) {
+            if (search == null)
+                    return false;
+            return exists(entityManager, search.getSearchClass(), search);
+    }
+
+    /**
+     * Same as <code>exists(EntityManager, ISearch)</code> except that it uses
+     * the specified searchClass, ignoring the searchClass specified on the
+     * search itself.
+     * 
+     * @param entityManager
+     * @param searchClass
+     * @param search
+     * @return 
+     * @see ISearch
+     */
+    public boolean exists(EntityManager entityManager, Class<?> searchClass, ISearch search) {
+            if (searchClass == null || search == null)
+                    return false;
+
+            List<Object> paramList = new ArrayList<>();
+            String ql = generateExistsQL(searchClass, search, paramList);
+            if (ql == null) { // special case where the query uses column operators
+                    return true;
+            }
+            Query query = entityManager.createQuery(ql);
+            addParams(query, paramList);
+            query.setMaxResults(1);
+
+            return !query.getResultList().isEmpty();
+    }
+
     /**
      * Returns a <code>SearchResult</code> object that includes the list of
      * results like <code>search()</code> and the total length like
@@ -169,18 +377,104 @@ public class JPASearchProcessor extends BaseSearchProcessor {
             if (searchClass == null || search == null)
                     return null;
 
+            SearchResult result = null;
+            if (isWindowedCount(search)) {
+                    result = searchAndCountWindowed(entityManager, searchClass, search);
+            } else if (isHasMoreCount(search)) {
+                    result = searchAndCheckMore(entityManager, searchClass, search);
+            }
+
+            if (result == null) {
+                    result = new SearchResult();
+                    result.setResult(search(entityManager, searchClass, search));
+
+                    if (search.getMaxResults() > 0) {
+                            result.setTotalCount(count(entityManager, searchClass, search));
+                    } else {
+                            result.setTotalCount(result.getResult().size() + SearchUtil.calcFirstResult(search));
+                    }
+            }
+
+            addPagingInfo(result, searchClass, search);
+
+            return result;
+    }
+
+    /**
+     * Fetch the page and the total count in a single query using the window
+     * count function. Returns null if the search or the persistence provider
+     * does not support it, in which case the caller falls back to the row
+     * count query.
+     */
+    @SuppressWarnings("unchecked")
+    private SearchResult searchAndCountWindowed(EntityManager entityManager, Class<?> searchClass, ISearch search) {
+            if (!isWindowCountFunctionRegistered(entityManager))
+                    return null;
+
+            List<Object> paramList = new ArrayList<>();
+            String ql = generateWindowedCountQL(searchClass, search, paramList);
+            if (ql == null)
+                    return null;
+            Query query = entityManager.createQuery(ql);
+            addParams(query, paramList);
+            addPaging(query, search);
+
+            List<Object> rows = new ArrayList<>(query.getResultList());
+            int total = removeWindowCount(rows);
+
+            Function<Object, Object> transformer = getRowTransformer(search);
+            for (ListIterator<Object> itr = rows.listIterator(); itr.hasNext();) {
+                    Object[] row = (Object[]) itr.next();
+                    Object value = row.length == 1 ? row[0] : row;
+                    itr.set(transformer == null ? value : transformer.apply(value));
+            }
+
+            if (total < 0) {
+                    // an empty page only tells us the total if it is the first one
+                    total = SearchUtil.calcFirstResult(search) > 0 ? count(entityManager, searchClass, search) : 0;
+            }
+
             SearchResult result = new SearchResult();
-            result.setResult(search(entityManager, searchClass, search));
+            result.setResult(rows);
+            result.setTotalCount(total);
+            return result;
+    }
 
-            if (search.getMaxResults() > 0) {
-                    result.setTotalCount(count(entityManager, searchClass, search));
-            } else {
-                    result.setTotalCount(result.getResult().size() + SearchUtil.calcFirstResult(search));
+    /**
+     * Fetch one row more than <code>maxResults</code> to find out whether there
+     * is a next page, without counting the results.
+     */
+    @SuppressWarnings("unchecked")
+    private SearchResult searchAndCheckMore(EntityManager entityManager, Class<?> searchClass, ISearch search) {
+            List<Object> paramList = new ArrayList<>();
+            String ql = generateQL(searchClass, search, paramList);
+            Query query = entityManager.createQuery(ql);
+            addParams(query, paramList);
+            addPaging(query, search);
+            query.setMaxResults(search.getMaxResults() + 1);
+
+            List results = query.getResultList();
+            boolean hasMore = results.size() > search.getMaxResults();
+            if (hasMore) {
+                    results = new ArrayList(results.subList(0, search.getMaxResults()));
             }
 
+            SearchResult result = new SearchResult();
+            result.setResult(transformResults(results, search));
+            result.setHasMore(hasMore);
             return result;
     }
 
+    /**
+     * The window count function is only available with Hibernate as the
+     * persistence provider, when it has been registered.
+     */
+    private boolean isWindowCountFunctionRegistered(EntityManager entityManager) {
+            // Hibernate may not even be on the class path with another provider
+            return HibernateProviderSupport.isAvailable()
+                            && HibernateProviderSupport.isSQLFunctionRegistered(entityManager.getEntityManagerFactory(), getWindowCountFunction());
+    }
+
     /**
      * Search for a single result using the given parameters.
      * @param entityManager
@@ -218,6 +512,77 @@ public class JPASearchProcessor extends BaseSearchProcessor {
             }
     }
 
+    /**
+     * Delete every entity of the given class that matches the filters of the
+     * search with a single bulk statement. Nothing is loaded: cascades,
+     * orphan removal and lifecycle callbacks are not applied, and instances
+     * already managed by the EntityManager are left there.
+     * @param entityManager
+     * @param entityClass
+     * @param search
+     * @return The number of rows deleted.
+     * @see BaseSearchProcessor#generateDeleteQL(Class, ISearch, List)
+     */
+    public int delete(EntityManager entityManager, Class<?> entityClass, ISearch search) {
+            if (entityClass == null || search == null)
+                    return 0;
+
+            List<Object> paramList = new ArrayList<>();
+            String ql = generateDeleteQL(entityClass, search, paramList);
+            Query query = entityManager.createQuery(ql);
+            addParams(query, paramList);
+
+            return query.executeUpdate();
+    }
+
+    /**
+     * Set the given properties on every entity of the given class that matches
+     * the filters of the search with a single bulk statement. Nothing is
+     * loaded: the version of versioned entities is incremented by the
+     * statement, but lifecycle callbacks are not applied and instances already
+     * managed by the EntityManager keep their old state.
+     * @param entityManager
+     * @param entityClass
+     * @param search
+     * @param values
+     *            property paths mapped to their new values
+     * @return The number of rows updated.
+     * @see BaseSearchProcessor#generateUpdateQL(Class, ISearch, Map, List)
+     */
+    public int update(EntityManager entityManager, Class<?> entityClass, ISearch search, Map<String, ?> values) {
+            if (entityClass == null || search == null)
+                    return 0;
+
+            List<Object> paramList = new ArrayList<>();
+            String ql = generateUpdateQL(entityClass, search, values, paramList);
+            Query query = entityManager.createQuery(ql);
+            addParams(query, paramList);
+
+            return query.executeUpdate();
+    }
+
+    /**
+     * Find the property annotated with <code>@Version</code> on the entity
+     * class or its mapped superclasses. Versions mapped in
+     * <code>orm.xml</code> are not detected.
+     */
+    @Override
+    protected String getVersionProperty(Class<?> entityClass) {
+            for (Class<?> klass = entityClass; klass != null && klass != Object.class; klass = klass.getSuperclass()) {
+                    for (java.lang.reflect.Field field : klass.getDeclaredFields()) {
+                            if (field.isAnnotationPresent(Version.class))
+                                    return field.getName();
+                    }
+                    for (Method method : klass.getDeclaredMethods()) {
+                            if (method.isAnnotationPresent(Version.class)) {
+                                    String name = method.getName();
+                                    return Introspector.decapitalize(name.substring(name.startsWith("is") ? 2 : 3));
+                            }
+                    }
+            }
+            return null;
+    }
+
     // ---- SEARCH HELPERS ---- //
 
     private void addParams(Query query, List<Object> params) {
@@ -264,6 +629,30 @@ public class JPASearchProcessor extends BaseSearchProcessor {
             if (results.isEmpty())
                     return results;
 
+            Function<Object, Object> transformer = getRowTransformer(search);
+            if (transformer == null)
+                    return results;
+
+            try {
+                    // transform in place so the results aren't held in memory twice
+                    results.replaceAll(transformer::apply);
+                    return results;
+            } catch (UnsupportedOperationException ex) {
+                    List transformed = new ArrayList(results.size());
+                    for (Object result : results) {
+                            transformed.add(transformer.apply(result));
+                    }
+                    return transformed;
+            }
+    }
+
+    /**
+     * Return a function that converts a single row of the query result to the
+     * result mode of the search, or <code>null</code> if rows are returned as
+     * is.
+     */
+    @SuppressWarnings("unchecked")
+    static Function<Object, Object> getRowTransformer(ISearch search) {
             int resultMode = search.getResultMode();
             if (resultMode == ISearch.RESULT_AUTO) {
                     int count = 0;
@@ -286,31 +675,25 @@ public class JPASearchProcessor extends BaseSearchProcessor {
 
             switch (resultMode) {
             case ISearch.RESULT_ARRAY:
-                    if (!(results.get(0) instanceof Object[])) {
-                            List<Object[]> rArray = new ArrayList<>(results.size());
-                            results.forEach((result) -> {
-                                rArray.add(new Object[] { result });
-                            });
-                            return rArray;
-                    } else {
-                            return results;
-                    }
-            case ISearch.RESULT_LIST:
-                    List<List> rList = new ArrayList<List>(results.size());
-                    if (results.get(0) instanceof Object[]) {
-                            for (Object[] result : (List<Object[]>) results) {
-                                    List list = new ArrayList(result.length);
-                                    list.addAll(Arrays.asList(result));
-                                    rList.add(list);
+                    return (result) -> {
+                            if (result instanceof Object[]) {
+                                    return result;
+                            } else {
+                                    return new Object[] { result };
                             }
-                    } else {
-                            for (Object result : results) {
+                    };
+            case ISearch.RESULT_LIST:
+                    return (result) -> {
+                            if (result instanceof Object[]) {
+                                    List list = new ArrayList(((Object[]) result).length);
+                                    list.addAll(Arrays.asList((Object[]) result));
+                                    return list;
+                            } else {
                                     List list = new ArrayList(1);
                                     list.add(result);
-                                    rList.add(list);
+                                    return list;
                             }
-                    }
-                    return rList;
+                    };
             case ISearch.RESULT_MAP:
                     List<String> keyList = new ArrayList<String>();
                     Iterator<Field> fieldItr = search.getFields().iterator();
@@ -323,34 +706,62 @@ public class JPASearchProcessor extends BaseSearchProcessor {
                             }
                     }
 
-                    List<Map<String, Object>> rMap = new ArrayList<Map<String, Object>>(results.size());
-                    if (results.get(0) instanceof Object[]) {
-                            for (Object[] result : (List<Object[]>) results) {
-                                    Map<String, Object> map = new HashMap<String, Object>();
+                    return (result) -> {
+                            Map<String, Object> map = new HashMap<String, Object>();
+                            if (result instanceof Object[]) {
                                     for (int i = 0; i < keyList.size(); i++) {
                                             String key = keyList.get(i);
                                             if (key != null) {
-                                                    map.put(key, result[i]);
+                                                    map.put(key, ((Object[]) result)[i]);
                                             }
                                     }
-                                    rMap.add(map);
-                            }
-                    } else if (keyList.size() == 1) {
-                            for (Object result : results) {
-                                    Map<String, Object> map = new HashMap<String, Object>();
-                                    
+                            } else if (keyList.size() == 1) {
                                     if (keyList.get(0) != null)
                                             map.put(keyList.get(0), result);
-                                    rMap.add(map);
+                            } else {
+                                    throw new RuntimeException(
+                                                    "Unexpected condition: a single object was returned from the query for each record, but the Search expects multiple.");
                             }
-                    } else {
-                            throw new RuntimeException(
-                                            "Unexpected condition: a single object was returned from the query for each record, but the Search expects multiple.");
-                    }
-
-                    return rMap;
+                            return map;
+                    };
             default: // ISearch.RESULT_SINGLE
-                    return results;
+                    return null;
+            }
+    }
+
+    /**
+     * Reads rows from the underlying result stream one at a time, converting
+     * each to the result mode of the search, and clears the EntityManager
+     * every <code>clearBatchSize</code> rows.
+     */
+    private static class ClearingSpliterator extends Spliterators.AbstractSpliterator<Object> {
+            private final EntityManager entityManager;
+            private final Spliterator<Object> rows;
+            private final Function<Object, Object> transformer;
+            private final int clearBatchSize;
+
+            private int rowsSinceClear;
+
+            ClearingSpliterator(EntityManager entityManager, Spliterator<Object> rows, Function<Object, Object> transformer,
+                            int clearBatchSize) {
+                    super(Long.MAX_VALUE, Spliterator.ORDERED);
+                    this.entityManager = entityManager;
+                    this.rows = rows;
+                    this.transformer = transformer;
+                    this.clearBatchSize = clearBatchSize;
+            }
+
+            @Override
+            public boolean tryAdvance(Consumer<? super Object> action) {
+                    if (clearBatchSize > 0 && rowsSinceClear >= clearBatchSize) {
+                            // clear before the next row is read so that it stays managed
+                            entityManager.clear();
+                            rowsSinceClear = 0;
+                    }
+                    return rows.tryAdvance((row) -> {
+                            rowsSinceClear++;
+                            action.accept(transformer == null ? row : transformer.apply(row));
+                    });
             }
     }
 }
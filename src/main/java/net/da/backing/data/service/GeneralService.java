@@ -9,6 +9,9 @@ package net.da.backing.data.service;
 import java.io.Serializable;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import net.da.backing.data.dao.BulkWriteResult;
 import net.da.backing.data.dao.hibernate.IGeneralDAO;
 import net.da.backing.data.search.ExampleOptions;
 import net.da.backing.data.search.Filter;
@@ -70,6 +73,24 @@ public class GeneralService
         generalDAO.update(entity);
     }
 
+    @Override
+    public BulkWriteResult bulkSave(Object... entities) {
+        debug("Bulk save {} entities.", entities.length);
+        return generalDAO.bulkSave(entities);
+    }
+
+    @Override
+    public BulkWriteResult bulkUpdate(Object... entities) {
+        debug("Bulk update {} entities.", entities.length);
+        return generalDAO.bulkUpdate(entities);
+    }
+
+    @Override
+    public BulkWriteResult bulkSaveOrUpdate(Object... entities) {
+        debug("Bulk save or update {} entities.", entities.length);
+        return generalDAO.bulkSaveOrUpdate(entities);
+    }
+
     @Override
     public boolean remove(Object entity) {
         debug("Remove entity type[{}].", (entity != null ? entity.getClass() : "entity is null"));
@@ -94,6 +115,24 @@ public class GeneralService
         generalDAO.removeById(type, ids);
     }
 
+    @Override
+    public int removeBySearch(ISearch search) {
+        debug("Remove by search type[{}].", search.getSearchClass());
+        return generalDAO.removeBySearch(search);
+    }
+
+    @Override
+    public boolean updateFields(Class<?> type, Serializable id, Map<String, ?> values) {
+        debug("Update fields[{}] of entity type[{}] with id[{}].", values == null ? null : values.keySet(), type, id);
+        return generalDAO.updateFields(type, id, values);
+    }
+
+    @Override
+    public int updateFieldsBySearch(ISearch search, Map<String, ?> values) {
+        debug("Update fields[{}] by search type[{}].", values == null ? null : values.keySet(), search.getSearchClass());
+        return generalDAO.updateFieldsBySearch(search, values);
+    }
+
     @Override
     public <T> List<T> findAll(Class<T> type) {
         debug("Find all entity type[{}]", type );
@@ -106,6 +145,12 @@ public class GeneralService
         return generalDAO.search(search);
     }
 
+    @Override
+    public Stream searchStream(ISearch search) {
+        debug("Search stream type[{}] with search parameter.", search.getSearchClass());
+        return generalDAO.searchStream(search);
+    }
+
     @Override
     public Object searchUnique(ISearch search) {
         debug("Search unique result type[{}] from search.", search.getSearchClass());
@@ -118,6 +163,18 @@ public class GeneralService
         return generalDAO.count(search);
     }
 
+    @Override
+    public int count(ISearch search, int cap) {
+        debug("Count type[{}] of search with cap[{}].", search.getSearchClass(), cap);
+        return generalDAO.count(search, cap);
+    }
+
+    @Override
+    public boolean exists(ISearch search) {
+        debug("Exists type[{}] of search.", search.getSearchClass());
+        return generalDAO.exists(search);
+    }
+
     @Override
     public SearchResult searchAndCount(ISearch search) {
         debug("Search and count type[{}].", search.getSearchClass());
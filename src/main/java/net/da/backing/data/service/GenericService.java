@@ -10,7 +10,10 @@ import java.io.Serializable;
 import java.lang.reflect.ParameterizedType;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 import javax.transaction.Transactional;
+import net.da.backing.data.dao.BulkWriteResult;
 import net.da.backing.data.dao.hibernate.IGeneralDAO;
 import net.da.backing.data.search.ExampleOptions;
 import net.da.backing.data.search.Filter;
@@ -80,6 +83,24 @@ public class GenericService<T extends Serializable, ID extends Serializable>
         debug("Update entity type {}.", getClassOfT());
         generalDAO.update(entity);
     }
+
+    @Override
+    public BulkWriteResult bulkSave(T... entities) {
+        debug("Bulk save entities type[{}].", getClassOfT());
+        return generalDAO.bulkSave((Object[]) entities);
+    }
+
+    @Override
+    public BulkWriteResult bulkUpdate(T... entities) {
+        debug("Bulk update entities type[{}].", getClassOfT());
+        return generalDAO.bulkUpdate((Object[]) entities);
+    }
+
+    @Override
+    public BulkWriteResult bulkSaveOrUpdate(T... entities) {
+        debug("Bulk save or update entities type[{}].", getClassOfT());
+        return generalDAO.bulkSaveOrUpdate((Object[]) entities);
+    }
     
     @Override
     public boolean remove(T entity) {
@@ -105,6 +126,24 @@ public class GenericService<T extends Serializable, ID extends Serializable>
         generalDAO.removeByIds(getClassOfT(), ids);
     }
 
+    @Override
+    public int removeBySearch(ISearch search) {
+        debug("Remove by search type[{}].", getClassOfT());
+        return generalDAO.removeBySearch(search);
+    }
+
+    @Override
+    public boolean updateFields(ID id, Map<String, ?> values) {
+        debug("Update fields[{}] of entity type[{}] with id[{}].", values == null ? null : values.keySet(), getClassOfT(), id);
+        return generalDAO.updateFields(getClassOfT(), id, values);
+    }
+
+    @Override
+    public int updateFieldsBySearch(ISearch search, Map<String, ?> values) {
+        debug("Update fields[{}] by search type[{}].", values == null ? null : values.keySet(), getClassOfT());
+        return generalDAO.updateFieldsBySearch(search, values);
+    }
+
     @Override
     public List findAll() {
         debug("Find all entity type[{}]", getClassOfT());
@@ -117,6 +156,12 @@ public class GenericService<T extends Serializable, ID extends Serializable>
         return generalDAO.search(search);
     }
 
+    @Override
+    public Stream searchStream(ISearch search) {
+        debug("Search stream type[{}] with search parameter.", getClassOfT());
+        return generalDAO.searchStream(search);
+    }
+
     @Override
     public Object searchUnique(ISearch search) {
         debug("Search unique type[{}] result from search.", getClassOfT());
@@ -129,6 +174,18 @@ public class GenericService<T extends Serializable, ID extends Serializable>
         return generalDAO.count(search);
     }
 
+    @Override
+    public int count(ISearch search, int cap) {
+        debug("Count type[{}] of search with cap[{}].", getClassOfT(), cap);
+        return generalDAO.count(search, cap);
+    }
+
+    @Override
+    public boolean exists(ISearch search) {
+        debug("Exists type[{}] of search.", getClassOfT());
+        return generalDAO.exists(search);
+    }
+
     @Override
     public SearchResult searchAndCount(ISearch search) {
         debug("Search and count type[{}].", getClassOfT());